@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * An axis-aligned bounding box in three-dimensional space, defined by its
+ * minimum and maximum coordinates along each axis. Boxes may be degenerate
+ * (e.g. the box of a planar curve has no thickness), but never empty: the
+ * minimum along each axis is never greater than the maximum.
+ * </p>
+ * Instances of this class are immutable.
+ */
+@EqualsAndHashCode
+@Getter
+public final class Aabb {
+    private final double minX;
+    private final double minY;
+    private final double minZ;
+    private final double maxX;
+    private final double maxY;
+    private final double maxZ;
+
+    private Aabb(double minX, double minY, double minZ, double maxX,
+                 double maxY, double maxZ) {
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    /**
+     * @param minX The minimum X coordinate.
+     * @param minY The minimum Y coordinate.
+     * @param minZ The minimum Z coordinate.
+     * @param maxX The maximum X coordinate.
+     * @param maxY The maximum Y coordinate.
+     * @param maxZ The maximum Z coordinate.
+     * @return The box spanning the given coordinates.
+     *
+     * @throws IllegalArgumentException If any of the coordinates is not
+     *                                  finite, or if a minimum is greater than
+     *                                  the corresponding maximum.
+     */
+    public static Aabb of(double minX, double minY, double minZ, double maxX,
+                          double maxY, double maxZ) {
+        if (!Double.isFinite(minX) || !Double.isFinite(minY) ||
+                !Double.isFinite(minZ) || !Double.isFinite(maxX) ||
+                !Double.isFinite(maxY) || !Double.isFinite(maxZ)) {
+            throw new IllegalArgumentException("coordinates must be finite");
+        }
+        if (minX > maxX || minY > maxY || minZ > maxZ) {
+            throw new IllegalArgumentException(
+                    "minimum coordinates cannot be greater than maximum " +
+                            "coordinates");
+        }
+        return new Aabb(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * @param coordinates Packed coordinates of points (x0, y0, z0, x1, y1, z1,
+     *                    ...), as created by {@link Coordinates}.
+     * @return The smallest box containing all the points.
+     *
+     * @throws NullPointerException     If coordinates is null.
+     * @throws IllegalArgumentException If coordinates is empty, if its length
+     *                                  is not a multiple of 3, or if any of
+     *                                  the coordinates is not finite.
+     */
+    public static Aabb of(@NonNull double[] coordinates) {
+        if (coordinates.length == 0 || coordinates.length % 3 != 0) {
+            throw new IllegalArgumentException(
+                    "coordinates must contain at least one point, and its " +
+                            "length must be a multiple of 3");
+        }
+        double minX = coordinates[0], maxX = minX;
+        double minY = coordinates[1], maxY = minY;
+        double minZ = coordinates[2], maxZ = minZ;
+        for (int i = 3; i < coordinates.length; i += 3) {
+            double x = coordinates[i];
+            double y = coordinates[i + 1];
+            double z = coordinates[i + 2];
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+            minZ = Math.min(minZ, z);
+            maxZ = Math.max(maxZ, z);
+        }
+        return of(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * @param other Another box.
+     * @return The smallest box containing both this box and other.
+     *
+     * @throws NullPointerException If other is null.
+     */
+    public Aabb union(@NonNull Aabb other) {
+        return new Aabb(Math.min(minX, other.minX), Math.min(minY, other.minY),
+                        Math.min(minZ, other.minZ), Math.max(maxX, other.maxX),
+                        Math.max(maxY, other.maxY), Math.max(maxZ, other.maxZ));
+    }
+
+    /**
+     * @param other Another box.
+     * @return The box containing the points which are in both this box and
+     * other, null if there's no such point.
+     *
+     * @throws NullPointerException If other is null.
+     */
+    public Aabb intersection(@NonNull Aabb other) {
+        if (!intersects(other)) {
+            return null;
+        }
+        return new Aabb(Math.max(minX, other.minX), Math.max(minY, other.minY),
+                        Math.max(minZ, other.minZ), Math.min(maxX, other.maxX),
+                        Math.min(maxY, other.maxY), Math.min(maxZ, other.maxZ));
+    }
+
+    /**
+     * @param other Another box.
+     * @return {@code true} if this box and other have at least one point in
+     * common, including points on their boundaries.
+     *
+     * @throws NullPointerException If other is null.
+     */
+    public boolean intersects(@NonNull Aabb other) {
+        return minX <= other.maxX && other.minX <= maxX &&
+                minY <= other.maxY && other.minY <= maxY &&
+                minZ <= other.maxZ && other.minZ <= maxZ;
+    }
+
+    /**
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @return {@code true} if the point is inside this box or on its
+     * boundary.
+     */
+    public boolean contains(double x, double y, double z) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY &&
+                minZ <= z && z <= maxZ;
+    }
+
+    /**
+     * @param margin The distance by which each face of the box is moved
+     *               outwards, or inwards if negative.
+     * @return The box grown by margin in every direction.
+     *
+     * @throws IllegalArgumentException If margin is not finite, or if it is so
+     *                                  negative that the box would be empty.
+     */
+    public Aabb expand(double margin) {
+        return of(minX - margin, minY - margin, minZ - margin, maxX + margin,
+                  maxY + margin, maxZ + margin);
+    }
+
+    /**
+     * Computes the box of the transformed corners of this box without
+     * transforming them one by one: the centre is transformed as a point, and
+     * the half-extents by the absolute values of the linear part of the
+     * matrix.
+     *
+     * @param transform The transformation to apply.
+     * @return The smallest box containing this box transformed by transform.
+     *
+     * @throws NullPointerException If transform is null.
+     */
+    public Aabb transform(@NonNull Transform transform) {
+        if (transform == Transform.identity()) {
+            return this;
+        }
+        double cx = (minX + maxX) / 2;
+        double cy = (minY + maxY) / 2;
+        double cz = (minZ + maxZ) / 2;
+        double ex = (maxX - minX) / 2;
+        double ey = (maxY - minY) / 2;
+        double ez = (maxZ - minZ) / 2;
+        double[] centre = new double[3];
+        double[] extents = new double[3];
+        for (int row = 0; row < 3; row++) {
+            double m0 = transform.get(row, 0);
+            double m1 = transform.get(row, 1);
+            double m2 = transform.get(row, 2);
+            centre[row] = m0 * cx + m1 * cy + m2 * cz + transform.get(row, 3);
+            extents[row] = Math.abs(m0) * ex + Math.abs(m1) * ey +
+                    Math.abs(m2) * ez;
+        }
+        return new Aabb(centre[0] - extents[0], centre[1] - extents[1],
+                        centre[2] - extents[2], centre[0] + extents[0],
+                        centre[1] + extents[1], centre[2] + extents[2]);
+    }
+
+    /**
+     * @return The coordinates of this box in the order minX, minY, minZ, maxX,
+     * maxY, maxZ.
+     */
+    public double[] toArray() {
+        return new double[]{minX, minY, minZ, maxX, maxY, maxZ};
+    }
+
+    @Override
+    public String toString() {
+        return "Aabb[(" + minX + ", " + minY + ", " + minZ + "), (" + maxX +
+                ", " + maxY + ", " + maxZ + ")]";
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * Computes axis-aligned bounding boxes of representation items, in the
+ * coordinate system in which they're defined, and of products, in the world
+ * coordinate system. The supported items are:
+ * <ul>
+ * <li>{@link IfcExtrudedAreaSolid}, whose profile is an {@link
+ * IfcRectangleProfileDef}, {@link IfcCircleProfileDef}, {@link
+ * IfcEllipseProfileDef}, {@link IfcIShapeProfileDef}, {@link
+ * IfcLShapeProfileDef}, {@link IfcTShapeProfileDef}, {@link
+ * IfcUShapeProfileDef}, {@link IfcTrapeziumProfileDef} (or one of their
+ * subtypes, except {@link IfcAsymmetricIShapeProfileDef}) or an {@link
+ * IfcArbitraryClosedProfileDef} whose outer curve is supported;</li>
+ * <li>{@link IfcManifoldSolidBrep}, {@link IfcConnectedFaceSet} and {@link
+ * IfcPolyLoop}, whose loops are all {@link IfcPolyLoop};</li>
+ * <li>the curves {@link IfcPolyline} and {@link IfcCircle};</li>
+ * <li>{@link IfcSweptDiskSolid}, whose directrix is a supported curve;</li>
+ * <li>{@link IfcBooleanResult}, whose operands are supported, except for the
+ * second operand of a difference and one of the operands of an intersection,
+ * which can be any operand (such as an {@link IfcHalfSpaceSolid}).</li>
+ * </ul>
+ * Boxes are exact for points, polylines, loops, faces and circles, and
+ * conservative for solids: they always contain the solid, but might be
+ * larger than the smallest box which does (e.g. the box of a difference is the
+ * box of its first operand).
+ * </p>
+ * The box of every representation item computed so far is memoized, keyed by
+ * the identity of the item rather than by its value, so that items shared by
+ * many representations are computed once, and finding a memoized box never
+ * compares the (possibly very large) attributes of items. Products are placed
+ * in the world coordinate system by a {@link PlacementResolver}.
+ * </p>
+ * Instances of this class are thread-safe, and {@link
+ * #worldBoundsAll(List)} computes boxes of products in parallel.
+ */
+public class BoundsCalculator {
+    private final ConcurrentMap<IdentityKey<IfcRepresentationItem>, Aabb>
+            bounds = new ConcurrentHashMap<>();
+    /**
+     * The resolver used to place products in the world coordinate system.
+     */
+    @Getter
+    private final PlacementResolver placementResolver;
+
+    /**
+     * Creates a calculator with its own {@link PlacementResolver}.
+     */
+    public BoundsCalculator() {
+        this(new PlacementResolver());
+    }
+
+    /**
+     * @param placementResolver The resolver used to place products in the
+     *                          world coordinate system, it can be shared with
+     *                          other users.
+     * @throws NullPointerException If placementResolver is null.
+     */
+    public BoundsCalculator(@NonNull PlacementResolver placementResolver) {
+        this.placementResolver = placementResolver;
+    }
+
+    /**
+     * @param product The product whose box should be computed.
+     * @return The box of all the items of all the representations of product,
+     * in the world coordinate system, or null if product has no
+     * representation or if any of its items is not supported.
+     *
+     * @throws NullPointerException     If product is null.
+     * @throws IllegalArgumentException If the placement of product can't be
+     *                                  resolved by {@link
+     *                                  PlacementResolver#resolve(IfcProduct)}.
+     */
+    public Aabb worldBounds(@NonNull IfcProduct product) {
+        Aabb local = localBounds(product);
+        return local == null ? null :
+                local.transform(placementResolver.resolve(product));
+    }
+
+    /**
+     * Computes the boxes of many products in parallel.
+     *
+     * @param products The products whose boxes should be computed. The List
+     *                 should support fast random access.
+     * @return The boxes of the products in the world coordinate system, as
+     * returned by {@link #worldBounds(IfcProduct)}, in the same order as
+     * products.
+     *
+     * @throws NullPointerException     If products is null or contains null
+     *                                  elements.
+     * @throws IllegalArgumentException If the placement of any of the products
+     *                                  can't be resolved.
+     */
+    public Aabb[] worldBoundsAll(@NonNull List<? extends IfcProduct> products) {
+        Aabb[] result = new Aabb[products.size()];
+        IntStream.range(0, result.length).parallel()
+                .forEach(i -> result[i] = worldBounds(products.get(i)));
+        return result;
+    }
+
+    /**
+     * @param product The product whose box should be computed.
+     * @return The box of all the items of all the representations of product,
+     * in the object coordinate system of product, or null if product has no
+     * representation or if any of its items is not supported.
+     *
+     * @throws NullPointerException If product is null.
+     */
+    public Aabb localBounds(@NonNull IfcProduct product) {
+        IfcProductRepresentation representation = product.getRepresentation();
+        if (representation == null) {
+            return null;
+        }
+        Aabb result = null;
+        for (IfcRepresentation r : representation.getRepresentations()) {
+            for (IfcRepresentationItem item : r.getItems()) {
+                Aabb box = localBounds(item);
+                if (box == null) {
+                    return null;
+                }
+                result = result == null ? box : result.union(box);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param item The representation item whose box should be computed.
+     * @return The box of item in the coordinate system in which it is defined,
+     * where two-dimensional items lie in the XY plane, or null if item is not
+     * supported.
+     *
+     * @throws NullPointerException If item is null.
+     */
+    public Aabb localBounds(@NonNull IfcRepresentationItem item) {
+        IdentityKey<IfcRepresentationItem> key = new IdentityKey<>(item);
+        Aabb box = bounds.get(key);
+        if (box == null) {
+            box = compute(item);
+            if (box != null) {
+                Aabb previous = bounds.putIfAbsent(key, box);
+                if (previous != null) {
+                    box = previous;
+                }
+            }
+        }
+        return box;
+    }
+
+    /**
+     * @return The number of representation items whose box is memoized.
+     */
+    public int size() {
+        return bounds.size();
+    }
+
+    /**
+     * Forgets all memoized boxes. Memoized placements are kept, since the
+     * {@link PlacementResolver} might be shared.
+     */
+    public void clear() {
+        bounds.clear();
+    }
+
+    private Aabb compute(IfcRepresentationItem item) {
+        if (item instanceof IfcExtrudedAreaSolid) {
+            return extrudedAreaSolid((IfcExtrudedAreaSolid) item);
+        }
+        if (item instanceof IfcManifoldSolidBrep) {
+            return localBounds(((IfcManifoldSolidBrep) item).getOuter());
+        }
+        if (item instanceof IfcConnectedFaceSet) {
+            return faces(((IfcConnectedFaceSet) item).getCfsFaces());
+        }
+        if (item instanceof IfcPolyLoop) {
+            return Aabb.of(Coordinates.pack(
+                    ((IfcPolyLoop) item).getPolygon()));
+        }
+        if (item instanceof IfcPolyline) {
+            return Aabb.of(Coordinates.pack((IfcPolyline) item));
+        }
+        if (item instanceof IfcCircle) {
+            return circle((IfcCircle) item);
+        }
+        if (item instanceof IfcSweptDiskSolid) {
+            IfcSweptDiskSolid solid = (IfcSweptDiskSolid) item;
+            Aabb directrix = localBounds(solid.getDirectrix());
+            return directrix == null ? null :
+                    directrix.expand(solid.getRadius().getValue());
+        }
+        if (item instanceof IfcBooleanResult) {
+            return booleanResult((IfcBooleanResult) item);
+        }
+        return null;
+    }
+
+    private Aabb faces(Collection<IfcFace> faces) {
+        Aabb result = null;
+        for (IfcFace face : faces) {
+            for (IfcFaceBound bound : face.getBounds()) {
+                Aabb box = localBounds(bound.getBound());
+                if (box == null) {
+                    return null;
+                }
+                result = result == null ? box : result.union(box);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The box of a circle lying in a plane with unit normal n has, along each
+     * axis i, a half-extent of radius * sqrt(1 - n[i]^2).
+     */
+    private static Aabb circle(IfcCircle circle) {
+        Transform position = Transform.of(circle.getPosition());
+        double radius = circle.getRadius().getValue();
+        double[] centre = new double[3];
+        double[] extents = new double[3];
+        for (int i = 0; i < 3; i++) {
+            double n = position.get(i, 2);
+            centre[i] = position.get(i, 3);
+            extents[i] = radius * Math.sqrt(Math.max(0, 1 - n * n));
+        }
+        return Aabb.of(centre[0] - extents[0], centre[1] - extents[1],
+                       centre[2] - extents[2], centre[0] + extents[0],
+                       centre[1] + extents[1], centre[2] + extents[2]);
+    }
+
+    /**
+     * The solid is the Minkowski sum of the profile and of the extrusion
+     * vector, so its box is the box of the profile stretched by the vector,
+     * which is then placed by the position of the solid.
+     */
+    private Aabb extrudedAreaSolid(IfcExtrudedAreaSolid solid) {
+        Aabb profile = profile(solid.getSweptArea());
+        if (profile == null) {
+            return null;
+        }
+        IfcDirection direction = solid.getExtrudedDirection();
+        double[] d = {direction.getDirectionRatio(0),
+                direction.getDirectionRatio(1), direction.getDirectionRatio(2)};
+        double scale = solid.getDepth().getValue() /
+                Math.sqrt(d[0] * d[0] + d[1] * d[1] + d[2] * d[2]);
+        Aabb swept = Aabb.of(
+                profile.getMinX() + Math.min(0, d[0] * scale),
+                profile.getMinY() + Math.min(0, d[1] * scale),
+                profile.getMinZ() + Math.min(0, d[2] * scale),
+                profile.getMaxX() + Math.max(0, d[0] * scale),
+                profile.getMaxY() + Math.max(0, d[1] * scale),
+                profile.getMaxZ() + Math.max(0, d[2] * scale));
+        return swept.transform(Transform.of(solid.getPosition()));
+    }
+
+    /**
+     * @return The box of profile in the XY plane of the coordinate system in
+     * which it is placed, or null if profile is not supported.
+     */
+    private Aabb profile(IfcProfileDef profile) {
+        if (profile instanceof IfcArbitraryClosedProfileDef) {
+            return localBounds(
+                    ((IfcArbitraryClosedProfileDef) profile).getOuterCurve());
+        }
+        if (!(profile instanceof IfcParameterizedProfileDef)) {
+            return null;
+        }
+        // boxes in the position coordinate system of the profile, whose
+        // origin is the centre of the bounding box for all the supported
+        // profiles except the trapezium
+        double maxX, maxY;
+        if (profile instanceof IfcRectangleProfileDef) {
+            IfcRectangleProfileDef rectangle = (IfcRectangleProfileDef) profile;
+            maxX = rectangle.getXDim().getValue() / 2;
+            maxY = rectangle.getYDim().getValue() / 2;
+        } else if (profile instanceof IfcCircleProfileDef) {
+            maxX = maxY = ((IfcCircleProfileDef) profile).getRadius()
+                    .getValue();
+        } else if (profile instanceof IfcEllipseProfileDef) {
+            IfcEllipseProfileDef ellipse = (IfcEllipseProfileDef) profile;
+            maxX = ellipse.getSemiAxis1().getValue();
+            maxY = ellipse.getSemiAxis2().getValue();
+        } else if (profile instanceof IfcIShapeProfileDef &&
+                !(profile instanceof IfcAsymmetricIShapeProfileDef)) {
+            IfcIShapeProfileDef iShape = (IfcIShapeProfileDef) profile;
+            maxX = iShape.getOverallWidth().getValue() / 2;
+            maxY = iShape.getOverallDepth().getValue() / 2;
+        } else if (profile instanceof IfcLShapeProfileDef) {
+            IfcLShapeProfileDef lShape = (IfcLShapeProfileDef) profile;
+            // width defaults to depth if omitted
+            IfcPositiveLengthMeasure width = lShape.getWidth() == null ?
+                    lShape.getDepth() : lShape.getWidth();
+            maxX = width.getValue() / 2;
+            maxY = lShape.getDepth().getValue() / 2;
+        } else if (profile instanceof IfcTShapeProfileDef) {
+            IfcTShapeProfileDef tShape = (IfcTShapeProfileDef) profile;
+            maxX = tShape.getFlangeWidth().getValue() / 2;
+            maxY = tShape.getDepth().getValue() / 2;
+        } else if (profile instanceof IfcUShapeProfileDef) {
+            IfcUShapeProfileDef uShape = (IfcUShapeProfileDef) profile;
+            maxX = uShape.getFlangeWidth().getValue() / 2;
+            maxY = uShape.getDepth().getValue() / 2;
+        } else if (profile instanceof IfcTrapeziumProfileDef) {
+            return trapezium((IfcTrapeziumProfileDef) profile);
+        } else {
+            return null;
+        }
+        return Aabb.of(-maxX, -maxY, 0, maxX, maxY, 0).transform(Transform.of(
+                ((IfcParameterizedProfileDef) profile).getPosition()));
+    }
+
+    /**
+     * The bottom edge is centred on the Y axis and the top edge is shifted by
+     * TopXOffset from the left end of the bottom edge.
+     */
+    private static Aabb trapezium(IfcTrapeziumProfileDef trapezium) {
+        double bottom = trapezium.getBottomXDim().getValue() / 2;
+        double topStart = trapezium.getTopXOffset().getValue() - bottom;
+        double topEnd = topStart + trapezium.getTopXDim().getValue();
+        double maxY = trapezium.getYDim().getValue() / 2;
+        return Aabb.of(Math.min(-bottom, topStart), -maxY, 0,
+                       Math.max(bottom, topEnd), maxY, 0)
+                .transform(Transform.of(trapezium.getPosition()));
+    }
+
+    private Aabb booleanResult(IfcBooleanResult result) {
+        Aabb first = operand(result.getFirstOperand());
+        if (result.getOperator() == IfcBooleanOperator.DIFFERENCE) {
+            // subtracting can only shrink the first operand
+            return first;
+        }
+        Aabb second = operand(result.getSecondOperand());
+        if (result.getOperator() == IfcBooleanOperator.UNION) {
+            return first == null || second == null ? null : first.union(second);
+        }
+        // an intersection is contained in each of its operands, unbounded or
+        // unsupported operands (such as half spaces) can be ignored
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        Aabb intersection = first.intersection(second);
+        // operands whose boxes are disjoint have an empty intersection, the
+        // box of the first one is returned rather than null, which would mean
+        // that the result is not supported
+        return intersection == null ? first : intersection;
+    }
+
+    private Aabb operand(IfcBooleanOperand operand) {
+        return operand instanceof IfcRepresentationItem ?
+                localBounds((IfcRepresentationItem) operand) : null;
+    }
+}
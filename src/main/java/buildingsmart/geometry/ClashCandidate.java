@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import buildingsmart.ifc.IfcProduct;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+
+/**
+ * Two products whose bounding boxes overlap, and which should therefore be
+ * checked for an actual clash. The products are ordered by their GlobalId, so
+ * that the same two products always make equal candidates regardless of the
+ * order in which they were found.
+ */
+@EqualsAndHashCode
+@Getter
+public final class ClashCandidate {
+    private final IfcProduct first;
+    private final IfcProduct second;
+
+    /**
+     * @param a One of the products.
+     * @param b The other product.
+     * @throws NullPointerException     If a or b are null.
+     * @throws IllegalArgumentException If a and b have the same GlobalId.
+     */
+    public ClashCandidate(@NonNull IfcProduct a, @NonNull IfcProduct b) {
+        int comparison = compare(a.getGlobalId(), b.getGlobalId());
+        if (comparison == 0) {
+            throw new IllegalArgumentException(
+                    "a and b must have different GlobalIds");
+        }
+        first = comparison < 0 ? a : b;
+        second = comparison < 0 ? b : a;
+    }
+
+    private static int compare(IfcGloballyUniqueId a, IfcGloballyUniqueId b) {
+        int comparison = Long.compare(a.getMostSignificantBits(),
+                                      b.getMostSignificantBits());
+        if (comparison == 0) {
+            comparison = Long.compare(a.getLeastSignificantBits(),
+                                      b.getLeastSignificantBits());
+        }
+        // only values with excess bits can be equal up to here
+        return comparison != 0 ? comparison :
+                a.getValue().compareTo(b.getValue());
+    }
+
+    /**
+     * @param product A product.
+     * @return {@code true} if product is one of the products of this
+     * candidate.
+     */
+    public boolean involves(IfcProduct product) {
+        return first.equals(product) || second.equals(product);
+    }
+
+    @Override
+    public String toString() {
+        return "ClashCandidate(first=" + first.getGlobalId() + ", second=" +
+                second.getGlobalId() + ")";
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the pairs of building elements whose world bounding boxes overlap,
+ * which are the candidates to be checked for actual clashes by a more precise
+ * (and more expensive) test.
+ * </p>
+ * Candidates are found by sweep and prune: the boxes are sorted by their
+ * minimum X coordinate, and each box is compared only with the following
+ * ones which start before it ends along X. Sorting and the sweep run in
+ * parallel.
+ * </p>
+ * By default the elements checked are the instances of {@link #DEFAULT_TYPES}
+ * contained in any spatial structure element, this can be restricted by type
+ * and by storey when building the detector. Elements whose boxes can't be
+ * computed by the {@link BoundsCalculator} are ignored.
+ * </p>
+ * {@link #detect(Collection)} checks all the elements, {@link
+ * #update(Collection)} only the ones which changed since the previous call:
+ * an element has changed if there was no element with the same GlobalId, or
+ * if its placement or representation is different. The boxes of the other
+ * elements are reused, and only the candidates involving changed elements
+ * are searched for and returned. Instances of this class are thread-safe.
+ */
+public class ClashDetector {
+    /**
+     * The types of elements checked by default: walls, members, plates,
+     * building element proxies and distribution flow elements.
+     */
+    public static final Set<Class<? extends IfcProduct>> DEFAULT_TYPES =
+            Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+                    IfcWall.class, IfcMember.class, IfcPlate.class,
+                    IfcBuildingElementProxy.class,
+                    IfcDistributionFlowElement.class)));
+    private static final int CHUNK_SIZE = 1024;
+    private final BoundsCalculator boundsCalculator;
+    /**
+     * The distance below which the boxes of two elements are considered
+     * overlapping, measured along each axis.
+     */
+    @Getter
+    private final double tolerance;
+    private final Set<Class<? extends IfcProduct>> includedTypes;
+    private final Set<Class<? extends IfcProduct>> excludedTypes;
+    private final Set<IfcBuildingStorey> includedStoreys;
+    private final Set<IfcBuildingStorey> excludedStoreys;
+    /**
+     * The elements checked by the last detection, by product.
+     */
+    private Map<IfcProduct, Element> elements = new HashMap<>(0);
+    private Set<ClashCandidate> candidates = new HashSet<>(0);
+
+    /**
+     * @param boundsCalculator The calculator of the world boxes of elements,
+     *                         if null the detector uses its own.
+     * @param tolerance        The distance below which the boxes of two
+     *                         elements are considered overlapping, measured
+     *                         along each axis. 0 means that boxes must touch.
+     * @param includedTypes    The types of the elements to check, if empty
+     *                         {@link #DEFAULT_TYPES}. Subtypes are included.
+     * @param excludedTypes    The types of the elements not to check, even if
+     *                         they're subtypes of included types.
+     * @param includedStoreys  The storeys whose elements should be checked, if
+     *                         empty elements are checked regardless of their
+     *                         storey.
+     * @param excludedStoreys  The storeys whose elements shouldn't be checked.
+     * @throws NullPointerException     If any of the Sets is null.
+     * @throws IllegalArgumentException If tolerance is negative or not
+     *                                  finite.
+     */
+    @Builder
+    public ClashDetector(BoundsCalculator boundsCalculator,
+                         double tolerance,
+                         @Singular Set<Class<? extends IfcProduct>> includedTypes,
+                         @Singular Set<Class<? extends IfcProduct>> excludedTypes,
+                         @Singular Set<IfcBuildingStorey> includedStoreys,
+                         @Singular Set<IfcBuildingStorey> excludedStoreys) {
+        if (!(tolerance >= 0) || Double.isInfinite(tolerance)) {
+            throw new IllegalArgumentException(
+                    "tolerance must be finite and not negative");
+        }
+        this.boundsCalculator = boundsCalculator == null ?
+                new BoundsCalculator() : boundsCalculator;
+        this.tolerance = tolerance;
+        this.includedTypes = includedTypes.isEmpty() ? DEFAULT_TYPES :
+                new HashSet<>(includedTypes);
+        this.excludedTypes = new HashSet<>(excludedTypes);
+        this.includedStoreys = new HashSet<>(includedStoreys);
+        this.excludedStoreys = new HashSet<>(excludedStoreys);
+    }
+
+    /**
+     * Checks all the elements contained in spatial structure elements through
+     * relationships, forgetting the results of any previous detection.
+     *
+     * @param relationships The relationships whose related elements should be
+     *                      checked.
+     * @return All the candidates, in no particular order.
+     *
+     * @throws NullPointerException     If relationships is null or contains
+     *                                  null elements.
+     * @throws IllegalArgumentException If the placement of any of the elements
+     *                                  can't be resolved.
+     */
+    public synchronized List<ClashCandidate> detect(
+            Collection<IfcRelContainedInSpatialStructure> relationships) {
+        elements = new HashMap<>(0);
+        candidates = new HashSet<>(0);
+        return update(relationships);
+    }
+
+    /**
+     * Checks the elements contained in spatial structure elements through
+     * relationships which changed since the previous detection, and forgets
+     * the candidates involving elements which changed or aren't contained
+     * anymore.
+     *
+     * @param relationships The relationships whose related elements should be
+     *                      checked, including the ones which didn't change.
+     * @return The candidates involving elements which changed, in no
+     * particular order. They're all the candidates if there was no previous
+     * detection.
+     *
+     * @throws NullPointerException     If relationships is null or contains
+     *                                  null elements.
+     * @throws IllegalArgumentException If the placement of any of the elements
+     *                                  can't be resolved.
+     */
+    public synchronized List<ClashCandidate> update(
+            Collection<IfcRelContainedInSpatialStructure> relationships) {
+        Map<IfcProduct, Element> current = new HashMap<>();
+        List<Element> changed = new ArrayList<>();
+        for (IfcRelContainedInSpatialStructure relationship : relationships) {
+            IfcSpatialStructureElement structure =
+                    relationship.getRelatingStructure();
+            IfcBuildingStorey storey = structure instanceof IfcBuildingStorey ?
+                    (IfcBuildingStorey) structure : null;
+            for (IfcProduct product : relationship.getRelatedElements()) {
+                if (!isChecked(product, storey)) {
+                    continue;
+                }
+                Element previous = elements.get(product);
+                if (previous != null && !previous.changed(product)) {
+                    current.put(product, new Element(product, previous.box));
+                } else {
+                    Element element = new Element(product, null);
+                    current.put(product, element);
+                    changed.add(element);
+                }
+            }
+        }
+        Aabb[] boxes = boundsCalculator.worldBoundsAll(changed.stream()
+                .map(element -> element.product).collect(Collectors.toList()));
+        int changedCount = 0;
+        for (int i = 0; i < boxes.length; i++) {
+            Element element = changed.get(i);
+            if (boxes[i] == null) {
+                current.remove(element.product);
+            } else {
+                element.box = boxes[i];
+                element.changed = true;
+                changedCount++;
+            }
+        }
+        // forget the candidates involving elements which changed or were
+        // removed
+        candidates.removeIf(candidate ->
+                !isUnchanged(current, candidate.getFirst()) ||
+                        !isUnchanged(current, candidate.getSecond()));
+        elements = current;
+        if (changedCount == 0) {
+            return new ArrayList<>(0);
+        }
+        List<ClashCandidate> found = sweep(current.values().toArray(
+                new Element[0]), changedCount != current.size());
+        candidates.addAll(found);
+        return found;
+    }
+
+    private static boolean isUnchanged(Map<IfcProduct, Element> elements,
+                                       IfcProduct product) {
+        Element element = elements.get(product);
+        return element != null && !element.changed;
+    }
+
+    /**
+     * @return All the candidates found by the previous detections which
+     * involve elements which are still checked, in no particular order.
+     */
+    public synchronized List<ClashCandidate> getCandidates() {
+        return new ArrayList<>(candidates);
+    }
+
+    private boolean isChecked(IfcProduct product, IfcBuildingStorey storey) {
+        if (!isInstance(includedTypes, product) ||
+                isInstance(excludedTypes, product)) {
+            return false;
+        }
+        if (!includedStoreys.isEmpty() && !includedStoreys.contains(storey)) {
+            return false;
+        }
+        return storey == null || !excludedStoreys.contains(storey);
+    }
+
+    private static boolean isInstance(Set<Class<? extends IfcProduct>> types,
+                                      IfcProduct product) {
+        for (Class<? extends IfcProduct> type : types) {
+            if (type.isInstance(product)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param all         The elements to sweep.
+     * @param changedOnly Whether only pairs involving at least one changed
+     *                    element should be returned.
+     * @return The pairs of elements whose boxes, grown by half the tolerance,
+     * overlap.
+     */
+    private List<ClashCandidate> sweep(Element[] all, boolean changedOnly) {
+        int n = all.length;
+        double margin = tolerance / 2;
+        double[] boxes = new double[6 * n];
+        long[] keys = new long[n];
+        IntStream.range(0, n).parallel().forEach(i -> {
+            Aabb box = all[i].box;
+            int offset = 6 * i;
+            boxes[offset] = box.getMinX() - margin;
+            boxes[offset + 1] = box.getMinY() - margin;
+            boxes[offset + 2] = box.getMinZ() - margin;
+            boxes[offset + 3] = box.getMaxX() + margin;
+            boxes[offset + 4] = box.getMaxY() + margin;
+            boxes[offset + 5] = box.getMaxZ() + margin;
+            keys[i] = ((long) sortableBits(floor(boxes[offset])) << 32) | i;
+        });
+        Arrays.parallelSort(keys);
+        int[] order = new int[n];
+        float[] minX = new float[n];
+        for (int p = 0; p < n; p++) {
+            order[p] = (int) keys[p];
+            minX[p] = floor(boxes[6 * order[p]]);
+        }
+        int chunks = (n + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        return IntStream.range(0, chunks).parallel().mapToObj(chunk -> {
+            List<ClashCandidate> found = new ArrayList<>();
+            int end = Math.min(n, (chunk + 1) * CHUNK_SIZE);
+            for (int p = chunk * CHUNK_SIZE; p < end; p++) {
+                int i = order[p];
+                double maxX = boxes[6 * i + 3];
+                // minX is rounded down, so no overlapping box is skipped
+                for (int q = p + 1; q < n && minX[q] <= maxX; q++) {
+                    int j = order[q];
+                    if ((!changedOnly || all[i].changed || all[j].changed) &&
+                            overlap(boxes, 6 * i, 6 * j)) {
+                        found.add(new ClashCandidate(all[i].product,
+                                                     all[j].product));
+                    }
+                }
+            }
+            return found;
+        }).flatMap(List::stream).collect(Collectors.toList());
+    }
+
+    private static boolean overlap(double[] boxes, int a, int b) {
+        return boxes[a] <= boxes[b + 3] && boxes[b] <= boxes[a + 3] &&
+                boxes[a + 1] <= boxes[b + 4] && boxes[b + 1] <= boxes[a + 4] &&
+                boxes[a + 2] <= boxes[b + 5] && boxes[b + 2] <= boxes[a + 5];
+    }
+
+    /**
+     * @return The greatest float not greater than value.
+     */
+    private static float floor(double value) {
+        float result = (float) value;
+        return result > value ? Math.nextDown(result) : result;
+    }
+
+    /**
+     * @return An int which sorts like value.
+     */
+    private static int sortableBits(float value) {
+        int bits = Float.floatToIntBits(value);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    /**
+     * An element being checked, with what its box depends on.
+     */
+    private static final class Element {
+        final IfcProduct product;
+        final IfcObjectPlacement placement;
+        final IfcProductRepresentation representation;
+        Aabb box;
+        /**
+         * Whether the box was computed by the current detection.
+         */
+        boolean changed;
+
+        Element(IfcProduct product, Aabb box) {
+            this.product = product;
+            this.placement = product.getObjectPlacement();
+            this.representation = product.getRepresentation();
+            this.box = box;
+        }
+
+        /**
+         * @return Whether product, which has the same GlobalId as the product
+         * of this element, has a different placement or representation.
+         */
+        boolean changed(IfcProduct product) {
+            return product != this.product &&
+                    (!Objects.equals(placement, product.getObjectPlacement()) ||
+                            !Objects.equals(representation,
+                                            product.getRepresentation()));
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcCartesianPoint;
+import buildingsmart.ifc.IfcPolyLoop;
+import buildingsmart.ifc.IfcPolyline;
+import lombok.NonNull;
+
+import java.util.Collection;
+import java.util.stream.IntStream;
+
+/**
+ * Conversion of IfcCartesianPoints to arrays of packed coordinates (x0, y0,
+ * z0, x1, y1, z1, ...) and transformation of such arrays in bulk, so that large
+ * sets of points (for example all the vertices of a faceted brep) can be moved
+ * to world space or to a different origin without creating an object per
+ * point.
+ * </p>
+ * Two-dimensional points are packed with a Z coordinate of 0.
+ */
+public final class Coordinates {
+    /**
+     * The number of points transformed by each task when transforming in
+     * parallel, big enough to make the cost of scheduling tasks negligible.
+     */
+    private static final int CHUNK_SIZE = 1 << 13;
+
+    private Coordinates() {
+    }
+
+    /**
+     * @param points The points to pack.
+     * @return The coordinates of the points, packed in iteration order.
+     *
+     * @throws NullPointerException If points is null or contains null
+     *                              elements.
+     */
+    public static double[] pack(@NonNull Collection<IfcCartesianPoint> points) {
+        double[] coordinates = new double[points.size() * 3];
+        int i = 0;
+        for (IfcCartesianPoint point : points) {
+            i = pack(point, coordinates, i);
+        }
+        return coordinates;
+    }
+
+    /**
+     * @param polyline The polyline whose points should be packed.
+     * @return The coordinates of the points of polyline, packed in order.
+     *
+     * @throws NullPointerException If polyline is null.
+     */
+    public static double[] pack(@NonNull IfcPolyline polyline) {
+        return pack(polyline.getPoints());
+    }
+
+    /**
+     * @param loops The loops whose points should be packed.
+     * @return The coordinates of the points of all loops, packed one loop
+     * after the other in iteration order.
+     *
+     * @throws NullPointerException If loops is null or contains null elements.
+     */
+    public static double[] packLoops(@NonNull Collection<IfcPolyLoop> loops) {
+        int size = 0;
+        for (IfcPolyLoop loop : loops) {
+            size += loop.getPolygon().size();
+        }
+        double[] coordinates = new double[size * 3];
+        int i = 0;
+        for (IfcPolyLoop loop : loops) {
+            for (IfcCartesianPoint point : loop.getPolygon()) {
+                i = pack(point, coordinates, i);
+            }
+        }
+        return coordinates;
+    }
+
+    private static int pack(IfcCartesianPoint point, double[] coordinates,
+                            int offset) {
+        coordinates[offset] = point.getCoordinate(0);
+        coordinates[offset + 1] = point.getCoordinate(1);
+        coordinates[offset + 2] =
+                point.getDim().getValue() == 3 ? point.getCoordinate(2) : 0;
+        return offset + 3;
+    }
+
+    /**
+     * Transforms in place an array of packed coordinates. Arrays containing
+     * many points are split in chunks which are transformed in parallel.
+     *
+     * @param transform   The transformation to apply.
+     * @param coordinates The packed coordinates to transform, its length must
+     *                    be a multiple of 3.
+     * @throws NullPointerException     If transform or coordinates are null.
+     * @throws IllegalArgumentException If the length of coordinates is not a
+     *                                  multiple of 3.
+     * @see Transform#transformPoints(double[], int, double[], int, int)
+     */
+    public static void transform(@NonNull Transform transform,
+                                 @NonNull double[] coordinates) {
+        transform(transform, coordinates, coordinates);
+    }
+
+    /**
+     * Transforms an array of packed coordinates, writing the result in another
+     * array. Arrays containing many points are split in chunks which are
+     * transformed in parallel.
+     *
+     * @param transform The transformation to apply.
+     * @param src       The packed coordinates to transform, its length must be
+     *                  a multiple of 3.
+     * @param dst       The array in which to write the transformed
+     *                  coordinates, at least as long as src. It can be src
+     *                  itself.
+     * @throws NullPointerException     If any of the arguments is null.
+     * @throws IllegalArgumentException If the length of src is not a multiple
+     *                                  of 3, or dst is shorter than src.
+     */
+    public static void transform(@NonNull Transform transform,
+                                 @NonNull double[] src,
+                                 @NonNull double[] dst) {
+        if (src.length % 3 != 0) {
+            throw new IllegalArgumentException(
+                    "length of src must be a multiple of 3");
+        }
+        if (dst.length < src.length) {
+            throw new IllegalArgumentException(
+                    "dst cannot be shorter than src");
+        }
+        int points = src.length / 3;
+        if (points <= CHUNK_SIZE) {
+            transform.transformPoints(src, 0, dst, 0, points);
+            return;
+        }
+        int chunks = (points + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            int first = chunk * CHUNK_SIZE;
+            int count = Math.min(CHUNK_SIZE, points - first);
+            transform.transformPoints(src, first * 3, dst, first * 3, count);
+        });
+    }
+}
@@ -0,0 +1,475 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Approximates curves by polylines, whose points are written as packed
+ * coordinates (x0, y0, z0, x1, y1, z1, ...), with two-dimensional curves
+ * lying in the XY plane. The supported curves are {@link IfcPolyline}, {@link
+ * IfcCircle}, {@link IfcEllipse}, {@link IfcTrimmedCurve} whose basis curve
+ * is a circle or an ellipse, and {@link IfcCompositeCurve} whose segments are
+ * supported. Closed curves (circles and ellipses) start and end at the same
+ * point, at parameter 0.
+ * </p>
+ * Arcs are split in segments of equal angle, such that the angle between
+ * consecutive segments is at most the angle tolerance, and the distance
+ * between each segment and the arc it replaces (the sagitta) is at most the
+ * chord tolerance. The sagitta of ellipses is computed with their larger
+ * semi-axis. Parameters of conics, given by trimming parameters of trimmed
+ * curves, are expected to be in radians; when both a parameter and a
+ * Cartesian point are given to trim a curve, the point is used only if the
+ * master representation of the curve is {@link
+ * IfcTrimmingPreference#CARTESIAN}.
+ * </p>
+ * The last sampled curves are kept in a least recently used cache, keyed by
+ * the identity of each curve and by the tolerances, so that curves shared by
+ * many profiles are sampled once. Samplers with different tolerances can
+ * share the same cache by means of {@link #withTolerances(double, double)}.
+ * Instances of this class are thread-safe.
+ */
+public class CurveSampler {
+    /**
+     * The angle tolerance used by default, which splits full circles in 32
+     * segments.
+     */
+    public static final double DEFAULT_ANGLE_TOLERANCE = Math.PI / 16;
+    /**
+     * The number of curves kept in the cache by default.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 4096;
+    /**
+     * Marks unsupported curves in the cache.
+     */
+    private static final double[] UNSUPPORTED = new double[0];
+    private final Cache cache;
+    /**
+     * The maximum distance between a sampled arc and its segments.
+     */
+    @Getter
+    private final double chordTolerance;
+    /**
+     * The maximum angle, in radians, between consecutive segments of a
+     * sampled arc.
+     */
+    @Getter
+    private final double angleTolerance;
+
+    /**
+     * Creates a sampler with {@link #DEFAULT_ANGLE_TOLERANCE}, no chord
+     * tolerance, and a cache of {@link #DEFAULT_CACHE_SIZE} curves.
+     */
+    public CurveSampler() {
+        this(Double.POSITIVE_INFINITY, DEFAULT_ANGLE_TOLERANCE,
+             DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * @param chordTolerance The maximum distance between a sampled arc and its
+     *                       segments, in length units of the curves. It can
+     *                       be infinite, to sample by angle only.
+     * @param angleTolerance The maximum angle, in radians, between
+     *                       consecutive segments of a sampled arc.
+     * @param cacheSize      The maximum number of curves kept in the cache,
+     *                       0 to disable caching.
+     * @throws IllegalArgumentException If chordTolerance is not positive, if
+     *                                  angleTolerance is not positive or
+     *                                  greater than 2/3 pi (which would split
+     *                                  circles in less than 3 segments), or
+     *                                  if cacheSize is negative.
+     */
+    public CurveSampler(double chordTolerance, double angleTolerance,
+                        int cacheSize) {
+        this(new Cache(checkCacheSize(cacheSize)), chordTolerance,
+             angleTolerance);
+    }
+
+    private CurveSampler(Cache cache, double chordTolerance,
+                         double angleTolerance) {
+        if (!(chordTolerance > 0)) {
+            throw new IllegalArgumentException(
+                    "chordTolerance must be positive");
+        }
+        if (!(angleTolerance > 0 && angleTolerance <= 2 * Math.PI / 3)) {
+            throw new IllegalArgumentException(
+                    "angleTolerance must be positive and not greater than " +
+                            "2/3 pi");
+        }
+        this.cache = cache;
+        this.chordTolerance = chordTolerance;
+        this.angleTolerance = angleTolerance;
+    }
+
+    private static int checkCacheSize(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException(
+                    "cacheSize must not be negative");
+        }
+        return cacheSize;
+    }
+
+    /**
+     * @param chordTolerance The maximum distance between a sampled arc and its
+     *                       segments.
+     * @param angleTolerance The maximum angle, in radians, between
+     *                       consecutive segments of a sampled arc.
+     * @return A sampler with the given tolerances, sharing the cache of this
+     * sampler.
+     *
+     * @throws IllegalArgumentException If the tolerances are not valid, as
+     *                                  defined by {@link #CurveSampler(double,
+     *                                  double, int)}.
+     */
+    public CurveSampler withTolerances(double chordTolerance,
+                                       double angleTolerance) {
+        return new CurveSampler(cache, chordTolerance, angleTolerance);
+    }
+
+    /**
+     * @param curve The curve to sample.
+     * @return The packed coordinates of the points approximating curve, or
+     * null if curve is not supported.
+     *
+     * @throws NullPointerException If curve is null.
+     */
+    public double[] sample(@NonNull IfcCurve curve) {
+        double[] points = points(curve);
+        return points == null ? null : points.clone();
+    }
+
+    /**
+     * Writes the points approximating curve to an array, without creating
+     * any array if curve is in the cache.
+     *
+     * @param curve       The curve to sample.
+     * @param destination The array to which the packed coordinates of the
+     *                    points are written.
+     * @param offset      The index of destination at which the coordinates
+     *                    of the first point are written.
+     * @return The number of points written, which is also returned by {@link
+     * #pointCount(IfcCurve)}, or -1 if curve is not supported.
+     *
+     * @throws NullPointerException      If curve or destination are null.
+     * @throws IndexOutOfBoundsException If offset is negative, or if
+     *                                   destination can't contain all the
+     *                                   points from offset.
+     */
+    public int sample(@NonNull IfcCurve curve, @NonNull double[] destination,
+                      int offset) {
+        double[] points = points(curve);
+        if (points == null) {
+            return -1;
+        }
+        if (offset < 0 || offset + points.length > destination.length) {
+            throw new IndexOutOfBoundsException(
+                    "destination must contain all the points from offset");
+        }
+        System.arraycopy(points, 0, destination, offset, points.length);
+        return points.length / 3;
+    }
+
+    /**
+     * @param curve The curve to sample.
+     * @return The number of points approximating curve, or -1 if curve is not
+     * supported.
+     *
+     * @throws NullPointerException If curve is null.
+     */
+    public int pointCount(@NonNull IfcCurve curve) {
+        double[] points = points(curve);
+        return points == null ? -1 : points.length / 3;
+    }
+
+    /**
+     * @return The number of curves in the cache, which is shared by all the
+     * samplers returned by {@link #withTolerances(double, double)}.
+     */
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * Removes all the curves from the cache.
+     */
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * @param radius The radius of an arc.
+     * @param sweep  The angle spanned by the arc, in radians.
+     * @return The number of segments approximating the arc within the
+     * tolerances, at least 1.
+     */
+    int segments(double radius, double sweep) {
+        double step = angleTolerance;
+        if (chordTolerance < radius) {
+            step = Math.min(step, 2 * Math.acos(1 - chordTolerance / radius));
+        }
+        // the small epsilon avoids an extra segment due to rounding errors
+        return Math.max(1, (int) Math.ceil(Math.abs(sweep) / step - 1e-9));
+    }
+
+    /**
+     * @return The packed coordinates of the points approximating curve, which
+     * must not be modified since they might be cached, or null if curve is
+     * not supported.
+     */
+    double[] points(IfcCurve curve) {
+        Key key = new Key(curve, chordTolerance, angleTolerance);
+        double[] points;
+        synchronized (cache) {
+            points = cache.get(key);
+        }
+        if (points == null) {
+            points = compute(curve);
+            if (points == null) {
+                points = UNSUPPORTED;
+            }
+            synchronized (cache) {
+                double[] previous = cache.putIfAbsent(key, points);
+                if (previous != null) {
+                    points = previous;
+                }
+            }
+        }
+        return points == UNSUPPORTED ? null : points;
+    }
+
+    private double[] compute(IfcCurve curve) {
+        if (curve instanceof IfcPolyline) {
+            return Coordinates.pack((IfcPolyline) curve);
+        }
+        if (curve instanceof IfcCircle || curve instanceof IfcEllipse) {
+            double[] points = conic((IfcConic) curve, 0, 2 * Math.PI);
+            // closes the curve exactly
+            int last = points.length - 3;
+            System.arraycopy(points, 0, points, last, 3);
+            return points;
+        }
+        if (curve instanceof IfcTrimmedCurve) {
+            return trimmedCurve((IfcTrimmedCurve) curve);
+        }
+        if (curve instanceof IfcCompositeCurve) {
+            return compositeCurve((IfcCompositeCurve) curve);
+        }
+        return null;
+    }
+
+    /**
+     * @return The points of conic from parameter start to parameter end.
+     */
+    private double[] conic(IfcConic conic, double start, double end) {
+        double a;
+        double b;
+        if (conic instanceof IfcCircle) {
+            a = b = ((IfcCircle) conic).getRadius().getValue();
+        } else {
+            IfcEllipse ellipse = (IfcEllipse) conic;
+            a = ellipse.getSemiAxis1().getValue();
+            b = ellipse.getSemiAxis2().getValue();
+        }
+        Transform position = Transform.of(conic.getPosition());
+        int n = segments(Math.max(a, b), end - start);
+        double[] points = new double[(n + 1) * 3];
+        for (int i = 0; i <= n; i++) {
+            double t = start + (end - start) * i / n;
+            points[i * 3] = a * Math.cos(t);
+            points[i * 3 + 1] = b * Math.sin(t);
+        }
+        position.transformPoints(points, 0, points, 0, n + 1);
+        return points;
+    }
+
+    /**
+     * The parameter range is adjusted by a full turn when needed for the
+     * curve to go from the first trimming point to the second one in the
+     * direction given by the sense agreement.
+     */
+    private double[] trimmedCurve(IfcTrimmedCurve curve) {
+        if (!(curve.getBasisCurve() instanceof IfcCircle) &&
+                !(curve.getBasisCurve() instanceof IfcEllipse)) {
+            return null;
+        }
+        IfcConic conic = (IfcConic) curve.getBasisCurve();
+        IfcTrimmingPreference preference = curve.getMasterRepresentation();
+        double start = parameter(conic, curve.getTrim1(), preference);
+        double end = parameter(conic, curve.getTrim2(), preference);
+        if (curve.getSenseAgreement() == IfcBoolean.T) {
+            while (end <= start) {
+                end += 2 * Math.PI;
+            }
+        } else {
+            while (end >= start) {
+                end -= 2 * Math.PI;
+            }
+        }
+        return conic(conic, start, end);
+    }
+
+    /**
+     * @return The parameter of conic at the trimming point.
+     */
+    private static double parameter(IfcConic conic,
+                                     Set<IfcTrimmingSelect> trim,
+                                     IfcTrimmingPreference preference) {
+        IfcParameterValue parameter = null;
+        IfcCartesianPoint point = null;
+        for (IfcTrimmingSelect select : trim) {
+            if (select instanceof IfcParameterValue) {
+                parameter = (IfcParameterValue) select;
+            } else if (select instanceof IfcCartesianPoint) {
+                point = (IfcCartesianPoint) select;
+            }
+        }
+        if (point == null ||
+                (parameter != null &&
+                        preference != IfcTrimmingPreference.CARTESIAN)) {
+            return parameter.getValue();
+        }
+        // the angle of the point in the coordinate system of the conic,
+        // scaled to the unit circle in case of ellipses
+        Transform position = Transform.of(conic.getPosition());
+        double dx = point.getCoordinate(0) - position.get(0, 3);
+        double dy = point.getCoordinate(1) - position.get(1, 3);
+        double dz = (point.getDim().getValue() == 3 ?
+                point.getCoordinate(2) : 0) - position.get(2, 3);
+        double x = dx * position.get(0, 0) + dy * position.get(1, 0) +
+                dz * position.get(2, 0);
+        double y = dx * position.get(0, 1) + dy * position.get(1, 1) +
+                dz * position.get(2, 1);
+        if (conic instanceof IfcEllipse) {
+            x /= ((IfcEllipse) conic).getSemiAxis1().getValue();
+            y /= ((IfcEllipse) conic).getSemiAxis2().getValue();
+        }
+        return Math.atan2(y, x);
+    }
+
+    /**
+     * The points of the segments are joined, reversing the ones whose sense
+     * doesn't agree with the one of their parent curve, and skipping the
+     * first point of a segment when it coincides with the last point of the
+     * previous one, up to rounding errors.
+     */
+    private double[] compositeCurve(IfcCompositeCurve curve) {
+        double[][] parts = new double[curve.getSegments().size()][];
+        boolean[] reversed = new boolean[parts.length];
+        int length = 0;
+        for (int i = 0; i < parts.length; i++) {
+            IfcCompositeCurveSegment segment = curve.getSegments().get(i);
+            parts[i] = points(segment.getParentCurve());
+            if (parts[i] == null) {
+                return null;
+            }
+            reversed[i] = segment.getSameSense() != IfcBoolean.T;
+            length += parts[i].length;
+        }
+        double[] points = new double[length];
+        int size = 0;
+        for (int i = 0; i < parts.length; i++) {
+            double[] part = parts[i];
+            int count = part.length / 3;
+            for (int j = 0; j < count; j++) {
+                int from = (reversed[i] ? count - 1 - j : j) * 3;
+                if (size > 0 && coincident(part, from, points, size - 3)) {
+                    continue;
+                }
+                points[size++] = part[from];
+                points[size++] = part[from + 1];
+                points[size++] = part[from + 2];
+            }
+        }
+        return size == length ? points : Arrays.copyOf(points, size);
+    }
+
+    private static boolean coincident(double[] a, int i, double[] b, int j) {
+        for (int k = 0; k < 3; k++) {
+            double scale = Math.max(1, Math.max(Math.abs(a[i + k]),
+                                                Math.abs(b[j + k])));
+            if (Math.abs(a[i + k] - b[j + k]) > 1e-9 * scale) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A curve, compared by identity, and the tolerances used to sample it.
+     */
+    private static final class Key {
+        private final IfcCurve curve;
+        private final double chordTolerance;
+        private final double angleTolerance;
+
+        Key(IfcCurve curve, double chordTolerance, double angleTolerance) {
+            this.curve = curve;
+            this.chordTolerance = chordTolerance;
+            this.angleTolerance = angleTolerance;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) o;
+            return curve == that.curve &&
+                    chordTolerance == that.chordTolerance &&
+                    angleTolerance == that.angleTolerance;
+        }
+
+        @Override
+        public int hashCode() {
+            return (System.identityHashCode(curve) * 31 +
+                    Double.hashCode(chordTolerance)) * 31 +
+                    Double.hashCode(angleTolerance);
+        }
+    }
+
+    /**
+     * A map which evicts its least recently accessed entry when it grows
+     * beyond its capacity.
+     */
+    private static final class Cache extends LinkedHashMap<Key, double[]> {
+        private static final long serialVersionUID = 1L;
+        private final int capacity;
+
+        Cache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, double[]> eldest) {
+            return size() > capacity;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * A triangle mesh stored in packed arrays: the positions and the normals of
+ * the vertices (x0, y0, z0, x1, y1, z1, ...), and the indexes of the vertices
+ * of each triangle (a0, b0, c0, a1, b1, c1, ...). Triangles are
+ * counter-clockwise when seen from the side their normals point to, which is
+ * the outside of solids.
+ * </p>
+ * Instances of this class are immutable, the arrays are copied when they're
+ * passed or returned.
+ */
+@EqualsAndHashCode
+public final class Mesh {
+    private static final Mesh EMPTY =
+            new Mesh(new float[0], new float[0], new int[0]);
+    private final float[] positions;
+    private final float[] normals;
+    private final int[] indices;
+
+    /**
+     * Creates a mesh without copying nor checking the arrays.
+     */
+    Mesh(float[] positions, float[] normals, int[] indices) {
+        this.positions = positions;
+        this.normals = normals;
+        this.indices = indices;
+    }
+
+    /**
+     * @return The mesh without vertices nor triangles.
+     */
+    public static Mesh empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @param positions The packed positions of the vertices.
+     * @param normals   The packed normals of the vertices.
+     * @param indices   The indexes of the vertices of the triangles.
+     * @return A mesh with the given vertices and triangles.
+     *
+     * @throws NullPointerException     If any of the arrays is null.
+     * @throws IllegalArgumentException If positions and normals have
+     *                                  different lengths, if their length is
+     *                                  not a multiple of 3, if the length of
+     *                                  indices is not a multiple of 3, or if
+     *                                  indices contains indexes of vertices
+     *                                  which don't exist.
+     */
+    public static Mesh of(@NonNull float[] positions, @NonNull float[] normals,
+                          @NonNull int[] indices) {
+        if (positions.length != normals.length || positions.length % 3 != 0) {
+            throw new IllegalArgumentException(
+                    "positions and normals must have the same length, " +
+                            "multiple of 3");
+        }
+        if (indices.length % 3 != 0) {
+            throw new IllegalArgumentException(
+                    "the length of indices must be a multiple of 3");
+        }
+        int vertices = positions.length / 3;
+        for (int index : indices) {
+            if (index < 0 || index >= vertices) {
+                throw new IllegalArgumentException(
+                        "indices must be indexes of vertices");
+            }
+        }
+        return new Mesh(positions.clone(), normals.clone(), indices.clone());
+    }
+
+    /**
+     * @param meshes The meshes to merge.
+     * @return A mesh containing the vertices and triangles of all the meshes,
+     * in the same order.
+     *
+     * @throws NullPointerException If meshes is null or contains null
+     *                              elements.
+     */
+    public static Mesh merge(@NonNull List<Mesh> meshes) {
+        if (meshes.size() == 1) {
+            return meshes.get(0);
+        }
+        int coordinates = 0;
+        int indexCount = 0;
+        for (Mesh mesh : meshes) {
+            coordinates += mesh.positions.length;
+            indexCount += mesh.indices.length;
+        }
+        if (indexCount == 0 && coordinates == 0) {
+            return EMPTY;
+        }
+        float[] positions = new float[coordinates];
+        float[] normals = new float[coordinates];
+        int[] indices = new int[indexCount];
+        int offset = 0;
+        int indexOffset = 0;
+        for (Mesh mesh : meshes) {
+            System.arraycopy(mesh.positions, 0, positions, offset,
+                             mesh.positions.length);
+            System.arraycopy(mesh.normals, 0, normals, offset,
+                             mesh.normals.length);
+            int firstVertex = offset / 3;
+            for (int index : mesh.indices) {
+                indices[indexOffset++] = index + firstVertex;
+            }
+            offset += mesh.positions.length;
+        }
+        return new Mesh(positions, normals, indices);
+    }
+
+    /**
+     * @param transform A rigid transformation, such as the ones of
+     *                  placements.
+     * @return This mesh with positions transformed by transform and normals
+     * rotated by its linear part.
+     *
+     * @throws NullPointerException If transform is null.
+     */
+    public Mesh transform(@NonNull Transform transform) {
+        if (transform == Transform.identity() || positions.length == 0) {
+            return this;
+        }
+        double[] m = transform.toArray();
+        float[] newPositions = new float[positions.length];
+        float[] newNormals = new float[normals.length];
+        for (int i = 0; i < positions.length; i += 3) {
+            double x = positions[i];
+            double y = positions[i + 1];
+            double z = positions[i + 2];
+            newPositions[i] = (float) (m[0] * x + m[1] * y + m[2] * z + m[3]);
+            newPositions[i + 1] =
+                    (float) (m[4] * x + m[5] * y + m[6] * z + m[7]);
+            newPositions[i + 2] =
+                    (float) (m[8] * x + m[9] * y + m[10] * z + m[11]);
+            double nx = normals[i];
+            double ny = normals[i + 1];
+            double nz = normals[i + 2];
+            newNormals[i] = (float) (m[0] * nx + m[1] * ny + m[2] * nz);
+            newNormals[i + 1] = (float) (m[4] * nx + m[5] * ny + m[6] * nz);
+            newNormals[i + 2] = (float) (m[8] * nx + m[9] * ny + m[10] * nz);
+        }
+        return new Mesh(newPositions, newNormals, indices);
+    }
+
+    /**
+     * @return {@code true} if this mesh has no triangles.
+     */
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    /**
+     * @return The number of vertices.
+     */
+    public int getVertexCount() {
+        return positions.length / 3;
+    }
+
+    /**
+     * @return The number of triangles.
+     */
+    public int getTriangleCount() {
+        return indices.length / 3;
+    }
+
+    /**
+     * @return A copy of the packed positions of the vertices.
+     */
+    public float[] getPositions() {
+        return positions.clone();
+    }
+
+    /**
+     * @return A copy of the packed normals of the vertices.
+     */
+    public float[] getNormals() {
+        return normals.clone();
+    }
+
+    /**
+     * @return A copy of the indexes of the vertices of the triangles.
+     */
+    public int[] getIndices() {
+        return indices.clone();
+    }
+
+    /**
+     * @return The box containing all the vertices, null if there are none.
+     */
+    public Aabb getBounds() {
+        if (positions.length == 0) {
+            return null;
+        }
+        double[] coordinates = new double[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            coordinates[i] = positions[i];
+        }
+        return Aabb.of(coordinates);
+    }
+
+    @Override
+    public String toString() {
+        return "Mesh(vertices=" + getVertexCount() + ", triangles=" +
+                getTriangleCount() + ")";
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Accumulates the vertices and triangles of a {@link Mesh} in growable
+ * primitive arrays.
+ */
+final class MeshBuilder {
+    private float[] positions;
+    private float[] normals;
+    private int[] indices;
+    private int vertexCount;
+    private int indexCount;
+
+    /**
+     * @param vertices  The expected number of vertices.
+     * @param triangles The expected number of triangles.
+     */
+    MeshBuilder(int vertices, int triangles) {
+        positions = new float[Math.max(1, vertices) * 3];
+        normals = new float[positions.length];
+        indices = new int[Math.max(1, triangles) * 3];
+    }
+
+    /**
+     * @return The number of vertices added so far, which is the index of the
+     * next vertex.
+     */
+    int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Adds a vertex with the given position and normal.
+     *
+     * @return The index of the vertex.
+     */
+    int addVertex(double x, double y, double z, double nx, double ny,
+                  double nz) {
+        int offset = vertexCount * 3;
+        if (offset == positions.length) {
+            positions = Arrays.copyOf(positions, positions.length * 2);
+            normals = Arrays.copyOf(normals, normals.length * 2);
+        }
+        positions[offset] = (float) x;
+        positions[offset + 1] = (float) y;
+        positions[offset + 2] = (float) z;
+        normals[offset] = (float) nx;
+        normals[offset + 1] = (float) ny;
+        normals[offset + 2] = (float) nz;
+        return vertexCount++;
+    }
+
+    /**
+     * Adds the triangle whose vertices have the given indexes.
+     */
+    void addTriangle(int a, int b, int c) {
+        if (indexCount == indices.length) {
+            indices = Arrays.copyOf(indices, indices.length * 2);
+        }
+        indices[indexCount++] = a;
+        indices[indexCount++] = b;
+        indices[indexCount++] = c;
+    }
+
+    /**
+     * @return The mesh made of the vertices and triangles added so far.
+     */
+    Mesh build() {
+        if (indexCount == 0) {
+            return Mesh.empty();
+        }
+        return new Mesh(Arrays.copyOf(positions, vertexCount * 3),
+                        Arrays.copyOf(normals, vertexCount * 3),
+                        Arrays.copyOf(indices, indexCount));
+    }
+}
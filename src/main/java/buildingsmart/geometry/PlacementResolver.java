@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcLocalPlacement;
+import buildingsmart.ifc.IfcObjectPlacement;
+import buildingsmart.ifc.IfcProduct;
+import lombok.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * Computes the transformation from the object coordinate system of products
+ * to the world coordinate system, by composing the relative placements along
+ * the chain of {@link IfcLocalPlacement#getPlacementRelTo()}.
+ * </p>
+ * The transformation of every placement resolved so far is memoized, so that
+ * the placements shared by many products (typically the ones of the site,
+ * building and storeys) are computed only once, and resolving a product costs
+ * time proportional to the number of placements in its chain which weren't
+ * resolved yet. Placements are memoized by value: a placement which is the
+ * same instance as a memoized one is found by reference, while a different
+ * but equal placement is found by comparing their values, which is correct as
+ * equal placements always have equal transformations.
+ * </p>
+ * Instances of this class are thread-safe, and {@link #resolveAll(List)}
+ * resolves products in parallel.
+ */
+public class PlacementResolver {
+    private final ConcurrentMap<IfcObjectPlacement, Transform> transforms =
+            new ConcurrentHashMap<>();
+
+    /**
+     * @param product The product whose placement should be resolved.
+     * @return The transformation from the object coordinate system of product
+     * to the world coordinate system, the identity if product has no
+     * placement.
+     *
+     * @throws NullPointerException     If product is null.
+     * @throws IllegalArgumentException If the placement of product, or one of
+     *                                  the placements it is relative to, is
+     *                                  not an {@link IfcLocalPlacement}.
+     */
+    public Transform resolve(@NonNull IfcProduct product) {
+        return resolve(product.getObjectPlacement());
+    }
+
+    /**
+     * @param placement The placement to resolve.
+     * @return The transformation from the coordinate system defined by
+     * placement to the world coordinate system, the identity if placement is
+     * null.
+     *
+     * @throws IllegalArgumentException If placement, or one of the placements
+     *                                  it is relative to, is not an {@link
+     *                                  IfcLocalPlacement}.
+     */
+    public Transform resolve(IfcObjectPlacement placement) {
+        if (placement == null) {
+            return Transform.identity();
+        }
+        Transform resolved = transforms.get(placement);
+        if (resolved != null) {
+            return resolved;
+        }
+        // walk up the chain until the world or a resolved placement, without
+        // recursion since chains can be arbitrarily long
+        Deque<IfcLocalPlacement> unresolved = new ArrayDeque<>();
+        Transform parent = Transform.identity();
+        IfcObjectPlacement current = placement;
+        while (current != null) {
+            Transform transform = transforms.get(current);
+            if (transform != null) {
+                parent = transform;
+                break;
+            }
+            if (!(current instanceof IfcLocalPlacement)) {
+                throw new IllegalArgumentException(
+                        "unsupported placement type " + current.getClass());
+            }
+            IfcLocalPlacement localPlacement = (IfcLocalPlacement) current;
+            unresolved.push(localPlacement);
+            current = localPlacement.getPlacementRelTo();
+        }
+        while (!unresolved.isEmpty()) {
+            IfcLocalPlacement localPlacement = unresolved.pop();
+            Transform transform = parent.multiply(
+                    Transform.of(localPlacement.getRelativePlacement()));
+            Transform previous = transforms.putIfAbsent(localPlacement,
+                                                        transform);
+            parent = previous == null ? transform : previous;
+        }
+        return parent;
+    }
+
+    /**
+     * Resolves the placements of many products in parallel.
+     *
+     * @param products The products whose placements should be resolved. The
+     *                 List should support fast random access.
+     * @return The transformations from the object coordinate systems of the
+     * products to the world coordinate system, in the same order as products.
+     *
+     * @throws NullPointerException     If products is null or contains null
+     *                                  elements.
+     * @throws IllegalArgumentException If the placement of any of the products
+     *                                  is not an {@link IfcLocalPlacement}, or
+     *                                  relative to one which isn't.
+     */
+    public Transform[] resolveAll(@NonNull List<? extends IfcProduct> products) {
+        Transform[] result = new Transform[products.size()];
+        IntStream.range(0, result.length).parallel()
+                .forEach(i -> result[i] = resolve(products.get(i)));
+        return result;
+    }
+
+    /**
+     * @return The number of placements whose transformation is memoized.
+     */
+    public int size() {
+        return transforms.size();
+    }
+
+    /**
+     * Forgets all memoized transformations.
+     */
+    public void clear() {
+        transforms.clear();
+    }
+}
@@ -0,0 +1,286 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts profiles to loops of packed two-dimensional coordinates (x0, y0,
+ * x1, y1, ...) in the coordinate system in which the profiles are placed. The
+ * first loop bounds the area of the profile and is counter-clockwise, the
+ * others bound its voids and are clockwise. Loops are open: the last vertex
+ * is connected to the first one without being repeated.
+ * </p>
+ * Curves are sampled by a {@link CurveSampler}. Parameterized profiles are
+ * approximated by polygons: fillet and edge radii are ignored, as are the
+ * slopes of flanges and webs.
+ */
+final class Profiles {
+    private Profiles() {
+    }
+
+    /**
+     * @param profile The profile to convert.
+     * @param sampler The sampler of curves and circular profiles.
+     * @return The loops of profile, or null if profile is not supported.
+     */
+    static List<double[]> loops(IfcProfileDef profile, CurveSampler sampler) {
+        List<double[]> loops = new ArrayList<>(2);
+        if (profile instanceof IfcArbitraryClosedProfileDef) {
+            double[] outer = curve(((IfcArbitraryClosedProfileDef) profile)
+                                           .getOuterCurve(), sampler);
+            if (outer == null) {
+                return null;
+            }
+            loops.add(outer);
+            if (profile instanceof IfcArbitraryProfileDefWithVoids) {
+                for (IfcCurve curve : ((IfcArbitraryProfileDefWithVoids) profile)
+                        .getInnerCurves()) {
+                    double[] inner = curve(curve, sampler);
+                    if (inner == null) {
+                        return null;
+                    }
+                    loops.add(inner);
+                }
+            }
+        } else if (profile instanceof IfcParameterizedProfileDef) {
+            if (!parameterized((IfcParameterizedProfileDef) profile, sampler,
+                               loops)) {
+                return null;
+            }
+            Transform position = Transform.of(
+                    ((IfcParameterizedProfileDef) profile).getPosition());
+            for (double[] loop : loops) {
+                transform(position, loop);
+            }
+        } else {
+            return null;
+        }
+        for (int i = 0; i < loops.size(); i++) {
+            orient(loops.get(i), i == 0);
+        }
+        return loops;
+    }
+
+    /**
+     * Adds the loops of profile, in the position coordinate system of
+     * profile, to loops.
+     *
+     * @return {@code false} if profile is not supported.
+     */
+    private static boolean parameterized(IfcParameterizedProfileDef profile,
+                                         CurveSampler sampler,
+                                         List<double[]> loops) {
+        if (profile instanceof IfcRectangleHollowProfileDef) {
+            IfcRectangleHollowProfileDef rectangle =
+                    (IfcRectangleHollowProfileDef) profile;
+            double x = rectangle.getXDim().getValue() / 2;
+            double y = rectangle.getYDim().getValue() / 2;
+            double t = rectangle.getWallThickness().getValue();
+            loops.add(rectangle(x, y));
+            loops.add(rectangle(x - t, y - t));
+        } else if (profile instanceof IfcRectangleProfileDef) {
+            IfcRectangleProfileDef rectangle = (IfcRectangleProfileDef) profile;
+            loops.add(rectangle(rectangle.getXDim().getValue() / 2,
+                                rectangle.getYDim().getValue() / 2));
+        } else if (profile instanceof IfcCircleHollowProfileDef) {
+            IfcCircleHollowProfileDef circle =
+                    (IfcCircleHollowProfileDef) profile;
+            double r = circle.getRadius().getValue();
+            loops.add(ellipse(r, r, sampler));
+            double inner = r - circle.getWallThickness().getValue();
+            loops.add(ellipse(inner, inner, sampler));
+        } else if (profile instanceof IfcCircleProfileDef) {
+            double r = ((IfcCircleProfileDef) profile).getRadius().getValue();
+            loops.add(ellipse(r, r, sampler));
+        } else if (profile instanceof IfcEllipseProfileDef) {
+            IfcEllipseProfileDef ellipse = (IfcEllipseProfileDef) profile;
+            loops.add(ellipse(ellipse.getSemiAxis1().getValue(),
+                              ellipse.getSemiAxis2().getValue(), sampler));
+        } else if (profile instanceof IfcIShapeProfileDef &&
+                !(profile instanceof IfcAsymmetricIShapeProfileDef)) {
+            loops.add(iShape((IfcIShapeProfileDef) profile));
+        } else if (profile instanceof IfcLShapeProfileDef) {
+            loops.add(lShape((IfcLShapeProfileDef) profile));
+        } else if (profile instanceof IfcTShapeProfileDef) {
+            loops.add(tShape((IfcTShapeProfileDef) profile));
+        } else if (profile instanceof IfcUShapeProfileDef) {
+            loops.add(uShape((IfcUShapeProfileDef) profile));
+        } else if (profile instanceof IfcTrapeziumProfileDef) {
+            loops.add(trapezium((IfcTrapeziumProfileDef) profile));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static double[] rectangle(double x, double y) {
+        return new double[]{-x, -y, x, -y, x, y, -x, y};
+    }
+
+    private static double[] ellipse(double a, double b, CurveSampler sampler) {
+        int segments = sampler.segments(Math.max(a, b), 2 * Math.PI);
+        double[] loop = new double[segments * 2];
+        for (int i = 0; i < segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            loop[i * 2] = a * Math.cos(angle);
+            loop[i * 2 + 1] = b * Math.sin(angle);
+        }
+        return loop;
+    }
+
+    /**
+     * The web is centred on the Y axis, and the flanges are at the bottom and
+     * at the top.
+     */
+    private static double[] iShape(IfcIShapeProfileDef profile) {
+        double x = profile.getOverallWidth().getValue() / 2;
+        double y = profile.getOverallDepth().getValue() / 2;
+        double w = profile.getWebThickness().getValue() / 2;
+        double f = profile.getFlangeThickness().getValue();
+        return new double[]{-x, -y, x, -y, x, -y + f, w, -y + f, w, y - f,
+                x, y - f, x, y, -x, y, -x, y - f, -w, y - f, -w, -y + f,
+                -x, -y + f};
+    }
+
+    /**
+     * The vertical leg is on the left and the horizontal one at the bottom.
+     */
+    private static double[] lShape(IfcLShapeProfileDef profile) {
+        // width defaults to depth if omitted
+        IfcPositiveLengthMeasure width = profile.getWidth() == null ?
+                profile.getDepth() : profile.getWidth();
+        double x = width.getValue() / 2;
+        double y = profile.getDepth().getValue() / 2;
+        double t = profile.getThickness().getValue();
+        return new double[]{-x, -y, x, -y, x, -y + t, -x + t, -y + t, -x + t,
+                y, -x, y};
+    }
+
+    /**
+     * The web is centred on the Y axis and the flange is at the top.
+     */
+    private static double[] tShape(IfcTShapeProfileDef profile) {
+        double x = profile.getFlangeWidth().getValue() / 2;
+        double y = profile.getDepth().getValue() / 2;
+        double w = profile.getWebThickness().getValue() / 2;
+        double f = profile.getFlangeThickness().getValue();
+        return new double[]{-w, -y, w, -y, w, y - f, x, y - f, x, y, -x, y,
+                -x, y - f, -w, y - f};
+    }
+
+    /**
+     * The web is on the left and the flanges point towards positive X.
+     */
+    private static double[] uShape(IfcUShapeProfileDef profile) {
+        double x = profile.getFlangeWidth().getValue() / 2;
+        double y = profile.getDepth().getValue() / 2;
+        double w = profile.getWebThickness().getValue();
+        double f = profile.getFlangeThickness().getValue();
+        return new double[]{-x, -y, x, -y, x, -y + f, -x + w, -y + f, -x + w,
+                y - f, x, y - f, x, y, -x, y};
+    }
+
+    /**
+     * The bottom edge is centred on the Y axis and the top edge is shifted by
+     * TopXOffset from the left end of the bottom edge.
+     */
+    private static double[] trapezium(IfcTrapeziumProfileDef profile) {
+        double bottom = profile.getBottomXDim().getValue() / 2;
+        double topStart = profile.getTopXOffset().getValue() - bottom;
+        double topEnd = topStart + profile.getTopXDim().getValue();
+        double y = profile.getYDim().getValue() / 2;
+        return new double[]{-bottom, -y, bottom, -y, topEnd, y, topStart, y};
+    }
+
+    /**
+     * @return The loop of a closed curve, or null if curve is not supported.
+     */
+    private static double[] curve(IfcCurve curve, CurveSampler sampler) {
+        double[] points = sampler.points(curve);
+        if (points == null) {
+            return null;
+        }
+        int count = points.length / 3;
+        int last = (count - 1) * 3;
+        if (count > 1 && points[0] == points[last] &&
+                points[1] == points[last + 1]) {
+            count--; // the closing point repeats the first one
+        }
+        double[] loop = new double[count * 2];
+        for (int i = 0; i < count; i++) {
+            loop[i * 2] = points[i * 3];
+            loop[i * 2 + 1] = points[i * 3 + 1];
+        }
+        return loop;
+    }
+
+    /**
+     * Transforms in place the packed two-dimensional coordinates of loop.
+     */
+    private static void transform(Transform transform, double[] loop) {
+        double m00 = transform.get(0, 0);
+        double m01 = transform.get(0, 1);
+        double m03 = transform.get(0, 3);
+        double m10 = transform.get(1, 0);
+        double m11 = transform.get(1, 1);
+        double m13 = transform.get(1, 3);
+        for (int i = 0; i < loop.length; i += 2) {
+            double x = loop[i];
+            double y = loop[i + 1];
+            loop[i] = m00 * x + m01 * y + m03;
+            loop[i + 1] = m10 * x + m11 * y + m13;
+        }
+    }
+
+    /**
+     * Reverses loop in place unless it is counter-clockwise (if
+     * counterClockwise is true) or clockwise (otherwise).
+     */
+    private static void orient(double[] loop, boolean counterClockwise) {
+        if ((signedArea(loop) > 0) == counterClockwise) {
+            return;
+        }
+        int n = loop.length / 2;
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            double x = loop[i * 2];
+            double y = loop[i * 2 + 1];
+            loop[i * 2] = loop[j * 2];
+            loop[i * 2 + 1] = loop[j * 2 + 1];
+            loop[j * 2] = x;
+            loop[j * 2 + 1] = y;
+        }
+    }
+
+    /**
+     * @return Twice the area enclosed by loop, positive if loop is
+     * counter-clockwise.
+     */
+    static double signedArea(double[] loop) {
+        double sum = 0;
+        int n = loop.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += loop[j * 2] * loop[i * 2 + 1] - loop[i * 2] * loop[j * 2 + 1];
+        }
+        return sum;
+    }
+}
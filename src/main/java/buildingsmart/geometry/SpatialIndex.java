@@ -0,0 +1,702 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcBuildingStorey;
+import buildingsmart.ifc.IfcProduct;
+import buildingsmart.ifc.IfcRelContainedInSpatialStructure;
+import buildingsmart.ifc.IfcSpatialStructureElement;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+
+/**
+ * An in-memory index of the world bounding boxes of products, which finds the
+ * products intersecting a box and the products nearest to a point, optionally
+ * only among the ones contained in a given {@link IfcBuildingStorey}.
+ * </p>
+ * Products are organised in an R-tree bulk-loaded with the Sort-Tile-Recursive
+ * algorithm: boxes are sorted by the X coordinate of their centre and cut into
+ * slabs, each slab is sorted by Y and cut into runs, each run is sorted by Z
+ * and cut into leaves of at most {@value #NODE_CAPACITY} boxes, and the same
+ * is repeated on the nodes of each level up to the root. Sorting and the
+ * computation of the boxes of nodes run in parallel. The tree is stored in
+ * primitive arrays, with the children of each node next to each other, so
+ * that queries don't create any object other than their results.
+ * </p>
+ * Products inserted one at a time, typically as they're added to a spatial
+ * structure element through an {@link IfcRelContainedInSpatialStructure}, are
+ * kept in a buffer which queries scan linearly. The tree is rebuilt to
+ * include them once the buffer grows larger than a fraction of the tree, so
+ * that the amortised cost of an insertion stays logarithmic and the buffer
+ * never dominates the cost of a query.
+ * </p>
+ * Products are indexed with the boxes they have when inserted, and each
+ * product is indexed at most once. Instances of this class are thread-safe:
+ * queries run concurrently with each other, while insertions are exclusive.
+ */
+public class SpatialIndex {
+    /**
+     * The maximum number of children of a node.
+     */
+    static final int NODE_CAPACITY = 16;
+    /**
+     * The minimum number of products in the buffer for the tree to be
+     * rebuilt, the actual threshold grows with the size of the tree.
+     */
+    private static final int MIN_BUFFER_SIZE = 256;
+    private final BoundsCalculator boundsCalculator;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<IfcProduct> indexed =
+            Collections.newSetFromMap(new IdentityHashMap<>());
+    private IfcProduct[] products = new IfcProduct[NODE_CAPACITY];
+    private IfcBuildingStorey[] storeys =
+            new IfcBuildingStorey[NODE_CAPACITY];
+    /**
+     * The boxes of products, in the order minX, minY, minZ, maxX, maxY, maxZ.
+     */
+    private double[] boxes = new double[6 * NODE_CAPACITY];
+    private int size;
+    /**
+     * The tree of the first tree.size products, the other ones are in the
+     * buffer.
+     */
+    private Tree tree = Tree.EMPTY;
+
+    /**
+     * Creates an index with its own {@link BoundsCalculator}.
+     */
+    public SpatialIndex() {
+        this(new BoundsCalculator());
+    }
+
+    /**
+     * @param boundsCalculator The calculator of the world boxes of products,
+     *                         it can be shared with other users.
+     * @throws NullPointerException If boundsCalculator is null.
+     */
+    public SpatialIndex(@NonNull BoundsCalculator boundsCalculator) {
+        this.boundsCalculator = boundsCalculator;
+    }
+
+    /**
+     * Indexes all the products contained in spatial structure elements through
+     * relationships, computing their boxes and rebuilding the tree in
+     * parallel.
+     *
+     * @param relationships The relationships whose related elements should be
+     *                      indexed.
+     * @return The number of products which were indexed, which excludes the
+     * ones already indexed and the ones whose box can't be computed.
+     *
+     * @throws NullPointerException     If relationships is null or contains
+     *                                  null elements.
+     * @throws IllegalArgumentException If the placement of any of the products
+     *                                  can't be resolved.
+     */
+    public int insertAll(
+            @NonNull Collection<IfcRelContainedInSpatialStructure> relationships) {
+        List<IfcProduct> newProducts = new ArrayList<>();
+        List<IfcBuildingStorey> newStoreys = new ArrayList<>();
+        for (IfcRelContainedInSpatialStructure relationship : relationships) {
+            IfcBuildingStorey storey = storeyOf(relationship);
+            for (IfcProduct product : relationship.getRelatedElements()) {
+                newProducts.add(product);
+                newStoreys.add(storey);
+            }
+        }
+        Aabb[] newBoxes = boundsCalculator.worldBoundsAll(newProducts);
+        lock.writeLock().lock();
+        try {
+            int added = 0;
+            for (int i = 0; i < newBoxes.length; i++) {
+                if (add(newProducts.get(i), newStoreys.get(i), newBoxes[i])) {
+                    added++;
+                }
+            }
+            if (size > tree.size) {
+                tree = Tree.build(boxes, size);
+            }
+            return added;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Indexes the products contained in a spatial structure element through
+     * relationship.
+     *
+     * @param relationship The relationship whose related elements should be
+     *                     indexed.
+     * @return The number of products which were indexed, which excludes the
+     * ones already indexed and the ones whose box can't be computed.
+     *
+     * @throws NullPointerException     If relationship is null.
+     * @throws IllegalArgumentException If the placement of any of the products
+     *                                  can't be resolved.
+     */
+    public int insert(@NonNull IfcRelContainedInSpatialStructure relationship) {
+        IfcBuildingStorey storey = storeyOf(relationship);
+        int added = 0;
+        for (IfcProduct product : relationship.getRelatedElements()) {
+            if (insert(product, storey)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @param product The product to index.
+     * @param storey  The storey containing product, null if it is not
+     *                contained in any storey.
+     * @return {@code true} if product was indexed, {@code false} if it was
+     * already indexed or if its box can't be computed.
+     *
+     * @throws NullPointerException     If product is null.
+     * @throws IllegalArgumentException If the placement of product can't be
+     *                                  resolved.
+     */
+    public boolean insert(@NonNull IfcProduct product,
+                          IfcBuildingStorey storey) {
+        Aabb box = boundsCalculator.worldBounds(product);
+        lock.writeLock().lock();
+        try {
+            if (!add(product, storey, box)) {
+                return false;
+            }
+            if (size - tree.size > Math.max(MIN_BUFFER_SIZE, tree.size / 8)) {
+                tree = Tree.build(boxes, size);
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return The storey which is the relating structure of relationship, null
+     * if it is a different kind of spatial structure element.
+     */
+    private static IfcBuildingStorey storeyOf(
+            IfcRelContainedInSpatialStructure relationship) {
+        IfcSpatialStructureElement structure =
+                relationship.getRelatingStructure();
+        return structure instanceof IfcBuildingStorey ?
+                (IfcBuildingStorey) structure : null;
+    }
+
+    /**
+     * Appends a product to the buffer, must be called holding the write lock.
+     */
+    private boolean add(IfcProduct product, IfcBuildingStorey storey,
+                        Aabb box) {
+        if (box == null || !indexed.add(product)) {
+            return false;
+        }
+        if (size == products.length) {
+            int capacity = size * 2;
+            products = Arrays.copyOf(products, capacity);
+            storeys = Arrays.copyOf(storeys, capacity);
+            boxes = Arrays.copyOf(boxes, 6 * capacity);
+        }
+        products[size] = product;
+        storeys[size] = storey;
+        int offset = 6 * size;
+        boxes[offset] = box.getMinX();
+        boxes[offset + 1] = box.getMinY();
+        boxes[offset + 2] = box.getMinZ();
+        boxes[offset + 3] = box.getMaxX();
+        boxes[offset + 4] = box.getMaxY();
+        boxes[offset + 5] = box.getMaxZ();
+        size++;
+        return true;
+    }
+
+    /**
+     * @param box The box to search.
+     * @return The products whose boxes intersect box, including the ones which
+     * only touch its boundary, in no particular order.
+     *
+     * @throws NullPointerException If box is null.
+     */
+    public List<IfcProduct> query(@NonNull Aabb box) {
+        return query(box, null);
+    }
+
+    /**
+     * @param box    The box to search.
+     * @param storey The storey containing the products to find, null to find
+     *               products regardless of their storey.
+     * @return The products contained in storey whose boxes intersect box,
+     * including the ones which only touch its boundary, in no particular
+     * order.
+     *
+     * @throws NullPointerException If box is null.
+     */
+    public List<IfcProduct> query(@NonNull Aabb box, IfcBuildingStorey storey) {
+        double[] q = box.toArray();
+        List<IfcProduct> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            if (t.size > 0) {
+                int[] stack = new int[t.height * (NODE_CAPACITY - 1) + 1];
+                int top = 0;
+                stack[top++] = t.root();
+                while (top > 0) {
+                    int node = stack[--top];
+                    if (!intersects(t.nodeBoxes, 6 * node, q)) {
+                        continue;
+                    }
+                    int first = t.nodeFirst[node];
+                    int end = first + t.nodeCount[node];
+                    if (node < t.leafCount) {
+                        for (int i = first; i < end; i++) {
+                            int entry = t.order[i];
+                            if (matches(entry, storey) &&
+                                    intersects(boxes, 6 * entry, q)) {
+                                result.add(products[entry]);
+                            }
+                        }
+                    } else {
+                        for (int child = first; child < end; child++) {
+                            stack[top++] = child;
+                        }
+                    }
+                }
+            }
+            for (int entry = t.size; entry < size; entry++) {
+                if (matches(entry, storey) && intersects(boxes, 6 * entry, q)) {
+                    result.add(products[entry]);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * @param x The X coordinate of the point.
+     * @param y The Y coordinate of the point.
+     * @param z The Z coordinate of the point.
+     * @param k The maximum number of products to find.
+     * @return The k products whose boxes are nearest to the point, or all the
+     * products if there are less than k, sorted by increasing distance. The
+     * distance of a box containing the point is 0.
+     *
+     * @throws IllegalArgumentException If k is lower than 1.
+     */
+    public List<IfcProduct> nearest(double x, double y, double z, int k) {
+        return nearest(x, y, z, k, null);
+    }
+
+    /**
+     * Finds the nearest products with a best-first traversal of the tree,
+     * which visits nodes by increasing distance and stops as soon as k
+     * products are nearer than all the nodes left.
+     *
+     * @param x      The X coordinate of the point.
+     * @param y      The Y coordinate of the point.
+     * @param z      The Z coordinate of the point.
+     * @param k      The maximum number of products to find.
+     * @param storey The storey containing the products to find, null to find
+     *               products regardless of their storey.
+     * @return The k products contained in storey whose boxes are nearest to
+     * the point, or all of them if there are less than k, sorted by increasing
+     * distance. The distance of a box containing the point is 0.
+     *
+     * @throws IllegalArgumentException If k is lower than 1.
+     */
+    public List<IfcProduct> nearest(double x, double y, double z, int k,
+                                    IfcBuildingStorey storey) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        List<IfcProduct> result = new ArrayList<>(Math.min(k, 64));
+        lock.readLock().lock();
+        try {
+            Tree t = tree;
+            // nodes are queued as their index, products as its complement
+            MinHeap queue = new MinHeap();
+            if (t.size > 0) {
+                queue.push(distance(t.nodeBoxes, 6 * t.root(), x, y, z),
+                           t.root());
+            }
+            for (int entry = t.size; entry < size; entry++) {
+                if (matches(entry, storey)) {
+                    queue.push(distance(boxes, 6 * entry, x, y, z), ~entry);
+                }
+            }
+            while (!queue.isEmpty() && result.size() < k) {
+                int value = queue.pop();
+                if (value < 0) {
+                    result.add(products[~value]);
+                    continue;
+                }
+                int first = t.nodeFirst[value];
+                int end = first + t.nodeCount[value];
+                if (value < t.leafCount) {
+                    for (int i = first; i < end; i++) {
+                        int entry = t.order[i];
+                        if (matches(entry, storey)) {
+                            queue.push(distance(boxes, 6 * entry, x, y, z),
+                                       ~entry);
+                        }
+                    }
+                } else {
+                    for (int child = first; child < end; child++) {
+                        queue.push(distance(t.nodeBoxes, 6 * child, x, y, z),
+                                   child);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private boolean matches(int entry, IfcBuildingStorey storey) {
+        return storey == null || storeys[entry] == storey;
+    }
+
+    private static boolean intersects(double[] boxes, int offset, double[] q) {
+        return boxes[offset] <= q[3] && q[0] <= boxes[offset + 3] &&
+                boxes[offset + 1] <= q[4] && q[1] <= boxes[offset + 4] &&
+                boxes[offset + 2] <= q[5] && q[2] <= boxes[offset + 5];
+    }
+
+    /**
+     * @return The squared distance between the point and the box at offset.
+     */
+    private static double distance(double[] boxes, int offset, double x,
+                                   double y, double z) {
+        double dx = Math.max(0, Math.max(boxes[offset] - x,
+                                         x - boxes[offset + 3]));
+        double dy = Math.max(0, Math.max(boxes[offset + 1] - y,
+                                         y - boxes[offset + 4]));
+        double dz = Math.max(0, Math.max(boxes[offset + 2] - z,
+                                         z - boxes[offset + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * @return The number of indexed products.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Removes all the products from this index.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            indexed.clear();
+            Arrays.fill(products, 0, size, null);
+            Arrays.fill(storeys, 0, size, null);
+            size = 0;
+            tree = Tree.EMPTY;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * A packed R-tree whose nodes are stored level by level, from the leaves
+     * to the root. The children of a leaf are the boxes order[nodeFirst[i]],
+     * ..., order[nodeFirst[i] + nodeCount[i] - 1], the children of the other
+     * nodes are the nodes nodeFirst[i], ..., nodeFirst[i] + nodeCount[i] - 1.
+     */
+    private static final class Tree {
+        static final Tree EMPTY = new Tree(0, new int[0], new double[0],
+                                           new int[0], new int[0], 0, 0);
+        final int size;
+        final int[] order;
+        final double[] nodeBoxes;
+        final int[] nodeFirst;
+        final int[] nodeCount;
+        final int leafCount;
+        final int height;
+
+        private Tree(int size, int[] order, double[] nodeBoxes,
+                     int[] nodeFirst, int[] nodeCount, int leafCount,
+                     int height) {
+            this.size = size;
+            this.order = order;
+            this.nodeBoxes = nodeBoxes;
+            this.nodeFirst = nodeFirst;
+            this.nodeCount = nodeCount;
+            this.leafCount = leafCount;
+            this.height = height;
+        }
+
+        int root() {
+            return nodeFirst.length - 1;
+        }
+
+        /**
+         * @param boxes The boxes to index.
+         * @param count The number of boxes to index, at least 1.
+         * @return The tree of the first count boxes.
+         */
+        static Tree build(double[] boxes, int count) {
+            int[] order = sortTileRecursive(boxes, count);
+            // the leaves, grouping consecutive boxes in STR order
+            int levelSize = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int[] first = new int[levelSize];
+            int[] children = new int[levelSize];
+            double[] leafBoxes = new double[6 * levelSize];
+            IntStream.range(0, levelSize).parallel().forEach(node -> {
+                first[node] = node * NODE_CAPACITY;
+                children[node] = Math.min(NODE_CAPACITY,
+                                          count - first[node]);
+                union(boxes, order, first[node], children[node], leafBoxes,
+                      node);
+            });
+            double[] levelBoxes = leafBoxes;
+            List<int[]> firsts = new ArrayList<>();
+            List<int[]> counts = new ArrayList<>();
+            List<double[]> levels = new ArrayList<>();
+            firsts.add(first);
+            counts.add(children);
+            levels.add(levelBoxes);
+            while (levelSize > 1) {
+                // sort the nodes of the level, so that the children of each
+                // parent are next to each other
+                int size = levelSize;
+                int[] permutation = sortTileRecursive(levelBoxes, size);
+                int last = levels.size() - 1;
+                firsts.set(last, permute(firsts.get(last), permutation));
+                counts.set(last, permute(counts.get(last), permutation));
+                double[] sorted = new double[6 * size];
+                for (int i = 0; i < size; i++) {
+                    System.arraycopy(levelBoxes, 6 * permutation[i], sorted,
+                                     6 * i, 6);
+                }
+                levels.set(last, sorted);
+                levelSize = (size + NODE_CAPACITY - 1) / NODE_CAPACITY;
+                int[] parentFirst = new int[levelSize];
+                int[] parentCount = new int[levelSize];
+                double[] parentBoxes = new double[6 * levelSize];
+                IntStream.range(0, levelSize).parallel().forEach(node -> {
+                    parentFirst[node] = node * NODE_CAPACITY;
+                    parentCount[node] = Math.min(NODE_CAPACITY,
+                                                 size - parentFirst[node]);
+                    union(sorted, null, parentFirst[node], parentCount[node],
+                          parentBoxes, node);
+                });
+                firsts.add(parentFirst);
+                counts.add(parentCount);
+                levels.add(parentBoxes);
+                levelBoxes = parentBoxes;
+            }
+            // concatenate the levels, making the children of internal nodes
+            // absolute indexes
+            int nodes = 0;
+            for (int[] level : firsts) {
+                nodes += level.length;
+            }
+            int[] nodeFirst = new int[nodes];
+            int[] nodeCount = new int[nodes];
+            double[] nodeBoxes = new double[6 * nodes];
+            int offset = 0;
+            int childOffset = 0;
+            for (int l = 0; l < firsts.size(); l++) {
+                int[] levelFirst = firsts.get(l);
+                int n = levelFirst.length;
+                for (int i = 0; i < n; i++) {
+                    nodeFirst[offset + i] = levelFirst[i] + childOffset;
+                }
+                System.arraycopy(counts.get(l), 0, nodeCount, offset, n);
+                System.arraycopy(levels.get(l), 0, nodeBoxes, 6 * offset,
+                                 6 * n);
+                // leaves point into order, other nodes to the previous level
+                childOffset = offset;
+                offset += n;
+            }
+            return new Tree(count, order, nodeBoxes, nodeFirst, nodeCount,
+                            firsts.get(0).length, firsts.size());
+        }
+
+        /**
+         * Writes into result at index node the union of count boxes, starting
+         * from the one at index first, or at index order[first] if order is
+         * not null.
+         */
+        private static void union(double[] boxes, int[] order, int first,
+                                  int count, double[] result, int node) {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double minZ = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            double maxZ = Double.NEGATIVE_INFINITY;
+            for (int i = first; i < first + count; i++) {
+                int offset = 6 * (order == null ? i : order[i]);
+                minX = Math.min(minX, boxes[offset]);
+                minY = Math.min(minY, boxes[offset + 1]);
+                minZ = Math.min(minZ, boxes[offset + 2]);
+                maxX = Math.max(maxX, boxes[offset + 3]);
+                maxY = Math.max(maxY, boxes[offset + 4]);
+                maxZ = Math.max(maxZ, boxes[offset + 5]);
+            }
+            int offset = 6 * node;
+            result[offset] = minX;
+            result[offset + 1] = minY;
+            result[offset + 2] = minZ;
+            result[offset + 3] = maxX;
+            result[offset + 4] = maxY;
+            result[offset + 5] = maxZ;
+        }
+
+        private static int[] permute(int[] values, int[] permutation) {
+            int[] result = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = values[permutation[i]];
+            }
+            return result;
+        }
+
+        /**
+         * @return The indexes of the first count boxes, in the order in which
+         * they should be grouped into nodes.
+         */
+        private static int[] sortTileRecursive(double[] boxes, int count) {
+            long[] keys = new long[count];
+            IntStream.range(0, count).parallel()
+                    .forEach(i -> keys[i] = key(boxes, i, 0));
+            Arrays.parallelSort(keys);
+            int nodes = (count + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int slices = (int) Math.ceil(Math.cbrt(nodes));
+            int runSize = NODE_CAPACITY * slices;
+            int slabSize = runSize * slices;
+            int slabs = (count + slabSize - 1) / slabSize;
+            IntStream.range(0, slabs).parallel().forEach(slab -> {
+                int from = slab * slabSize;
+                int to = Math.min(count, from + slabSize);
+                sort(keys, boxes, from, to, 1);
+                for (int run = from; run < to; run += runSize) {
+                    sort(keys, boxes, run, Math.min(to, run + runSize), 2);
+                }
+            });
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) {
+                order[i] = (int) keys[i];
+            }
+            return order;
+        }
+
+        private static void sort(long[] keys, double[] boxes, int from,
+                                 int to, int axis) {
+            for (int i = from; i < to; i++) {
+                keys[i] = key(boxes, (int) keys[i], axis);
+            }
+            Arrays.sort(keys, from, to);
+        }
+
+        /**
+         * @return A key whose upper 32 bits sort like the centre of the box
+         * along axis, and whose lower 32 bits are the index of the box, so
+         * that boxes can be sorted as primitive longs.
+         */
+        private static long key(double[] boxes, int index, int axis) {
+            int offset = 6 * index + axis;
+            float centre = (float) (boxes[offset] + boxes[offset + 3]);
+            int bits = Float.floatToIntBits(centre);
+            // negative floats sort in reverse order of their bits
+            bits ^= (bits >> 31) & 0x7fffffff;
+            return ((long) bits << 32) | index;
+        }
+    }
+
+    /**
+     * A binary min-heap of int values with double priorities.
+     */
+    private static final class MinHeap {
+        private double[] priorities = new double[64];
+        private int[] values = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void push(double priority, int value) {
+            if (size == values.length) {
+                priorities = Arrays.copyOf(priorities, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (priorities[parent] <= priority) {
+                    break;
+                }
+                priorities[i] = priorities[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            priorities[i] = priority;
+            values[i] = value;
+        }
+
+        int pop() {
+            int result = values[0];
+            double priority = priorities[--size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size &&
+                        priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priority <= priorities[child]) {
+                    break;
+                }
+                priorities[i] = priorities[child];
+                values[i] = values[child];
+                i = child;
+            }
+            priorities[i] = priority;
+            values[i] = value;
+            return result;
+        }
+    }
+}
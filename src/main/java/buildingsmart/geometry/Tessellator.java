@@ -0,0 +1,525 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import lombok.Getter;
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.IntStream;
+
+/**
+ * Converts the geometry of products to triangle {@link Mesh}es. The supported
+ * representation items are {@link IfcExtrudedAreaSolid} and {@link
+ * IfcRevolvedAreaSolid}, whose swept area is an {@link
+ * IfcRectangleProfileDef}, {@link IfcRectangleHollowProfileDef}, {@link
+ * IfcCircleProfileDef}, {@link IfcCircleHollowProfileDef}, {@link
+ * IfcEllipseProfileDef}, {@link IfcIShapeProfileDef} (except {@link
+ * IfcAsymmetricIShapeProfileDef}), {@link IfcLShapeProfileDef}, {@link
+ * IfcTShapeProfileDef}, {@link IfcUShapeProfileDef}, {@link
+ * IfcTrapeziumProfileDef}, or an {@link IfcArbitraryClosedProfileDef} or
+ * {@link IfcArbitraryProfileDefWithVoids} whose curves are supported by
+ * {@link CurveSampler}; and {@link IfcManifoldSolidBrep} and {@link
+ * IfcConnectedFaceSet}, whose loops are all {@link IfcPolyLoop}. Other items
+ * are skipped.
+ * </p>
+ * Curved boundaries, and the steps of revolutions, are sampled within the
+ * tolerances of a {@link CurveSampler}. Fillets, edge radii and slopes of
+ * parameterized profiles are ignored. Faces are flat shaded: vertices are not
+ * shared between faces with different normals. Faces of face sets are
+ * triangulated in their own plane, with their inner bounds as holes; their
+ * outer bound is the {@link IfcFaceOuterBound} if there's one, otherwise the
+ * bound enclosing the largest area. Angles of revolution are
+ * expected to be in radians.
+ * </p>
+ * The mesh of every representation tessellated so far is memoized, keyed by
+ * the identity of the representation, so that representations shared by many
+ * products (e.g. through the same IfcProductDefinitionShape) are tessellated
+ * once. Instances of this class are thread-safe, and {@link
+ * #tessellateAll(List)} tessellates products in parallel.
+ */
+public class Tessellator {
+    private final ConcurrentMap<IdentityKey<IfcRepresentation>, Mesh> meshes =
+            new ConcurrentHashMap<>();
+    /**
+     * The sampler of curves, circular profiles and revolutions.
+     */
+    @Getter
+    private final CurveSampler curveSampler;
+    /**
+     * The resolver used to place products in the world coordinate system.
+     */
+    @Getter
+    private final PlacementResolver placementResolver;
+
+    /**
+     * Creates a tessellator with its own {@link CurveSampler}, having the
+     * default tolerances, and its own {@link PlacementResolver}.
+     */
+    public Tessellator() {
+        this(new CurveSampler(), new PlacementResolver());
+    }
+
+    /**
+     * @param curveSampler      The sampler of curves, circular profiles and
+     *                          revolutions, it can be shared with other
+     *                          users.
+     * @param placementResolver The resolver used to place products in the
+     *                          world coordinate system, it can be shared with
+     *                          other users.
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public Tessellator(@NonNull CurveSampler curveSampler,
+                       @NonNull PlacementResolver placementResolver) {
+        this.curveSampler = curveSampler;
+        this.placementResolver = placementResolver;
+    }
+
+    /**
+     * @param product The product to tessellate.
+     * @return The mesh of all the supported items of all the representations
+     * of product, in the world coordinate system, or null if product has no
+     * representation or none of its items is supported.
+     *
+     * @throws NullPointerException     If product is null.
+     * @throws IllegalArgumentException If the placement of product can't be
+     *                                  resolved by {@link
+     *                                  PlacementResolver#resolve(IfcProduct)}.
+     */
+    public Mesh tessellate(@NonNull IfcProduct product) {
+        IfcProductRepresentation representation = product.getRepresentation();
+        if (representation == null) {
+            return null;
+        }
+        List<Mesh> parts = new ArrayList<>();
+        for (IfcRepresentation r : representation.getRepresentations()) {
+            Mesh mesh = tessellate(r);
+            if (!mesh.isEmpty()) {
+                parts.add(mesh);
+            }
+        }
+        if (parts.isEmpty()) {
+            return null;
+        }
+        return Mesh.merge(parts)
+                .transform(placementResolver.resolve(product));
+    }
+
+    /**
+     * Tessellates many products in parallel.
+     *
+     * @param products The products to tessellate. The List should support fast
+     *                 random access.
+     * @return The meshes of the products in the world coordinate system, as
+     * returned by {@link #tessellate(IfcProduct)}, in the same order as
+     * products.
+     *
+     * @throws NullPointerException     If products is null or contains null
+     *                                  elements.
+     * @throws IllegalArgumentException If the placement of any of the products
+     *                                  can't be resolved.
+     */
+    public Mesh[] tessellateAll(@NonNull List<? extends IfcProduct> products) {
+        Mesh[] result = new Mesh[products.size()];
+        IntStream.range(0, result.length).parallel()
+                .forEach(i -> result[i] = tessellate(products.get(i)));
+        return result;
+    }
+
+    /**
+     * @param representation The representation to tessellate.
+     * @return The mesh of the supported items of representation, in the
+     * coordinate system in which it is defined, which is empty if none of its
+     * items is supported.
+     *
+     * @throws NullPointerException If representation is null.
+     */
+    public Mesh tessellate(@NonNull IfcRepresentation representation) {
+        IdentityKey<IfcRepresentation> key = new IdentityKey<>(representation);
+        Mesh mesh = meshes.get(key);
+        if (mesh == null) {
+            List<Mesh> parts = new ArrayList<>();
+            for (IfcRepresentationItem item : representation.getItems()) {
+                Mesh part = tessellate(item);
+                if (part != null && !part.isEmpty()) {
+                    parts.add(part);
+                }
+            }
+            mesh = parts.isEmpty() ? Mesh.empty() : Mesh.merge(parts);
+            Mesh previous = meshes.putIfAbsent(key, mesh);
+            if (previous != null) {
+                mesh = previous;
+            }
+        }
+        return mesh;
+    }
+
+    /**
+     * @param item The representation item to tessellate.
+     * @return The mesh of item in the coordinate system in which it is
+     * defined, or null if item is not supported. Meshes of items are not
+     * memoized.
+     *
+     * @throws NullPointerException If item is null.
+     */
+    public Mesh tessellate(@NonNull IfcRepresentationItem item) {
+        if (item instanceof IfcExtrudedAreaSolid) {
+            return extrudedAreaSolid((IfcExtrudedAreaSolid) item);
+        }
+        if (item instanceof IfcRevolvedAreaSolid) {
+            return revolvedAreaSolid((IfcRevolvedAreaSolid) item);
+        }
+        if (item instanceof IfcManifoldSolidBrep) {
+            return faces(((IfcManifoldSolidBrep) item).getOuter()
+                                 .getCfsFaces());
+        }
+        if (item instanceof IfcConnectedFaceSet) {
+            return faces(((IfcConnectedFaceSet) item).getCfsFaces());
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of representations whose mesh is memoized.
+     */
+    public int size() {
+        return meshes.size();
+    }
+
+    /**
+     * Forgets all memoized meshes. Memoized placements are kept, since the
+     * {@link PlacementResolver} might be shared.
+     */
+    public void clear() {
+        meshes.clear();
+    }
+
+    private Mesh extrudedAreaSolid(IfcExtrudedAreaSolid solid) {
+        List<double[]> loops = Profiles.loops(solid.getSweptArea(),
+                                              curveSampler);
+        if (loops == null) {
+            return null;
+        }
+        IfcDirection direction = solid.getExtrudedDirection();
+        double[] d = {direction.getDirectionRatio(0),
+                direction.getDirectionRatio(1), direction.getDirectionRatio(2)};
+        double scale = solid.getDepth().getValue() /
+                Math.sqrt(d[0] * d[0] + d[1] * d[1] + d[2] * d[2]);
+        d[0] *= scale;
+        d[1] *= scale;
+        d[2] *= scale;
+        // the side of the profile plane towards which the profile is swept
+        double s = d[2] < 0 ? -1 : 1;
+        int[] triangles = triangulate(loops);
+        int vertices = 0;
+        for (double[] loop : loops) {
+            vertices += loop.length / 2;
+        }
+        MeshBuilder builder = new MeshBuilder(vertices * 6,
+                                              triangles.length / 3 * 2 +
+                                                      vertices * 2);
+        cap(builder, loops, triangles, Transform.identity(), 0, 0, -s, s > 0);
+        cap(builder, loops, triangles,
+            Transform.of(1, 0, 0, d[0], 0, 1, 0, d[1], 0, 0, 1, d[2]), 0, 0,
+            s, s < 0);
+        for (double[] loop : loops) {
+            int n = loop.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double px = loop[j * 2], py = loop[j * 2 + 1];
+                double qx = loop[i * 2], qy = loop[i * 2 + 1];
+                quad(builder, s, px, py, 0, qx, qy, 0, qx + d[0], qy + d[1],
+                     d[2], px + d[0], py + d[1], d[2]);
+            }
+        }
+        return builder.build().transform(Transform.of(solid.getPosition()));
+    }
+
+    private Mesh revolvedAreaSolid(IfcRevolvedAreaSolid solid) {
+        List<double[]> loops = Profiles.loops(solid.getSweptArea(),
+                                              curveSampler);
+        if (loops == null) {
+            return null;
+        }
+        IfcAxis1Placement axis = solid.getAxis();
+        IfcCartesianPoint location = axis.getLocation();
+        double cx = location.getCoordinate(0);
+        double cy = location.getCoordinate(1);
+        IfcDirection z = axis.getZ();
+        double ux = z.getDirectionRatio(0);
+        double uy = z.getDirectionRatio(1);
+        double length = Math.sqrt(ux * ux + uy * uy);
+        ux /= length;
+        uy /= length;
+        double angle = solid.getAngle().getValue();
+        boolean closed = Math.abs(angle) >= 2 * Math.PI;
+        if (closed) {
+            angle = angle < 0 ? -2 * Math.PI : 2 * Math.PI;
+        }
+        // the profile moves towards +Z where (u x (p - c)).z * angle > 0,
+        // which is the same for all the points of a profile not crossing the
+        // axis; the absolute value is the distance of p from the axis
+        double side = 0;
+        double radius = 0;
+        for (double[] loop : loops) {
+            for (int i = 0; i < loop.length; i += 2) {
+                double distance = ux * (loop[i + 1] - cy) - uy * (loop[i] - cx);
+                if (side == 0) {
+                    side = distance;
+                }
+                radius = Math.max(radius, Math.abs(distance));
+            }
+        }
+        int steps = curveSampler.segments(radius, angle);
+        double s = side * angle < 0 ? -1 : 1;
+        Transform[] rotations = new Transform[steps + 1];
+        for (int k = 0; k <= steps; k++) {
+            rotations[k] = rotation(cx, cy, ux, uy, angle * k / steps);
+        }
+        int vertices = 0;
+        for (double[] loop : loops) {
+            vertices += loop.length / 2;
+        }
+        int[] triangles = closed ? null : triangulate(loops);
+        MeshBuilder builder = new MeshBuilder(vertices * steps * 4 +
+                                                      (closed ? 0 :
+                                                              vertices * 2),
+                                              vertices * steps * 2);
+        if (!closed) {
+            Transform end = rotations[steps];
+            cap(builder, loops, triangles, Transform.identity(), 0, 0, -s,
+                s > 0);
+            cap(builder, loops, triangles, end, end.get(0, 2) * s,
+                end.get(1, 2) * s, end.get(2, 2) * s, s < 0);
+        }
+        double[] a = new double[3];
+        double[] b = new double[3];
+        double[] c = new double[3];
+        double[] d = new double[3];
+        for (double[] loop : loops) {
+            int n = loop.length / 2;
+            for (int i = 0, j = n - 1; i < n; j = i++) {
+                double[] p = {loop[j * 2], loop[j * 2 + 1], 0};
+                double[] q = {loop[i * 2], loop[i * 2 + 1], 0};
+                for (int k = 0; k < steps; k++) {
+                    rotations[k].transformPoint(p, 0, a, 0);
+                    rotations[k].transformPoint(q, 0, b, 0);
+                    rotations[k + 1].transformPoint(q, 0, c, 0);
+                    rotations[k + 1].transformPoint(p, 0, d, 0);
+                    quad(builder, s, a[0], a[1], a[2], b[0], b[1], b[2], c[0],
+                         c[1], c[2], d[0], d[1], d[2]);
+                }
+            }
+        }
+        return builder.build().transform(Transform.of(solid.getPosition()));
+    }
+
+    /**
+     * @return The mesh of faces, or null if any of their loops is not an
+     * {@link IfcPolyLoop}.
+     */
+    private static Mesh faces(Collection<IfcFace> faces) {
+        MeshBuilder builder = new MeshBuilder(faces.size() * 4,
+                                              faces.size() * 2);
+        List<double[]> holes = new ArrayList<>();
+        for (IfcFace face : faces) {
+            double[] outer = null;
+            double outerArea = -1;
+            boolean outerBound = false;
+            holes.clear();
+            for (IfcFaceBound bound : face.getBounds()) {
+                if (!(bound.getBound() instanceof IfcPolyLoop)) {
+                    return null;
+                }
+                double[] loop = Coordinates.pack(
+                        ((IfcPolyLoop) bound.getBound()).getPolygon());
+                if (bound.getOrientation() == IfcBoolean.F) {
+                    reverse(loop);
+                }
+                double area = length(Triangulator.normal(loop));
+                boolean isOuterBound = bound instanceof IfcFaceOuterBound;
+                if (outer == null || (isOuterBound && !outerBound) ||
+                        (isOuterBound == outerBound && area > outerArea)) {
+                    if (outer != null) {
+                        holes.add(outer);
+                    }
+                    outer = loop;
+                    outerArea = area;
+                    outerBound = isOuterBound;
+                } else {
+                    holes.add(loop);
+                }
+            }
+            if (outer != null) {
+                face(builder, outer, holes);
+            }
+        }
+        return builder.build();
+    }
+
+    /**
+     * Adds the triangles of the planar face bounded by outer and holes,
+     * counter-clockwise around the normal of outer. Degenerate faces are
+     * skipped.
+     */
+    private static void face(MeshBuilder builder, double[] outer,
+                             List<double[]> holes) {
+        double[] normal = Triangulator.normal(outer);
+        double length = length(normal);
+        if (length == 0) {
+            return;
+        }
+        int[] triangles = Triangulator.triangulatePlanar(outer, holes);
+        double nx = normal[0] / length;
+        double ny = normal[1] / length;
+        double nz = normal[2] / length;
+        int first = builder.vertexCount();
+        addVertices(builder, outer, nx, ny, nz);
+        for (double[] hole : holes) {
+            addVertices(builder, hole, nx, ny, nz);
+        }
+        for (int i = 0; i < triangles.length; i += 3) {
+            builder.addTriangle(first + triangles[i], first + triangles[i + 1],
+                                first + triangles[i + 2]);
+        }
+    }
+
+    private static void addVertices(MeshBuilder builder, double[] loop,
+                                    double nx, double ny, double nz) {
+        for (int i = 0; i < loop.length; i += 3) {
+            builder.addVertex(loop[i], loop[i + 1], loop[i + 2], nx, ny, nz);
+        }
+    }
+
+    /**
+     * Reverses in place the order of the packed three-dimensional points of
+     * loop.
+     */
+    private static void reverse(double[] loop) {
+        for (int i = 0, j = loop.length - 3; i < j; i += 3, j -= 3) {
+            for (int k = 0; k < 3; k++) {
+                double swap = loop[i + k];
+                loop[i + k] = loop[j + k];
+                loop[j + k] = swap;
+            }
+        }
+    }
+
+    private static double length(double[] vector) {
+        return Math.sqrt(vector[0] * vector[0] + vector[1] * vector[1] +
+                                 vector[2] * vector[2]);
+    }
+
+    /**
+     * @return The rotation by angle around the axis through (cx, cy, 0) with
+     * direction (ux, uy, 0), computed with Rodrigues' formula.
+     */
+    private static Transform rotation(double cx, double cy, double ux,
+                                      double uy, double angle) {
+        double cos = Math.cos(angle);
+        double sin = Math.sin(angle);
+        double t = 1 - cos;
+        double r00 = cos + ux * ux * t;
+        double r01 = ux * uy * t;
+        double r02 = uy * sin;
+        double r10 = ux * uy * t;
+        double r11 = cos + uy * uy * t;
+        double r12 = -ux * sin;
+        double r20 = -uy * sin;
+        double r21 = ux * sin;
+        double r22 = cos;
+        return Transform.of(r00, r01, r02, cx - r00 * cx - r01 * cy,
+                            r10, r11, r12, cy - r10 * cx - r11 * cy,
+                            r20, r21, r22, -r20 * cx - r21 * cy);
+    }
+
+    private static int[] triangulate(List<double[]> loops) {
+        return Triangulator.triangulate(loops.get(0),
+                                        loops.subList(1, loops.size()));
+    }
+
+    /**
+     * Adds the triangles of the profile, placed by transform, with normal
+     * (nx, ny, nz), reversing their winding if reverse is true.
+     */
+    private static void cap(MeshBuilder builder, List<double[]> loops,
+                            int[] triangles, Transform transform, double nx,
+                            double ny, double nz, boolean reverse) {
+        int first = builder.vertexCount();
+        double[] point = new double[3];
+        double[] placed = new double[3];
+        for (double[] loop : loops) {
+            for (int i = 0; i < loop.length; i += 2) {
+                point[0] = loop[i];
+                point[1] = loop[i + 1];
+                transform.transformPoint(point, 0, placed, 0);
+                builder.addVertex(placed[0], placed[1], placed[2], nx, ny, nz);
+            }
+        }
+        for (int i = 0; i < triangles.length; i += 3) {
+            int a = first + triangles[i];
+            int b = first + triangles[i + 1];
+            int c = first + triangles[i + 2];
+            if (reverse) {
+                builder.addTriangle(a, c, b);
+            } else {
+                builder.addTriangle(a, b, c);
+            }
+        }
+    }
+
+    /**
+     * Adds the quadrilateral a, b, c, d, which is counter-clockwise seen from
+     * outside if s is positive and clockwise otherwise, with the normal of
+     * the plane through its diagonals. Degenerate quadrilaterals are skipped.
+     */
+    private static void quad(MeshBuilder builder, double s, double ax,
+                             double ay, double az, double bx, double by,
+                             double bz, double cx, double cy, double cz,
+                             double dx, double dy, double dz) {
+        // cross product of the diagonals a-c and b-d
+        double ex = cx - ax, ey = cy - ay, ez = cz - az;
+        double fx = dx - bx, fy = dy - by, fz = dz - bz;
+        double nx = ey * fz - ez * fy;
+        double ny = ez * fx - ex * fz;
+        double nz = ex * fy - ey * fx;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length == 0) {
+            return;
+        }
+        nx *= s / length;
+        ny *= s / length;
+        nz *= s / length;
+        int a = builder.addVertex(ax, ay, az, nx, ny, nz);
+        int b = builder.addVertex(bx, by, bz, nx, ny, nz);
+        int c = builder.addVertex(cx, cy, cz, nx, ny, nz);
+        int d = builder.addVertex(dx, dy, dz, nx, ny, nz);
+        if (s > 0) {
+            builder.addTriangle(a, b, c);
+            builder.addTriangle(a, c, d);
+        } else {
+            builder.addTriangle(a, c, b);
+            builder.addTriangle(a, d, c);
+        }
+    }
+}
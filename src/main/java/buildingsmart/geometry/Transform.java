@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcAxis2Placement;
+import buildingsmart.ifc.IfcAxis2Placement2D;
+import buildingsmart.ifc.IfcAxis2Placement3D;
+import buildingsmart.ifc.IfcCartesianPoint;
+import buildingsmart.ifc.IfcDirection;
+import buildingsmart.util.VectorMath;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * An affine transformation of three-dimensional space, stored as the first
+ * three rows of a 4x4 matrix in row-major order: the upper-left 3x3 block is
+ * the linear part (whose columns are the images of the X, Y and Z axes) and
+ * the last column is the translation. The fourth row is always (0, 0, 0, 1).
+ * </p>
+ * Instances of this class are immutable.
+ */
+@EqualsAndHashCode
+public final class Transform {
+    private static final Transform IDENTITY =
+            new Transform(new double[]{1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0});
+
+    private final double[] m;
+
+    private Transform(double[] m) {
+        this.m = m;
+    }
+
+    /**
+     * @return The transformation which maps every point to itself.
+     */
+    public static Transform identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * @param matrix Either the 12 elements of a 3x4 matrix, or the 16 elements
+     *               of a 4x4 matrix whose last row is (0, 0, 0, 1), in
+     *               row-major order. The array is copied.
+     * @return The transformation represented by matrix.
+     *
+     * @throws NullPointerException     If matrix is null.
+     * @throws IllegalArgumentException If matrix has neither 12 nor 16
+     *                                  elements, or if it has 16 elements and
+     *                                  doesn't represent an affine
+     *                                  transformation.
+     */
+    public static Transform of(@NonNull double... matrix) {
+        if (matrix.length == 16) {
+            if (matrix[12] != 0 || matrix[13] != 0 || matrix[14] != 0 ||
+                    matrix[15] != 1) {
+                throw new IllegalArgumentException(
+                        "the last row of matrix must be (0, 0, 0, 1)");
+            }
+        } else if (matrix.length != 12) {
+            throw new IllegalArgumentException(
+                    "matrix must have 12 or 16 elements");
+        }
+        return new Transform(Arrays.copyOf(matrix, 12));
+    }
+
+    /**
+     * @param x      The image of the X axis.
+     * @param y      The image of the Y axis.
+     * @param z      The image of the Z axis.
+     * @param origin The image of the origin.
+     * @return The transformation mapping the axes and the origin to the given
+     * vectors and point. Only the first three elements of each array are used.
+     *
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public static Transform fromAxes(@NonNull double[] x, @NonNull double[] y,
+                                     @NonNull double[] z,
+                                     @NonNull double[] origin) {
+        return new Transform(new double[]{
+                x[0], y[0], z[0], origin[0],
+                x[1], y[1], z[1], origin[1],
+                x[2], y[2], z[2], origin[2]});
+    }
+
+    /**
+     * @param placement The placement defining a local coordinate system.
+     * @return The transformation from the local coordinate system defined by
+     * placement to the coordinate system in which placement is defined.
+     * Two-dimensional placements are embedded in the XY plane.
+     *
+     * @throws NullPointerException     If placement is null.
+     * @throws IllegalArgumentException If placement is neither an {@link
+     *                                  IfcAxis2Placement3D} nor an {@link
+     *                                  IfcAxis2Placement2D}.
+     */
+    public static Transform of(@NonNull IfcAxis2Placement placement) {
+        if (placement instanceof IfcAxis2Placement3D) {
+            return of((IfcAxis2Placement3D) placement);
+        }
+        if (placement instanceof IfcAxis2Placement2D) {
+            return of((IfcAxis2Placement2D) placement);
+        }
+        throw new IllegalArgumentException(
+                "unsupported placement type " + placement.getClass());
+    }
+
+    /**
+     * @param placement The placement defining a local coordinate system.
+     * @return The transformation from the local coordinate system defined by
+     * placement to the coordinate system in which placement is defined.
+     *
+     * @throws NullPointerException If placement is null.
+     */
+    public static Transform of(@NonNull IfcAxis2Placement3D placement) {
+        double[] axis = read(placement.getAxis(), new double[3]);
+        double[] refDirection = read(placement.getRefDirection(),
+                                     new double[3]);
+        double[] x = new double[3];
+        double[] y = new double[3];
+        double[] z = new double[3];
+        // parallel axes are rejected by the constructor of placement
+        VectorMath.buildAxes(axis, refDirection, x, y, z);
+        IfcCartesianPoint location = placement.getLocation();
+        return new Transform(new double[]{
+                x[0], y[0], z[0], location.getCoordinate(0),
+                x[1], y[1], z[1], location.getCoordinate(1),
+                x[2], y[2], z[2], location.getCoordinate(2)});
+    }
+
+    /**
+     * @param placement The placement defining a local coordinate system.
+     * @return The transformation from the local coordinate system defined by
+     * placement, embedded in the XY plane, to the coordinate system in which
+     * placement is defined.
+     *
+     * @throws NullPointerException If placement is null.
+     */
+    public static Transform of(@NonNull IfcAxis2Placement2D placement) {
+        double[] x = read(placement.getRefDirection(), new double[2]);
+        if (x == null || !VectorMath.normalise(x, x, 2)) {
+            x = new double[]{1, 0};
+        }
+        IfcCartesianPoint location = placement.getLocation();
+        return new Transform(new double[]{
+                x[0], -x[1], 0, location.getCoordinate(0),
+                x[1], x[0], 0, location.getCoordinate(1),
+                0, 0, 1, 0});
+    }
+
+    /**
+     * @param direction The direction to read, can be null.
+     * @param into      The array in which to copy the direction ratios.
+     * @return into, or null if direction is null.
+     */
+    private static double[] read(IfcDirection direction, double[] into) {
+        if (direction == null) {
+            return null;
+        }
+        for (int i = 0; i < into.length; i++) {
+            into[i] = direction.getDirectionRatio(i);
+        }
+        return into;
+    }
+
+    /**
+     * @param other The transformation to apply first.
+     * @return The transformation which applies other and then this one. When
+     * this is the transformation of a parent coordinate system and other the
+     * one of a child defined relative to it, the result maps the child's
+     * coordinates to the coordinates in which the parent is defined.
+     *
+     * @throws NullPointerException If other is null.
+     */
+    public Transform multiply(@NonNull Transform other) {
+        if (other == IDENTITY) {
+            return this;
+        }
+        if (this == IDENTITY) {
+            return other;
+        }
+        double[] a = m;
+        double[] b = other.m;
+        double[] r = new double[12];
+        for (int row = 0; row < 3; row++) {
+            int i = row * 4;
+            for (int col = 0; col < 4; col++) {
+                r[i + col] = a[i] * b[col] + a[i + 1] * b[4 + col] +
+                        a[i + 2] * b[8 + col];
+            }
+            r[i + 3] += a[i + 3];
+        }
+        return new Transform(r);
+    }
+
+    /**
+     * Transforms a point, reading it from and writing it to arrays of packed
+     * coordinates. src and dst may be the same array.
+     *
+     * @param src       The array containing the point to transform.
+     * @param srcOffset The position of the X coordinate of the point in src.
+     * @param dst       The array in which to write the transformed point.
+     * @param dstOffset The position in dst where to write the X coordinate.
+     * @throws NullPointerException      If src or dst are null.
+     * @throws IndexOutOfBoundsException If either array doesn't have three
+     *                                   coordinates from its offset.
+     */
+    public void transformPoint(@NonNull double[] src, int srcOffset,
+                               @NonNull double[] dst, int dstOffset) {
+        double x = src[srcOffset];
+        double y = src[srcOffset + 1];
+        double z = src[srcOffset + 2];
+        dst[dstOffset] = m[0] * x + m[1] * y + m[2] * z + m[3];
+        dst[dstOffset + 1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+        dst[dstOffset + 2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+    }
+
+    /**
+     * Transforms consecutive points, reading them from and writing them to
+     * arrays of packed coordinates (x0, y0, z0, x1, y1, z1, ...). The elements
+     * of the matrix are kept in local variables for the whole batch, and the
+     * loop body has no branches nor allocations, so that it can be unrolled
+     * and scheduled efficiently by the JIT compiler. src and dst may be the
+     * same array, as long as the ranges don't overlap or srcOffset is equal
+     * to dstOffset.
+     *
+     * @param src       The array containing the points to transform.
+     * @param srcOffset The position of the X coordinate of the first point in
+     *                  src.
+     * @param dst       The array in which to write the transformed points.
+     * @param dstOffset The position in dst where to write the X coordinate of
+     *                  the first point.
+     * @param count     The number of points to transform.
+     * @throws NullPointerException      If src or dst are null.
+     * @throws IndexOutOfBoundsException If either array doesn't have count
+     *                                   points from its offset.
+     */
+    public void transformPoints(@NonNull double[] src, int srcOffset,
+                                @NonNull double[] dst, int dstOffset,
+                                int count) {
+        if (srcOffset < 0 || dstOffset < 0 || count < 0 ||
+                srcOffset + 3L * count > src.length ||
+                dstOffset + 3L * count > dst.length) {
+            throw new IndexOutOfBoundsException(
+                    "arrays must contain count points from their offsets");
+        }
+        double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+        double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+        double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+        int end = srcOffset + 3 * count;
+        for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+            double x = src[i];
+            double y = src[i + 1];
+            double z = src[i + 2];
+            dst[j] = m00 * x + m01 * y + m02 * z + m03;
+            dst[j + 1] = m10 * x + m11 * y + m12 * z + m13;
+            dst[j + 2] = m20 * x + m21 * y + m22 * z + m23;
+        }
+    }
+
+    /**
+     * @param point The point to transform, whose Z coordinate is 0 if it is
+     *              two-dimensional.
+     * @return The coordinates of the transformed point.
+     *
+     * @throws NullPointerException If point is null.
+     */
+    public double[] transform(@NonNull IfcCartesianPoint point) {
+        double[] coordinates = new double[3];
+        int dim = point.getDim().getValue();
+        for (int i = 0; i < dim; i++) {
+            coordinates[i] = point.getCoordinate(i);
+        }
+        transformPoint(coordinates, 0, coordinates, 0);
+        return coordinates;
+    }
+
+    /**
+     * @param row    The row of the element, from 0 to 3.
+     * @param column The column of the element, from 0 to 3.
+     * @return The element of the 4x4 matrix of this transformation at the
+     * given row and column.
+     *
+     * @throws IndexOutOfBoundsException If row or column are not between 0 and
+     *                                   3.
+     */
+    public double get(int row, int column) {
+        if (row < 0 || row > 3 || column < 0 || column > 3) {
+            throw new IndexOutOfBoundsException(
+                    "row and column must be between 0 and 3");
+        }
+        if (row == 3) {
+            return column == 3 ? 1 : 0;
+        }
+        return m[row * 4 + column];
+    }
+
+    /**
+     * @return The 12 elements of the 3x4 matrix of this transformation, in
+     * row-major order.
+     */
+    public double[] toArray() {
+        return m.clone();
+    }
+
+    /**
+     * @return The 16 elements of the 4x4 matrix of this transformation, in
+     * row-major order.
+     */
+    public double[] toMatrix4() {
+        double[] result = Arrays.copyOf(m, 16);
+        result[15] = 1;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Transform" + Arrays.toString(m);
+    }
+}
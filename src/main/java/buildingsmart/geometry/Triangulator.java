@@ -0,0 +1,940 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Portions of this file are derived from earcut
+ * (https://github.com/mapbox/earcut), distributed under the following
+ * license:
+ *
+ * ISC License
+ *
+ * Copyright (c) 2016, Mapbox
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND ISC DISCLAIMS ALL WARRANTIES WITH
+ * REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF MERCHANTABILITY
+ * AND FITNESS. IN NO EVENT SHALL ISC BE LIABLE FOR ANY SPECIAL, DIRECT,
+ * INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES WHATSOEVER RESULTING FROM
+ * LOSS OF USE, DATA OR PROFITS, WHETHER IN AN ACTION OF CONTRACT, NEGLIGENCE OR
+ * OTHER TORTIOUS ACTION, ARISING OUT OF OR IN CONNECTION WITH THE USE OR
+ * PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package buildingsmart.geometry;
+
+import lombok.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Triangulates simple polygons with holes, given as loops of packed
+ * two-dimensional coordinates (x0, y0, x1, y1, ...), or of packed
+ * three-dimensional coordinates of planar loops, which are projected on the
+ * coordinate plane closest to theirs. Holes are bridged to the outer loop,
+ * turning the polygon into a single loop, which is then cut by ear clipping.
+ * Degenerate or self-intersecting loops produce a best effort triangulation
+ * rather than an error. The algorithm is ported from Mapbox's earcut
+ * library, see the license notice at the top of this file.
+ * </p>
+ * Polygons with more than {@value #HASH_THRESHOLD} vertices are indexed along
+ * a z-order curve, so that checking whether an ear contains other vertices
+ * only visits the vertices whose z-order is between the ones of the corners
+ * of the bounding box of the ear, rather than all the vertices of the loop.
+ * This makes triangulating large polygons close to linear in practice,
+ * instead of quadratic.
+ * </p>
+ * Loops are stored as doubly linked lists whose nodes are indexes in
+ * primitive arrays, so that triangulating creates a handful of objects
+ * regardless of the number of vertices. Instances of this class are created
+ * by each call, so the static methods are thread-safe.
+ */
+public final class Triangulator {
+    /**
+     * The number of vertices above which ears are found through the z-order
+     * index. Below it, building the index costs more than it saves.
+     */
+    static final int HASH_THRESHOLD = 80;
+    private static final int NIL = -1;
+    private static final int[] EMPTY = new int[0];
+
+    private final double[] coordinates;
+    // nodes of the linked lists
+    private int[] vertex;
+    private double[] x;
+    private double[] y;
+    private int[] prev;
+    private int[] next;
+    private boolean[] steiner;
+    // z-order of the nodes, and nodes in z-order
+    private int[] z;
+    private int[] prevZ;
+    private int[] nextZ;
+    private int nodeCount;
+    // the transformation from coordinates to the z-order grid, whose cells
+    // are indexed by 15 bits integers; invSize is 0 if there's no index
+    private double minX;
+    private double minY;
+    private double invSize;
+    // the indexes of the vertices of the triangles found so far
+    private int[] triangles;
+    private int triangleCount;
+
+    private Triangulator(double[] coordinates) {
+        this.coordinates = coordinates;
+        int capacity = coordinates.length / 2 + 16;
+        vertex = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        prev = new int[capacity];
+        next = new int[capacity];
+        steiner = new boolean[capacity];
+        z = new int[capacity];
+        prevZ = new int[capacity];
+        nextZ = new int[capacity];
+        triangles = new int[Math.max(3, (coordinates.length / 2) * 3)];
+    }
+
+    /**
+     * @param outer The packed coordinates of the outer loop of the polygon.
+     * @param holes The packed coordinates of the loops bounding the holes of
+     *              the polygon.
+     * @return The indexes of the vertices of the triangles, three per
+     * triangle, counter-clockwise if the Y axis points up whatever the
+     * orientation of the loops. Vertices are numbered starting with the ones
+     * of outer and continuing with the ones of each hole, in order.
+     *
+     * @throws NullPointerException     If any of the arguments is null, or if
+     *                                  holes contains null elements.
+     * @throws IllegalArgumentException If the length of any of the loops is
+     *                                  odd.
+     */
+    public static int[] triangulate(@NonNull double[] outer,
+                                    @NonNull List<double[]> holes) {
+        if (outer.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "the length of outer must be even");
+        }
+        if (holes.isEmpty()) {
+            return triangulate(outer, EMPTY);
+        }
+        int length = outer.length;
+        for (double[] hole : holes) {
+            length += hole.length;
+        }
+        double[] coordinates = Arrays.copyOf(outer, length);
+        int[] holeStarts = new int[holes.size()];
+        int offset = outer.length;
+        for (int i = 0; i < holeStarts.length; i++) {
+            double[] hole = holes.get(i);
+            if (hole.length % 2 != 0) {
+                throw new IllegalArgumentException(
+                        "the length of holes must be even");
+            }
+            holeStarts[i] = offset / 2;
+            System.arraycopy(hole, 0, coordinates, offset, hole.length);
+            offset += hole.length;
+        }
+        return triangulate(coordinates, holeStarts);
+    }
+
+    /**
+     * @param coordinates The packed coordinates of the outer loop of the
+     *                    polygon, followed by the ones of the loops bounding
+     *                    its holes.
+     * @param holeStarts  The index of the first vertex of each hole, in
+     *                    increasing order.
+     * @return The indexes of the vertices of the triangles, three per
+     * triangle, counter-clockwise if the Y axis points up whatever the
+     * orientation of the loops.
+     *
+     * @throws NullPointerException     If any of the arguments is null.
+     * @throws IllegalArgumentException If the length of coordinates is odd,
+     *                                  or if holeStarts are not increasing
+     *                                  indexes of vertices.
+     */
+    public static int[] triangulate(@NonNull double[] coordinates,
+                                    @NonNull int[] holeStarts) {
+        if (coordinates.length % 2 != 0) {
+            throw new IllegalArgumentException(
+                    "the length of coordinates must be even");
+        }
+        int vertices = coordinates.length / 2;
+        for (int i = 0; i < holeStarts.length; i++) {
+            if (holeStarts[i] < 1 || holeStarts[i] >= vertices ||
+                    (i > 0 && holeStarts[i] <= holeStarts[i - 1])) {
+                throw new IllegalArgumentException(
+                        "holeStarts must be increasing indexes of vertices");
+            }
+        }
+        Triangulator triangulator = new Triangulator(coordinates);
+        triangulator.run(holeStarts);
+        return Arrays.copyOf(triangulator.triangles,
+                             triangulator.triangleCount);
+    }
+
+    /**
+     * @param outer The packed three-dimensional coordinates of the outer loop
+     *              of a planar polygon.
+     * @param holes The packed three-dimensional coordinates of the loops
+     *              bounding the holes of the polygon, lying in the same plane
+     *              as outer.
+     * @return The indexes of the vertices of the triangles, three per
+     * triangle, having the same winding as outer whatever the orientation of
+     * the holes. Vertices are numbered starting with the ones of outer and
+     * continuing with the ones of each hole, in order. The result is empty if
+     * the area of outer is zero.
+     *
+     * @throws NullPointerException     If any of the arguments is null, or if
+     *                                  holes contains null elements.
+     * @throws IllegalArgumentException If the length of any of the loops is
+     *                                  not a multiple of 3.
+     */
+    public static int[] triangulatePlanar(@NonNull double[] outer,
+                                          @NonNull List<double[]> holes) {
+        if (outer.length % 3 != 0) {
+            throw new IllegalArgumentException(
+                    "the length of outer must be a multiple of 3");
+        }
+        double[] normal = normal(outer);
+        // the axis along which the plane is the most visible is dropped;
+        // the remaining two are swapped if the plane faces the negative
+        // direction, so that outer is counter-clockwise after projecting
+        int axis = 2;
+        if (Math.abs(normal[0]) > Math.abs(normal[1]) &&
+                Math.abs(normal[0]) > Math.abs(normal[2])) {
+            axis = 0;
+        } else if (Math.abs(normal[1]) > Math.abs(normal[2])) {
+            axis = 1;
+        }
+        if (normal[axis] == 0) {
+            return EMPTY;
+        }
+        int u = (axis + 1) % 3;
+        int v = (axis + 2) % 3;
+        if (normal[axis] < 0) {
+            int swap = u;
+            u = v;
+            v = swap;
+        }
+        int length = outer.length;
+        for (double[] hole : holes) {
+            if (hole.length % 3 != 0) {
+                throw new IllegalArgumentException(
+                        "the length of holes must be a multiple of 3");
+            }
+            length += hole.length;
+        }
+        double[] coordinates = new double[length / 3 * 2];
+        int[] holeStarts = new int[holes.size()];
+        int offset = project(outer, u, v, coordinates, 0);
+        for (int i = 0; i < holeStarts.length; i++) {
+            holeStarts[i] = offset / 2;
+            offset = project(holes.get(i), u, v, coordinates, offset);
+        }
+        // empty holes can't be given by their start
+        int count = 0;
+        for (int i = 0; i < holeStarts.length; i++) {
+            int end = i == holeStarts.length - 1 ? coordinates.length / 2 :
+                    holeStarts[i + 1];
+            if (holeStarts[i] < end) {
+                holeStarts[count++] = holeStarts[i];
+            }
+        }
+        return triangulate(coordinates, Arrays.copyOf(holeStarts, count));
+    }
+
+    /**
+     * Writes the coordinates u and v of the packed three-dimensional points
+     * of loop to coordinates, starting from offset.
+     *
+     * @return The offset following the last coordinate written.
+     */
+    private static int project(double[] loop, int u, int v,
+                               double[] coordinates, int offset) {
+        for (int i = 0; i < loop.length; i += 3) {
+            coordinates[offset++] = loop[i + u];
+            coordinates[offset++] = loop[i + v];
+        }
+        return offset;
+    }
+
+    /**
+     * @param loop The packed three-dimensional coordinates of a loop.
+     * @return The normal of loop computed with Newell's method, whose length
+     * is twice the area of the projection of loop on the plane it defines. It
+     * is zero if loop is degenerate.
+     */
+    static double[] normal(double[] loop) {
+        double nx = 0;
+        double ny = 0;
+        double nz = 0;
+        int n = loop.length / 3;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            double xi = loop[i * 3], yi = loop[i * 3 + 1], zi = loop[i * 3 + 2];
+            double xj = loop[j * 3], yj = loop[j * 3 + 1], zj = loop[j * 3 + 2];
+            nx += (yj - yi) * (zj + zi);
+            ny += (zj - zi) * (xj + xi);
+            nz += (xj - xi) * (yj + yi);
+        }
+        return new double[]{nx, ny, nz};
+    }
+
+    private void run(int[] holeStarts) {
+        int outerEnd = holeStarts.length == 0 ? coordinates.length / 2 :
+                holeStarts[0];
+        int outer = linkedList(0, outerEnd, true);
+        if (outer == NIL || next[outer] == prev[outer]) {
+            return;
+        }
+        if (holeStarts.length > 0) {
+            outer = eliminateHoles(holeStarts, outer);
+        }
+        if (coordinates.length / 2 > HASH_THRESHOLD) {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < outerEnd * 2; i += 2) {
+                minX = Math.min(minX, coordinates[i]);
+                minY = Math.min(minY, coordinates[i + 1]);
+                maxX = Math.max(maxX, coordinates[i]);
+                maxY = Math.max(maxY, coordinates[i + 1]);
+            }
+            double size = Math.max(maxX - minX, maxY - minY);
+            invSize = size != 0 ? 32767 / size : 0;
+        }
+        earcutLinked(outer, 0);
+    }
+
+    /**
+     * Creates a circular linked list from the vertices between start
+     * (inclusive) and end (exclusive), in the given winding order.
+     *
+     * @return The last node of the list, NIL if it is empty.
+     */
+    private int linkedList(int start, int end, boolean counterClockwise) {
+        int last = NIL;
+        if (counterClockwise == (signedArea(start, end) > 0)) {
+            for (int i = start; i < end; i++) {
+                last = insertNode(i, last);
+            }
+        } else {
+            for (int i = end - 1; i >= start; i--) {
+                last = insertNode(i, last);
+            }
+        }
+        if (last != NIL && equals(last, next[last])) {
+            int following = next[last];
+            removeNode(last);
+            last = following;
+        }
+        return last;
+    }
+
+    /**
+     * @return Twice the area of the loop, positive if it is counter-clockwise.
+     */
+    private double signedArea(int start, int end) {
+        double sum = 0;
+        for (int i = start, j = end - 1; i < end; j = i++) {
+            sum += (coordinates[j * 2] - coordinates[i * 2]) *
+                    (coordinates[i * 2 + 1] + coordinates[j * 2 + 1]);
+        }
+        return sum;
+    }
+
+    /**
+     * Removes duplicate and collinear points between start and end.
+     *
+     * @return The last node which wasn't removed.
+     */
+    private int filterPoints(int start, int end) {
+        if (start == NIL) {
+            return start;
+        }
+        if (end == NIL) {
+            end = start;
+        }
+        int p = start;
+        boolean again;
+        do {
+            again = false;
+            if (!steiner[p] && (equals(p, next[p]) ||
+                    area(prev[p], p, next[p]) == 0)) {
+                int previous = prev[p];
+                removeNode(p);
+                p = end = previous;
+                if (p == next[p]) {
+                    break;
+                }
+                again = true;
+            } else {
+                p = next[p];
+            }
+        } while (again || p != end);
+        return end;
+    }
+
+    /**
+     * Clips ears from the loop containing ear until only a triangle is left.
+     * If no ear can be found, the loop is cleaned up (pass 0), its local
+     * self-intersections are cured (pass 1), and finally it is split in two
+     * loops which are triangulated separately (pass 2).
+     */
+    private void earcutLinked(int ear, int pass) {
+        if (ear == NIL) {
+            return;
+        }
+        if (pass == 0 && invSize != 0) {
+            indexCurve(ear);
+        }
+        int stop = ear;
+        while (prev[ear] != next[ear]) {
+            int previous = prev[ear];
+            int following = next[ear];
+            if (invSize != 0 ? isEarHashed(ear) : isEar(ear)) {
+                addTriangle(vertex[previous], vertex[ear], vertex[following]);
+                removeNode(ear);
+                ear = next[following];
+                stop = ear;
+                continue;
+            }
+            ear = following;
+            if (ear == stop) {
+                if (pass == 0) {
+                    earcutLinked(filterPoints(ear, NIL), 1);
+                } else if (pass == 1) {
+                    ear = cureLocalIntersections(filterPoints(ear, NIL));
+                    earcutLinked(ear, 2);
+                } else {
+                    splitEarcut(ear);
+                }
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if the triangle formed by ear and its neighbours
+     * is convex and contains no other reflex vertex of the loop.
+     */
+    private boolean isEar(int ear) {
+        int a = prev[ear];
+        int c = next[ear];
+        if (area(a, ear, c) >= 0) {
+            return false; // reflex
+        }
+        double ax = x[a], ay = y[a], bx = x[ear], by = y[ear];
+        double cx = x[c], cy = y[c];
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+        for (int p = next[c]; p != a; p = next[p]) {
+            if (x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1 &&
+                    pointInTriangle(ax, ay, bx, by, cx, cy, x[p], y[p]) &&
+                    area(prev[p], p, next[p]) >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Like {@link #isEar(int)}, but only visits the vertices whose z-order is
+     * within the range of the bounding box of the triangle, going in both
+     * directions from ear at the same time.
+     */
+    private boolean isEarHashed(int ear) {
+        int a = prev[ear];
+        int c = next[ear];
+        if (area(a, ear, c) >= 0) {
+            return false; // reflex
+        }
+        double ax = x[a], ay = y[a], bx = x[ear], by = y[ear];
+        double cx = x[c], cy = y[c];
+        double x0 = Math.min(ax, Math.min(bx, cx));
+        double y0 = Math.min(ay, Math.min(by, cy));
+        double x1 = Math.max(ax, Math.max(bx, cx));
+        double y1 = Math.max(ay, Math.max(by, cy));
+        int minZ = zOrder(x0, y0);
+        int maxZ = zOrder(x1, y1);
+        int p = prevZ[ear];
+        int n = nextZ[ear];
+        while (p != NIL && z[p] >= minZ && n != NIL && z[n] <= maxZ) {
+            if (blocks(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy) ||
+                    blocks(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+            p = prevZ[p];
+            n = nextZ[n];
+        }
+        for (; p != NIL && z[p] >= minZ; p = prevZ[p]) {
+            if (blocks(p, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+        }
+        for (; n != NIL && z[n] <= maxZ; n = nextZ[n]) {
+            if (blocks(n, a, c, x0, y0, x1, y1, ax, ay, bx, by, cx, cy)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if p, which is neither a nor c, is a reflex vertex
+     * inside the triangle a, b, c, whose bounding box is given.
+     */
+    private boolean blocks(int p, int a, int c, double x0, double y0,
+                           double x1, double y1, double ax, double ay,
+                           double bx, double by, double cx, double cy) {
+        return x[p] >= x0 && x[p] <= x1 && y[p] >= y0 && y[p] <= y1 &&
+                p != a && p != c &&
+                pointInTriangle(ax, ay, bx, by, cx, cy, x[p], y[p]) &&
+                area(prev[p], p, next[p]) >= 0;
+    }
+
+    /**
+     * Computes the z-order of the nodes of the loop containing start, and
+     * links them in z-order.
+     */
+    private void indexCurve(int start) {
+        int p = start;
+        do {
+            z[p] = zOrder(x[p], y[p]);
+            prevZ[p] = prev[p];
+            nextZ[p] = next[p];
+            p = next[p];
+        } while (p != start);
+        nextZ[prevZ[p]] = NIL;
+        prevZ[p] = NIL;
+        sortLinked(p);
+    }
+
+    /**
+     * Sorts the list linked by nextZ starting from list by z-order, with
+     * Simon Tatham's bottom-up merge sort.
+     */
+    private void sortLinked(int list) {
+        int inSize = 1;
+        int numMerges;
+        do {
+            int p = list;
+            list = NIL;
+            int tail = NIL;
+            numMerges = 0;
+            while (p != NIL) {
+                numMerges++;
+                int q = p;
+                int pSize = 0;
+                for (int i = 0; i < inSize && q != NIL; i++) {
+                    pSize++;
+                    q = nextZ[q];
+                }
+                int qSize = inSize;
+                while (pSize > 0 || (qSize > 0 && q != NIL)) {
+                    int e;
+                    if (pSize != 0 && (qSize == 0 || q == NIL || z[p] <= z[q])) {
+                        e = p;
+                        p = nextZ[p];
+                        pSize--;
+                    } else {
+                        e = q;
+                        q = nextZ[q];
+                        qSize--;
+                    }
+                    if (tail != NIL) {
+                        nextZ[tail] = e;
+                    } else {
+                        list = e;
+                    }
+                    prevZ[e] = tail;
+                    tail = e;
+                }
+                p = q;
+            }
+            nextZ[tail] = NIL;
+            inSize *= 2;
+        } while (numMerges > 1);
+    }
+
+    /**
+     * @return The z-order of the point (px, py): the bits of its coordinates
+     * on the grid, interleaved.
+     */
+    private int zOrder(double px, double py) {
+        int ix = (int) ((px - minX) * invSize);
+        int iy = (int) ((py - minY) * invSize);
+        return interleave(ix) | (interleave(iy) << 1);
+    }
+
+    /**
+     * @return value with a zero bit inserted before each of its lower 16
+     * bits.
+     */
+    private static int interleave(int value) {
+        value = (value | (value << 8)) & 0x00FF00FF;
+        value = (value | (value << 4)) & 0x0F0F0F0F;
+        value = (value | (value << 2)) & 0x33333333;
+        return (value | (value << 1)) & 0x55555555;
+    }
+
+    /**
+     * Clips the triangles formed by two consecutive edges which cross each
+     * other.
+     *
+     * @return A node of the remaining loop.
+     */
+    private int cureLocalIntersections(int start) {
+        int p = start;
+        do {
+            int a = prev[p];
+            int b = next[next[p]];
+            if (!equals(a, b) && intersects(a, p, next[p], b) &&
+                    locallyInside(a, b) && locallyInside(b, a)) {
+                addTriangle(vertex[a], vertex[p], vertex[b]);
+                removeNode(next[p]);
+                removeNode(p);
+                p = start = b;
+            }
+            p = next[p];
+        } while (p != start);
+        return filterPoints(p, NIL);
+    }
+
+    /**
+     * Splits the loop along a valid diagonal and triangulates the two halves
+     * separately.
+     */
+    private void splitEarcut(int start) {
+        int a = start;
+        do {
+            for (int b = next[next[a]]; b != prev[a]; b = next[b]) {
+                if (vertex[a] != vertex[b] && isValidDiagonal(a, b)) {
+                    int c = splitPolygon(a, b);
+                    a = filterPoints(a, next[a]);
+                    c = filterPoints(c, next[c]);
+                    earcutLinked(a, 0);
+                    earcutLinked(c, 0);
+                    return;
+                }
+            }
+            a = next[a];
+        } while (a != start);
+    }
+
+    /**
+     * Links every hole to the outer loop, from the leftmost hole to the
+     * rightmost one.
+     *
+     * @return A node of the resulting loop.
+     */
+    private int eliminateHoles(int[] holeStarts, int outer) {
+        Integer[] leftmost = new Integer[holeStarts.length];
+        int count = 0;
+        for (int i = 0; i < holeStarts.length; i++) {
+            int end = i == holeStarts.length - 1 ? coordinates.length / 2 :
+                    holeStarts[i + 1];
+            int list = linkedList(holeStarts[i], end, false);
+            if (list == NIL) {
+                continue;
+            }
+            if (list == next[list]) {
+                steiner[list] = true;
+            }
+            leftmost[count++] = getLeftmost(list);
+        }
+        Arrays.sort(leftmost, 0, count, (a, b) -> Double.compare(x[a], x[b]));
+        for (int i = 0; i < count; i++) {
+            outer = eliminateHole(leftmost[i], outer);
+        }
+        return outer;
+    }
+
+    private int eliminateHole(int hole, int outer) {
+        int bridge = findHoleBridge(hole, outer);
+        if (bridge == NIL) {
+            return outer;
+        }
+        int bridgeReverse = splitPolygon(bridge, hole);
+        filterPoints(bridgeReverse, next[bridgeReverse]);
+        return filterPoints(bridge, next[bridge]);
+    }
+
+    /**
+     * Finds a vertex of the outer loop which can be connected to hole
+     * without crossing any edge, using David Eberly's algorithm.
+     *
+     * @return The vertex, NIL if there's none.
+     */
+    private int findHoleBridge(int hole, int outer) {
+        int p = outer;
+        double hx = x[hole];
+        double hy = y[hole];
+        double qx = Double.NEGATIVE_INFINITY;
+        int m = NIL;
+        // find a segment intersected by a ray from the hole's leftmost point
+        // to the left; the segment's endpoint with lesser x is a candidate
+        do {
+            int n = next[p];
+            if (hy <= y[p] && hy >= y[n] && y[n] != y[p]) {
+                double ix = x[p] + (hy - y[p]) * (x[n] - x[p]) / (y[n] - y[p]);
+                if (ix <= hx && ix > qx) {
+                    qx = ix;
+                    m = x[p] < x[n] ? p : n;
+                    if (ix == hx) {
+                        return m; // the hole touches the outer segment
+                    }
+                }
+            }
+            p = n;
+        } while (p != outer);
+        if (m == NIL) {
+            return NIL;
+        }
+        // look for points inside the triangle of hole point, segment
+        // intersection and endpoint; if there are none, the endpoint is the
+        // bridge, otherwise the point with the minimum angle with the ray is
+        int stop = m;
+        double mx = x[m];
+        double my = y[m];
+        double tanMin = Double.POSITIVE_INFINITY;
+        p = m;
+        do {
+            if (hx >= x[p] && x[p] >= mx && hx != x[p] &&
+                    pointInTriangle(hy < my ? hx : qx, hy, mx, my,
+                                    hy < my ? qx : hx, hy, x[p], y[p])) {
+                double tan = Math.abs(hy - y[p]) / (hx - x[p]);
+                if (locallyInside(p, hole) && (tan < tanMin ||
+                        (tan == tanMin && (x[p] > x[m] || (x[p] == x[m] &&
+                                sectorContainsSector(m, p)))))) {
+                    m = p;
+                    tanMin = tan;
+                }
+            }
+            p = next[p];
+        } while (p != stop);
+        return m;
+    }
+
+    /**
+     * @return {@code true} if the sector of m contains the sector of p.
+     */
+    private boolean sectorContainsSector(int m, int p) {
+        return area(prev[m], m, prev[p]) < 0 && area(next[p], m, next[m]) < 0;
+    }
+
+    private int getLeftmost(int start) {
+        int p = start;
+        int leftmost = start;
+        do {
+            if (x[p] < x[leftmost] ||
+                    (x[p] == x[leftmost] && y[p] < y[leftmost])) {
+                leftmost = p;
+            }
+            p = next[p];
+        } while (p != start);
+        return leftmost;
+    }
+
+    private static boolean pointInTriangle(double ax, double ay, double bx,
+                                           double by, double cx, double cy,
+                                           double px, double py) {
+        return (cx - px) * (ay - py) >= (ax - px) * (cy - py) &&
+                (ax - px) * (by - py) >= (bx - px) * (ay - py) &&
+                (bx - px) * (cy - py) >= (cx - px) * (by - py);
+    }
+
+    /**
+     * @return {@code true} if a diagonal between a and b lies inside the
+     * loop and doesn't intersect any of its edges.
+     */
+    private boolean isValidDiagonal(int a, int b) {
+        return vertex[next[a]] != vertex[b] && vertex[prev[a]] != vertex[b] &&
+                !intersectsPolygon(a, b) &&
+                (locallyInside(a, b) && locallyInside(b, a) &&
+                        middleInside(a, b) && (area(prev[a], a, prev[b]) != 0 ||
+                        area(a, prev[b], b) != 0) ||
+                        equals(a, b) && area(prev[a], a, next[a]) > 0 &&
+                                area(prev[b], b, next[b]) > 0);
+    }
+
+    /**
+     * @return The negated cross product of q - p and r - q, which is negative
+     * if p, q and r turn counter-clockwise.
+     */
+    private double area(int p, int q, int r) {
+        return (y[q] - y[p]) * (x[r] - x[q]) - (x[q] - x[p]) * (y[r] - y[q]);
+    }
+
+    private boolean equals(int p, int q) {
+        return x[p] == x[q] && y[p] == y[q];
+    }
+
+    /**
+     * @return {@code true} if the segments p1-q1 and p2-q2 intersect.
+     */
+    private boolean intersects(int p1, int q1, int p2, int q2) {
+        double o1 = Math.signum(area(p1, q1, p2));
+        double o2 = Math.signum(area(p1, q1, q2));
+        double o3 = Math.signum(area(p2, q2, p1));
+        double o4 = Math.signum(area(p2, q2, q1));
+        return o1 != o2 && o3 != o4 ||
+                o1 == 0 && onSegment(p1, p2, q1) ||
+                o2 == 0 && onSegment(p1, q2, q1) ||
+                o3 == 0 && onSegment(p2, p1, q2) ||
+                o4 == 0 && onSegment(p2, q1, q2);
+    }
+
+    /**
+     * @return {@code true} if q lies on the segment p-r, given that the three
+     * points are collinear.
+     */
+    private boolean onSegment(int p, int q, int r) {
+        return x[q] <= Math.max(x[p], x[r]) && x[q] >= Math.min(x[p], x[r]) &&
+                y[q] <= Math.max(y[p], y[r]) && y[q] >= Math.min(y[p], y[r]);
+    }
+
+    private boolean intersectsPolygon(int a, int b) {
+        int p = a;
+        do {
+            int n = next[p];
+            if (vertex[p] != vertex[a] && vertex[n] != vertex[a] &&
+                    vertex[p] != vertex[b] && vertex[n] != vertex[b] &&
+                    intersects(p, n, a, b)) {
+                return true;
+            }
+            p = n;
+        } while (p != a);
+        return false;
+    }
+
+    /**
+     * @return {@code true} if the diagonal from a to b starts inside the loop
+     * near a.
+     */
+    private boolean locallyInside(int a, int b) {
+        return area(prev[a], a, next[a]) < 0 ?
+                area(a, b, next[a]) >= 0 && area(a, prev[a], b) >= 0 :
+                area(a, b, prev[a]) < 0 || area(a, next[a], b) < 0;
+    }
+
+    /**
+     * @return {@code true} if the middle point of the diagonal from a to b is
+     * inside the loop.
+     */
+    private boolean middleInside(int a, int b) {
+        int p = a;
+        boolean inside = false;
+        double px = (x[a] + x[b]) / 2;
+        double py = (y[a] + y[b]) / 2;
+        do {
+            int n = next[p];
+            if (((y[p] > py) != (y[n] > py)) && y[n] != y[p] &&
+                    (px < (x[n] - x[p]) * (py - y[p]) / (y[n] - y[p]) + x[p])) {
+                inside = !inside;
+            }
+            p = n;
+        } while (p != a);
+        return inside;
+    }
+
+    /**
+     * Links a to b with a bridge, splitting the loop in two; if a and b are
+     * in different loops, they're joined in one instead.
+     *
+     * @return The copy of b at the end of the second loop.
+     */
+    private int splitPolygon(int a, int b) {
+        int a2 = newNode(vertex[a], x[a], y[a]);
+        int b2 = newNode(vertex[b], x[b], y[b]);
+        int an = next[a];
+        int bp = prev[b];
+        next[a] = b;
+        prev[b] = a;
+        next[a2] = an;
+        prev[an] = a2;
+        next[b2] = a2;
+        prev[a2] = b2;
+        next[bp] = b2;
+        prev[b2] = bp;
+        return b2;
+    }
+
+    /**
+     * Creates a node for vertex i and inserts it after last.
+     */
+    private int insertNode(int i, int last) {
+        int p = newNode(i, coordinates[i * 2], coordinates[i * 2 + 1]);
+        if (last == NIL) {
+            prev[p] = p;
+            next[p] = p;
+        } else {
+            next[p] = next[last];
+            prev[p] = last;
+            prev[next[last]] = p;
+            next[last] = p;
+        }
+        return p;
+    }
+
+    private void removeNode(int p) {
+        prev[next[p]] = prev[p];
+        next[prev[p]] = next[p];
+        if (prevZ[p] != NIL) {
+            nextZ[prevZ[p]] = nextZ[p];
+        }
+        if (nextZ[p] != NIL) {
+            prevZ[nextZ[p]] = prevZ[p];
+        }
+    }
+
+    private int newNode(int i, double nx, double ny) {
+        if (nodeCount == vertex.length) {
+            int capacity = vertex.length * 2;
+            vertex = Arrays.copyOf(vertex, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            next = Arrays.copyOf(next, capacity);
+            steiner = Arrays.copyOf(steiner, capacity);
+            z = Arrays.copyOf(z, capacity);
+            prevZ = Arrays.copyOf(prevZ, capacity);
+            nextZ = Arrays.copyOf(nextZ, capacity);
+        }
+        int node = nodeCount++;
+        vertex[node] = i;
+        x[node] = nx;
+        y[node] = ny;
+        prevZ[node] = NIL;
+        nextZ[node] = NIL;
+        return node;
+    }
+
+    private void addTriangle(int a, int b, int c) {
+        if (triangleCount + 3 > triangles.length) {
+            triangles = Arrays.copyOf(triangles, triangles.length * 2 + 3);
+        }
+        triangles[triangleCount++] = a;
+        triangles[triangleCount++] = b;
+        triangles[triangleCount++] = c;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.guid;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import lombok.NonNull;
+
+/**
+ * A source of 128-bit GUIDs, used to create instances of {@link
+ * IfcGloballyUniqueId}. See {@link GuidGenerators} for the available
+ * implementations.
+ * </p>
+ * Implementations must be thread-safe.
+ */
+@FunctionalInterface
+public interface GuidGenerator {
+    /**
+     * Generates a new GUID.
+     *
+     * @param bits   The array where to store the GUID: its most significant 64
+     *               bits are stored in position {@code offset}, its least
+     *               significant 64 bits in position {@code offset + 1}.
+     * @param offset The position in bits where to store the GUID.
+     */
+    void next(long[] bits, int offset);
+
+    /**
+     * @return A new IfcGloballyUniqueId.
+     */
+    default IfcGloballyUniqueId next() {
+        long[] bits = new long[2];
+        next(bits, 0);
+        return IfcGloballyUniqueId.fromBits(bits[0], bits[1]);
+    }
+
+    /**
+     * Generates several GUIDs at once, writing them consecutively to a buffer
+     * in the 22 characters format used in IFC files. No objects are created
+     * for each GUID.
+     *
+     * @param buffer The buffer where to write the GUIDs.
+     * @param offset The position in buffer where to write the first character
+     *               of the first GUID.
+     * @param count  The number of GUIDs to generate.
+     * @throws NullPointerException      If buffer is null.
+     * @throws IndexOutOfBoundsException If buffer has less than {@code 22 *
+     *                                   count} positions starting from
+     *                                   offset.
+     */
+    default void next(@NonNull char[] buffer, int offset, int count) {
+        if (count < 0 || offset < 0 || offset > buffer.length - 22L * count) {
+            throw new IndexOutOfBoundsException(
+                    "buffer can't contain " + count + " GUIDs after offset");
+        }
+        long[] bits = new long[2];
+        for (int i = 0; i < count; i++) {
+            next(bits, 0);
+            IfcGloballyUniqueId.encode(bits[0], bits[1], buffer,
+                                       offset + 22 * i);
+        }
+    }
+}
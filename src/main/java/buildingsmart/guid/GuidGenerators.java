@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.guid;
+
+import lombok.NonNull;
+
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Factory methods for the available implementations of {@link GuidGenerator}.
+ * All generated GUIDs are valid UUIDs, as defined by RFC 4122.
+ */
+public final class GuidGenerators {
+    private static final GuidGenerator SECURE_RANDOM =
+            new SecureRandomGenerator();
+    private static final GuidGenerator FAST_RANDOM = new FastRandomGenerator();
+    private static final GuidGenerator TIME_ORDERED =
+            new TimeOrderedGenerator();
+    private static final long VERSION_MASK = 0xFFFFFFFFFFFF0FFFL;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT = 0x8000000000000000L;
+
+    private GuidGenerators() {}
+
+    /**
+     * @return A generator of random (version 4) UUIDs, obtained from a
+     * cryptographically strong random number generator shared by all threads,
+     * like {@link java.util.UUID#randomUUID()}. The generated GUIDs can't be
+     * predicted, but generating them from many threads at once is slow.
+     */
+    public static GuidGenerator secureRandom() {
+        return SECURE_RANDOM;
+    }
+
+    /**
+     * @return A generator of random (version 4) UUIDs, obtained from random
+     * number generators local to each thread. Generating GUIDs from many
+     * threads at once doesn't cause any contention, but the generated GUIDs
+     * are not suitable for security-sensitive uses.
+     * </p>
+     * Each thread uses two {@link SplittableRandom}s, seeded
+     * independently by a cryptographically strong generator, one for each
+     * half of the GUID. A single generator with 64 bits of state, like {@link
+     * ThreadLocalRandom}, would determine whole GUIDs from its state, so the
+     * GUIDs of different threads would start colliding after about 2^32 of
+     * them were generated; with two the state of each thread has 128 bits.
+     */
+    public static GuidGenerator fastRandom() {
+        return FAST_RANDOM;
+    }
+
+    /**
+     * @return A generator of time-ordered (version 7) UUIDs: the first 48 bits
+     * are the current time in milliseconds since the epoch, followed by a
+     * counter which makes the GUIDs generated by the same thread strictly
+     * increasing, and by 62 random bits. Storing these GUIDs in sorted indexes
+     * (e.g. in a database) is more efficient than storing random ones. Note
+     * that they are ordered as 128-bit numbers, not as Strings.
+     */
+    public static GuidGenerator timeOrdered() {
+        return TIME_ORDERED;
+    }
+
+    /**
+     * @param namespace The namespace of the keys from which GUIDs are
+     *                  derived.
+     * @return A new generator of name-based (version 5) UUIDs, which derives
+     * GUIDs deterministically from the given namespace and a key.
+     *
+     * @throws NullPointerException If namespace is null.
+     * @see NameBasedGuidGenerator
+     */
+    public static NameBasedGuidGenerator nameBased(@NonNull UUID namespace) {
+        return new NameBasedGuidGenerator(namespace);
+    }
+
+    private static long withVariant(long leastSignificantBits) {
+        return (leastSignificantBits & VARIANT_MASK) | VARIANT;
+    }
+
+    private static class SecureRandomGenerator implements GuidGenerator {
+        private final SecureRandom random = new SecureRandom();
+
+        @Override
+        public void next(long[] bits, int offset) {
+            byte[] bytes = new byte[16];
+            random.nextBytes(bytes);
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (bytes[i] & 0xFF);
+                low = (low << 8) | (bytes[i + 8] & 0xFF);
+            }
+            bits[offset] = (high & VERSION_MASK) | 0x4000L;
+            bits[offset + 1] = withVariant(low);
+        }
+    }
+
+    private static class FastRandomGenerator implements GuidGenerator {
+        private final SecureRandom seeds = new SecureRandom();
+        /**
+         * For each thread, the generators of the most and of the least
+         * significant bits of the GUIDs.
+         */
+        private final ThreadLocal<SplittableRandom[]> randoms =
+                ThreadLocal.withInitial(() -> new SplittableRandom[]{
+                        new SplittableRandom(seeds.nextLong()),
+                        new SplittableRandom(seeds.nextLong())});
+
+        @Override
+        public void next(long[] bits, int offset) {
+            SplittableRandom[] random = randoms.get();
+            bits[offset] = (random[0].nextLong() & VERSION_MASK) | 0x4000L;
+            bits[offset + 1] = withVariant(random[1].nextLong());
+        }
+    }
+
+    private static class TimeOrderedGenerator implements GuidGenerator {
+        private static final int COUNTER_BITS = 12;
+        /**
+         * For each thread, the timestamp of the last GUID generated and the
+         * value of its counter.
+         */
+        private final ThreadLocal<long[]> state =
+                ThreadLocal.withInitial(() -> new long[2]);
+
+        @Override
+        public void next(long[] bits, int offset) {
+            long[] last = state.get();
+            long time = System.currentTimeMillis();
+            long counter;
+            if (time > last[0]) {
+                counter = 0;
+            } else {
+                // same millisecond, or the clock went back
+                time = last[0];
+                counter = last[1] + 1;
+                if (counter == 1 << COUNTER_BITS) {
+                    time++;
+                    counter = 0;
+                }
+            }
+            last[0] = time;
+            last[1] = counter;
+            bits[offset] = (time << 16) | 0x7000L | counter;
+            bits[offset + 1] =
+                    withVariant(ThreadLocalRandom.current().nextLong());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.guid;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import lombok.NonNull;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+/**
+ * A generator of name-based (version 5) UUIDs, which are derived from a
+ * namespace and a key with SHA-1, as defined by RFC 4122. The same namespace
+ * and key always produce the same GUID, so exporting the same data twice
+ * produces identical GlobalIds, as long as the keys are stable (e.g. the ids
+ * of the elements in the application creating the IFC file).
+ * </p>
+ * Keys can be given explicitly with {@link #next(String)}, or set for the
+ * current thread with {@link #setKey(String)}, so that GUIDs created with
+ * {@link IfcGloballyUniqueId#IfcGloballyUniqueId()} are name-based too when
+ * this generator is the one of the current {@link buildingsmart.model.Model}
+ * or the default one:
+ * <pre>{@code
+ * NameBasedGuidGenerator generator = GuidGenerators.nameBased(namespace);
+ * model.setGuidGenerator(generator);
+ * try (Model.Scope ignored = model.open()) {
+ *     for (Element element : elements) {
+ *         generator.setKey(element.getId());
+ *         // create the entities representing element
+ *     }
+ * }
+ * }</pre>
+ * The first GUID generated after setting a key is the UUID derived from the
+ * namespace and the key, the following ones are derived from the key followed
+ * by the byte {@code 0xFF} and the number of GUIDs already generated with it,
+ * so they're stable as long as the entities are created in the same order.
+ * Since {@code 0xFF} never occurs in UTF-8, the input of a following GUID
+ * can't be the one of another key, nor the one of another key followed by
+ * another number. Generating a GUID for the current thread before setting a
+ * key fails, since it couldn't be derived from anything stable.
+ * </p>
+ * Instances of this class are thread-safe, each thread has its own key.
+ */
+public class NameBasedGuidGenerator implements GuidGenerator {
+    /**
+     * Separates the key from the count, can't be part of a UTF-8 encoding.
+     */
+    private static final byte SEPARATOR = (byte) 0xFF;
+    private final byte[] namespace = new byte[16];
+    private final ThreadLocal<State> state =
+            ThreadLocal.withInitial(State::new);
+    private final ThreadLocal<MessageDigest> digests =
+            ThreadLocal.withInitial(() -> {
+                try {
+                    return MessageDigest.getInstance("SHA-1");
+                } catch (NoSuchAlgorithmException e) {
+                    // every implementation of the Java platform supports SHA-1
+                    throw new IllegalStateException(e);
+                }
+            });
+
+    /**
+     * @param namespace The namespace of the keys, which should be different
+     *                  for each application or data source.
+     * @throws NullPointerException If namespace is null.
+     */
+    public NameBasedGuidGenerator(@NonNull UUID namespace) {
+        long high = namespace.getMostSignificantBits();
+        long low = namespace.getLeastSignificantBits();
+        for (int i = 7; i >= 0; i--) {
+            this.namespace[i] = (byte) high;
+            this.namespace[i + 8] = (byte) low;
+            high >>>= 8;
+            low >>>= 8;
+        }
+    }
+
+    /**
+     * Sets the key from which the following GUIDs generated by the current
+     * thread will be derived.
+     *
+     * @param key The key, which must identify the source of the entities
+     *            being created in a stable way.
+     * @throws NullPointerException If key is null.
+     */
+    public void setKey(@NonNull String key) {
+        State current = state.get();
+        current.key = key;
+        current.count = 0;
+    }
+
+    /**
+     * @param key The key from which to derive the GUID.
+     * @return The GUID derived from the namespace of this generator and key.
+     * Doesn't depend on, nor change, the key set with {@link
+     * #setKey(String)}.
+     *
+     * @throws NullPointerException If key is null.
+     */
+    public IfcGloballyUniqueId next(@NonNull String key) {
+        long[] bits = new long[2];
+        derive(key, 0, bits, 0);
+        return IfcGloballyUniqueId.fromBits(bits[0], bits[1]);
+    }
+
+    /**
+     * Generates the GUID derived from the key set for the current thread,
+     * followed by the number of GUIDs already generated with the same key.
+     *
+     * @throws IllegalStateException If no key was set for the current thread.
+     */
+    @Override
+    public void next(long[] bits, int offset) {
+        State current = state.get();
+        if (current.key == null) {
+            throw new IllegalStateException(
+                    "a key must be set before generating GUIDs from it");
+        }
+        derive(current.key, current.count++, bits, offset);
+    }
+
+    private void derive(String key, int count, long[] bits, int offset) {
+        MessageDigest digest = digests.get();
+        digest.update(namespace);
+        digest.update(key.getBytes(StandardCharsets.UTF_8));
+        if (count > 0) {
+            digest.update(SEPARATOR);
+            digest.update((byte) (count >>> 24));
+            digest.update((byte) (count >>> 16));
+            digest.update((byte) (count >>> 8));
+            digest.update((byte) count);
+        }
+        byte[] hash = digest.digest();
+        long high = 0;
+        long low = 0;
+        for (int i = 0; i < 8; i++) {
+            high = (high << 8) | (hash[i] & 0xFF);
+            low = (low << 8) | (hash[i + 8] & 0xFF);
+        }
+        bits[offset] = (high & 0xFFFFFFFFFFFF0FFFL) | 0x5000L;
+        bits[offset + 1] = (low & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+    }
+
+    private static class State {
+        private String key;
+        private int count;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.ifc;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.function.DoubleFunction;
+
+/**
+ * An unmodifiable List of defined types backed by an array of doubles, whose
+ * elements are created only when they're accessed. Used by entities which
+ * store their numeric attributes as primitives, to keep the Lists returned by
+ * their getters without having to store boxed values.
+ *
+ * @param <T> The type of the elements of the List.
+ */
+final class DoubleBackedList<T> extends AbstractList<T>
+        implements RandomAccess {
+    private final double[] values;
+    private final DoubleFunction<T> factory;
+
+    /**
+     * @param values  The values of the elements, not copied.
+     * @param factory Creates an element from its value.
+     */
+    DoubleBackedList(double[] values, DoubleFunction<T> factory) {
+        this.values = values;
+        this.factory = factory;
+    }
+
+    @Override
+    public T get(int index) {
+        return factory.apply(values[index]);
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+}
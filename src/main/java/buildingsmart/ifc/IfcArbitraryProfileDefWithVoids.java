@@ -21,10 +21,12 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -74,6 +76,7 @@ import java.util.Set;
 @ToString(callSuper = true)
 public class IfcArbitraryProfileDefWithVoids
         extends IfcArbitraryClosedProfileDef {
+    @Getter
     @Attribute(3)
     private final Set<IfcCurve> innerCurves;
 
@@ -124,7 +127,7 @@ public class IfcArbitraryProfileDefWithVoids
             throw new IllegalArgumentException(
                     "none of the innerCurves can be of type IfcLine");
         }
-        this.innerCurves = innerCurves;
+        this.innerCurves = Collections.unmodifiableSet(innerCurves);
     }
 
     /**
@@ -20,6 +20,7 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import buildingsmart.model.Model;
 import buildingsmart.util.Functions;
 import lombok.*;
 
@@ -35,8 +36,7 @@ import lombok.*;
 public class IfcAxis1Placement extends IfcPlacement {
     @Attribute(1)
     private final IfcDirection axis;
-    @Getter(AccessLevel.PROTECTED)
-    private final IfcDirection z;
+    private volatile IfcDirection z; // derived attribute
 
     /**
      * @param location The geometric position of a reference point, such as the
@@ -59,8 +59,21 @@ public class IfcAxis1Placement extends IfcPlacement {
             throw new IllegalArgumentException("dimension of axis must be 3");
         }
         this.axis = axis;
-        this.z = axis == null ? new IfcDirection(0, 0, 1) :
-                Functions.ifcNormalise(axis);
+    }
+
+    /**
+     * @return The normalized direction of the local Z axis, computed on first
+     * use without adding it to any {@link Model}.
+     */
+    public IfcDirection getZ() {
+        IfcDirection direction = z;
+        if (direction == null) {
+            direction = Model.detached(
+                    () -> axis == null ? new IfcDirection(0, 0, 1) :
+                            Functions.ifcNormalise(axis));
+            z = direction;
+        }
+        return direction;
     }
 
     /**
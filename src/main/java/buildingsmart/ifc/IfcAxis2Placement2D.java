@@ -20,8 +20,10 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import buildingsmart.model.Model;
 import buildingsmart.util.Functions;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -42,6 +44,7 @@ import java.util.List;
 @ToString(callSuper = true)
 public class IfcAxis2Placement2D extends IfcPlacement
         implements IfcAxis2Placement {
+    @Getter
     @Attribute(1)
     private final IfcDirection refDirection;
     /**
@@ -50,7 +53,7 @@ public class IfcAxis2Placement2D extends IfcPlacement
      * placement Y Axis. This is a derived attribute and is orthogonal to p[0].
      */
     @EqualsAndHashCode.Include
-    private final List<IfcDirection> p;
+    private volatile List<IfcDirection> p;
 
     /**
      * @param location     The geometric position of a reference point, such as
@@ -75,7 +78,6 @@ public class IfcAxis2Placement2D extends IfcPlacement
                     "location must be " + "bidimensional");
         }
         this.refDirection = refDirection;
-        p = Functions.ifcBuild2Axes(refDirection);
     }
 
     /**
@@ -106,4 +108,38 @@ public class IfcAxis2Placement2D extends IfcPlacement
     public IfcAxis2Placement2D(@NonNull double... locationCoordinates) {
         this(new IfcCartesianPoint(locationCoordinates), null);
     }
+
+    /**
+     * @return The derived attribute P, computed on first use (and compared by
+     * equals() through this getter) without adding its directions to any
+     * {@link Model}.
+     */
+    public List<IfcDirection> getP() {
+        List<IfcDirection> axes = p;
+        if (axes == null) {
+            axes = Model.detached(() -> Functions.ifcBuild2Axes(refDirection));
+            p = axes;
+        }
+        return axes;
+    }
+
+    /**
+     * Creates a placement, or returns the canonical instance of an equal one
+     * if the current {@link Model} interns entities.
+     *
+     * @param location     The origin of the placement.
+     * @param refDirection The direction used to determine the direction of the
+     *                     local X Axis.
+     * @return A placement equal to the one created with the same arguments.
+     *
+     * @throws NullPointerException     If location is null.
+     * @throws IllegalArgumentException If location or refDirection are not
+     *                                  bidimensional.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcAxis2Placement2D of(@NonNull IfcCartesianPoint location,
+                                         IfcDirection refDirection) {
+        return Model.intern(
+                () -> new IfcAxis2Placement2D(location, refDirection));
+    }
 }
@@ -20,14 +20,15 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import buildingsmart.model.Model;
 import buildingsmart.util.Functions;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * The location and orientation in three dimensional space of three mutually
@@ -40,7 +41,6 @@ import java.util.List;
  * The axis is the placement Z axis direction and the ref_direction is an
  * approximation to the placement X axis direction.
  */
-@EqualsAndHashCode(callSuper = true, onlyExplicitlyIncluded = true)
 @ToString(callSuper = true)
 public class IfcAxis2Placement3D extends IfcPlacement
         implements IfcAxis2Placement {
@@ -55,9 +55,9 @@ public class IfcAxis2Placement3D extends IfcPlacement
      * placement Y Axis (P[1]) and the placement Z Axis (P[2]). The list is
      * unmodifiable.
      */
-    @Getter
-    @EqualsAndHashCode.Include
-    private final List<IfcDirection> p; // derived attribute
+    private volatile List<IfcDirection> p; // derived attribute
+    @ToString.Exclude
+    private int hashCode; // cached, 0 until first computed
 
     /**
      * @param location     The location of the three mutually perpendicular
@@ -112,17 +112,13 @@ public class IfcAxis2Placement3D extends IfcPlacement
                     "if refDirection is not null, it must have dimensionality" +
                             " equal to 3");
         }
-        if (axis != null &&
-                Functions.ifcCrossProduct(axis, refDirection).getMagnitude()
-                        .getValue() <= 0) {
+        if (axis != null && parallel(axis, refDirection)) {
             throw new IllegalArgumentException(
                     "axis and refDirection cannot be parallel or " +
                             "anti-parallel");
         }
         this.axis = axis;
         this.refDirection = refDirection;
-        p = Collections
-                .unmodifiableList(Functions.ifcBuildAxes(axis, refDirection));
     }
 
     /**
@@ -152,4 +148,84 @@ public class IfcAxis2Placement3D extends IfcPlacement
     public IfcAxis2Placement3D(@NonNull double... locationCoordinates) {
         this(new IfcCartesianPoint(locationCoordinates), null, null);
     }
+
+    /**
+     * Creates a placement, or returns the canonical instance of an equal one
+     * if the current {@link Model} interns entities. Arguments are validated
+     * as by {@link #IfcAxis2Placement3D(IfcCartesianPoint, IfcDirection,
+     * IfcDirection)}.
+     *
+     * @param location     The origin of the placement.
+     * @param axis         The exact direction of the local Z Axis.
+     * @param refDirection The direction used to determine the direction of the
+     *                     local X Axis.
+     * @return A placement equal to the one created with the same arguments.
+     *
+     * @throws NullPointerException     If location is null.
+     * @throws IllegalArgumentException If the arguments violate the
+     *                                  constraints of the constructor.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcAxis2Placement3D of(@NonNull IfcCartesianPoint location,
+                                         IfcDirection axis,
+                                         IfcDirection refDirection) {
+        return Model.intern(
+                () -> new IfcAxis2Placement3D(location, axis, refDirection));
+    }
+
+    /**
+     * @param a A three-dimensional direction.
+     * @param b A three-dimensional direction.
+     * @return {@code true} if the cross product of a and b is zero, meaning
+     * that they're parallel or anti-parallel, or that one of them has
+     * components which are all zero.
+     */
+    private static boolean parallel(IfcDirection a, IfcDirection b) {
+        double ax = a.getDirectionRatio(0);
+        double ay = a.getDirectionRatio(1);
+        double az = a.getDirectionRatio(2);
+        double bx = b.getDirectionRatio(0);
+        double by = b.getDirectionRatio(1);
+        double bz = b.getDirectionRatio(2);
+        return ay * bz - az * by == 0 && az * bx - ax * bz == 0 &&
+                ax * by - ay * bx == 0;
+    }
+
+    /**
+     * @return The normalized directions of the placement axes. They're
+     * computed on first use and not added to any {@link Model}; concurrent
+     * callers might compute them more than once, but always get equal Lists.
+     */
+    public List<IfcDirection> getP() {
+        List<IfcDirection> axes = p;
+        if (axes == null) {
+            axes = Collections.unmodifiableList(Model.detached(
+                    () -> Functions.ifcBuildAxes(axis, refDirection)));
+            p = axes;
+        }
+        return axes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcAxis2Placement3D that = (IfcAxis2Placement3D) o;
+        return hashCode() == that.hashCode() && super.equals(o) &&
+                getP().equals(that.getP());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Objects.hash(super.hashCode(), getP());
+            hashCode = h;
+        }
+        return h;
+    }
 }
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -49,10 +50,13 @@ import lombok.ToString;
 @ToString
 public class IfcBooleanResult extends IfcGeometricRepresentationItem
         implements IfcCsgSelect, IfcBooleanOperand {
+    @Getter
     @Attribute(0)
     private final IfcBooleanOperator operator;
+    @Getter
     @Attribute(1)
     private final IfcBooleanOperand firstOperand;
+    @Getter
     @Attribute(2)
     private final IfcBooleanOperand secondOperand;
 
@@ -20,12 +20,10 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
+import buildingsmart.model.Model;
 import lombok.NonNull;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -33,13 +31,18 @@ import java.util.List;
  * Cartesian coordinate system, or in a two dimensional parameter space. The
  * entity is defined in a two or three dimensional space.
  */
-@EqualsAndHashCode(callSuper = false)
 public class IfcCartesianPoint extends IfcPoint implements IfcTrimmingSelect {
-    @Getter
+    /**
+     * Stored as primitives rather than as a List of IfcLengthMeasure, since
+     * points make up most of the entities of geometry-heavy models.
+     */
     @Attribute(0)
-    private final List<IfcLengthMeasure> coordinates;
-    @EqualsAndHashCode.Exclude
-    private final IfcDimensionCount dim; // derived attribute
+    private final double[] coordinates;
+    /**
+     * Cached hash code, 0 until {@link #hashCode()} is first called. Safe to
+     * publish racily since it is derived from final, immutable fields.
+     */
+    private int hashCode;
 
     /**
      * @param coordinates The first, second, and third coordinate of the point
@@ -57,8 +60,10 @@ public class IfcCartesianPoint extends IfcPoint implements IfcTrimmingSelect {
             throw new IllegalArgumentException(
                     "size of coordinates must be 2 or 3");
         }
-        this.coordinates = Collections.unmodifiableList(coordinates);
-        this.dim = new IfcDimensionCount((byte) coordinates.size());
+        this.coordinates = new double[coordinates.size()];
+        for (int i = 0; i < this.coordinates.length; i++) {
+            this.coordinates[i] = normalizeZero(coordinates.get(i).getValue());
+        }
     }
 
     /**
@@ -77,13 +82,55 @@ public class IfcCartesianPoint extends IfcPoint implements IfcTrimmingSelect {
             throw new IllegalArgumentException(
                     "size of coordinates must be 2 or 3");
         }
-        List<IfcLengthMeasure> coordinatesList =
-                new ArrayList<>(coordinates.length);
-        for (double coordinate : coordinates) {
-            coordinatesList.add(new IfcLengthMeasure(coordinate));
+        this.coordinates = new double[coordinates.length];
+        for (int i = 0; i < coordinates.length; i++) {
+            this.coordinates[i] = normalizeZero(coordinates[i]);
         }
-        this.coordinates = Collections.unmodifiableList(coordinatesList);
-        this.dim = new IfcDimensionCount((byte) coordinatesList.size());
+    }
+
+    /**
+     * Creates a point, or returns the canonical instance of an equal one if
+     * the current {@link Model} interns entities.
+     *
+     * @param coordinates The coordinates of the point.
+     * @return A point having the given coordinates.
+     *
+     * @throws NullPointerException     If coordinates is null.
+     * @throws IllegalArgumentException If the size of coordinates is lower than
+     *                                  2 or bigger than 3.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcCartesianPoint of(@NonNull double... coordinates) {
+        return Model.intern(() -> new IfcCartesianPoint(coordinates));
+    }
+
+    /**
+     * @param value A coordinate.
+     * @return The coordinate, with -0.0 replaced by 0.0 as done by {@link
+     * IfcLengthMeasure}.
+     */
+    private static double normalizeZero(double value) {
+        return value == 0 ? 0d : value;
+    }
+
+    /**
+     * @return The first, second, and third coordinate of the point location.
+     * The returned List is an unmodifiable view of the coordinates, whose
+     * elements are created when accessed.
+     */
+    public List<IfcLengthMeasure> getCoordinates() {
+        return new DoubleBackedList<>(coordinates, IfcLengthMeasure::of);
+    }
+
+    /**
+     * @param index The index of the coordinate, starting from 0 for X.
+     * @return The value of the coordinate, without creating any object.
+     *
+     * @throws IndexOutOfBoundsException If index is negative or not lower than
+     *                                   the dimensionality of this point.
+     */
+    public double getCoordinate(int index) {
+        return coordinates[index];
     }
 
     /**
@@ -91,11 +138,34 @@ public class IfcCartesianPoint extends IfcPoint implements IfcTrimmingSelect {
      * of coordinates in the List of Coordinates.
      */
     public IfcDimensionCount getDim() {
-        return dim;
+        return IfcDimensionCount.of(coordinates.length);
     }
 
     @Override
     public String toString() {
-        return "IfcCartesianPoint(" + coordinates + ')';
+        return "IfcCartesianPoint(" + getCoordinates() + ')';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcCartesianPoint that = (IfcCartesianPoint) o;
+        return hashCode() == that.hashCode() &&
+                Arrays.equals(coordinates, that.coordinates);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Arrays.hashCode(coordinates);
+            hashCode = h;
+        }
+        return h;
     }
 }
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -52,6 +53,7 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcCircleHollowProfileDef extends IfcCircleProfileDef {
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure wallThickness;
 
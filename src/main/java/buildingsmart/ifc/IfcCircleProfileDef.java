@@ -20,7 +20,9 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import buildingsmart.model.Model;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -33,6 +35,7 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcCircleProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure radius;
 
@@ -57,4 +60,28 @@ public class IfcCircleProfileDef extends IfcParameterizedProfileDef {
         super(profileType, profileName, position);
         this.radius = radius;
     }
+
+    /**
+     * Creates a circle profile, or returns the canonical instance of an equal
+     * one if the current {@link Model} interns entities.
+     *
+     * @param profileType The type of geometry into which this profile
+     *                    definition shall be resolved.
+     * @param profileName Name of the profile type, can be null.
+     * @param position    Position coordinate system of the profile.
+     * @param radius      The radius of the circle.
+     * @return A profile equal to the one created with the same arguments.
+     *
+     * @throws NullPointerException If profileType, position or radius are
+     *                              null.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcCircleProfileDef of(
+            @NonNull IfcProfileTypeEnum profileType, IfcLabel profileName,
+            @NonNull IfcAxis2Placement2D position,
+            @NonNull IfcPositiveLengthMeasure radius) {
+        return Model.intern(
+                () -> new IfcCircleProfileDef(profileType, profileName,
+                        position, radius));
+    }
 }
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -42,6 +43,7 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcCompositeCurve extends IfcBoundedCurve {
+    @Getter
     @Attribute(0)
     private final List<IfcCompositeCurveSegment> segments;
     @Attribute(1)
@@ -21,10 +21,12 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -40,6 +42,7 @@ import java.util.Set;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcConnectedFaceSet extends IfcTopologicalRepresentationItem {
+    @Getter
     @Attribute(0)
     private final Set<IfcFace> cfsFaces;
 
@@ -55,7 +58,7 @@ public class IfcConnectedFaceSet extends IfcTopologicalRepresentationItem {
             throw new IllegalArgumentException(
                     "size of cfsFaces must be at least 1");
         }
-        this.cfsFaces = cfsFaces;
+        this.cfsFaces = Collections.unmodifiableSet(cfsFaces);
     }
 
     /**
@@ -31,6 +31,10 @@ import lombok.ToString;
 @EqualsAndHashCode
 @ToString
 public class IfcDimensionCount implements DefinedType {
+    private static final IfcDimensionCount[] INSTANCES =
+            {new IfcDimensionCount(1),
+             new IfcDimensionCount(2),
+             new IfcDimensionCount(3)};
     @Getter
     private final byte value;
 
@@ -60,6 +64,21 @@ public class IfcDimensionCount implements DefinedType {
         this.value = (byte) value;
     }
 
+    /**
+     * @param value The positive integer used to define the coordinate space
+     *              dimensionality.
+     * @return The shared instance of IfcDimensionCount having the given value.
+     *
+     * @throws IllegalArgumentException If value is not 1, 2 or 3.
+     */
+    public static IfcDimensionCount of(int value) {
+        if (value <= 0 || value > 3) {
+            throw new IllegalArgumentException(
+                    "value must be equal to 1, 2 or 3");
+        }
+        return INSTANCES[value - 1];
+    }
+
     /**
      * @return The representation of the type in an IFC STEP file.
      */
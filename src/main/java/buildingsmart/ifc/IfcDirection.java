@@ -20,13 +20,11 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
-import buildingsmart.util.Functions;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
+import buildingsmart.model.Model;
+import buildingsmart.util.VectorMath;
 import lombok.NonNull;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -34,23 +32,24 @@ import java.util.List;
  * space. The actual magnitudes of the components have no effect upon the
  * direction being defined, only the ratios X:Y:Z or X:Y are significant.
  */
-@EqualsAndHashCode(callSuper = false, onlyExplicitlyIncluded = true)
 public class IfcDirection extends IfcGeometricRepresentationItem
         implements IfcVectorOrDirection {
-    @Getter
+    /**
+     * Marks directions whose normalised direction ratios are undefined.
+     */
+    private static final double[] ZERO = new double[0];
     @Attribute(0)
-    private final List<IfcReal> directionRatios;
+    private final double[] directionRatios;
     /**
      * This field is not part of the IFC specification, its only purpose is
      * being used in equals() and hashCode() to avoid writing multiple
      * IfcDirection in the output IFC file when different IfcDirection objects
-     * actually represent the same direction.
+     * actually represent the same direction. It is computed on first use,
+     * it is ZERO if all direction ratios are zero, and the same array as
+     * directionRatios if they're already normalised.
      */
-    @Getter
-    @EqualsAndHashCode.Include
-    private final List<IfcReal> normalisedDirectionRatios;
-    @Getter
-    private final IfcDimensionCount dim; // derived attribute
+    private volatile double[] normalisedDirectionRatios;
+    private int hashCode; // cached, 0 until first computed
 
     /**
      * @param directionRatios The components in the direction of X axis
@@ -68,10 +67,10 @@ public class IfcDirection extends IfcGeometricRepresentationItem
             throw new IllegalArgumentException(
                     "size of directionRatios must be 2 or 3");
         }
-        this.directionRatios = Collections.unmodifiableList(directionRatios);
-        this.dim = new IfcDimensionCount(directionRatios.size());
-        this.normalisedDirectionRatios = Collections
-                .unmodifiableList(Functions.ifcNormalise(this).directionRatios);
+        this.directionRatios = new double[directionRatios.size()];
+        for (int i = 0; i < this.directionRatios.length; i++) {
+            this.directionRatios[i] = directionRatios.get(i).getValue();
+        }
     }
 
     /**
@@ -90,23 +89,122 @@ public class IfcDirection extends IfcGeometricRepresentationItem
             throw new IllegalArgumentException(
                     "size of directionRatios must be 2 or 3");
         }
-        List<IfcReal> directionRatiosList =
-                new ArrayList<>(directionRatios.length);
-        for (double dirRatio : directionRatios) {
-            directionRatiosList.add(new IfcReal(dirRatio));
+        this.directionRatios = new double[directionRatios.length];
+        for (int i = 0; i < directionRatios.length; i++) {
+            // -0.0 is replaced by 0.0 as done by IfcReal
+            this.directionRatios[i] =
+                    directionRatios[i] == 0 ? 0d : directionRatios[i];
         }
-        this.directionRatios =
-                Collections.unmodifiableList(directionRatiosList);
-        this.dim = new IfcDimensionCount(directionRatiosList.size());
-        IfcDirection normalised = (Functions.ifcNormalise(this));
-        this.normalisedDirectionRatios = normalised == null ? null :
-                Collections.unmodifiableList(normalised.directionRatios);
+    }
+
+    /**
+     * Creates a direction, or returns the canonical instance of an equal one
+     * if the current {@link Model} interns entities. Since directions are
+     * compared by their normalised ratios, the returned direction might have
+     * different (but proportional) direction ratios.
+     *
+     * @param directionRatios The components in the direction of X axis, of Y
+     *                        axis and of Z axis.
+     * @return A direction having the given direction ratios.
+     *
+     * @throws NullPointerException     If directionRatios is null.
+     * @throws IllegalArgumentException If the size of directionRatios is not 2
+     *                                  or 3.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcDirection of(@NonNull double... directionRatios) {
+        return Model.intern(() -> new IfcDirection(directionRatios));
+    }
+
+    /**
+     * @return The normalised direction ratios of this direction, ZERO if they
+     * are all zero. Concurrent callers might compute them more than once, but
+     * always get equal arrays.
+     */
+    private double[] normalised() {
+        double[] normalised = normalisedDirectionRatios;
+        if (normalised == null) {
+            int dim = directionRatios.length;
+            if (VectorMath.isNormalised(directionRatios, dim)) {
+                normalised = directionRatios;
+            } else {
+                normalised = new double[dim];
+                if (!VectorMath.normalise(directionRatios, normalised, dim)) {
+                    normalised = ZERO;
+                }
+            }
+            normalisedDirectionRatios = normalised;
+        }
+        return normalised;
+    }
+
+    /**
+     * @return The components in the direction of X axis (DirectionRatios[1]),
+     * of Y axis (DirectionRatios[2]), and of Z axis (DirectionRatios[3]), as
+     * an unmodifiable view whose elements are created when accessed.
+     */
+    @Override
+    public List<IfcReal> getDirectionRatios() {
+        return new DoubleBackedList<>(directionRatios, IfcReal::of);
+    }
+
+    /**
+     * @param index The index of the component, starting from 0 for X.
+     * @return The value of the component, without creating any object.
+     *
+     * @throws IndexOutOfBoundsException If index is negative or not lower than
+     *                                   the dimensionality of this direction.
+     */
+    public double getDirectionRatio(int index) {
+        return directionRatios[index];
+    }
+
+    /**
+     * @return The direction ratios normalised to have a sum of squares of 1.0,
+     * as an unmodifiable view, or null if the direction ratios are all zero.
+     */
+    public List<IfcReal> getNormalisedDirectionRatios() {
+        double[] normalised = normalised();
+        return normalised == ZERO ? null :
+                new DoubleBackedList<>(normalised, IfcReal::of);
+    }
+
+    /**
+     * @return The space dimensionality of this class, defined by the number of
+     * real in the list of DirectionRatios.
+     */
+    @Override
+    public IfcDimensionCount getDim() {
+        return IfcDimensionCount.of(directionRatios.length);
     }
 
     @Override
     public String toString() {
-        return "IfcDirection(directionRatios=" + directionRatios +
-                ", normalisedDirectionRatios=" + normalisedDirectionRatios +
-                ")";
+        return "IfcDirection(directionRatios=" + getDirectionRatios() +
+                ", normalisedDirectionRatios=" +
+                getNormalisedDirectionRatios() + ")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcDirection that = (IfcDirection) o;
+        return hashCode() == that.hashCode() &&
+                Arrays.equals(normalised(), that.normalised());
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Arrays.hashCode(normalised());
+            hashCode = h;
+        }
+        return h;
     }
 }
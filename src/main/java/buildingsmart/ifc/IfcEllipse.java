@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -51,8 +52,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcEllipse extends IfcConic {
+    @Getter
     @Attribute(1)
     private final IfcPositiveLengthMeasure semiAxis1;
+    @Getter
     @Attribute(2)
     private final IfcPositiveLengthMeasure semiAxis2;
 
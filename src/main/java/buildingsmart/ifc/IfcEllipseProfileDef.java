@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -60,8 +61,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcEllipseProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure semiAxis1;
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure semiAxis2;
 
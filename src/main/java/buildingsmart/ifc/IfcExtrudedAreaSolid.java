@@ -22,6 +22,7 @@ package buildingsmart.ifc;
 import buildingsmart.io.Attribute;
 import buildingsmart.util.Functions;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -49,8 +50,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcExtrudedAreaSolid extends IfcSweptAreaSolid {
+    @Getter
     @Attribute(2)
     private final IfcDirection extrudedDirection;
+    @Getter
     @Attribute(3)
     private final IfcLengthMeasure depth;
 
@@ -20,12 +20,15 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
-import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Objects;
 import java.util.Set;
 
 /**
@@ -65,11 +68,13 @@ import java.util.Set;
  * (number of edges) - (number of loops) + (sum of genus for loops) = 0 .</LI>
  * </OL>
  */
-@EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcFace extends IfcTopologicalRepresentationItem {
+    @Getter
     @Attribute(0)
     private final Set<IfcFaceBound> bounds;
+    @ToString.Exclude
+    private int hashCode; // cached, 0 until first computed
 
     /**
      * @param bounds Boundaries of the face.
@@ -79,6 +84,9 @@ public class IfcFace extends IfcTopologicalRepresentationItem {
      *                                  than one instance of IfcFaceOuterBound.
      */
     public IfcFace(@NonNull Set<IfcFaceBound> bounds) {
+        // copied, so that the cached hash code can't be invalidated by the
+        // caller
+        bounds = new LinkedHashSet<>(bounds);
         if (bounds.size() < 1) {
             throw new IllegalArgumentException(
                     "size of bounds must be at least 1");
@@ -89,7 +97,7 @@ public class IfcFace extends IfcTopologicalRepresentationItem {
                     "at most one of the bounds can be of type " +
                             "IfcFaceOuterBound");
         }
-        this.bounds = bounds;
+        this.bounds = Collections.unmodifiableSet(bounds);
     }
 
     /**
@@ -102,4 +110,26 @@ public class IfcFace extends IfcTopologicalRepresentationItem {
     public IfcFace(@NonNull IfcFaceBound... bounds) {
         this(new HashSet<>(Arrays.asList(bounds)));
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcFace that = (IfcFace) o;
+        return hashCode() == that.hashCode() && bounds.equals(that.bounds);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Objects.hash(bounds);
+            hashCode = h;
+        }
+        return h;
+    }
 }
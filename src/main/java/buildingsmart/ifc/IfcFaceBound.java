@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -30,8 +31,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcFaceBound extends IfcTopologicalRepresentationItem {
+    @Getter
     @Attribute(0)
     private final IfcLoop bound;
+    @Getter
     @Attribute(1)
     private final IfcBoolean orientation;
 
@@ -17,11 +17,14 @@
 
 package buildingsmart.ifc;
 
+import buildingsmart.guid.GuidGenerator;
+import buildingsmart.guid.GuidGenerators;
 import buildingsmart.io.DefinedType;
+import buildingsmart.model.Model;
 import lombok.EqualsAndHashCode;
 import lombok.NonNull;
-import lombok.ToString;
 
+import java.util.Arrays;
 import java.util.UUID;
 
 /**
@@ -70,10 +73,8 @@ import java.util.UUID;
  * exchanged within the IFC exchange file structure.
  */
 @EqualsAndHashCode
-@ToString
 public class IfcGloballyUniqueId implements DefinedType {
     protected static final int LENGTH = 22;
-    private static final String ALLOWED_CHARS_REGEX = "^[0-9A-Za-z_$]*$";
     private static final char[] CONVERSION_TABLE = new char[]{'0',
                                                               '1',
                                                               '2',
@@ -138,7 +139,29 @@ public class IfcGloballyUniqueId implements DefinedType {
                                                               'z',
                                                               '_',
                                                               '$'};
-    private final String value;
+    /**
+     * The value of each character in CONVERSION_TABLE, indexed by character,
+     * -1 for characters not allowed.
+     */
+    private static final byte[] DECODING_TABLE = new byte[128];
+    private static volatile GuidGenerator defaultGenerator =
+            GuidGenerators.secureRandom();
+
+    static {
+        Arrays.fill(DECODING_TABLE, (byte) -1);
+        for (int i = 0; i < CONVERSION_TABLE.length; i++) {
+            DECODING_TABLE[CONVERSION_TABLE[i]] = (byte) i;
+        }
+    }
+
+    private final long mostSignificantBits;
+    private final long leastSignificantBits;
+    /**
+     * The bits of the value exceeding 128, which are always 0 for GUIDs, but
+     * are kept so that any 22 characters String of allowed characters is
+     * serialized unchanged.
+     */
+    private final byte excessBits;
 
     /**
      * @param value The String representation of the GUID, obtained by mapping
@@ -154,132 +177,235 @@ public class IfcGloballyUniqueId implements DefinedType {
             throw new IllegalArgumentException(
                     "value must be 22 characters long");
         }
-        if (!value.matches(ALLOWED_CHARS_REGEX)) {
-            throw new IllegalArgumentException(
-                    "value contains illegal characters");
+        int first = decode(value.charAt(0));
+        long high = 0;
+        long low = 0;
+        for (int i = 1; i < LENGTH; i++) {
+            high = (high << 6) | (low >>> 58);
+            low = (low << 6) | decode(value.charAt(i));
         }
-        this.value = value;
+        this.mostSignificantBits = high | ((long) first << 62);
+        this.leastSignificantBits = low;
+        this.excessBits = (byte) (first >>> 2);
+    }
+
+    private IfcGloballyUniqueId(long mostSignificantBits,
+                                long leastSignificantBits,
+                                int excessBits) {
+        this.mostSignificantBits = mostSignificantBits;
+        this.leastSignificantBits = leastSignificantBits;
+        this.excessBits = (byte) excessBits;
     }
 
     /**
-     * Generates a pseudo random IfcGloballyUniqueId.
+     * Generates a new IfcGloballyUniqueId with the {@link GuidGenerator} of the
+     * {@link Model} current on this thread, if there is one and it has a
+     * generator, or with the default one otherwise.
+     *
+     * @see Model#setGuidGenerator(GuidGenerator)
+     * @see #setDefaultGenerator(GuidGenerator)
      */
     public IfcGloballyUniqueId() {
-        this.value =
-                getCompressedStringFromGuid(getGuidFromUUID(UUID.randomUUID()));
+        Model model = Model.current();
+        GuidGenerator generator =
+                model == null ? null : model.getGuidGenerator();
+        if (generator == null) {
+            generator = defaultGenerator;
+        }
+        long[] bits = new long[2];
+        generator.next(bits, 0);
+        this.mostSignificantBits = bits[0];
+        this.leastSignificantBits = bits[1];
+        this.excessBits = 0;
     }
 
     /**
-     * Converts an UIID (also called GUID) into a Guid data structure.
+     * @param c A character of the String representation of a GUID.
+     * @return The value of c as a base 64 digit.
      *
-     * @param uuid the UUID to convert.
-     * @return a Guid object.
+     * @throws IllegalArgumentException If c is not an allowed character.
      */
-    private static Guid getGuidFromUUID(UUID uuid) {
-        String uncompressedUuidString = uuid.toString();
-        String[] parts = uncompressedUuidString.split("-");
-        Guid guid = new Guid();
-        guid.data1 = Long.parseLong(parts[0], 16);
-        guid.data2 = Integer.parseInt(parts[1], 16);
-        guid.data3 = Integer.parseInt(parts[2], 16);
-
-        String temp;
-
-        temp = parts[3];
-        guid.data4[0] = (char) Integer.parseInt(temp.substring(0, 2), 16);
-        guid.data4[1] = (char) Integer.parseInt(temp.substring(2, 4), 16);
-
-        temp = parts[4];
-        guid.data4[2] = (char) Integer.parseInt(temp.substring(0, 2), 16);
-        guid.data4[3] = (char) Integer.parseInt(temp.substring(2, 4), 16);
-        guid.data4[4] = (char) Integer.parseInt(temp.substring(4, 6), 16);
-        guid.data4[5] = (char) Integer.parseInt(temp.substring(6, 8), 16);
-        guid.data4[6] = (char) Integer.parseInt(temp.substring(8, 10), 16);
-        guid.data4[7] = (char) Integer.parseInt(temp.substring(10, 12), 16);
+    private static int decode(char c) {
+        int digit = c < DECODING_TABLE.length ? DECODING_TABLE[c] : -1;
+        if (digit < 0) {
+            throw new IllegalArgumentException(
+                    "value contains illegal characters");
+        }
+        return digit;
+    }
 
-        return guid;
+    /**
+     * @param mostSignificantBits  The most significant 64 bits of the GUID.
+     * @param leastSignificantBits The least significant 64 bits of the GUID.
+     * @return The IfcGloballyUniqueId representing the given 128-bit GUID.
+     */
+    public static IfcGloballyUniqueId fromBits(long mostSignificantBits,
+                                               long leastSignificantBits) {
+        return new IfcGloballyUniqueId(mostSignificantBits,
+                                       leastSignificantBits,
+                                       0);
     }
 
     /**
-     * Converts a Guid object into its compressed String representation
-     * according to the IFC specification.
+     * @param uuid The UUID to convert.
+     * @return The IfcGloballyUniqueId representing the same 128-bit number as
+     * uuid.
      *
-     * @param guid The Guid object to compress.
-     * @return The 22 characters long String representation of the Guid.
+     * @throws NullPointerException If uuid is null.
      */
-    private static String getCompressedStringFromGuid(Guid guid) {
-        long[] num = new long[6];
-        char[][] str = new char[6][5];
-        int i, j, n;
-        StringBuilder result = new StringBuilder();
-
-        // Creation of six 32 bit integers from the components of the Guid
-        // structure
-        num[0] = guid.data1 / 16777216;
-        // 16. byte  (guid.data1 / 16777216) is the same as (guid.data1 >> 24)
-        num[1] = guid.data1 % 16777216;
-        // 15-13. bytes (guid.data1 % 16777216) is the same as (guid.data1 &
-        // 0xFFFFFF)
-        num[2] = guid.data2 * 256 + guid.data3 / 256;
-        // 12-10. bytes
-        num[3] = (guid.data3 % 256) * 65536 + guid.data4[0] * 256 +
-                guid.data4[1];
-        // 09-07. bytes
-        num[4] = guid.data4[2] * 65536 + guid.data4[3] * 256 + guid.data4[4];
-        // 06-04. bytes
-        num[5] = guid.data4[5] * 65536 + guid.data4[6] * 256 + guid.data4[7];
-        // 03-01. bytes
+    public static IfcGloballyUniqueId fromUuid(@NonNull UUID uuid) {
+        return new IfcGloballyUniqueId(uuid.getMostSignificantBits(),
+                                       uuid.getLeastSignificantBits(),
+                                       0);
+    }
 
-        // Conversion of the numbers into a system using a base of 64
-        n = 3;
-        for (i = 0; i < 6; i++) {
-            if (!convertToBase64(num[i], str[i], n)) {
-                return null;
-            }
-            for (j = 0; j < str[i].length; j++) {
-                if (str[i][j] != '\0') {
-                    result.append(str[i][j]);
-                }
-            }
-            n = 5;
+    /**
+     * Reads the 22 characters representing a GUID from a buffer.
+     *
+     * @param buffer The buffer from which to read the GUID.
+     * @param offset The position in buffer of the first character.
+     * @return The IfcGloballyUniqueId represented by the characters read.
+     *
+     * @throws NullPointerException      If buffer is null.
+     * @throws IndexOutOfBoundsException If buffer has less than 22 positions
+     *                                   starting from offset.
+     * @throws IllegalArgumentException  If the characters read are not
+     *                                   included in the following string:
+     *                                   {@code "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz_$"}
+     */
+    public static IfcGloballyUniqueId decode(@NonNull char[] buffer,
+                                             int offset) {
+        checkBounds(buffer.length, offset);
+        int first = decode(buffer[offset]);
+        long high = 0;
+        long low = 0;
+        for (int i = offset + 1; i < offset + LENGTH; i++) {
+            high = (high << 6) | (low >>> 58);
+            low = (low << 6) | decode(buffer[i]);
         }
-        return result.toString();
+        return new IfcGloballyUniqueId(high | ((long) first << 62),
+                                       low,
+                                       first >>> 2);
     }
 
     /**
-     * Conversion of an integer into a number with base 64 using the table
-     * CONVERSION_TABLE.
+     * Writes the 22 characters representing a 128-bit GUID to a buffer. The
+     * GUID is written as a base 64 number, using the characters in {@code
+     * "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz_$"} as
+     * digits.
      *
-     * @param number The integer to convert.
-     * @param code   The char array where to put the converted integer.
-     * @param len
-     * @return true if no error occurred
+     * @param mostSignificantBits  The most significant 64 bits of the GUID.
+     * @param leastSignificantBits The least significant 64 bits of the GUID.
+     * @param buffer               The buffer in which to write the GUID.
+     * @param offset               The position in buffer where to write the
+     *                             first character.
+     * @throws NullPointerException      If buffer is null.
+     * @throws IndexOutOfBoundsException If buffer has less than 22 positions
+     *                                   starting from offset.
      */
-    private static boolean convertToBase64(long number, char[] code, int len) {
-        long act;
-        int iDigit, nDigits;
-        char[] result = new char[5];
+    public static void encode(long mostSignificantBits,
+                              long leastSignificantBits,
+                              @NonNull char[] buffer,
+                              int offset) {
+        checkBounds(buffer.length, offset);
+        long high = mostSignificantBits;
+        long low = leastSignificantBits;
+        for (int i = offset + LENGTH - 1; i > offset; i--) {
+            buffer[i] = CONVERSION_TABLE[(int) (low & 63)];
+            low = (low >>> 6) | (high << 58);
+            high >>>= 6;
+        }
+        buffer[offset] = CONVERSION_TABLE[(int) low];
+    }
 
-        if (len > 5) {
-            return false;
+    private static void checkBounds(int length, int offset) {
+        if (offset < 0 || offset > length - LENGTH) {
+            throw new IndexOutOfBoundsException(
+                    "buffer has less than 22 positions after offset");
         }
+    }
 
-        act = number;
-        nDigits = len - 1;
+    /**
+     * @return The {@link GuidGenerator} used by {@link
+     * #IfcGloballyUniqueId()}.
+     */
+    public static GuidGenerator getDefaultGenerator() {
+        return defaultGenerator;
+    }
 
-        for (iDigit = 0; iDigit < nDigits; iDigit++) {
-            result[nDigits - iDigit - 1] = CONVERSION_TABLE[(int) (act % 64)];
-            act /= 64;
-        }
-        result[len - 1] = '\0';
+    /**
+     * @param generator The {@link GuidGenerator} to be used by {@link
+     *                  #IfcGloballyUniqueId()} from now on, in all threads. The
+     *                  initial one is {@link GuidGenerators#secureRandom()}.
+     * @throws NullPointerException If generator is null.
+     */
+    public static void setDefaultGenerator(@NonNull GuidGenerator generator) {
+        defaultGenerator = generator;
+    }
+
+    /**
+     * @return The most significant 64 bits of this GUID.
+     */
+    public long getMostSignificantBits() {
+        return mostSignificantBits;
+    }
+
+    /**
+     * @return The least significant 64 bits of this GUID.
+     */
+    public long getLeastSignificantBits() {
+        return leastSignificantBits;
+    }
+
+    /**
+     * @return The bits of the value of this GUID exceeding 128, between 0 and
+     * 15, which are 0 unless it was created from a String whose first
+     * character comes after '3'.
+     */
+    public int getExcessBits() {
+        return excessBits;
+    }
 
-        if (act != 0) {
-            return false;
+    /**
+     * @return The UUID representing the same 128-bit number as this GUID.
+     *
+     * @throws IllegalStateException If this IfcGloballyUniqueId was created
+     *                               from a String which doesn't represent a
+     *                               128-bit number, i.e. whose first
+     *                               character comes after '3' in {@code
+     *                               "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz_$"}.
+     */
+    public UUID toUuid() {
+        if (excessBits != 0) {
+            throw new IllegalStateException(
+                    "this IfcGloballyUniqueId is larger than 128 bits");
         }
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
 
-        System.arraycopy(result, 0, code, 0, result.length);
+    /**
+     * Writes the 22 characters representing this GUID to a buffer.
+     *
+     * @param buffer The buffer in which to write the GUID.
+     * @param offset The position in buffer where to write the first
+     *               character.
+     * @throws NullPointerException      If buffer is null.
+     * @throws IndexOutOfBoundsException If buffer has less than 22 positions
+     *                                   starting from offset.
+     */
+    public void writeTo(@NonNull char[] buffer, int offset) {
+        encode(mostSignificantBits, leastSignificantBits, buffer, offset);
+        buffer[offset] = CONVERSION_TABLE[DECODING_TABLE[buffer[offset]] |
+                (excessBits << 2)];
+    }
 
-        return true;
+    /**
+     * @return The String representation of this GUID, 22 characters long.
+     */
+    public String getValue() {
+        char[] chars = new char[LENGTH];
+        writeTo(chars, 0);
+        return new String(chars);
     }
 
     /**
@@ -287,18 +413,15 @@ public class IfcGloballyUniqueId implements DefinedType {
      */
     @Override
     public String serialize() {
-        return "'" + value + "'";
+        char[] chars = new char[LENGTH + 2];
+        chars[0] = '\'';
+        writeTo(chars, 1);
+        chars[LENGTH + 1] = '\'';
+        return new String(chars);
     }
 
-    /**
-     * Data structure used for the conversion from standard String
-     * representation of a UUID (or GUID) to its compressed String
-     * representation (according to the IFC specification).
-     */
-    private static class Guid {
-        long data1;
-        int data2;
-        int data3;
-        char[] data4 = new char[8];
+    @Override
+    public String toString() {
+        return "IfcGloballyUniqueId(value=" + getValue() + ")";
     }
 }
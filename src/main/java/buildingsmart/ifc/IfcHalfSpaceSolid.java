@@ -54,7 +54,7 @@ import lombok.ToString;
 public class IfcHalfSpaceSolid extends IfcGeometricRepresentationItem
         implements IfcBooleanOperand {
     // derived attribute
-    private static final IfcDimensionCount DIM = new IfcDimensionCount(3);
+    private static final IfcDimensionCount DIM = IfcDimensionCount.of(3);
     @Attribute(0)
     private final IfcSurface baseSurface;
     @Attribute(1)
@@ -37,21 +37,27 @@ public class IfcIdentifier implements DefinedType, IfcSimpleValue {
     /**
      * @param value Restricted to max. 255 characters, cannot be null.
      * @throws NullPointerException     If value is null.
-     * @throws IllegalArgumentException If value is longer than 255 characters
-     *                                  after being formatted.
-     * @see Functions#formatForStepFile(String)
+     * @throws IllegalArgumentException If value is longer than 255
+     *                                  characters.
      */
     public IfcIdentifier(@NonNull String value) {
-        value = Functions.formatForStepFile(value);
-        if (value.length() > 255) {
+        if (value.codePointCount(0, value.length()) > 255) {
             throw new IllegalArgumentException(
                     "ifcIdentifier cannot be " + "longer than 255 characters");
         }
         this.value = value;
     }
 
+    /**
+     * @return The representation of the type in an IFC STEP file, where value
+     * is formatted with {@link Functions#formatForStepFile(CharSequence,
+     * StringBuilder)}.
+     */
     @Override
     public String serialize() {
-        return "'" + value + "'";
+        StringBuilder serialization =
+                new StringBuilder(value.length() + 2).append('\'');
+        Functions.formatForStepFile(value, serialization);
+        return serialization.append('\'').toString();
     }
 }
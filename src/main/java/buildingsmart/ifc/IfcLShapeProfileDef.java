@@ -22,6 +22,7 @@ package buildingsmart.ifc;
 import buildingsmart.io.Attribute;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -43,10 +44,13 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcLShapeProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure depth;
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure width;
+    @Getter
     @Attribute(5)
     private final IfcPositiveLengthMeasure thickness;
     @Attribute(6)
@@ -25,6 +25,8 @@ import lombok.EqualsAndHashCode;
 import lombok.NonNull;
 import lombok.ToString;
 
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 /**
  * A label is the term by which something may be referred to. It is a string
  * which represents the human-interpretable name of something and shall have a
@@ -33,30 +35,83 @@ import lombok.ToString;
 @EqualsAndHashCode
 @ToString
 public class IfcLabel implements DefinedType, IfcSimpleValue {
+    /**
+     * Number of labels kept by the intern pool, must be a power of 2.
+     */
+    private static final int POOL_SIZE = 4096;
+    /**
+     * Labels longer than this are not interned, as they're unlikely to be
+     * repeated.
+     */
+    private static final int MAX_POOLED_LENGTH = 64;
+    /**
+     * Pool of recently used labels, where each label can only be stored in
+     * the position determined by its hash code and replaces the one stored
+     * there before.
+     */
+    private static final AtomicReferenceArray<IfcLabel> pool =
+            new AtomicReferenceArray<>(POOL_SIZE);
     private final String value;
 
     /**
      * @param value Restricted to max. 255 characters, cannot be null.
      * @throws NullPointerException     If value is null.
-     * @throws IllegalArgumentException If value is longer than 255 characters
-     *                                  after being formatted.
-     * @see Functions#formatForStepFile(String)
+     * @throws IllegalArgumentException If value is longer than 255
+     *                                  characters.
      */
     public IfcLabel(@NonNull String value) {
-        value = Functions.formatForStepFile(value);
-        if (value.length() > 255) {
+        if (value.codePointCount(0, value.length()) > 255) {
             throw new IllegalArgumentException(
                     "ifcLabel cannot be longer than 255 characters");
         }
         this.value = value;
     }
 
+    /**
+     * Returns a label with the given value, reusing a previously created one
+     * if it is still in the intern pool. The pool has a fixed size, so labels
+     * used often (like "Body", "SweptSolid" or the names of standard property
+     * sets) are shared, while rarely used ones are eventually evicted.
+     *
+     * @param value Restricted to max. 255 characters, cannot be null.
+     * @return A label with the given value.
+     *
+     * @throws NullPointerException     If value is null.
+     * @throws IllegalArgumentException If value is longer than 255
+     *                                  characters.
+     */
+    public static IfcLabel of(@NonNull String value) {
+        if (value.length() > MAX_POOLED_LENGTH) {
+            return new IfcLabel(value);
+        }
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (POOL_SIZE - 1);
+        IfcLabel pooled = pool.get(slot);
+        if (pooled != null && pooled.value.equals(value)) {
+            return pooled;
+        }
+        IfcLabel label = new IfcLabel(value);
+        pool.set(slot, label);
+        return label;
+    }
+
+    /**
+     * @return The value of this label, as passed to the constructor.
+     */
     public String getValue() {
         return value;
     }
 
+    /**
+     * @return The representation of the type in an IFC STEP file, where value
+     * is formatted with {@link Functions#formatForStepFile(CharSequence,
+     * StringBuilder)}.
+     */
     @Override
     public String serialize() {
-        return "'" + value + "'";
+        StringBuilder serialization =
+                new StringBuilder(value.length() + 2).append('\'');
+        Functions.formatForStepFile(value, serialization);
+        return serialization.append('\'').toString();
     }
 }
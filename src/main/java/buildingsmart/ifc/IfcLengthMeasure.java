@@ -30,6 +30,14 @@ import lombok.Getter;
  */
 @EqualsAndHashCode
 public class IfcLengthMeasure implements DefinedType, IfcMeasureValue {
+    private static final IfcLengthMeasure[] CACHE = new IfcLengthMeasure[33];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IfcLengthMeasure(i - 16);
+        }
+    }
+
     @Getter
     private final double value;
 
@@ -44,6 +52,19 @@ public class IfcLengthMeasure implements DefinedType, IfcMeasureValue {
         }
     }
 
+    /**
+     * @param value The value of the IfcLengthMeasure.
+     * @return An instance of IfcLengthMeasure having the given value. Instances
+     * for whole numbers between -16 and 16 are shared, so that the most common
+     * values don't need to be allocated each time.
+     */
+    public static IfcLengthMeasure of(double value) {
+        if (value >= -16 && value <= 16 && value == (int) value) {
+            return CACHE[(int) value + 16];
+        }
+        return new IfcLengthMeasure(value);
+    }
+
     /**
      * @return The representation of the type in an IFC STEP file.
      */
@@ -21,11 +21,12 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import buildingsmart.util.Functions;
-import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
+import java.util.Objects;
+
 /**
  * The <i>IfcLocalPlacement</i> defines the relative placement of a product in
  * relation to the placement of another product or the absolute placement of a
@@ -40,7 +41,6 @@ import lombok.ToString;
  * the <i>IfcProduct</i> is placed absolutely within the world coordinate
  * system.</p>
  */
-@EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcLocalPlacement extends IfcObjectPlacement {
     @Getter
@@ -49,6 +49,8 @@ public class IfcLocalPlacement extends IfcObjectPlacement {
     @Getter
     @Attribute(1)
     private final IfcAxis2Placement relativePlacement;
+    @ToString.Exclude
+    private int hashCode; // cached, 0 until first computed
 
     /**
      * @param placementRelTo    Reference to Object that provides the relative
@@ -80,4 +82,27 @@ public class IfcLocalPlacement extends IfcObjectPlacement {
         this.relativePlacement = relativePlacement;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcLocalPlacement that = (IfcLocalPlacement) o;
+        return hashCode() == that.hashCode() &&
+                Objects.equals(placementRelTo, that.placementRelTo) &&
+                relativePlacement.equals(that.relativePlacement);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Objects.hash(placementRelTo, relativePlacement);
+            hashCode = h;
+        }
+        return h;
+    }
 }
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.DefinedType;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
 /**
@@ -31,6 +32,7 @@ import lombok.ToString;
 @ToString
 public class IfcParameterValue
         implements DefinedType, IfcMeasureValue, IfcTrimmingSelect {
+    @Getter
     private final double value;
 
     public IfcParameterValue(double value) {
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.DefinedType;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.ToString;
 
 /**
@@ -38,6 +39,7 @@ import lombok.ToString;
 @EqualsAndHashCode
 @ToString
 public class IfcPlaneAngleMeasure implements DefinedType, IfcMeasureValue {
+    @Getter
     private final double value;
 
     public IfcPlaneAngleMeasure(double value) {
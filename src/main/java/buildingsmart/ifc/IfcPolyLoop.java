@@ -20,12 +20,15 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
-import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * <p>A
@@ -61,11 +64,13 @@ import java.util.List;
  * different by value.</li>
  * </ol>
  */
-@EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcPolyLoop extends IfcLoop {
+    @Getter
     @Attribute(0)
     private final List<IfcCartesianPoint> polygon;
+    @ToString.Exclude
+    private int hashCode; // cached, 0 until first computed
 
     /**
      * @param polygon List of points defining the loop. There are no repeated
@@ -78,6 +83,9 @@ public class IfcPolyLoop extends IfcLoop {
      *                                  dimensionality.
      */
     public IfcPolyLoop(@NonNull List<IfcCartesianPoint> polygon) {
+        // copied, so that the cached hash code can't be invalidated by the
+        // caller
+        polygon = new ArrayList<>(polygon);
         if (polygon.size() < 3) {
             throw new IllegalArgumentException(
                     "size of polygon must be at least 3");
@@ -92,7 +100,7 @@ public class IfcPolyLoop extends IfcLoop {
             throw new IllegalArgumentException(
                     "dimensionality of all points in polygon must be the same");
         }
-        this.polygon = polygon;
+        this.polygon = Collections.unmodifiableList(polygon);
     }
 
     /**
@@ -108,4 +116,26 @@ public class IfcPolyLoop extends IfcLoop {
     public IfcPolyLoop(@NonNull IfcCartesianPoint... polygon) {
         this(Arrays.asList(polygon));
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        IfcPolyLoop that = (IfcPolyLoop) o;
+        return hashCode() == that.hashCode() && polygon.equals(that.polygon);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0) {
+            h = Objects.hash(polygon);
+            hashCode = h;
+        }
+        return h;
+    }
 }
@@ -21,10 +21,12 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -34,6 +36,7 @@ import java.util.List;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcPolyline extends IfcBoundedCurve {
+    @Getter
     @Attribute(0)
     private final List<IfcCartesianPoint> points;
 
@@ -55,7 +58,7 @@ public class IfcPolyline extends IfcBoundedCurve {
             throw new IllegalArgumentException(
                     "dimensionality of all points must be the same");
         }
-        this.points = points;
+        this.points = Collections.unmodifiableList(points);
     }
 
     /**
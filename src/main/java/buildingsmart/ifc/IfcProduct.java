@@ -20,6 +20,7 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -64,8 +65,10 @@ import lombok.ToString;
  */
 @ToString(callSuper = true)
 public abstract class IfcProduct extends IfcObject {
+    @Getter
     @Attribute(5)
     private final IfcObjectPlacement objectPlacement;
+    @Getter
     @Attribute(6)
     private final IfcProductRepresentation representation;
 
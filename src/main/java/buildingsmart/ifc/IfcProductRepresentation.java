@@ -22,10 +22,12 @@ package buildingsmart.ifc;
 import buildingsmart.io.Attribute;
 import buildingsmart.io.Entity;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -42,6 +44,7 @@ public class IfcProductRepresentation extends Entity {
     private final IfcLabel name;
     @Attribute(1)
     private final IfcText description;
+    @Getter
     @Attribute(2)
     private final List<IfcRepresentation> representations;
 
@@ -69,7 +72,8 @@ public class IfcProductRepresentation extends Entity {
         }
         this.name = name;
         this.description = description;
-        this.representations = representations;
+        this.representations =
+                Collections.unmodifiableList(representations);
         for (IfcRepresentation repr : representations) {
             repr.setOfProductRepresentation(this);
         }
@@ -99,6 +103,7 @@ public class IfcProductRepresentation extends Entity {
         }
         this.name = name;
         this.description = description;
-        this.representations = Arrays.asList(representations);
+        this.representations =
+                Collections.unmodifiableList(Arrays.asList(representations));
     }
 }
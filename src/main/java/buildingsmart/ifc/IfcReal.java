@@ -29,6 +29,14 @@ import lombok.Getter;
  */
 @EqualsAndHashCode
 public class IfcReal implements DefinedType, IfcSimpleValue {
+    private static final IfcReal[] CACHE = new IfcReal[33];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new IfcReal(i - 16);
+        }
+    }
+
     @Getter
     private final double value;
 
@@ -40,6 +48,19 @@ public class IfcReal implements DefinedType, IfcSimpleValue {
         }
     }
 
+    /**
+     * @param value The value of the IfcReal.
+     * @return An instance of IfcReal having the given value. Instances
+     * for whole numbers between -16 and 16 are shared, so that the most common
+     * values don't need to be allocated each time.
+     */
+    public static IfcReal of(double value) {
+        if (value >= -16 && value <= 16 && value == (int) value) {
+            return CACHE[(int) value + 16];
+        }
+        return new IfcReal(value);
+    }
+
     /**
      * @return The representation of the type in an IFC STEP file.
      */
@@ -22,6 +22,7 @@ package buildingsmart.ifc;
 import buildingsmart.io.Attribute;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -40,6 +41,7 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcRectangleHollowProfileDef extends IfcRectangleProfileDef {
+    @Getter
     @Attribute(5)
     private final IfcPositiveLengthMeasure wallThickness;
     @Attribute(6)
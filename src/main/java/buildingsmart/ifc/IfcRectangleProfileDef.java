@@ -20,7 +20,9 @@
 package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
+import buildingsmart.model.Model;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -35,8 +37,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcRectangleProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure xDim;
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure yDim;
 
@@ -66,4 +70,30 @@ public class IfcRectangleProfileDef extends IfcParameterizedProfileDef {
         this.xDim = xDim;
         this.yDim = yDim;
     }
+
+    /**
+     * Creates a rectangle profile, or returns the canonical instance of an
+     * equal one if the current {@link Model} interns entities.
+     *
+     * @param profileType The type of geometry into which this profile
+     *                    definition shall be resolved.
+     * @param profileName Name of the profile type, can be null.
+     * @param position    Position coordinate system of the profile.
+     * @param xDim        The extent of the rectangle along the x-axis.
+     * @param yDim        The extent of the rectangle along the y-axis.
+     * @return A profile equal to the one created with the same arguments.
+     *
+     * @throws NullPointerException If profileType, position, xDim or yDim are
+     *                              null.
+     * @see Model#intern(java.util.function.Supplier)
+     */
+    public static IfcRectangleProfileDef of(
+            @NonNull IfcProfileTypeEnum profileType, IfcLabel profileName,
+            @NonNull IfcAxis2Placement2D position,
+            @NonNull IfcPositiveLengthMeasure xDim,
+            @NonNull IfcPositiveLengthMeasure yDim) {
+        return Model.intern(
+                () -> new IfcRectangleProfileDef(profileType, profileName,
+                        position, xDim, yDim));
+    }
 }
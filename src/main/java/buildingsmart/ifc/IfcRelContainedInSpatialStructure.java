@@ -296,7 +296,11 @@ public class IfcRelContainedInSpatialStructure extends IfcRelConnects {
         return new HashSet<>(relatedElements);
     }
 
-    protected IfcSpatialStructureElement getRelatingStructure() {
+    /**
+     * @return The spatial structure element, within which the element is
+     * contained.
+     */
+    public IfcSpatialStructureElement getRelatingStructure() {
         return relatingStructure;
     }
 }
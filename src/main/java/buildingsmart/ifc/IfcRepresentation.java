@@ -23,10 +23,12 @@ import buildingsmart.io.Attribute;
 import buildingsmart.io.Entity;
 import buildingsmart.io.InverseRelationship;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -43,6 +45,7 @@ public class IfcRepresentation extends Entity {
     private final IfcLabel representationIdentifier;
     @Attribute(2)
     private final IfcLabel representationType;
+    @Getter
     @Attribute(3)
     private final Set<IfcRepresentationItem> items;
 
@@ -88,7 +91,7 @@ public class IfcRepresentation extends Entity {
         this.contextOfItems = contextOfItems;
         this.representationIdentifier = representationIdentifier;
         this.representationType = representationType;
-        this.items = items;
+        this.items = Collections.unmodifiableSet(items);
     }
 
     /**
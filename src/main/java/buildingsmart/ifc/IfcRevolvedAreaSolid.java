@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -86,8 +87,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcRevolvedAreaSolid extends IfcSweptAreaSolid {
+    @Getter
     @Attribute(2)
     private final IfcAxis1Placement axis;
+    @Getter
     @Attribute(3)
     private final IfcPlaneAngleMeasure angle;
 
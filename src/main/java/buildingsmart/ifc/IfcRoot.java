@@ -21,14 +21,13 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import buildingsmart.io.Entity;
+import buildingsmart.model.GlobalIdRegistry;
+import buildingsmart.model.Model;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
-import java.util.HashSet;
-import java.util.Set;
-
 /**
  * The IfcRoot is the most abstract and root class for all IFC entity
  * definitions that roots in the kernel or in subsequent layers of the IFC
@@ -46,8 +45,12 @@ import java.util.Set;
 @ToString
 @Getter
 public abstract class IfcRoot extends Entity {
-    private static final Set<IfcGloballyUniqueId> uniqueGlobalIds =
-            new HashSet<>();
+    /**
+     * Registry of the GlobalIds of the instances created while no {@link
+     * Model} is current.
+     */
+    private static volatile GlobalIdRegistry defaultGlobalIdRegistry =
+            GlobalIdRegistry.concurrent();
     @EqualsAndHashCode.Include
     @Attribute(0)
     private final IfcGloballyUniqueId globalId;
@@ -57,6 +60,13 @@ public abstract class IfcRoot extends Entity {
     private final IfcLabel name;
     @Attribute(3)
     private final IfcText description;
+    /**
+     * The registry which accepted globalId when this instance was created,
+     * {@code null} if it was created by {@link Model#create} and globalId was
+     * checked when it was added to the model.
+     */
+    @ToString.Exclude
+    private final GlobalIdRegistry globalIdRegistry;
 
     /**
      * Creates a new IfcRoot, using the provided globalId.
@@ -75,19 +85,21 @@ public abstract class IfcRoot extends Entity {
      * @param description  Optional description, provided for exchanging
      *                     informative comments.
      * @throws NullPointerException     If globalId or ownerHistory are null.
-     * @throws IllegalArgumentException If globalId was used in another instance
-     *                                  of this class.
+     * @throws IllegalArgumentException If globalId is rejected by the registry
+     *                                  of GlobalIds of the current {@link
+     *                                  Model}, or by the default one if no
+     *                                  model is current. Instances created by
+     *                                  {@link Model#create} are checked when
+     *                                  they're added to their model instead.
+     * @see #setDefaultGlobalIdRegistry(GlobalIdRegistry)
+     * @see Model#setGlobalIdRegistry(GlobalIdRegistry)
      */
     public IfcRoot(@NonNull IfcGloballyUniqueId globalId,
                    @NonNull IfcOwnerHistory ownerHistory,
                    IfcLabel name,
                    IfcText description) {
-        if (uniqueGlobalIds.contains(globalId)) {
-            throw new IllegalArgumentException(
-                    "globalId must be unique, and this one was used in " +
-                            "another instance of this class");
-        }
-        uniqueGlobalIds.add(globalId);
+        this.globalIdRegistry =
+                Model.registerConstructed(globalId, defaultGlobalIdRegistry);
         this.globalId = globalId;
         this.ownerHistory = ownerHistory;
         this.name = name;
@@ -122,8 +134,37 @@ public abstract class IfcRoot extends Entity {
      * creation of new instances of this class having attributes marked as
      * UNIQUE with the same values as ones belonging to instances of this class
      * created before calling this method. Use at your own risk.
+     * </p>
+     * Only instances created while no {@link Model} was current are affected,
+     * use a new Model for each set of instances to avoid having to call this
+     * method.
      */
     public static void clearUniqueConstraint() {
-        uniqueGlobalIds.clear();
+        defaultGlobalIdRegistry.clear();
+    }
+
+    /**
+     * @return The registry used to enforce the uniqueness of the GlobalIds of
+     * the instances of this class created while no {@link Model} is current.
+     */
+    public static GlobalIdRegistry getDefaultGlobalIdRegistry() {
+        return defaultGlobalIdRegistry;
+    }
+
+    /**
+     * Sets the registry to be used, from now on in all threads, to enforce the
+     * uniqueness of the GlobalIds of the instances of this class created while
+     * no {@link Model} is current. The initial one is {@link
+     * GlobalIdRegistry#concurrent()}, which keeps every GlobalId until {@link
+     * #clearUniqueConstraint()} is called: {@link
+     * GlobalIdRegistry#bloomFilter(long, double)} bounds its memory, {@link
+     * GlobalIdRegistry#disabled()} removes the check.
+     *
+     * @param registry The registry to use.
+     * @throws NullPointerException If registry is null.
+     */
+    public static void setDefaultGlobalIdRegistry(
+            @NonNull GlobalIdRegistry registry) {
+        defaultGlobalIdRegistry = registry;
     }
 }
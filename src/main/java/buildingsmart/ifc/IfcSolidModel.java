@@ -28,7 +28,7 @@ package buildingsmart.ifc;
 public abstract class IfcSolidModel extends IfcGeometricRepresentationItem
         implements IfcBooleanOperand {
     // derived attribute
-    private static final IfcDimensionCount DIM = new IfcDimensionCount(3);
+    private static final IfcDimensionCount DIM = IfcDimensionCount.of(3);
 
     /**
      * @return The space dimensionality of this class, it is always 3.
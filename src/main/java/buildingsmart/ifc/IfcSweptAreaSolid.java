@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -35,8 +36,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public abstract class IfcSweptAreaSolid extends IfcSolidModel {
+    @Getter
     @Attribute(0)
     private final IfcProfileDef sweptArea;
+    @Getter
     @Attribute(1)
     private final IfcAxis2Placement3D position;
 
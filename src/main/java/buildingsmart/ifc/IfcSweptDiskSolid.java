@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -36,8 +37,10 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcSweptDiskSolid extends IfcSolidModel {
+    @Getter
     @Attribute(0)
     private final IfcCurve directrix;
+    @Getter
     @Attribute(1)
     private final IfcPositiveLengthMeasure radius;
     @Attribute(2)
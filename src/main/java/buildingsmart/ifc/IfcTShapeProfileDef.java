@@ -22,6 +22,7 @@ package buildingsmart.ifc;
 import buildingsmart.io.Attribute;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -42,12 +43,16 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcTShapeProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure depth;
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure flangeWidth;
+    @Getter
     @Attribute(5)
     private final IfcPositiveLengthMeasure webThickness;
+    @Getter
     @Attribute(6)
     private final IfcPositiveLengthMeasure flangeThickness;
     @Attribute(7)
@@ -39,11 +39,19 @@ public class IfcText implements DefinedType, IfcSimpleValue {
      * @throws NullPointerException If value is null.
      */
     public IfcText(@NonNull final String value) {
-        this.value = Functions.formatForStepFile(value);
+        this.value = value;
     }
 
+    /**
+     * @return The representation of the type in an IFC STEP file, where value
+     * is formatted with {@link Functions#formatForStepFile(CharSequence,
+     * StringBuilder)}.
+     */
     @Override
     public String serialize() {
-        return "'" + value + "'";
+        StringBuilder serialization =
+                new StringBuilder(value.length() + 2).append('\'');
+        Functions.formatForStepFile(value, serialization);
+        return serialization.append('\'').toString();
     }
 }
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -78,12 +79,16 @@ import lombok.ToString;
 @EqualsAndHashCode(callSuper = true)
 @ToString(callSuper = true)
 public class IfcTrapeziumProfileDef extends IfcParameterizedProfileDef {
+    @Getter
     @Attribute(3)
     private final IfcPositiveLengthMeasure bottomXDim;
+    @Getter
     @Attribute(4)
     private final IfcPositiveLengthMeasure topXDim;
+    @Getter
     @Attribute(5)
     private final IfcPositiveLengthMeasure yDim;
+    @Getter
     @Attribute(6)
     private final IfcLengthMeasure topXOffset;
 
@@ -21,6 +21,7 @@ package buildingsmart.ifc;
 
 import buildingsmart.io.Attribute;
 import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NonNull;
 import lombok.ToString;
 
@@ -100,14 +101,19 @@ import java.util.Set;
 @EqualsAndHashCode(callSuper = false)
 @ToString
 public class IfcTrimmedCurve extends IfcBoundedCurve {
+    @Getter
     @Attribute(0)
     private final IfcCurve basisCurve;
+    @Getter
     @Attribute(1)
     private final Set<IfcTrimmingSelect> trim1;
+    @Getter
     @Attribute(2)
     private final Set<IfcTrimmingSelect> trim2;
+    @Getter
     @Attribute(3)
     private final IfcBoolean senseAgreement;
+    @Getter
     @Attribute(4)
     private final IfcTrimmingPreference masterRepresentation;
 
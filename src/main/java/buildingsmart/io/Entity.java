@@ -18,6 +18,8 @@
 
 package buildingsmart.io;
 
+import buildingsmart.model.Model;
+
 /**
  * One of the entities defined in the IFC specification. This interface is not
  * part of the IFC specification, its only purpose is to distinguish IFC
@@ -29,6 +31,17 @@ package buildingsmart.io;
  * with {@link Attribute}.
  */
 public abstract class Entity {
+
+    /**
+     * Records the new entity, so that it's added to the {@link Model} creating
+     * it on this thread, if there is one, once its creation succeeds.
+     *
+     * @see Model#create(java.util.function.Supplier)
+     */
+    protected Entity() {
+        Model.constructing(this);
+    }
+
     /**
      * Must not include fields annotated with {@link InverseRelationship} in the
      * comparison, or you might get infinite recursion when comparing objects.
@@ -438,6 +438,9 @@ public class Serializer {
      *     String containing the parentheses and everything between them
      *     will
      *     be returned;</li>
+     *     <li>if it is an array of doubles, as used by entities which store
+     *     Lists of REAL-based Defined Types as primitives, it will be
+     *     serialized like a List of those Defined Types;</li>
      *     <li>if it is an instance of Entity:</li>
      *          <li>if the entity was already serialized, a String
      *          containing
@@ -499,6 +502,18 @@ public class Serializer {
                     ((Collection) obj).stream().map(this::serialize);
             return elements.collect(Collectors.joining(",", "(", ")"));
         }
+        if (obj instanceof double[]) {
+            double[] values = (double[]) obj;
+            StringBuilder serialized = new StringBuilder(values.length * 8);
+            serialized.append('(');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    serialized.append(',');
+                }
+                serialized.append(values[i]);
+            }
+            return serialized.append(')').toString();
+        }
         Entity entity = (Entity) obj;
         // if obj is neither an DefinedType nor a Collection (List or
         // Set), then it must be an Entity
@@ -0,0 +1,288 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * The structural differences between two versions of an IFC STEP file, found
+ * without loading either file into memory (see {@link StepFileIndex}).
+ * </p>
+ * Instances of subtypes of IfcRoot are matched by GlobalId: an instance whose
+ * GlobalId appears in both files is reported as changed if its attributes or
+ * any of the instances it references (directly or indirectly, stopping at
+ * other instances with a GlobalId) are different. Other instances have no
+ * identity beyond their content, so they are matched by content hash: an
+ * instance is reported as added or removed if the number of instances with
+ * its type and content hash differs between the two files. Since content
+ * hashes don't depend on ids, renumbering the instances of a file produces no
+ * differences.
+ * </p>
+ * Instances of this class are immutable and thus thread-safe.
+ */
+@Getter
+@ToString
+public class StepDiff {
+    /**
+     * Instances contained only in the newer file.
+     */
+    private final List<Difference> added;
+    /**
+     * Instances contained only in the older file.
+     */
+    private final List<Difference> removed;
+    /**
+     * Instances with a GlobalId contained in both files, whose content is
+     * different.
+     */
+    private final List<Difference> changed;
+
+    private StepDiff(List<Difference> added,
+                     List<Difference> removed,
+                     List<Difference> changed) {
+        this.added = Collections.unmodifiableList(added);
+        this.removed = Collections.unmodifiableList(removed);
+        this.changed = Collections.unmodifiableList(changed);
+    }
+
+    /**
+     * Compares two IFC STEP files. The two files are indexed in parallel.
+     *
+     * @param oldFile The path of the older version of the file.
+     * @param newFile The path of the newer version of the file.
+     * @return The differences between the two files.
+     *
+     * @throws NullPointerException If any of the arguments is null.
+     * @throws IOException          If an I/O error occurs, or if any of the
+     *                              files is malformed.
+     */
+    public static StepDiff compare(@NonNull Path oldFile, @NonNull Path newFile)
+            throws IOException {
+        CompletableFuture<StepFileIndex> oldIndex =
+                CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return StepFileIndex.build(oldFile);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        StepFileIndex newIndex = StepFileIndex.build(newFile);
+        try {
+            return compare(oldIndex.join(), newIndex);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Compares two indexed IFC STEP files.
+     *
+     * @param oldIndex The index of the older version of the file.
+     * @param newIndex The index of the newer version of the file.
+     * @return The differences between the two files.
+     *
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public static StepDiff compare(@NonNull StepFileIndex oldIndex,
+                                   @NonNull StepFileIndex newIndex) {
+        List<Difference> added = new ArrayList<>();
+        List<Difference> removed = new ArrayList<>();
+        List<Difference> changed = new ArrayList<>();
+
+        Map<String, Integer> oldRoots = new HashMap<>();
+        for (int i = 0; i < oldIndex.size(); i++) {
+            String globalId = oldIndex.getGlobalId(i);
+            if (globalId != null) {
+                oldRoots.put(globalId, i);
+            }
+        }
+        for (int i = 0; i < newIndex.size(); i++) {
+            String globalId = newIndex.getGlobalId(i);
+            if (globalId == null) {
+                continue;
+            }
+            Integer oldPosition = oldRoots.remove(globalId);
+            if (oldPosition == null) {
+                added.add(new Difference(newIndex.getType(i),
+                                         globalId,
+                                         0,
+                                         newIndex.getId(i)));
+            } else if (oldIndex.getHash(oldPosition) != newIndex.getHash(i)) {
+                changed.add(new Difference(newIndex.getType(i),
+                                           globalId,
+                                           oldIndex.getId(oldPosition),
+                                           newIndex.getId(i)));
+            }
+        }
+
+        // how many more instances with each content hash are in the newer
+        // file than in the older one, only for hashes whose count differs
+        Map<Long, Integer> excess = new HashMap<>();
+        long[] oldHashes = sortedHashes(oldIndex);
+        long[] newHashes = sortedHashes(newIndex);
+        int o = 0;
+        int n = 0;
+        while (o < oldHashes.length || n < newHashes.length) {
+            long hash;
+            if (n == newHashes.length ||
+                    (o < oldHashes.length && oldHashes[o] < newHashes[n])) {
+                hash = oldHashes[o];
+            } else {
+                hash = newHashes[n];
+            }
+            int count = 0;
+            for (; o < oldHashes.length && oldHashes[o] == hash; o++) {
+                count--;
+            }
+            for (; n < newHashes.length && newHashes[n] == hash; n++) {
+                count++;
+            }
+            if (count != 0) {
+                excess.put(hash, count);
+            }
+        }
+        if (!excess.isEmpty()) {
+            for (int i = 0; i < oldIndex.size(); i++) {
+                if (oldIndex.getGlobalId(i) == null &&
+                        consume(excess, oldIndex.getHash(i), -1)) {
+                    removed.add(new Difference(oldIndex.getType(i),
+                                               null,
+                                               oldIndex.getId(i),
+                                               0));
+                }
+            }
+            for (int i = 0; i < newIndex.size(); i++) {
+                if (newIndex.getGlobalId(i) == null &&
+                        consume(excess, newIndex.getHash(i), 1)) {
+                    added.add(new Difference(newIndex.getType(i),
+                                             null,
+                                             0,
+                                             newIndex.getId(i)));
+                }
+            }
+        }
+
+        for (int position : oldRoots.values()) {
+            removed.add(new Difference(oldIndex.getType(position),
+                                       oldIndex.getGlobalId(position),
+                                       oldIndex.getId(position),
+                                       0));
+        }
+        return new StepDiff(added, removed, changed);
+    }
+
+    /**
+     * @return The content hashes of the instances without a GlobalId, sorted
+     * in ascending order.
+     */
+    private static long[] sortedHashes(StepFileIndex index) {
+        long[] hashes = new long[index.size()];
+        int count = 0;
+        for (int i = 0; i < index.size(); i++) {
+            if (index.getGlobalId(i) == null) {
+                hashes[count++] = index.getHash(i);
+            }
+        }
+        hashes = Arrays.copyOf(hashes, count);
+        Arrays.parallelSort(hashes);
+        return hashes;
+    }
+
+    /**
+     * Decrements the excess of instances with the given hash, if it has the
+     * given sign.
+     *
+     * @return {@code true} if the excess was decremented.
+     */
+    private static boolean consume(Map<Long, Integer> excess,
+                                   long hash,
+                                   int sign) {
+        Integer count = excess.get(hash);
+        if (count == null || Integer.signum(count) != sign) {
+            return false;
+        }
+        if (count == sign) {
+            excess.remove(hash);
+        } else {
+            excess.put(hash, count - sign);
+        }
+        return true;
+    }
+
+    /**
+     * @return {@code true} if the two files compared contain the same
+     * instances.
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * An instance that was added, removed or changed between the two versions
+     * of a file.
+     */
+    @Getter
+    @EqualsAndHashCode
+    @ToString
+    public static class Difference {
+        /**
+         * The type of the instance, as it appears in the file (e.g. {@code
+         * "IFCWALL"}).
+         */
+        private final String type;
+        /**
+         * The GlobalId of the instance, {@code null} if it is not a subtype of
+         * IfcRoot.
+         */
+        private final String globalId;
+        /**
+         * The id of the instance in the older file, 0 if it was added.
+         */
+        private final int oldId;
+        /**
+         * The id of the instance in the newer file, 0 if it was removed.
+         */
+        private final int newId;
+
+        private Difference(String type, String globalId, int oldId, int newId) {
+            this.type = type;
+            this.globalId = globalId;
+            this.oldId = oldId;
+            this.newId = newId;
+        }
+    }
+}
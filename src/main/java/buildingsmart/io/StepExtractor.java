@@ -0,0 +1,339 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import lombok.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Extracts a subset of an IFC STEP file, such as a single storey or a list of
+ * elements, into a new file. The instances to extract are found using a
+ * {@link StepFileIndex} of the file, and copied without parsing them: only
+ * their ids are rewritten, so that the ids in the new file are numbered
+ * consecutively starting from 1. Since instances are read directly from their
+ * position in the file, once the index is built the cost of an extraction
+ * depends on the size of the subset, not on the size of the file.
+ * </p>
+ * The subset extracted from a list of instances with a GlobalId (the roots)
+ * contains:
+ * <ul>
+ *   <li>the roots;</li>
+ *   <li>
+ *     the contents of the roots which are spatial structure elements or
+ *     aggregates, found through IfcRelContainedInSpatialStructure and
+ *     IfcRelAggregates, recursively: extracting an IfcBuildingStorey extracts
+ *     all its spaces and the elements they contain;
+ *   </li>
+ *   <li>
+ *     the IfcRelAggregates through which the roots are part of the spatial
+ *     structure of the project, recursively. Since these relationships
+ *     reference all the parts of an aggregate, the siblings of each root (e.g.
+ *     the other storeys of a building) are extracted, but not their contents;
+ *   </li>
+ *   <li>the IfcProject, with its units and representation contexts;</li>
+ *   <li>all instances referenced by any of the above, recursively.</li>
+ * </ul>
+ * Other relationships, such as those assigning property sets, are not
+ * extracted.
+ * </p>
+ * Instances of this class can be used to make several extractions from the
+ * same file, also concurrently.
+ */
+public class StepExtractor {
+    private static final String PROJECT = "IFCPROJECT";
+    private static final String OWNER_HISTORY = "IFCOWNERHISTORY";
+    private static final String CONTAINED_IN_SPATIAL_STRUCTURE =
+            "IFCRELCONTAINEDINSPATIALSTRUCTURE";
+    private static final String AGGREGATES = "IFCRELAGGREGATES";
+
+    private final StepFileIndex index;
+    private final Path file;
+    /**
+     * Position of each instance with a GlobalId, by GlobalId.
+     */
+    private final Map<String, Integer> roots = new HashMap<>();
+    /**
+     * Position of the relationships whose relating element is the instance in
+     * a given position.
+     */
+    private final Map<Integer, List<Integer>> relationshipsByRelating =
+            new HashMap<>();
+    /**
+     * Position of the IfcRelAggregates in which the instance in a given
+     * position is one of the parts.
+     */
+    private final Map<Integer, List<Integer>> aggregatesByPart =
+            new HashMap<>();
+
+    /**
+     * @param index The index of {@code file}.
+     * @param file  The IFC STEP file from which to extract subsets. It must not
+     *              be modified after {@code index} was built.
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public StepExtractor(@NonNull StepFileIndex index, @NonNull Path file) {
+        this.index = index;
+        this.file = file;
+        for (int i = 0; i < index.size(); i++) {
+            String globalId = index.getGlobalId(i);
+            if (globalId != null) {
+                roots.put(globalId, i);
+            }
+            String type = index.getType(i);
+            boolean aggregates = type.equals(AGGREGATES);
+            if (!aggregates && !type.equals(CONTAINED_IN_SPATIAL_STRUCTURE)) {
+                continue;
+            }
+            int relating = relatingReference(i);
+            if (relating < 0) {
+                continue;
+            }
+            relationshipsByRelating.computeIfAbsent(
+                    index.getReference(i, relating), k -> new ArrayList<>())
+                    .add(i);
+            if (aggregates) {
+                int count = index.getReferenceCount(i);
+                for (int r = relating + 1; r < count; r++) {
+                    aggregatesByPart.computeIfAbsent(index.getReference(i, r),
+                                                     k -> new ArrayList<>())
+                            .add(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Extracts the subset of the file defined by the given roots into a new
+     * file.
+     *
+     * @param header    The {@link Header} of the file to create. Even if it has
+     *                  already been set, its fileName will be set to the
+     *                  canonical path of {@code output}.
+     * @param globalIds The GlobalIds of the roots of the subset.
+     * @param output    The file to create.
+     * @return The number of instances extracted.
+     *
+     * @throws NullPointerException     If any of the arguments is null.
+     * @throws IllegalArgumentException If the file contains no instance with
+     *                                  one of the given GlobalIds.
+     * @throws IOException              If an I/O error occurs; if an instance
+     *                                  to extract references an instance which
+     *                                  the file doesn't contain.
+     */
+    public int extract(@NonNull Header header,
+                       @NonNull Collection<String> globalIds,
+                       @NonNull Path output) throws IOException {
+        BitSet selected = select(globalIds);
+
+        int[] newIds = new int[index.size()];
+        int count = 0;
+        for (int i = selected.nextSetBit(0); i >= 0;
+             i = selected.nextSetBit(i + 1)) {
+            newIds[i] = ++count;
+        }
+
+        header.setFileName(output.toFile().getCanonicalPath());
+        try (FileChannel channel = FileChannel.open(file,
+                                                    StandardOpenOption.READ);
+             OutputStream out =
+                     new BufferedOutputStream(Files.newOutputStream(output),
+                                              1 << 16)) {
+            out.write(("ISO-10303-21;\n" + header.serialize() + "DATA;\n")
+                              .getBytes(StandardCharsets.US_ASCII));
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            for (int i = selected.nextSetBit(0); i >= 0;
+                 i = selected.nextSetBit(i + 1)) {
+                int length = index.getLength(i);
+                if (buffer.capacity() < length) {
+                    buffer = ByteBuffer.allocate(
+                            Math.max(length, buffer.capacity() * 2));
+                }
+                buffer.clear().limit(length);
+                long offset = index.getOffset(i);
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, offset + buffer.position()) < 0) {
+                        throw new EOFException(
+                                file + " was truncated after being indexed");
+                    }
+                }
+                StepReader.writeRemapped(buffer.array(),
+                                         length,
+                                         id -> newIds[index.positionOf(id)],
+                                         out);
+                out.write('\n');
+            }
+            out.write("ENDSEC;\nEND-ISO-10303-21;\n"
+                              .getBytes(StandardCharsets.US_ASCII));
+        }
+        return count;
+    }
+
+    /**
+     * @return The positions of the instances making up the subset defined by
+     * the given roots.
+     */
+    private BitSet select(Collection<String> globalIds) throws IOException {
+        BitSet selected = new BitSet(index.size());
+        IntStack toVisit = new IntStack();
+        IntStack toDescend = new IntStack();
+        IntStack toAscend = new IntStack();
+        for (String globalId : globalIds) {
+            Integer root = roots.get(globalId);
+            if (root == null) {
+                throw new IllegalArgumentException(
+                        "no instance has GlobalId " + globalId);
+            }
+            toDescend.push(root);
+            toAscend.push(root);
+        }
+        for (int i = 0; i < index.size(); i++) {
+            if (index.getType(i).equals(PROJECT)) {
+                toVisit.push(i);
+            }
+        }
+
+        BitSet descended = new BitSet(index.size());
+        while (!toDescend.isEmpty()) {
+            int position = toDescend.pop();
+            toVisit.push(position);
+            if (descended.get(position)) {
+                continue;
+            }
+            descended.set(position);
+            for (int relationship : relationshipsByRelating.getOrDefault(
+                    position, Collections.emptyList())) {
+                toVisit.push(relationship);
+                int relating = relatingReference(relationship);
+                for (int r = 0; r < index.getReferenceCount(relationship);
+                     r++) {
+                    int part = index.getReference(relationship, r);
+                    if (r != relating && part >= 0 &&
+                            !index.getType(part).equals(OWNER_HISTORY)) {
+                        toDescend.push(part);
+                    }
+                }
+            }
+        }
+
+        BitSet ascended = new BitSet(index.size());
+        while (!toAscend.isEmpty()) {
+            int position = toAscend.pop();
+            if (ascended.get(position)) {
+                continue;
+            }
+            ascended.set(position);
+            for (int aggregate : aggregatesByPart.getOrDefault(
+                    position, Collections.emptyList())) {
+                // a dangling reference is reported when visiting aggregate
+                toVisit.push(aggregate);
+                int relating = index.getReference(aggregate,
+                                                  relatingReference(aggregate));
+                if (relating >= 0) {
+                    toAscend.push(relating);
+                }
+            }
+        }
+
+        while (!toVisit.isEmpty()) {
+            int position = toVisit.pop();
+            if (selected.get(position)) {
+                continue;
+            }
+            selected.set(position);
+            for (int r = 0; r < index.getReferenceCount(position); r++) {
+                int referenced = index.getReference(position, r);
+                if (referenced < 0) {
+                    throw new IOException(
+                            "instance #" + index.getId(position) +
+                                    " references an instance which doesn't " +
+                                    "exist");
+                }
+                if (!selected.get(referenced)) {
+                    toVisit.push(referenced);
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * @param relationship The position of an IfcRelContainedInSpatialStructure
+     *                     or IfcRelAggregates.
+     * @return The index among the references of the relationship of its
+     * RelatingStructure or RelatingObject, -1 if it has no references.
+     */
+    private int relatingReference(int relationship) {
+        int count = index.getReferenceCount(relationship);
+        if (count == 0) {
+            return -1;
+        }
+        String type = index.getType(relationship);
+        if (type.equals(CONTAINED_IN_SPATIAL_STRUCTURE)) {
+            // RelatingStructure is the last attribute
+            return count - 1;
+        }
+        // RelatingObject follows the optional OwnerHistory
+        int first = index.getReference(relationship, 0);
+        if (first >= 0 && index.getType(first).equals(OWNER_HISTORY)) {
+            return count > 1 ? 1 : -1;
+        }
+        return 0;
+    }
+
+    /**
+     * A growable stack of ints, used to avoid boxing.
+     */
+    private static class IntStack {
+        private int[] values = new int[64];
+        private int size;
+
+        private void push(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private int pop() {
+            return values[--size];
+        }
+
+        private boolean isEmpty() {
+            return size == 0;
+        }
+    }
+}
@@ -0,0 +1,795 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+/**
+ * A compact index of the entity instances contained in an IFC STEP file,
+ * built by streaming the file once. For each instance it contains its id, its
+ * type, its position and length in the file, the instances it references and
+ * a content hash; the attributes themselves are not kept in memory, so the
+ * memory used is proportional to the number of instances and references
+ * rather than to the size of the file. Parsing of the instances is split
+ * among all available cores.
+ * </p>
+ * Instances are identified by their position in the file (0 for the first
+ * instance, 1 for the second one and so on), use {@link #positionOf(int)} to
+ * find the position of an instance given its id.
+ * </p>
+ * The content hash of an instance ({@link #getHash(int)}) is normalized with
+ * respect to references: it is computed from the type and attributes of the
+ * instance, where each reference to another instance is replaced by the
+ * GlobalId of the referenced instance, if it has one, or otherwise by its
+ * content hash. Two instances have therefore the same hash when they have the
+ * same attributes and reference identical instances, even if the ids of the
+ * instances differ, as is the case when a model is exported again. Whitespace
+ * and comments outside of strings are ignored. In the rare case of cycles of
+ * references between instances without a GlobalId, each reference between two
+ * instances of the same cycle contributes the hash that the referenced
+ * instance would have if such references were ignored; hashes are therefore
+ * the same regardless of the order in which instances appear in the file.
+ * </p>
+ * Instances of this class are immutable and thus thread-safe.
+ */
+public class StepFileIndex {
+    /**
+     * Approximate number of bytes of instances parsed by each parallel task.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+    /**
+     * Maximum number of chunks read from the file and not parsed yet.
+     */
+    private static final int MAX_PENDING_CHUNKS =
+            2 * Runtime.getRuntime().availableProcessors();
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long DANGLING_REFERENCE = 0x6a09e667f3bcc909L;
+    private static final long CYCLE_REFERENCE = 0xbb67ae8584caa73bL;
+    private static final int GLOBAL_ID_LENGTH = 22;
+
+    private final int[] ids;
+    private final long[] offsets;
+    private final int[] lengths;
+    private final int[] types;
+    private final String[] typeNames;
+    private final String[] globalIds;
+    private final long[] localHashes;
+    /**
+     * The references of the instance in position {@code i} are stored in
+     * positions {@code referenceOffsets[i]} (included) to {@code
+     * referenceOffsets[i + 1]} (excluded) of {@code references}, as positions
+     * of the referenced instances (-1 if no instance has the referenced id).
+     */
+    private final int[] referenceOffsets;
+    private final int[] references;
+    /**
+     * Ids sorted in ascending order, and the position of the corresponding
+     * instance. Both are null if instances appear in the file in ascending
+     * order of id, as they usually do.
+     */
+    private final int[] sortedIds;
+    private final int[] sortedPositions;
+    private volatile long[] hashes;
+
+    private StepFileIndex(int[] ids,
+                          long[] offsets,
+                          int[] lengths,
+                          int[] types,
+                          String[] typeNames,
+                          String[] globalIds,
+                          long[] localHashes,
+                          int[] referenceOffsets,
+                          int[] referenceIds) throws IOException {
+        this.ids = ids;
+        this.offsets = offsets;
+        this.lengths = lengths;
+        this.types = types;
+        this.typeNames = typeNames;
+        this.globalIds = globalIds;
+        this.localHashes = localHashes;
+        this.referenceOffsets = referenceOffsets;
+
+        boolean ascending = true;
+        for (int i = 1; i < ids.length && ascending; i++) {
+            ascending = ids[i - 1] < ids[i];
+        }
+        if (ascending) {
+            sortedIds = null;
+            sortedPositions = null;
+        } else {
+            long[] packed = new long[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                packed[i] = ((long) ids[i] << 32) | i;
+            }
+            Arrays.sort(packed);
+            sortedIds = new int[ids.length];
+            sortedPositions = new int[ids.length];
+            for (int i = 0; i < packed.length; i++) {
+                sortedIds[i] = (int) (packed[i] >>> 32);
+                sortedPositions[i] = (int) packed[i];
+                if (i > 0 && sortedIds[i] == sortedIds[i - 1]) {
+                    throw new IOException(
+                            "id #" + sortedIds[i] + " is used by more than " +
+                                    "one instance");
+                }
+            }
+        }
+
+        references = referenceIds;
+        IntStream.range(0, references.length).parallel()
+                .forEach(i -> references[i] = positionOf(references[i]));
+    }
+
+    /**
+     * Builds the index of the given IFC STEP file.
+     *
+     * @param file The path of the file to index.
+     * @return The index of the file.
+     *
+     * @throws NullPointerException If file is null.
+     * @throws IOException          If an I/O error occurs; if the file ends in
+     *                              the middle of an instance; if the same id
+     *                              is used by more than one instance.
+     */
+    public static StepFileIndex build(@NonNull Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return build(input);
+        }
+    }
+
+    /**
+     * Builds the index of the IFC STEP file read from the given stream.
+     *
+     * @param input The stream from which to read the file. It is not closed by
+     *              this method.
+     * @return The index of the file.
+     *
+     * @throws NullPointerException If input is null.
+     * @throws IOException          If an I/O error occurs; if the file ends in
+     *                              the middle of an instance; if the same id
+     *                              is used by more than one instance.
+     */
+    public static StepFileIndex build(@NonNull InputStream input)
+            throws IOException {
+        StepReader reader = new StepReader(input);
+        Map<String, Integer> typeCodes = new HashMap<>();
+        Deque<CompletableFuture<Chunk>> pendingChunks = new ArrayDeque<>();
+        List<Chunk> chunks = new ArrayList<>();
+        try {
+            Chunk chunk = new Chunk();
+            while (reader.next()) {
+                if (!chunk.add(reader)) {
+                    parseAsync(chunk, typeCodes, pendingChunks, chunks);
+                    chunk = new Chunk();
+                    chunk.add(reader);
+                }
+            }
+            parseAsync(chunk, typeCodes, pendingChunks, chunks);
+            while (!pendingChunks.isEmpty()) {
+                chunks.add(pendingChunks.remove().join());
+            }
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause());
+        }
+
+        int size = 0;
+        int referencesCount = 0;
+        for (Chunk parsed : chunks) {
+            size += parsed.count;
+            referencesCount += parsed.referenceIds.size;
+        }
+
+        int[] ids = new int[size];
+        long[] offsets = new long[size];
+        int[] lengths = new int[size];
+        int[] types = new int[size];
+        String[] globalIds = new String[size];
+        long[] localHashes = new long[size];
+        int[] referenceOffsets = new int[size + 1];
+        int[] referenceIds = new int[referencesCount];
+        int position = 0;
+        int referencePosition = 0;
+        for (Chunk parsed : chunks) {
+            System.arraycopy(parsed.ids, 0, ids, position, parsed.count);
+            System.arraycopy(parsed.offsets, 0, offsets, position,
+                             parsed.count);
+            System.arraycopy(parsed.lengths, 0, lengths, position,
+                             parsed.count);
+            System.arraycopy(parsed.types, 0, types, position, parsed.count);
+            System.arraycopy(parsed.globalIds, 0, globalIds, position,
+                             parsed.count);
+            System.arraycopy(parsed.localHashes, 0, localHashes, position,
+                             parsed.count);
+            for (int i = 0; i < parsed.count; i++) {
+                referenceOffsets[position + i + 1] =
+                        referencePosition + parsed.referenceEnds[i];
+            }
+            System.arraycopy(parsed.referenceIds.values, 0, referenceIds,
+                             referencePosition, parsed.referenceIds.size);
+            position += parsed.count;
+            referencePosition += parsed.referenceIds.size;
+        }
+        // all parsing tasks have completed, no need to synchronize
+        String[] typeNames = new String[typeCodes.size()];
+        typeCodes.forEach((name, code) -> typeNames[code] = name);
+
+        return new StepFileIndex(ids,
+                                 offsets,
+                                 lengths,
+                                 types,
+                                 typeNames,
+                                 globalIds,
+                                 localHashes,
+                                 referenceOffsets,
+                                 referenceIds);
+    }
+
+    /**
+     * Starts parsing chunk in parallel, after waiting for the oldest pending
+     * chunk to be parsed if there are already {@link #MAX_PENDING_CHUNKS}, so
+     * that the whole file is never kept in memory.
+     *
+     * @param pendingChunks The chunks being parsed, in the order in which
+     *                      they were read. The new chunk is added at its end.
+     * @param chunks        The chunks already parsed, to which the chunks
+     *                      removed from pendingChunks are added.
+     * @throws CompletionException If parsing the oldest pending chunk fails.
+     */
+    private static void parseAsync(Chunk chunk,
+                                   Map<String, Integer> typeCodes,
+                                   Deque<CompletableFuture<Chunk>> pendingChunks,
+                                   List<Chunk> chunks) {
+        if (pendingChunks.size() >= MAX_PENDING_CHUNKS) {
+            chunks.add(pendingChunks.remove().join());
+        }
+        pendingChunks.add(CompletableFuture.supplyAsync(() -> {
+            chunk.parse(typeCodes);
+            return chunk;
+        }));
+    }
+
+    private static long hashByte(long hash, int b) {
+        return (hash ^ (b & 0xFF)) * FNV_PRIME;
+    }
+
+    private static long combine(long hash, long value) {
+        hash ^= value * 0xff51afd7ed558ccdL;
+        return Long.rotateLeft(hash, 27) * 0x9e3779b97f4a7c15L;
+    }
+
+    private static long finish(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        // zero marks hashes not computed yet
+        return hash == 0 ? 1 : hash;
+    }
+
+    private static long hashGlobalId(String globalId) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < globalId.length(); i++) {
+            hash = hashByte(hash, globalId.charAt(i));
+        }
+        return finish(hash);
+    }
+
+    private static boolean isGlobalIdChar(byte b) {
+        return (b >= '0' && b <= '9') || (b >= 'A' && b <= 'Z') ||
+                (b >= 'a' && b <= 'z') || b == '_' || b == '$';
+    }
+
+    private static int skipWhitespace(byte[] data, int i, int end) {
+        while (i < end && Character.isWhitespace(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return The number of instances in the file.
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The id of the instance.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public int getId(int position) {
+        return ids[position];
+    }
+
+    /**
+     * @param id The id of an instance, without the hash mark.
+     * @return The position of the instance having the given id, -1 if there is
+     * none.
+     */
+    public int positionOf(int id) {
+        if (sortedIds == null) {
+            int position = Arrays.binarySearch(ids, id);
+            return position >= 0 ? position : -1;
+        }
+        int position = Arrays.binarySearch(sortedIds, id);
+        return position >= 0 ? sortedPositions[position] : -1;
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The type of the instance, in upper case as it appears in the
+     * file (e.g. {@code "IFCWALL"}). For complex instances (i.e. those whose
+     * type is a combination of several types) an empty String is returned.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public String getType(int position) {
+        return typeNames[types[position]];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The position in the file of the first byte of the instance.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public long getOffset(int position) {
+        return offsets[position];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The number of bytes of the instance in the file, from the hash
+     * mark of its id to the semicolon terminating it.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public int getLength(int position) {
+        return lengths[position];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The GlobalId of the instance if it is a subtype of IfcRoot,
+     * {@code null} otherwise. An instance is considered a subtype of IfcRoot
+     * if its first attribute is a valid GlobalId and its second attribute (the
+     * OwnerHistory) is either a reference or unset.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public String getGlobalId(int position) {
+        return globalIds[position];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The number of references to other instances contained in the
+     * attributes of the instance.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public int getReferenceCount(int position) {
+        return referenceOffsets[position + 1] - referenceOffsets[position];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @param i        The index of the reference, in the order in which
+     *                 references appear in the instance.
+     * @return The position of the instance referenced, -1 if the file contains
+     * no instance with the referenced id.
+     *
+     * @throws IndexOutOfBoundsException If position is negative or not lower
+     *                                   than {@link #size()}; if i is negative
+     *                                   or not lower than {@link
+     *                                   #getReferenceCount(int)}.
+     */
+    public int getReference(int position, int i) {
+        if (i < 0 || i >= getReferenceCount(position)) {
+            throw new IndexOutOfBoundsException("reference " + i);
+        }
+        return references[referenceOffsets[position] + i];
+    }
+
+    /**
+     * @param position The position of an instance.
+     * @return The content hash of the instance, normalized with respect to the
+     * ids of the instances it references. Hashes of all instances are computed
+     * the first time this method is called.
+     *
+     * @throws ArrayIndexOutOfBoundsException If position is negative or not
+     *                                        lower than {@link #size()}.
+     */
+    public long getHash(int position) {
+        long[] hashes = this.hashes;
+        if (hashes == null) {
+            synchronized (this) {
+                hashes = this.hashes;
+                if (hashes == null) {
+                    hashes = computeHashes();
+                    this.hashes = hashes;
+                }
+            }
+        }
+        return hashes[position];
+    }
+
+    /**
+     * Computes the hashes of all instances, visiting the strongly connected
+     * components of the graph of references between instances without a
+     * GlobalId with Tarjan's algorithm. Components are found after all the
+     * components they reference, so each one is hashed as soon as it's found.
+     */
+    private long[] computeHashes() {
+        int size = size();
+        long[] hashes = new long[size];
+        // visit order of each instance starting from 1, 0 if not visited yet
+        int[] order = new int[size];
+        int[] lowLinks = new int[size];
+        // the component of each instance, -1 if not found yet
+        int[] components = new int[size];
+        Arrays.fill(components, -1);
+        int[] visited = new int[size];
+        int visitedCount = 0;
+        int[] stack = new int[16];
+        int[] nextReference = new int[16];
+        int visits = 0;
+        int componentCount = 0;
+        for (int root = 0; root < size; root++) {
+            if (order[root] != 0) {
+                continue;
+            }
+            order[root] = ++visits;
+            lowLinks[root] = visits;
+            visited[visitedCount++] = root;
+            stack[0] = root;
+            nextReference[0] = referenceOffsets[root];
+            int depth = 1;
+            while (depth > 0) {
+                int top = depth - 1;
+                int position = stack[top];
+                if (nextReference[top] < referenceOffsets[position + 1]) {
+                    int referenced = references[nextReference[top]++];
+                    if (referenced < 0 || globalIds[referenced] != null) {
+                        continue;
+                    }
+                    if (order[referenced] == 0) {
+                        if (depth == stack.length) {
+                            stack = Arrays.copyOf(stack, depth * 2);
+                            nextReference =
+                                    Arrays.copyOf(nextReference, depth * 2);
+                        }
+                        order[referenced] = ++visits;
+                        lowLinks[referenced] = visits;
+                        visited[visitedCount++] = referenced;
+                        stack[depth] = referenced;
+                        nextReference[depth] = referenceOffsets[referenced];
+                        depth++;
+                    } else if (components[referenced] < 0) {
+                        // still on the stack of visited instances
+                        lowLinks[position] =
+                                Math.min(lowLinks[position], order[referenced]);
+                    }
+                } else {
+                    depth--;
+                    if (depth > 0) {
+                        int parent = stack[depth - 1];
+                        lowLinks[parent] =
+                                Math.min(lowLinks[parent], lowLinks[position]);
+                    }
+                    if (lowLinks[position] == order[position]) {
+                        int start = visitedCount;
+                        do {
+                            start--;
+                            components[visited[start]] = componentCount;
+                        } while (visited[start] != position);
+                        hashComponent(visited, start, visitedCount,
+                                      componentCount, components, hashes);
+                        visitedCount = start;
+                        componentCount++;
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    /**
+     * Computes the hashes of the instances of a strongly connected component,
+     * whose members are in positions {@code start} (included) to {@code end}
+     * (excluded) of members. The hashes of all other components referenced by
+     * it must have been computed already.
+     */
+    private void hashComponent(int[] members,
+                               int start,
+                               int end,
+                               int component,
+                               int[] components,
+                               long[] hashes) {
+        boolean cyclic = false;
+        for (int i = start; i < end; i++) {
+            int position = members[i];
+            long hash = localHashes[position];
+            for (int r = referenceOffsets[position];
+                 r < referenceOffsets[position + 1]; r++) {
+                int referenced = references[r];
+                if (referenced >= 0 && components[referenced] == component) {
+                    cyclic = true;
+                    hash = combine(hash, CYCLE_REFERENCE);
+                } else {
+                    hash = combine(hash, referenceHash(referenced, hashes));
+                }
+            }
+            hashes[position] = finish(hash);
+        }
+        if (!cyclic) {
+            return;
+        }
+        long[] cycleHashes = new long[end - start];
+        for (int i = start; i < end; i++) {
+            int position = members[i];
+            long hash = localHashes[position];
+            for (int r = referenceOffsets[position];
+                 r < referenceOffsets[position + 1]; r++) {
+                hash = combine(hash, referenceHash(references[r], hashes));
+            }
+            cycleHashes[i - start] = finish(hash);
+        }
+        for (int i = start; i < end; i++) {
+            hashes[members[i]] = cycleHashes[i - start];
+        }
+    }
+
+    /**
+     * @return The value contributed to the hash of an instance by a reference
+     * to the instance in position referenced.
+     */
+    private long referenceHash(int referenced, long[] hashes) {
+        if (referenced < 0) {
+            return DANGLING_REFERENCE;
+        }
+        if (globalIds[referenced] != null) {
+            return hashGlobalId(globalIds[referenced]);
+        }
+        return hashes[referenced];
+    }
+
+    /**
+     * A group of consecutive instances, copied from the file so that they can
+     * be parsed in parallel with the reading of the following ones.
+     */
+    private static class Chunk {
+        private byte[] data = new byte[CHUNK_SIZE];
+        private int dataLength;
+        private int[] starts = new int[1024];
+        private long[] offsets = new long[1024];
+        private int[] lengths = new int[1024];
+        private int count;
+
+        private int[] ids;
+        private int[] types;
+        private String[] globalIds;
+        private long[] localHashes;
+        /**
+         * Position in referenceIds following the last reference of each
+         * instance.
+         */
+        private int[] referenceEnds;
+        private IntList referenceIds;
+
+        /**
+         * @return {@code false} if the instance doesn't fit in this chunk.
+         */
+        private boolean add(StepReader reader) {
+            int length = reader.getRecordLength();
+            if (dataLength + length > data.length) {
+                if (count > 0) {
+                    return false;
+                }
+                data = new byte[length];
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            System.arraycopy(reader.getRecord(), 0, data, dataLength, length);
+            starts[count] = dataLength;
+            offsets[count] = reader.getRecordOffset();
+            lengths[count] = length;
+            dataLength += length;
+            count++;
+            return true;
+        }
+
+        private void parse(Map<String, Integer> typeCodes) {
+            ids = new int[count];
+            types = new int[count];
+            globalIds = new String[count];
+            localHashes = new long[count];
+            referenceEnds = new int[count];
+            referenceIds = new IntList(count * 4);
+            Map<String, Integer> localTypeCodes = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                parseInstance(i, typeCodes, localTypeCodes);
+                referenceEnds[i] = referenceIds.size;
+            }
+            // the bytes are not needed anymore
+            data = null;
+        }
+
+        private void parseInstance(int instance,
+                                   Map<String, Integer> typeCodes,
+                                   Map<String, Integer> localTypeCodes) {
+            int start = starts[instance];
+            int end = start + lengths[instance];
+            int i = start + 1;
+            int id = 0;
+            while (i < end && StepReader.isDigit(data[i])) {
+                id = id * 10 + (data[i] - '0');
+                i++;
+            }
+            ids[instance] = id;
+            while (i < end && data[i] != '=') {
+                i++;
+            }
+            int attributesStart = ++i;
+
+            i = skipWhitespace(data, i, end);
+            int typeStart = i;
+            while (i < end && (Character.isLetterOrDigit(data[i]) ||
+                    data[i] == '_')) {
+                i++;
+            }
+            String type = new String(data,
+                                     typeStart,
+                                     i - typeStart,
+                                     StandardCharsets.US_ASCII);
+            Integer code = localTypeCodes.get(type);
+            if (code == null) {
+                synchronized (typeCodes) {
+                    code = typeCodes.computeIfAbsent(type,
+                                                     t -> typeCodes.size());
+                }
+                localTypeCodes.put(type, code);
+            }
+            types[instance] = code;
+            globalIds[instance] = parseGlobalId(i, end);
+
+            long hash = FNV_OFFSET_BASIS;
+            i = attributesStart;
+            while (i < end) {
+                byte b = data[i];
+                if (b == '\'') {
+                    int stringEnd = StepReader.skipString(data, i, end);
+                    for (; i < stringEnd; i++) {
+                        hash = hashByte(hash, data[i]);
+                    }
+                } else if (b == '/' && i + 1 < end && data[i + 1] == '*') {
+                    i += 2;
+                    while (i + 1 < end &&
+                            !(data[i] == '*' && data[i + 1] == '/')) {
+                        i++;
+                    }
+                    i += 2;
+                } else if (b == '#' && i + 1 < end &&
+                        StepReader.isDigit(data[i + 1])) {
+                    hash = hashByte(hash, b);
+                    int referencedId = 0;
+                    i++;
+                    while (i < end && StepReader.isDigit(data[i])) {
+                        referencedId = referencedId * 10 + (data[i] - '0');
+                        i++;
+                    }
+                    referenceIds.add(referencedId);
+                } else {
+                    if (!Character.isWhitespace(b)) {
+                        hash = hashByte(hash, b);
+                    }
+                    i++;
+                }
+            }
+            localHashes[instance] = hash;
+        }
+
+        /**
+         * @param i   The position following the type of the instance.
+         * @param end The position following the last byte of the instance.
+         * @return The first attribute of the instance if it looks like the
+         * GlobalId of an IfcRoot, null otherwise.
+         */
+        private String parseGlobalId(int i, int end) {
+            i = skipWhitespace(data, i, end);
+            if (i >= end || data[i] != '(') {
+                return null;
+            }
+            i = skipWhitespace(data, i + 1, end);
+            if (i >= end || data[i] != '\'') {
+                return null;
+            }
+            int valueStart = i + 1;
+            int valueEnd = valueStart + GLOBAL_ID_LENGTH;
+            if (valueEnd >= end || data[valueEnd] != '\'') {
+                return null;
+            }
+            for (int j = valueStart; j < valueEnd; j++) {
+                if (!isGlobalIdChar(data[j])) {
+                    return null;
+                }
+            }
+            i = skipWhitespace(data, valueEnd + 1, end);
+            if (i >= end || data[i] != ',') {
+                return null;
+            }
+            i = skipWhitespace(data, i + 1, end);
+            if (i >= end || (data[i] != '#' && data[i] != '$')) {
+                return null;
+            }
+            return new String(data,
+                              valueStart,
+                              GLOBAL_ID_LENGTH,
+                              StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * A growable list of ints, used to avoid boxing.
+     */
+    private static class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            values = new int[Math.max(capacity, 8)];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
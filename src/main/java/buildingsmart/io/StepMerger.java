@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import lombok.NonNull;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Merges several IFC STEP files into one, streaming the instances of each file
+ * directly to the merged file instead of loading them into memory as entities
+ * and serializing them again. This is useful to federate the models of
+ * different disciplines.
+ * </p>
+ * Ids are renumbered so that they're unique in the merged file, and instances
+ * shared between files are written only once:
+ * <ul>
+ *   <li>
+ *     all instances of IfcProject are replaced by the first one found, so
+ *     that the spatial structures of all files become part of the same tree;
+ *   </li>
+ *   <li>
+ *     an instance with a GlobalId (i.e. a subtype of IfcRoot) is replaced by
+ *     the first instance with the same GlobalId found, so that for example
+ *     the same IfcBuilding contained in several files is written only once;
+ *   </li>
+ *   <li>
+ *     an instance without a GlobalId is replaced by the first instance with
+ *     the same content hash found (see {@link StepFileIndex}), so that
+ *     identical owner histories, units, representation contexts and so on are
+ *     written only once.
+ *   </li>
+ * </ul>
+ * Each input file is read twice: once to index it, which is done for all
+ * files in parallel, and once to copy its instances. The memory used is
+ * proportional to the total number of instances, not to the size of the
+ * files.
+ */
+public class StepMerger {
+    private static final String PROJECT = "IFCPROJECT";
+
+    private StepMerger() {}
+
+    /**
+     * Merges IFC STEP files into a new file.
+     *
+     * @param header The {@link Header} of the file to create. Even if it has
+     *               already been set, its fileName will be set to the
+     *               canonical path of {@code output}.
+     * @param inputs The files to merge. When instances are replaced by
+     *               identical ones, those contained in the files listed first
+     *               are kept.
+     * @param output The file to create.
+     * @return The number of instances written to the merged file.
+     *
+     * @throws NullPointerException If any of the arguments is null, or if any
+     *                              of the inputs is null.
+     * @throws IOException          If an I/O error occurs; if any of the
+     *                              inputs is malformed or references an
+     *                              instance which it doesn't contain.
+     */
+    public static int merge(@NonNull Header header,
+                            @NonNull List<Path> inputs,
+                            @NonNull Path output) throws IOException {
+        List<CompletableFuture<StepFileIndex>> futures = new ArrayList<>();
+        for (Path input : inputs) {
+            if (input == null) {
+                throw new NullPointerException("inputs contains null");
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return StepFileIndex.build(input);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        List<StepFileIndex> indexes = new ArrayList<>(inputs.size());
+        try {
+            for (CompletableFuture<StepFileIndex> future : futures) {
+                indexes.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+
+        // new ids of the instances of each file, by position; negative if
+        // the instance is replaced by the one having the opposite id
+        List<int[]> newIds = new ArrayList<>(indexes.size());
+        Map<String, Integer> idsByGlobalId = new HashMap<>();
+        LongIntMap idsByHash = new LongIntMap();
+        int projectId = 0;
+        int lastId = 0;
+        for (int f = 0; f < indexes.size(); f++) {
+            StepFileIndex index = indexes.get(f);
+            int[] ids = new int[index.size()];
+            for (int i = 0; i < index.size(); i++) {
+                for (int r = 0; r < index.getReferenceCount(i); r++) {
+                    if (index.getReference(i, r) < 0) {
+                        throw new IOException(
+                                inputs.get(f) + ": instance #" +
+                                        index.getId(i) + " references an " +
+                                        "instance which doesn't exist");
+                    }
+                }
+                String globalId = index.getGlobalId(i);
+                int existing;
+                if (PROJECT.equals(index.getType(i)) && projectId != 0) {
+                    existing = projectId;
+                } else if (globalId != null) {
+                    Integer id = idsByGlobalId.get(globalId);
+                    existing = id == null ? 0 : id;
+                } else {
+                    existing = idsByHash.get(index.getHash(i));
+                }
+                if (existing != 0) {
+                    ids[i] = -existing;
+                    continue;
+                }
+                ids[i] = ++lastId;
+                if (globalId != null) {
+                    idsByGlobalId.put(globalId, lastId);
+                } else {
+                    idsByHash.put(index.getHash(i), lastId);
+                }
+                if (projectId == 0 && PROJECT.equals(index.getType(i))) {
+                    projectId = lastId;
+                }
+            }
+            newIds.add(ids);
+        }
+
+        header.setFileName(output.toFile().getCanonicalPath());
+        try (OutputStream out =
+                     new BufferedOutputStream(Files.newOutputStream(output),
+                                              1 << 16)) {
+            out.write(("ISO-10303-21;\n" + header.serialize() + "DATA;\n")
+                              .getBytes(StandardCharsets.US_ASCII));
+            for (int f = 0; f < indexes.size(); f++) {
+                copy(inputs.get(f), indexes.get(f), newIds.get(f), out);
+            }
+            out.write("ENDSEC;\nEND-ISO-10303-21;\n"
+                              .getBytes(StandardCharsets.US_ASCII));
+        }
+        return lastId;
+    }
+
+    /**
+     * Copies the instances of a file which aren't replaced by others,
+     * rewriting their ids.
+     */
+    private static void copy(Path input,
+                             StepFileIndex index,
+                             int[] newIds,
+                             OutputStream out) throws IOException {
+        try (InputStream in = Files.newInputStream(input)) {
+            StepReader reader = new StepReader(in);
+            for (int i = 0; reader.next(); i++) {
+                if (newIds[i] < 0) {
+                    continue;
+                }
+                StepReader.writeRemapped(reader.getRecord(),
+                                         reader.getRecordLength(),
+                                         id -> Math.abs(
+                                                 newIds[index.positionOf(id)]),
+                                         out);
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * A hash map from long keys to positive int values, without boxing. 0 is
+     * returned for missing keys.
+     */
+    private static class LongIntMap {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        private int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); values[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return 0;
+        }
+
+        private void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = new int[oldValues.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldValues[i] != 0) {
+                        put(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (values[i] != 0 && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (values[i] == 0) {
+                size++;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) (key ^ (key >>> 32)) & mask;
+        }
+    }
+}
@@ -0,0 +1,449 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Reads the entity instances contained in the DATA sections of an IFC STEP
+ * file one at a time, without parsing their attributes and without keeping
+ * more than one instance in memory. This makes it possible to process files
+ * much bigger than the available heap.
+ * </p>
+ * Each call to {@link #next()} makes the bytes of the following instance
+ * available through {@link #getRecord()}, from the hash mark of its id up to
+ * the semicolon terminating it (included), exactly as they appear in the file.
+ * The array returned by {@link #getRecord()} is reused by the following call
+ * to {@link #next()}.
+ * </p>
+ * Strings are recognized when quotes are escaped by doubling them, as
+ * required by ISO 10303-21, and the control directives of ISO 10303-21
+ * ({@code \X\hh}, {@code \X2\...\X0\}, {@code \X4\...\X0\},
+ * {@code \S\} and {@code \P?\}) are skipped as a whole. The escapes
+ * {@code \'} and {@code \\} written by {@link
+ * buildingsmart.util.Functions#formatForStepFile(String)} are also accepted;
+ * any other backslash is taken literally.
+ */
+public class StepReader {
+    private static final int BUFFER_SIZE = 1 << 16;
+    /*
+     * States of the scanner of strings, see stringState(int, int).
+     */
+    private static final int TEXT = 0;
+    private static final int QUOTE = 1;
+    private static final int BACKSLASH = 2;
+    private static final int DIRECTIVE_X = 3;
+    private static final int HEX_DIGIT_1 = 4;
+    private static final int HEX_DIGIT_2 = 5;
+    private static final int WIDE_START = 6;
+    private static final int WIDE = 7;
+    private static final int WIDE_END = 8;
+    private static final int WIDE_END_X = 9;
+    private static final int WIDE_END_0 = 10;
+    private static final int DIRECTIVE_S = 11;
+    private static final int DIRECTIVE_P = 12;
+    private static final int CODE_PAGE = 13;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final StringBuilder keyword = new StringBuilder();
+    private int bufferPosition;
+    private int bufferLimit;
+    /**
+     * Position in the file of the byte at {@code buffer[0]}.
+     */
+    private long bufferOffset;
+    private byte[] record = new byte[256];
+    private int recordLength;
+    private long recordOffset;
+    private boolean inData;
+    private boolean keywordEnded;
+    private boolean finished;
+
+    /**
+     * @param input The stream from which to read the STEP file. It is not
+     *              closed by this class. There's no need to buffer it.
+     * @throws NullPointerException If input is null.
+     */
+    public StepReader(@NonNull InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * Rewrites the references to other instances contained in the given
+     * instance, including the id of the instance itself, and writes the result
+     * to the given stream. Strings are copied unchanged.
+     *
+     * @param record  The bytes of an instance, as returned by {@link
+     *                #getRecord()}.
+     * @param length  The number of bytes of the instance in record.
+     * @param mapping Function returning the new id for each id found in the
+     *                instance.
+     * @param output  The stream where to write the rewritten instance.
+     * @throws NullPointerException If any of the arguments is null.
+     * @throws IOException          If an I/O error occurs.
+     */
+    public static void writeRemapped(@NonNull byte[] record,
+                                     int length,
+                                     @NonNull IntUnaryOperator mapping,
+                                     @NonNull OutputStream output)
+            throws IOException {
+        int copyFrom = 0;
+        int i = 0;
+        while (i < length) {
+            byte b = record[i];
+            if (b == '\'') {
+                i = skipString(record, i, length);
+            } else if (b == '#' && i + 1 < length && isDigit(record[i + 1])) {
+                output.write(record, copyFrom, i + 1 - copyFrom);
+                int id = 0;
+                i++;
+                while (i < length && isDigit(record[i])) {
+                    id = id * 10 + (record[i] - '0');
+                    i++;
+                }
+                writeInt(mapping.applyAsInt(id), output);
+                copyFrom = i;
+            } else {
+                i++;
+            }
+        }
+        output.write(record, copyFrom, length - copyFrom);
+    }
+
+    /**
+     * @param record The bytes of an instance.
+     * @param quote  The position of the quote opening a string in record.
+     * @param length The number of bytes of the instance in record.
+     * @return The position following the quote closing the string.
+     */
+    static int skipString(byte[] record, int quote, int length) {
+        int state = TEXT;
+        int i = quote + 1;
+        while (i < length) {
+            state = stringState(state, record[i]);
+            if (state != QUOTE) {
+                i++;
+            } else if (i + 1 < length && record[i + 1] == '\'') {
+                state = TEXT;
+                i += 2;
+            } else {
+                return i + 1;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Advances the scanner of the content of a string by one byte.
+     *
+     * @param state The state of the scanner before b, {@link #TEXT} for the
+     *              first byte following the opening quote.
+     * @param b     The next byte of the string.
+     * @return The state of the scanner after b, {@link #QUOTE} if b is a quote
+     * outside of any directive, which either closes the string or is doubled.
+     * The bytes of directives which turn out to be malformed are taken
+     * literally.
+     */
+    private static int stringState(int state, int b) {
+        switch (state) {
+            case BACKSLASH:
+                if (b == '\\' || b == '\'') {
+                    // legacy escapes written by Functions.formatForStepFile
+                    return TEXT;
+                }
+                if (b == 'X') {
+                    return DIRECTIVE_X;
+                }
+                if (b == 'S') {
+                    return DIRECTIVE_S;
+                }
+                if (b == 'P') {
+                    return DIRECTIVE_P;
+                }
+                break;
+            case DIRECTIVE_X:
+                if (b == '\\') {
+                    return HEX_DIGIT_1;
+                }
+                if (b == '2' || b == '4') {
+                    return WIDE_START;
+                }
+                break;
+            case HEX_DIGIT_1:
+                if (isHexDigit(b)) {
+                    return HEX_DIGIT_2;
+                }
+                break;
+            case HEX_DIGIT_2:
+                if (isHexDigit(b)) {
+                    return TEXT;
+                }
+                break;
+            case WIDE_START:
+                if (b == '\\') {
+                    return WIDE;
+                }
+                break;
+            case WIDE:
+                if (isHexDigit(b)) {
+                    return WIDE;
+                }
+                if (b == '\\') {
+                    return WIDE_END;
+                }
+                break;
+            case WIDE_END:
+                if (b == 'X') {
+                    return WIDE_END_X;
+                }
+                break;
+            case WIDE_END_X:
+                if (b == '0') {
+                    return WIDE_END_0;
+                }
+                break;
+            case WIDE_END_0:
+            case DIRECTIVE_S:
+            case CODE_PAGE:
+                if (b == '\\') {
+                    return TEXT;
+                }
+                break;
+            case DIRECTIVE_P:
+                if (b >= 'A' && b <= 'I') {
+                    return CODE_PAGE;
+                }
+                break;
+            default:
+                break;
+        }
+        if (b == '\'') {
+            return QUOTE;
+        }
+        return b == '\\' ? BACKSLASH : TEXT;
+    }
+
+    private static boolean isHexDigit(int b) {
+        return (b >= '0' && b <= '9') || (b >= 'A' && b <= 'F') ||
+                (b >= 'a' && b <= 'f');
+    }
+
+    static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private static void writeInt(int value, OutputStream output)
+            throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("ids must be positive");
+        }
+        byte[] digits = new byte[10];
+        int position = digits.length;
+        do {
+            digits[--position] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        output.write(digits, position, digits.length - position);
+    }
+
+    /**
+     * Reads the next instance.
+     *
+     * @return {@code true} if an instance was read, {@code false} if the end
+     * of the file was reached.
+     *
+     * @throws IOException If an I/O error occurs, or if the file ends in the
+     *                     middle of an instance.
+     */
+    public boolean next() throws IOException {
+        while (!finished) {
+            int b = read();
+            if (b < 0) {
+                finished = true;
+                return false;
+            }
+            if (b == '/' && peek() == '*') {
+                skipComment();
+            } else if (b == '\'') {
+                skipString();
+                keyword.setLength(0);
+            } else if (inData && b == '#') {
+                readRecord();
+                return true;
+            } else if (Character.isLetterOrDigit(b) || b == '_' || b == '-') {
+                if (keywordEnded) {
+                    keyword.setLength(0);
+                    keywordEnded = false;
+                }
+                keyword.append((char) b);
+            } else if (Character.isWhitespace(b)) {
+                keywordEnded = true;
+            } else {
+                if (b == ';') {
+                    String word = keyword.toString();
+                    if (word.equals("DATA")) {
+                        inData = true;
+                    } else if (word.equals("ENDSEC")) {
+                        inData = false;
+                    }
+                }
+                keyword.setLength(0);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return The bytes of the last instance read, from the hash mark of its
+     * id to the semicolon terminating it. Only the first {@link
+     * #getRecordLength()} bytes are valid.
+     */
+    public byte[] getRecord() {
+        return record;
+    }
+
+    /**
+     * @return The number of bytes of the last instance read.
+     */
+    public int getRecordLength() {
+        return recordLength;
+    }
+
+    /**
+     * @return The position in the file of the first byte of the last instance
+     * read.
+     */
+    public long getRecordOffset() {
+        return recordOffset;
+    }
+
+    private void readRecord() throws IOException {
+        recordOffset = bufferOffset + bufferPosition - 1;
+        recordLength = 0;
+        append((byte) '#');
+        int depth = 0;
+        while (true) {
+            int b = read();
+            if (b < 0) {
+                throw new IOException(
+                        "the file ends inside the instance starting at byte " +
+                                recordOffset);
+            }
+            append((byte) b);
+            if (b == '\'') {
+                readString();
+            } else if (b == '(') {
+                depth++;
+            } else if (b == ')') {
+                depth--;
+            } else if (b == ';' && depth <= 0) {
+                return;
+            }
+        }
+    }
+
+    private void readString() throws IOException {
+        int state = TEXT;
+        while (true) {
+            int b = read();
+            if (b < 0) {
+                return;
+            }
+            append((byte) b);
+            state = stringState(state, b);
+            if (state == QUOTE) {
+                if (peek() != '\'') {
+                    return;
+                }
+                append((byte) read());
+                state = TEXT;
+            }
+        }
+    }
+
+    private void skipString() throws IOException {
+        int state = TEXT;
+        while (true) {
+            int b = read();
+            if (b < 0) {
+                return;
+            }
+            state = stringState(state, b);
+            if (state == QUOTE) {
+                if (peek() != '\'') {
+                    return;
+                }
+                read();
+                state = TEXT;
+            }
+        }
+    }
+
+    private void skipComment() throws IOException {
+        read(); // the asterisk
+        int previous = 0;
+        int b;
+        while ((b = read()) >= 0) {
+            if (previous == '*' && b == '/') {
+                return;
+            }
+            previous = b;
+        }
+    }
+
+    private void append(byte b) {
+        if (recordLength == record.length) {
+            record = Arrays.copyOf(record, recordLength * 2);
+        }
+        record[recordLength++] = b;
+    }
+
+    private int read() throws IOException {
+        if (bufferPosition == bufferLimit && !fill()) {
+            return -1;
+        }
+        return buffer[bufferPosition++] & 0xFF;
+    }
+
+    private int peek() throws IOException {
+        if (bufferPosition == bufferLimit && !fill()) {
+            return -1;
+        }
+        return buffer[bufferPosition] & 0xFF;
+    }
+
+    private boolean fill() throws IOException {
+        bufferOffset += bufferLimit;
+        bufferPosition = 0;
+        bufferLimit = 0;
+        int read = input.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        bufferLimit = read;
+        return true;
+    }
+}
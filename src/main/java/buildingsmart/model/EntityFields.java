@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.io.Attribute;
+import buildingsmart.io.Entity;
+import buildingsmart.io.InverseRelationship;
+import lombok.NonNull;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cached reflective access to the fields of an {@link Entity} which may
+ * reference other entities, meaning the ones annotated with {@link Attribute}
+ * or {@link InverseRelationship}. Looking up and sorting the fields of a class
+ * is done only once per class, so that walking large models doesn't spend
+ * most of its time in {@link Class#getDeclaredFields()}.
+ */
+final class EntityFields {
+    private static final Map<Class<?>, Field[]> attributes =
+            new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Field[]> inverseRelationships =
+            new ConcurrentHashMap<>();
+
+    private EntityFields() {}
+
+    /**
+     * @param type The class for which to return the fields.
+     * @return The fields of {@code type} and all its superclasses annotated
+     * with {@link Attribute}, sorted in the order in which they're serialized.
+     * The fields are already accessible.
+     *
+     * @throws NullPointerException If type is null.
+     */
+    static Field[] attributes(@NonNull Class<?> type) {
+        return attributes.computeIfAbsent(type, t -> {
+            List<Field> fields = getAnnotatedFields(t, Attribute.class);
+            fields.sort((field1, field2) ->
+                    field1.getAnnotation(Attribute.class).value() -
+                            field2.getAnnotation(Attribute.class).value());
+            return fields.toArray(new Field[0]);
+        });
+    }
+
+    /**
+     * @param type The class for which to return the fields.
+     * @return The fields of {@code type} and all its superclasses annotated
+     * with {@link InverseRelationship}. The fields are already accessible.
+     *
+     * @throws NullPointerException If type is null.
+     */
+    static Field[] inverseRelationships(@NonNull Class<?> type) {
+        return inverseRelationships.computeIfAbsent(type, t ->
+                getAnnotatedFields(t, InverseRelationship.class)
+                        .toArray(new Field[0]));
+    }
+
+    /**
+     * @param entity The entity owning the field.
+     * @param field  One of the fields returned by {@link #attributes(Class)}
+     *               or {@link #inverseRelationships(Class)}.
+     * @return The value of the field in {@code entity}.
+     */
+    static Object get(Entity entity, Field field) {
+        try {
+            return field.get(entity);
+        } catch (IllegalAccessException e) {
+            // this cannot happen as field was set accessible
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Calls {@code action} on every Entity contained in {@code value}, which is
+     * the value of a field of an Entity: values that are neither an Entity nor
+     * a Collection (such as Defined Types) are ignored.
+     *
+     * @param value  The value of the field.
+     * @param action The action to perform on each referenced Entity.
+     */
+    static void forEachEntity(Object value, Consumer<Entity> action) {
+        if (value instanceof Entity) {
+            action.accept((Entity) value);
+        } else if (value instanceof Collection) {
+            for (Object element : (Collection<?>) value) {
+                if (element instanceof Entity) {
+                    action.accept((Entity) element);
+                }
+            }
+        }
+    }
+
+    private static List<Field> getAnnotatedFields(
+            Class<?> type, Class<? extends Annotation> annotation) {
+        List<Field> fields = new ArrayList<>();
+        do {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(annotation)) {
+                    field.setAccessible(true);
+                    fields.add(field);
+                }
+            }
+            type = type.getSuperclass();
+        } while (type != null);
+        return fields;
+    }
+}
@@ -0,0 +1,418 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import lombok.NonNull;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of the GlobalIds used by the instances of {@link
+ * buildingsmart.ifc.IfcRoot} seen so far, to enforce their uniqueness. Each
+ * {@link Model} has its own registry, which checks the instances of IfcRoot
+ * added to the model or created while it's the current one, so GlobalIds need
+ * to be unique only within a model and are forgotten together with it. Instances of IfcRoot created while no model
+ * is current are checked by a single default registry, see {@link
+ * buildingsmart.ifc.IfcRoot#setDefaultGlobalIdRegistry(GlobalIdRegistry)}.
+ * </p>
+ * Three kinds of registries are available:
+ * <ul>
+ *   <li>
+ *     {@link #concurrent()}, which stores all GlobalIds and never rejects a
+ *     unique one;
+ *   </li>
+ *   <li>
+ *     {@link #bloomFilter(long, double)}, which uses a fixed and much smaller
+ *     amount of memory, but rejects a unique GlobalId with a given
+ *     probability;
+ *   </li>
+ *   <li>
+ *     {@link #disabled()}, which accepts all GlobalIds, to be used only when
+ *     loading data known to be valid.
+ *   </li>
+ * </ul>
+ * All registries are thread-safe.
+ */
+public abstract class GlobalIdRegistry {
+
+    /**
+     * @return A new registry storing all GlobalIds as pairs of longs, in a set
+     * split into independently locked segments, so that instances of IfcRoot
+     * can be created from several threads with little contention.
+     */
+    public static GlobalIdRegistry concurrent() {
+        return new Concurrent();
+    }
+
+    /**
+     * @param expectedGlobalIds        The number of GlobalIds expected to be
+     *                                 registered.
+     * @param falsePositiveProbability The probability that a unique GlobalId is
+     *                                 rejected, once the expected number of
+     *                                 GlobalIds was registered.
+     * @return A new registry backed by a Bloom filter sized for the given
+     * number of GlobalIds and probability of false positives.
+     *
+     * @throws IllegalArgumentException If expectedGlobalIds is not positive;
+     *                                  if falsePositiveProbability is not
+     *                                  between 0 and 1 (both excluded).
+     */
+    public static GlobalIdRegistry bloomFilter(long expectedGlobalIds,
+                                               double falsePositiveProbability) {
+        if (expectedGlobalIds <= 0) {
+            throw new IllegalArgumentException(
+                    "expectedGlobalIds must be positive");
+        }
+        if (!(falsePositiveProbability > 0 && falsePositiveProbability < 1)) {
+            throw new IllegalArgumentException(
+                    "falsePositiveProbability must be between 0 and 1");
+        }
+        return new BloomFilter(expectedGlobalIds, falsePositiveProbability);
+    }
+
+    /**
+     * @return A registry which accepts all GlobalIds, even duplicate ones.
+     */
+    public static GlobalIdRegistry disabled() {
+        return Disabled.INSTANCE;
+    }
+
+    /**
+     * @return The hash of all the bits of a GlobalId, including the ones
+     * exceeding 128.
+     */
+    private static long hash(long high, long low, int excess) {
+        return mix(high ^ Long.rotateLeft(low, 29) ^
+                (excess * 0x9e3779b97f4a7c15L));
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Registers a GlobalId.
+     *
+     * @param globalId The GlobalId to register.
+     * @return {@code true} if globalId was registered, {@code false} if it had
+     * already been registered (or, for registries backed by a Bloom filter,
+     * might have been).
+     *
+     * @throws NullPointerException If globalId is null.
+     */
+    public abstract boolean add(IfcGloballyUniqueId globalId);
+
+    /**
+     * Registers several GlobalIds at once, either all of them or none.
+     * </p>
+     * The default implementation registers them one at a time, so it might
+     * register some of them even if it returns {@code false}. Registries
+     * returned by the factory methods of this class never do.
+     *
+     * @param globalIds The GlobalIds to register.
+     * @return {@code true} if all the GlobalIds were registered, {@code false}
+     * if any of them had already been registered (or might have been), or
+     * appears more than once in globalIds, in which case none of them was
+     * registered.
+     *
+     * @throws NullPointerException If globalIds is null or contains null.
+     */
+    public boolean addAll(@NonNull Collection<IfcGloballyUniqueId> globalIds) {
+        for (IfcGloballyUniqueId globalId : globalIds) {
+            if (!add(globalId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Forgets all the GlobalIds registered.
+     */
+    public abstract void clear();
+
+    private static class Concurrent extends GlobalIdRegistry {
+        private static final int SEGMENTS = 64;
+        private final Segment[] segments = new Segment[SEGMENTS];
+
+        private Concurrent() {
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment();
+            }
+        }
+
+        @Override
+        public boolean add(@NonNull IfcGloballyUniqueId globalId) {
+            long high = globalId.getMostSignificantBits();
+            long low = globalId.getLeastSignificantBits();
+            int excess = globalId.getExcessBits();
+            long hash = hash(high, low, excess);
+            Segment segment = segments[(int) (hash >>> 58)];
+            synchronized (segment) {
+                return segment.add(high, low, excess, (int) hash);
+            }
+        }
+
+        @Override
+        public boolean addAll(
+                @NonNull Collection<IfcGloballyUniqueId> globalIds) {
+            List<IfcGloballyUniqueId> added = new ArrayList<>(globalIds.size());
+            for (IfcGloballyUniqueId globalId : globalIds) {
+                if (!add(globalId)) {
+                    added.forEach(this::remove);
+                    return false;
+                }
+                added.add(globalId);
+            }
+            return true;
+        }
+
+        private void remove(IfcGloballyUniqueId globalId) {
+            long high = globalId.getMostSignificantBits();
+            long low = globalId.getLeastSignificantBits();
+            int excess = globalId.getExcessBits();
+            long hash = hash(high, low, excess);
+            Segment segment = segments[(int) (hash >>> 58)];
+            synchronized (segment) {
+                segment.remove(high, low, excess, (int) hash);
+            }
+        }
+
+        @Override
+        public void clear() {
+            for (Segment segment : segments) {
+                synchronized (segment) {
+                    segment.clear();
+                }
+            }
+        }
+    }
+
+    /**
+     * An open addressing hash set of pairs of longs, each with the bits of the
+     * GlobalId exceeding 128.
+     */
+    private static class Segment {
+        private static final int INITIAL_CAPACITY = 64;
+        private long[] keys = new long[2 * INITIAL_CAPACITY];
+        /**
+         * For each slot, 0 if it's empty, otherwise the excess bits of its
+         * key plus 1.
+         */
+        private byte[] tags = new byte[INITIAL_CAPACITY];
+        private int size;
+
+        private boolean add(long high, long low, int excess, int hash) {
+            if (2 * (size + 1) > tags.length) {
+                grow();
+            }
+            int mask = tags.length - 1;
+            int i = hash & mask;
+            byte tag = (byte) (excess + 1);
+            while (tags[i] != 0) {
+                if (keys[2 * i] == high && keys[2 * i + 1] == low &&
+                        tags[i] == tag) {
+                    return false;
+                }
+                i = (i + 1) & mask;
+            }
+            tags[i] = tag;
+            keys[2 * i] = high;
+            keys[2 * i + 1] = low;
+            size++;
+            return true;
+        }
+
+        private void remove(long high, long low, int excess, int hash) {
+            int mask = tags.length - 1;
+            int i = hash & mask;
+            byte tag = (byte) (excess + 1);
+            while (tags[i] != 0 && (keys[2 * i] != high ||
+                    keys[2 * i + 1] != low || tags[i] != tag)) {
+                i = (i + 1) & mask;
+            }
+            if (tags[i] == 0) {
+                return;
+            }
+            // moves back the following keys of the cluster which would no
+            // longer be found, as their probe sequence crosses the empty slot
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                if (tags[j] == 0) {
+                    break;
+                }
+                int home = (int) hash(keys[2 * j], keys[2 * j + 1],
+                                      tags[j] - 1) & mask;
+                boolean reachable = i <= j ? i < home && home <= j :
+                        i < home || home <= j;
+                if (!reachable) {
+                    keys[2 * i] = keys[2 * j];
+                    keys[2 * i + 1] = keys[2 * j + 1];
+                    tags[i] = tags[j];
+                    i = j;
+                }
+            }
+            tags[i] = 0;
+            size--;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            byte[] oldTags = tags;
+            keys = new long[oldKeys.length * 2];
+            tags = new byte[oldTags.length * 2];
+            size = 0;
+            for (int i = 0; i < oldTags.length; i++) {
+                if (oldTags[i] != 0) {
+                    long high = oldKeys[2 * i];
+                    long low = oldKeys[2 * i + 1];
+                    int excess = oldTags[i] - 1;
+                    add(high, low, excess, (int) hash(high, low, excess));
+                }
+            }
+        }
+
+        private void clear() {
+            keys = new long[2 * INITIAL_CAPACITY];
+            tags = new byte[INITIAL_CAPACITY];
+            size = 0;
+        }
+    }
+
+    private static class BloomFilter extends GlobalIdRegistry {
+        private final AtomicLongArray bits;
+        private final long bitCount;
+        private final int hashCount;
+
+        private BloomFilter(long expectedGlobalIds,
+                            double falsePositiveProbability) {
+            double ln2 = Math.log(2);
+            long optimalBits = (long) Math.ceil(
+                    -expectedGlobalIds * Math.log(falsePositiveProbability) /
+                            (ln2 * ln2));
+            int words = (int) Math.min(Integer.MAX_VALUE - 8,
+                                       Math.max(1, (optimalBits + 63) / 64));
+            bits = new AtomicLongArray(words);
+            bitCount = 64L * words;
+            hashCount = (int) Math.max(1, Math.round(
+                    (double) bitCount / expectedGlobalIds * ln2));
+        }
+
+        @Override
+        public boolean add(@NonNull IfcGloballyUniqueId globalId) {
+            boolean added = false;
+            for (long bit : bitsOf(globalId)) {
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                while (true) {
+                    long current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                    if (bits.compareAndSet(word, current, current | mask)) {
+                        added = true;
+                        break;
+                    }
+                }
+            }
+            return added;
+        }
+
+        @Override
+        public boolean addAll(
+                @NonNull Collection<IfcGloballyUniqueId> globalIds) {
+            // bits are only set once all GlobalIds are known to be accepted
+            Set<Long> pending = new HashSet<>();
+            for (IfcGloballyUniqueId globalId : globalIds) {
+                long[] globalIdBits = bitsOf(globalId);
+                boolean accepted = false;
+                for (long bit : globalIdBits) {
+                    if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0 &&
+                            !pending.contains(bit)) {
+                        accepted = true;
+                        break;
+                    }
+                }
+                if (!accepted) {
+                    return false;
+                }
+                for (long bit : globalIdBits) {
+                    pending.add(bit);
+                }
+            }
+            for (long bit : pending) {
+                long mask = 1L << bit;
+                bits.getAndAccumulate((int) (bit >>> 6), mask,
+                                      (current, m) -> current | m);
+            }
+            return true;
+        }
+
+        /**
+         * @return The positions of the bits set by globalId.
+         */
+        private long[] bitsOf(IfcGloballyUniqueId globalId) {
+            long hash1 = hash(globalId.getMostSignificantBits(),
+                              globalId.getLeastSignificantBits(),
+                              globalId.getExcessBits());
+            // derived from all the bits, so that GlobalIds sharing some of
+            // them don't probe the same bits with different offsets
+            long hash2 = mix(hash1 + 0x9e3779b97f4a7c15L) | 1;
+            long[] positions = new long[hashCount];
+            for (int i = 0; i < hashCount; i++) {
+                positions[i] =
+                        Long.remainderUnsigned(hash1 + i * hash2, bitCount);
+            }
+            return positions;
+        }
+
+        @Override
+        public void clear() {
+            for (int i = 0; i < bits.length(); i++) {
+                bits.set(i, 0);
+            }
+        }
+    }
+
+    private static class Disabled extends GlobalIdRegistry {
+        private static final Disabled INSTANCE = new Disabled();
+
+        @Override
+        public boolean add(@NonNull IfcGloballyUniqueId globalId) {
+            return true;
+        }
+
+        @Override
+        public boolean addAll(
+                @NonNull Collection<IfcGloballyUniqueId> globalIds) {
+            return true;
+        }
+
+        @Override
+        public void clear() {}
+    }
+}
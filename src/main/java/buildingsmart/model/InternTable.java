@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.io.Entity;
+import lombok.NonNull;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A table of canonical entities, used to share a single instance among all the
+ * entities of a {@link Model} which are equal according to {@link
+ * Entity#equals(Object)} (hash-consing). Generators of IFC files often create
+ * millions of identical points, directions and placements: interning them
+ * reduces both the memory used and the number of entities written to the
+ * file, and lets equal entities be compared by reference.
+ * </p>
+ * Entities are interned by value, so the canonical instance is the first one
+ * which was interned and might differ from later ones in attributes not taken
+ * into account by equals: for example, {@code IfcDirection.of(0, 0, 2)}
+ * returns the direction (0, 0, 1) if that was interned first.
+ * </p>
+ * Interning is opt-in: a model interns entities only after {@link
+ * Model#setInternTable(InternTable)} was called, and only those created through
+ * {@link Model#intern(java.util.function.Supplier)} (which is what factory
+ * methods such as {@link buildingsmart.ifc.IfcCartesianPoint#of(double...)}
+ * use). Canonical instances are kept until {@link #clear()} is called or the
+ * table becomes unreachable, which usually happens together with its model.
+ * </p>
+ * Instances of this class are thread-safe.
+ */
+public class InternTable {
+    private final ConcurrentMap<Entity, Entity> canonical;
+
+    /**
+     * Creates an empty table.
+     */
+    public InternTable() {
+        this(256);
+    }
+
+    /**
+     * Creates an empty table.
+     *
+     * @param expectedSize The number of distinct entities expected to be
+     *                     interned, used to size the table.
+     * @throws IllegalArgumentException If expectedSize is negative.
+     */
+    public InternTable(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException(
+                    "expectedSize cannot be negative");
+        }
+        canonical = new ConcurrentHashMap<>(expectedSize);
+    }
+
+    /**
+     * @param entity The entity to intern.
+     * @param <T>    The type of entity.
+     * @return The canonical instance equal to entity: a previously interned
+     * entity of the same class if there is one, entity itself otherwise.
+     *
+     * @throws NullPointerException If entity is null.
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Entity> T intern(@NonNull T entity) {
+        Entity previous = canonical.putIfAbsent(entity, entity);
+        if (previous == null || previous.getClass() != entity.getClass()) {
+            // entity is new, or equal to an instance of another class
+            return entity;
+        }
+        return (T) previous;
+    }
+
+    /**
+     * Removes entity, if it's the canonical instance of its value. Used when
+     * the entity was interned by a failed call to {@link
+     * Model#create(java.util.function.Supplier)}, so it will never be added
+     * to the model.
+     *
+     * @param entity The entity to remove.
+     */
+    void remove(Entity entity) {
+        canonical.computeIfPresent(entity,
+                                   (key, value) -> value == entity ? null :
+                                           value);
+    }
+
+    /**
+     * @param entity The entity to look for.
+     * @return {@code true} if entity is the canonical instance of its value,
+     * {@code false} otherwise.
+     */
+    public boolean isCanonical(Entity entity) {
+        return entity != null && canonical.get(entity) == entity;
+    }
+
+    /**
+     * @return The number of canonical instances in this table.
+     */
+    public int size() {
+        return canonical.size();
+    }
+
+    /**
+     * Removes all canonical instances from this table. Entities interned
+     * afterwards won't be shared with the ones interned before.
+     */
+    public void clear() {
+        canonical.clear();
+    }
+}
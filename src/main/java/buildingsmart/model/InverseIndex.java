@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.io.Attribute;
+import buildingsmart.io.Entity;
+import lombok.NonNull;
+
+import java.lang.reflect.Field;
+import java.util.*;
+
+/**
+ * An index of the inverse relationships between the entities of a {@link
+ * Model}: for each entity it contains the entities which reference it in one
+ * of their {@link Attribute}s, and which attribute they use. Only a few inverse
+ * relationships are modelled as fields of the entities (e.g. {@code
+ * IfcObjectDefinition.isDecomposedBy}), this index provides all of them for
+ * models that were loaded or built without wiring them up.
+ * </p>
+ * The index is built in a single pass over the entities of the model and is
+ * stored in compressed sparse row format, using primitive arrays: finding the
+ * entities referencing an entity takes time proportional to their number,
+ * without scanning any relationship. For example, to find the
+ * IfcRelContainedInSpatialStructure containing an element:
+ * <pre>{@code
+ * InverseIndex index = InverseIndex.build(model);
+ * List<IfcRelContainedInSpatialStructure> containedIn = index.getReferencing(
+ *         element, IfcRelContainedInSpatialStructure.class, "relatedElements");
+ * }</pre>
+ * The index is a snapshot: entities added to the model after it was built are
+ * not indexed. Instances of this class are immutable and thus thread-safe.
+ */
+public class InverseIndex {
+    private final Model model;
+    private final Entity[] entities;
+    /**
+     * The references to the entity in position {@code i} of {@code entities}
+     * are stored in positions {@code offsets[i]} (included) to {@code
+     * offsets[i + 1]} (excluded) of {@code sources} and {@code attributes}.
+     */
+    private final int[] offsets;
+    /**
+     * Positions in {@code entities} of the referencing entities.
+     */
+    private final int[] sources;
+    /**
+     * Positions in {@code fields} of the attributes used by the referencing
+     * entities.
+     */
+    private final int[] attributes;
+    private final Field[] fields;
+
+    private InverseIndex(Model model,
+                         Entity[] entities,
+                         int[] offsets,
+                         int[] sources,
+                         int[] attributes,
+                         Field[] fields) {
+        this.model = model;
+        this.entities = entities;
+        this.offsets = offsets;
+        this.sources = sources;
+        this.attributes = attributes;
+        this.fields = fields;
+    }
+
+    /**
+     * Builds the inverse index of all entities currently in {@code model}.
+     * References to entities which are not in the model are ignored.
+     *
+     * @param model The model to index.
+     * @return The inverse index of {@code model}.
+     *
+     * @throws NullPointerException If model is null.
+     */
+    public static InverseIndex build(@NonNull Model model) {
+        synchronized (model) {
+            Entity[] entities = model.toArray();
+            Map<Field, Integer> fieldIds = new HashMap<>();
+            IntList targets = new IntList(entities.length * 2);
+            IntList sources = new IntList(entities.length * 2);
+            IntList attributes = new IntList(entities.length * 2);
+            int[] counts = new int[entities.length + 1];
+
+            for (int source = 0; source < entities.length; source++) {
+                Entity entity = entities[source];
+                for (Field field : EntityFields.attributes(entity.getClass())) {
+                    int attribute = fieldIds
+                            .computeIfAbsent(field, f -> fieldIds.size());
+                    int from = source;
+                    EntityFields.forEachEntity(EntityFields.get(entity, field),
+                                               referenced -> {
+                                                   int target = model
+                                                           .indexOf(referenced);
+                                                   if (target >= 0) {
+                                                       targets.add(target);
+                                                       sources.add(from);
+                                                       attributes.add(attribute);
+                                                       counts[target + 1]++;
+                                                   }
+                                               });
+                }
+            }
+
+            // counting sort of the references by target
+            for (int i = 0; i < entities.length; i++) {
+                counts[i + 1] += counts[i];
+            }
+            int[] offsets = counts.clone();
+            int[] sortedSources = new int[targets.size];
+            int[] sortedAttributes = new int[targets.size];
+            for (int i = 0; i < targets.size; i++) {
+                int position = counts[targets.values[i]]++;
+                sortedSources[position] = sources.values[i];
+                sortedAttributes[position] = attributes.values[i];
+            }
+
+            Field[] fields = new Field[fieldIds.size()];
+            fieldIds.forEach((field, id) -> fields[id] = field);
+            return new InverseIndex(model,
+                                    entities,
+                                    offsets,
+                                    sortedSources,
+                                    sortedAttributes,
+                                    fields);
+        }
+    }
+
+    /**
+     * @param target The referenced entity.
+     * @return An unmodifiable List of the entities referencing {@code target}
+     * in any of their attributes. If there are none, or target was not indexed,
+     * the returned List will be empty. An entity referencing target more than
+     * once appears more than once.
+     *
+     * @throws NullPointerException If target is null.
+     */
+    public List<Entity> getReferencing(@NonNull Entity target) {
+        return getReferencing(target, Entity.class, null);
+    }
+
+    /**
+     * @param target    The referenced entity.
+     * @param type      The type of the referencing entities to return.
+     * @param attribute The name of the attribute of {@code type} (or of one of
+     *                  its superclasses) through which target is referenced,
+     *                  {@code null} to accept any attribute.
+     * @param <T>       The type of the referencing entities to return.
+     * @return An unmodifiable List of the instances of {@code type} which
+     * reference {@code target} through {@code attribute}. If there are none,
+     * or target was not indexed, the returned List will be empty.
+     *
+     * @throws NullPointerException     If target or type are null.
+     * @throws IllegalArgumentException If attribute is not null and is not the
+     *                                  name of an attribute of type or of one
+     *                                  of its superclasses.
+     */
+    public <T extends Entity> List<T> getReferencing(@NonNull Entity target,
+                                                     @NonNull Class<T> type,
+                                                     String attribute) {
+        if (attribute != null && Arrays.stream(EntityFields.attributes(type))
+                .noneMatch(field -> field.getName().equals(attribute))) {
+            throw new IllegalArgumentException(
+                    type.getSimpleName() + " has no attribute named " +
+                            attribute);
+        }
+        int index = model.indexOf(target);
+        if (index < 0 || index >= entities.length ||
+                entities[index] != target) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>(offsets[index + 1] - offsets[index]);
+        for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+            Entity source = entities[sources[i]];
+            if (type.isInstance(source) && (attribute == null ||
+                    fields[attributes[i]].getName().equals(attribute))) {
+                result.add(type.cast(source));
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @param target The referenced entity.
+     * @return The number of references to {@code target} from the attributes
+     * of other entities.
+     *
+     * @throws NullPointerException If target is null.
+     */
+    public int countReferencing(@NonNull Entity target) {
+        int index = model.indexOf(target);
+        if (index < 0 || index >= entities.length ||
+                entities[index] != target) {
+            return 0;
+        }
+        return offsets[index + 1] - offsets[index];
+    }
+
+    /**
+     * A growable list of ints, used while building the index to avoid boxing.
+     */
+    private static class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            values = new int[Math.max(capacity, 8)];
+        }
+
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,788 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.guid.GuidGenerator;
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import buildingsmart.ifc.IfcRoot;
+import buildingsmart.io.Attribute;
+import buildingsmart.io.Entity;
+import buildingsmart.io.InverseRelationship;
+import lombok.NonNull;
+
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * A container of the entities making up an IFC model, which keeps them indexed
+ * by type and, for subtypes of {@link IfcRoot}, by GlobalId. Indexes are
+ * updated every time an entity is added, so finding all instances of a type
+ * (including its subtypes) costs time proportional to the number of instances
+ * found and finding an {@link IfcRoot} by GlobalId takes constant time, instead
+ * of walking the whole graph of entities starting from the IfcProject. The
+ * index of GlobalIds is only built by the first search by GlobalId, models
+ * which are never searched don't pay for its memory.
+ * </p>
+ * The uniqueness of the GlobalIds of the instances of IfcRoot added to a
+ * model is checked by its {@link GlobalIdRegistry}, which might also accept
+ * duplicates (see {@link #setGlobalIdRegistry(GlobalIdRegistry)}).
+ * </p>
+ * Entities can be added explicitly with {@link #add(Entity)} and {@link
+ * #addAll(Entity)}, or automatically when they're created with {@link
+ * #create(Supplier)}: all the entities constructed by the given factory are
+ * added to the model once it returns, and none of them if it throws an
+ * exception, so entities whose constructor failed never end up in the model:
+ * <pre>{@code
+ * Model model = new Model();
+ * IfcProject project = model.create(() -> {
+ *     // create the entities of the model
+ *     return IfcProject.builder()...build();
+ * });
+ * List<IfcBuildingElement> elements =
+ *         model.getInstances(IfcBuildingElement.class);
+ * }</pre>
+ * While a model is the current one on a thread (see {@link #open()}), its
+ * settings are used by the entities created on that thread: the {@link
+ * GuidGenerator}, the {@link GlobalIdRegistry} and the {@link InternTable}.
+ * The GlobalIds of the instances of IfcRoot created while a model is current
+ * are registered right away, even if they're never added to it, except for
+ * the ones created by {@link #create(Supplier)}, which are registered when
+ * they're added.
+ * </p>
+ * Instances of this class are thread-safe.
+ */
+public class Model {
+    private static final ThreadLocal<Model> current = new ThreadLocal<>();
+    /**
+     * The innermost call to {@link #create(Supplier)} running on each thread.
+     */
+    private static final ThreadLocal<Creation> creation = new ThreadLocal<>();
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Position of each entity in {@code entities}, by identity.
+     */
+    private final Map<Entity, Integer> indices = new IdentityHashMap<>();
+    private final Map<Class<?>, InstanceList> instancesByClass =
+            new HashMap<>();
+    /**
+     * For each type queried so far, the classes in {@code instancesByClass}
+     * which are the same as or a subtype of the queried type.
+     */
+    private final Map<Class<?>, Class<?>[]> concreteTypes = new HashMap<>();
+    /**
+     * The first IfcRoot added to this model having each GlobalId, null until
+     * the first call to {@link #getByGlobalId(IfcGloballyUniqueId)}.
+     */
+    private Map<IfcGloballyUniqueId, IfcRoot> rootsByGlobalId;
+    private Entity[] entities = new Entity[INITIAL_CAPACITY];
+    private int size;
+    private volatile GuidGenerator guidGenerator;
+    private volatile GlobalIdRegistry globalIdRegistry =
+            GlobalIdRegistry.concurrent();
+    private volatile InternTable internTable;
+
+    /**
+     * @return The model whose settings are used by the entities created on
+     * the current thread, {@code null} if there is none.
+     *
+     * @see #open()
+     */
+    public static Model current() {
+        return current.get();
+    }
+
+    /**
+     * Makes this the current model of the current thread, whose settings are
+     * used by all entities created on the thread, until the returned {@link
+     * Scope} is closed. Entities are not added to the current model, unless
+     * they're created with {@link #create(Supplier)} or interned with {@link
+     * #intern(Supplier)}. Scopes can be nested, closing a scope restores the
+     * model which was current when it was opened.
+     *
+     * @return The scope during which this model is the current one. It must be
+     * closed on the same thread which opened it.
+     */
+    public Scope open() {
+        Scope scope = new Scope(current.get());
+        current.set(this);
+        return scope;
+    }
+
+    /**
+     * @return The {@link GuidGenerator} used to create the GlobalIds of the
+     * entities of this model, {@code null} if the default one is used.
+     */
+    public GuidGenerator getGuidGenerator() {
+        return guidGenerator;
+    }
+
+    /**
+     * Sets the {@link GuidGenerator} used by {@link
+     * IfcGloballyUniqueId#IfcGloballyUniqueId()} while this model is the
+     * current one, for example to create deterministic GlobalIds with {@link
+     * buildingsmart.guid.NameBasedGuidGenerator}.
+     *
+     * @param guidGenerator The generator to use, {@code null} to use the
+     *                      default one.
+     * @see IfcGloballyUniqueId#setDefaultGenerator(GuidGenerator)
+     */
+    public void setGuidGenerator(GuidGenerator guidGenerator) {
+        this.guidGenerator = guidGenerator;
+    }
+
+    /**
+     * @return The registry used to enforce the uniqueness of the GlobalIds of
+     * the instances of IfcRoot added to this model, or created while it's the
+     * current one.
+     */
+    public GlobalIdRegistry getGlobalIdRegistry() {
+        return globalIdRegistry;
+    }
+
+    /**
+     * Replaces the registry used to enforce the uniqueness of the GlobalIds of
+     * the instances of IfcRoot added to this model, or created while it's the
+     * current one, for example with {@link
+     * GlobalIdRegistry#disabled()} to load a model known to be valid without
+     * checking its GlobalIds. GlobalIds registered in the previous registry are
+     * not copied to the new one, so this should be called before adding any
+     * IfcRoot. The default registry is {@link GlobalIdRegistry#concurrent()}.
+     *
+     * @param globalIdRegistry The registry to use.
+     * @throws NullPointerException If globalIdRegistry is null.
+     */
+    public void setGlobalIdRegistry(
+            @NonNull GlobalIdRegistry globalIdRegistry) {
+        this.globalIdRegistry = globalIdRegistry;
+    }
+
+    /**
+     * @return The table of canonical entities used by {@link
+     * #intern(Supplier)} while this model is the current one, {@code null} if
+     * entities are not interned.
+     */
+    public InternTable getInternTable() {
+        return internTable;
+    }
+
+    /**
+     * Enables or disables interning of the entities created through {@link
+     * #intern(Supplier)} while this model is the current one. Interning is
+     * disabled by default.
+     *
+     * @param internTable The table of canonical entities to use, {@code null}
+     *                    to disable interning.
+     */
+    public void setInternTable(InternTable internTable) {
+        this.internTable = internTable;
+    }
+
+    /**
+     * Runs factory with this model as the current one, then adds to this model
+     * all the entities constructed by it on the current thread, in the order
+     * in which their construction started. If factory throws an exception,
+     * none of those entities is added, not even the ones which were
+     * constructed successfully. Entities constructed by factory through
+     * {@link #detached(Supplier)}, such as the values of derived attributes,
+     * are not added. Entities which factory makes canonical with {@link
+     * #intern(Supplier)} are added the same way, and removed from the intern
+     * table if they're not added.
+     * </p>
+     * If factory calls this method again, on this or on another model, the
+     * entities created by the inner call are only added when the outermost
+     * call returns, and not at all if any of the calls throws. Entities are
+     * added to one model at a time, so if a GlobalId is rejected by a model,
+     * the entities of the models before it in order of creation are still
+     * added.
+     *
+     * @param factory Creates the entities to add.
+     * @param <T>     The type of the result.
+     * @return The result of factory.
+     *
+     * @throws NullPointerException     If factory is null.
+     * @throws IllegalArgumentException If the registry of GlobalIds of this
+     *                                  model rejects the GlobalId of one of
+     *                                  the instances of IfcRoot created. In
+     *                                  this case no entity is added, and none
+     *                                  of their GlobalIds is registered.
+     */
+    public <T> T create(@NonNull Supplier<T> factory) {
+        Creation outer = creation.get();
+        Creation inner = new Creation(this);
+        creation.set(inner);
+        T result;
+        try (Scope ignored = open()) {
+            result = factory.get();
+        } catch (RuntimeException | Error e) {
+            inner.rollBack(0);
+            throw e;
+        } finally {
+            if (outer == null) {
+                creation.remove();
+            } else {
+                creation.set(outer);
+            }
+        }
+        if (outer == null) {
+            inner.commit();
+        } else {
+            inner.mergeInto(outer);
+        }
+        return result;
+    }
+
+    /**
+     * Records an entity whose construction has just started, so that it's
+     * added to the model which is creating it once its creation succeeds. This
+     * is called by the constructor of {@link Entity}, and has no effect outside
+     * of {@link #create(Supplier)}.
+     *
+     * @param entity The entity being constructed.
+     */
+    public static void constructing(@NonNull Entity entity) {
+        Creation running = creation.get();
+        if (running != null) {
+            running.record(running.model, entity);
+        }
+    }
+
+    /**
+     * Registers the GlobalId of an IfcRoot whose construction has just
+     * started, with the registry of the current model or, if there is none,
+     * with defaultRegistry. This is called by the constructor of {@link
+     * IfcRoot}. Inside {@link #create(Supplier)} GlobalIds are not registered
+     * here, but when the created entities are added to the model.
+     *
+     * @param globalId        The GlobalId of the new IfcRoot.
+     * @param defaultRegistry The registry to use if no model is current.
+     * @return The registry which accepted globalId, {@code null} if it's
+     * registered when the IfcRoot is added to the model creating it.
+     *
+     * @throws NullPointerException     If any argument is null.
+     * @throws IllegalArgumentException If globalId is rejected by the
+     *                                  registry.
+     */
+    public static GlobalIdRegistry registerConstructed(
+            @NonNull IfcGloballyUniqueId globalId,
+            @NonNull GlobalIdRegistry defaultRegistry) {
+        if (creation.get() != null) {
+            return null;
+        }
+        Model model = current.get();
+        GlobalIdRegistry registry =
+                model == null ? defaultRegistry : model.globalIdRegistry;
+        if (!registry.add(globalId)) {
+            throw new IllegalArgumentException(
+                    "globalId must be unique, and this one was used in " +
+                            "another instance of IfcRoot");
+        }
+        return registry;
+    }
+
+    /**
+     * Creates an entity and, if the current model has an {@link InternTable},
+     * replaces it with the canonical instance equal to it. Entities created by
+     * factory, including the ones it creates for its own use, are not added to
+     * the current model unless the created entity becomes canonical, so
+     * discarded duplicates never end up in the model. A new canonical entity
+     * is added right away, or by {@link #create(Supplier)} if this is called
+     * by its factory:
+     * <pre>{@code
+     * model.setInternTable(new InternTable());
+     * try (Model.Scope ignored = model.open()) {
+     *     IfcCartesianPoint origin = Model.intern(
+     *             () -> new IfcCartesianPoint(0, 0, 0));
+     *     // same instance as origin
+     *     IfcCartesianPoint other = IfcCartesianPoint.of(0, 0, 0);
+     * }
+     * }</pre>
+     * If there is no current model, or it doesn't intern entities, this method
+     * just returns the entity created by factory.
+     *
+     * @param factory Creates the entity to intern.
+     * @param <T>     The type of entity.
+     * @return The canonical instance equal to the entity created by factory.
+     *
+     * @throws NullPointerException If factory is null or returns null.
+     */
+    public static <T extends Entity> T intern(@NonNull Supplier<T> factory) {
+        Model model = current.get();
+        InternTable table = model == null ? null : model.internTable;
+        if (table == null) {
+            return factory.get();
+        }
+        T entity = detached(factory);
+        T canonical = table.intern(entity);
+        if (canonical == entity) {
+            Creation running = creation.get();
+            if (running == null) {
+                model.add(entity);
+            } else {
+                running.record(model, entity);
+                running.recordInterned(model, table, entity);
+            }
+        }
+        return canonical;
+    }
+
+    /**
+     * Creates entities which are not added to the current model, such as the
+     * values of derived attributes, which are computed on demand and might be
+     * computed on a different thread than the one which created their entity.
+     *
+     * @param factory Creates the entities.
+     * @param <T>     The type of the result.
+     * @return The result of factory.
+     *
+     * @throws NullPointerException If factory is null.
+     */
+    public static <T> T detached(@NonNull Supplier<T> factory) {
+        Model model = current.get();
+        Creation running = creation.get();
+        if (model == null && running == null) {
+            return factory.get();
+        }
+        current.remove();
+        creation.remove();
+        try {
+            return factory.get();
+        } finally {
+            if (model != null) {
+                current.set(model);
+            }
+            if (running != null) {
+                creation.set(running);
+            }
+        }
+    }
+
+    /**
+     * Adds an entity to this model, without adding the entities it references.
+     *
+     * @param entity The entity to add.
+     * @return {@code true} if the entity was added, {@code false} if it was
+     * already contained in this model.
+     *
+     * @throws NullPointerException     If entity is null.
+     * @throws IllegalArgumentException If entity is an IfcRoot whose GlobalId
+     *                                  is rejected by the registry of
+     *                                  GlobalIds of this model.
+     * @see #setGlobalIdRegistry(GlobalIdRegistry)
+     */
+    public synchronized boolean add(@NonNull Entity entity) {
+        if (indices.containsKey(entity)) {
+            return false;
+        }
+        if (entity instanceof IfcRoot && isUnregistered((IfcRoot) entity) &&
+                !globalIdRegistry.add(((IfcRoot) entity).getGlobalId())) {
+            throw new IllegalArgumentException(
+                    "globalId must be unique, and this one was used in " +
+                            "another instance of IfcRoot in this model");
+        }
+        append(entity);
+        return true;
+    }
+
+    private synchronized void addCreated(List<Entity> created) {
+        // GlobalIds are registered together, so that either all entities are
+        // added or none of them, without leaving any GlobalId registered
+        List<IfcGloballyUniqueId> globalIds = new ArrayList<>();
+        for (Entity entity : created) {
+            if (entity instanceof IfcRoot && !indices.containsKey(entity) &&
+                    isUnregistered((IfcRoot) entity)) {
+                globalIds.add(((IfcRoot) entity).getGlobalId());
+            }
+        }
+        if (!globalIdRegistry.addAll(globalIds)) {
+            throw new IllegalArgumentException(
+                    "globalId must be unique, and the one of a created " +
+                            "instance of IfcRoot was used in another " +
+                            "instance of IfcRoot in this model");
+        }
+        for (Entity entity : created) {
+            if (!indices.containsKey(entity)) {
+                append(entity);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the GlobalId of root still has to be registered with the
+     * registry of this model, i.e. root wasn't created while this model was
+     * the current one.
+     */
+    private boolean isUnregistered(IfcRoot root) {
+        return root.getGlobalIdRegistry() != globalIdRegistry;
+    }
+
+    private void append(Entity entity) {
+        if (size == entities.length) {
+            entities = Arrays.copyOf(entities, size * 2);
+        }
+        entities[size] = entity;
+        indices.put(entity, size);
+        InstanceList instances = instancesByClass.get(entity.getClass());
+        if (instances == null) {
+            instances = new InstanceList();
+            instancesByClass.put(entity.getClass(), instances);
+            concreteTypes.clear();
+        }
+        instances.add(size);
+        size++;
+        if (rootsByGlobalId != null && entity instanceof IfcRoot) {
+            IfcRoot root = (IfcRoot) entity;
+            rootsByGlobalId.putIfAbsent(root.getGlobalId(), root);
+        }
+    }
+
+    /**
+     * Adds an entity and all the entities reachable from it through fields
+     * annotated with {@link Attribute} or {@link InverseRelationship}, visiting
+     * each entity only once. Use this to index a model which was built or
+     * loaded without {@link #create(Supplier)}, for example by passing its
+     * IfcProject.
+     *
+     * @param root The entity from which to start.
+     * @return The number of entities which were added.
+     *
+     * @throws NullPointerException     If root is null.
+     * @throws IllegalArgumentException If the GlobalId of an instance of
+     *                                  IfcRoot found is rejected by the
+     *                                  registry of GlobalIds of this model.
+     */
+    public synchronized int addAll(@NonNull Entity root) {
+        int added = 0;
+        Set<Entity> visited =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Entity> toVisit = new ArrayDeque<>();
+        toVisit.push(root);
+        visited.add(root);
+        while (!toVisit.isEmpty()) {
+            Entity entity = toVisit.pop();
+            if (add(entity)) {
+                added++;
+            }
+            for (Field[] fields : new Field[][]{
+                    EntityFields.attributes(entity.getClass()),
+                    EntityFields.inverseRelationships(entity.getClass())}) {
+                for (Field field : fields) {
+                    EntityFields.forEachEntity(
+                            EntityFields.get(entity, field), referenced -> {
+                                if (visited.add(referenced)) {
+                                    toVisit.push(referenced);
+                                }
+                            });
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @param entity The entity to look for.
+     * @return {@code true} if entity is contained in this model.
+     */
+    public synchronized boolean contains(Entity entity) {
+        return indices.containsKey(entity);
+    }
+
+    /**
+     * @return The number of entities contained in this model.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * @param type The type of the entities to return.
+     * @param <T>  The type of the entities to return.
+     * @return An unmodifiable List of all the entities in this model that are
+     * instances of {@code type} or of any of its subtypes, in the order in
+     * which they were added to this model. If there are none, the returned
+     * List will be empty.
+     *
+     * @throws NullPointerException If type is null.
+     */
+    public synchronized <T> List<T> getInstances(@NonNull Class<T> type) {
+        Class<?>[] classes = getConcreteTypes(type);
+        if (classes.length == 0) {
+            return Collections.emptyList();
+        }
+        if (classes.length == 1) {
+            return getExactInstances(classes[0], type);
+        }
+        int count = 0;
+        for (Class<?> c : classes) {
+            count += instancesByClass.get(c).size;
+        }
+        int[] merged = new int[count];
+        int position = 0;
+        for (Class<?> c : classes) {
+            InstanceList instances = instancesByClass.get(c);
+            System.arraycopy(instances.indices, 0, merged, position,
+                             instances.size);
+            position += instances.size;
+        }
+        // restores the order in which entities were added
+        Arrays.sort(merged);
+        List<T> result = new ArrayList<>(count);
+        for (int index : merged) {
+            result.add(type.cast(entities[index]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * @param type The type of the entities to return.
+     * @param <T>  The type of the entities to return.
+     * @return An unmodifiable List of all the entities in this model whose
+     * class is exactly {@code type}, excluding instances of its subtypes, in
+     * the order in which they were added to this model. If there are none, the
+     * returned List will be empty.
+     *
+     * @throws NullPointerException If type is null.
+     */
+    public synchronized <T> List<T> getExactInstances(@NonNull Class<T> type) {
+        return getExactInstances(type, type);
+    }
+
+    /**
+     * @param type The type of the entities to count.
+     * @return The number of entities in this model that are instances of
+     * {@code type} or of any of its subtypes.
+     *
+     * @throws NullPointerException If type is null.
+     */
+    public synchronized int count(@NonNull Class<?> type) {
+        int count = 0;
+        for (Class<?> c : getConcreteTypes(type)) {
+            count += instancesByClass.get(c).size;
+        }
+        return count;
+    }
+
+    /**
+     * @param globalId The GlobalId of the IfcRoot to return.
+     * @return The IfcRoot in this model having the given GlobalId, {@code
+     * null} if there is none. If the registry of GlobalIds of this model
+     * accepted more than one IfcRoot with the given GlobalId, the first one
+     * added is returned. The index of GlobalIds is built by the first call
+     * to this method, and kept up to date afterwards.
+     */
+    public synchronized IfcRoot getByGlobalId(IfcGloballyUniqueId globalId) {
+        if (rootsByGlobalId == null) {
+            rootsByGlobalId = new HashMap<>();
+            for (int i = 0; i < size; i++) {
+                if (entities[i] instanceof IfcRoot) {
+                    IfcRoot root = (IfcRoot) entities[i];
+                    rootsByGlobalId.putIfAbsent(root.getGlobalId(), root);
+                }
+            }
+        }
+        return rootsByGlobalId.get(globalId);
+    }
+
+    /**
+     * @param globalId The GlobalId of the IfcRoot to return, as it appears in
+     *                 an IFC STEP file.
+     * @return The IfcRoot in this model having the given GlobalId, {@code
+     * null} if there is none.
+     *
+     * @throws NullPointerException     If globalId is null.
+     * @throws IllegalArgumentException If globalId is not a valid
+     *                                  IfcGloballyUniqueId.
+     */
+    public IfcRoot getByGlobalId(@NonNull String globalId) {
+        return getByGlobalId(new IfcGloballyUniqueId(globalId));
+    }
+
+    /**
+     * @param entity An entity in this model.
+     * @return The position of entity in the order in which entities were added
+     * to this model, -1 if entity is not in this model.
+     */
+    synchronized int indexOf(Entity entity) {
+        Integer index = indices.get(entity);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return The entities in this model, in the order in which they were
+     * added.
+     */
+    synchronized Entity[] toArray() {
+        return Arrays.copyOf(entities, size);
+    }
+
+    /**
+     * @param index A value returned by {@link #indexOf(Entity)}.
+     * @return The entity added to this model in position {@code index}.
+     */
+    synchronized Entity get(int index) {
+        return entities[index];
+    }
+
+    private <T> List<T> getExactInstances(Class<?> exactType, Class<T> type) {
+        InstanceList instances = instancesByClass.get(exactType);
+        if (instances == null) {
+            return Collections.emptyList();
+        }
+        List<T> result = new ArrayList<>(instances.size);
+        for (int i = 0; i < instances.size; i++) {
+            result.add(type.cast(entities[instances.indices[i]]));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private Class<?>[] getConcreteTypes(Class<?> type) {
+        Class<?>[] classes = concreteTypes.get(type);
+        if (classes == null) {
+            classes = instancesByClass.keySet().stream()
+                    .filter(type::isAssignableFrom).toArray(Class<?>[]::new);
+            concreteTypes.put(type, classes);
+        }
+        return classes;
+    }
+
+    /**
+     * A growable list of positions in {@code entities}, which takes 4 bytes
+     * per instance.
+     */
+    private static class InstanceList {
+        private int[] indices = new int[8];
+        private int size;
+
+        private void add(int index) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+            }
+            indices[size++] = index;
+        }
+    }
+
+    /**
+     * A running call to {@link #create(Supplier)}, with the entities to add
+     * once the outermost call on the thread returns.
+     */
+    private static final class Creation {
+        private final Model model;
+        /**
+         * The entities to add to each model, in the order in which their
+         * construction started. Besides the model creating them, they might
+         * belong to other models whose create was called by the factory, or
+         * which were current while an entity was interned.
+         */
+        private final Map<Model, List<Entity>> entities =
+                new LinkedHashMap<>();
+        /**
+         * For each model, the entities which became canonical in its
+         * InternTable, to be removed if they're not added.
+         */
+        private final Map<Model, List<Runnable>> interned = new HashMap<>();
+
+        private Creation(Model model) {
+            this.model = model;
+        }
+
+        private void record(Model target, Entity entity) {
+            entities.computeIfAbsent(target, m -> new ArrayList<>())
+                    .add(entity);
+        }
+
+        private void recordInterned(Model target, InternTable table,
+                                    Entity entity) {
+            interned.computeIfAbsent(target, m -> new ArrayList<>())
+                    .add(() -> table.remove(entity));
+        }
+
+        private void mergeInto(Creation outer) {
+            entities.forEach((target, list) -> outer.entities
+                    .computeIfAbsent(target, m -> new ArrayList<>())
+                    .addAll(list));
+            interned.forEach((target, list) -> outer.interned
+                    .computeIfAbsent(target, m -> new ArrayList<>())
+                    .addAll(list));
+        }
+
+        /**
+         * Adds the entities to their models, one model at a time.
+         */
+        private void commit() {
+            int committed = 0;
+            for (Map.Entry<Model, List<Entity>> entry : entities.entrySet()) {
+                try {
+                    entry.getKey().addCreated(entry.getValue());
+                } catch (RuntimeException e) {
+                    rollBack(committed);
+                    throw e;
+                }
+                committed++;
+            }
+        }
+
+        /**
+         * Removes from the intern tables the canonical entities of the models
+         * which weren't committed, skipping the first ones.
+         *
+         * @param committed The number of models which were committed.
+         */
+        private void rollBack(int committed) {
+            int skipped = 0;
+            for (Model target : entities.keySet()) {
+                if (skipped++ >= committed) {
+                    interned.getOrDefault(target, Collections.emptyList())
+                            .forEach(Runnable::run);
+                }
+            }
+        }
+    }
+
+    /**
+     * The period during which a model is the current one on a thread.
+     *
+     * @see #open()
+     */
+    public static final class Scope implements AutoCloseable {
+        private final Model previous;
+        private boolean closed;
+
+        private Scope(Model previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Restores the model which was current when this scope was opened.
+         * Calling this method more than once has no effect.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+}
@@ -21,16 +21,10 @@ package buildingsmart.util;
 import buildingsmart.ifc.*;
 import lombok.NonNull;
 
-import java.nio.ByteBuffer;
-import java.nio.charset.Charset;
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
-import static java.lang.Math.sqrt;
-
 public class Functions {
 
     /**
@@ -39,6 +33,35 @@ public class Functions {
      */
     protected static final double DELTA = 0.0000000000001;
 
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    /**
+     * The value of each hexadecimal digit, indexed by character, -1 for other
+     * characters.
+     */
+    private static final byte[] HEX_VALUES = new byte['g'];
+    /**
+     * Buffers used to format Strings for STEP files, so that a new one doesn't
+     * need to be allocated for each String.
+     */
+    private static final ThreadLocal<StringBuilder> STEP_STRING_BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(256));
+    private static final int MAX_STEP_STRING_BUFFER = 1 << 16;
+    /**
+     * Arrays holding the intermediate results of the geometric functions, so
+     * that they don't need to be allocated for each call. They are only used
+     * between the start of a function and the creation of its result.
+     */
+    private static final ThreadLocal<double[][]> VECTOR_SCRATCH =
+            ThreadLocal.withInitial(() -> new double[5][3]);
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < HEX_DIGITS.length; i++) {
+            HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+            HEX_VALUES[Character.toLowerCase(HEX_DIGITS[i])] = (byte) i;
+        }
+    }
+
     private static final Map<IfcUnitEnum, Predicate<IfcDimensionalExponents>>
             ifcCorrectDimensions = Collections
             .unmodifiableMap(new HashMap<IfcUnitEnum,
@@ -401,35 +424,171 @@ public class Functions {
      * Controls and Basic Latin" (= ASCII characters) won't change, with the
      * exception of C0 controls and code point 0x007F. All other characters will
      * be substituted with the representation defined in ISO 10303-11.
+     * </p>
+     * Strings which don't need to be changed are returned as they are, without
+     * copying them.
      *
      * @param unformatted The String to format.
      * @return The formatted String.
      *
      * @throws NullPointerException If unformatted is null.
+     * @see #parseFromStepFile(String)
      */
     public static String formatForStepFile(@NonNull String unformatted) {
-        String escaped = unformatted.replace("\\", "\\\\").replace("'", "\\'");
-        ByteBuffer utf32Bytes =
-                ByteBuffer.wrap(escaped.getBytes(Charset.forName("UTF-32")));
-        return IntStream.range(0, utf32Bytes.capacity() / Integer.BYTES)
-                .map(i -> utf32Bytes.getInt(i * Integer.BYTES))
-                .mapToObj(codePoint -> {
-                    if (codePoint >= 0x20 && codePoint < 0x7F) {
-                        /* the comparison will return false if codePoint has
-                        1 as its most significant bit, so we don't need to
-                        use the unsigned comparison here */
-                        return String.valueOf((char) codePoint);
-                    }
-                    if (Integer.compareUnsigned(codePoint, 0x100) < 0) {
-                        return "\\X\\" + String.format("%02X", codePoint);
-                    }
-                    if (Integer.compareUnsigned(codePoint, 0x10000) < 0) {
-                        return "\\X2\\" + String.format("%04X", codePoint) +
-                                "\\X0\\";
-                    }
-                    return "\\X4\\" + String.format("%08X", codePoint) +
-                            "\\X0\\";
-                }).collect(Collectors.joining());
+        int length = unformatted.length();
+        int plain = 0;
+        while (plain < length && isPlainStepChar(unformatted.charAt(plain))) {
+            plain++;
+        }
+        if (plain == length) {
+            return unformatted;
+        }
+        StringBuilder output = STEP_STRING_BUFFER.get();
+        output.setLength(0);
+        output.append(unformatted, 0, plain);
+        appendFormatted(unformatted, plain, output);
+        String formatted = output.toString();
+        if (output.capacity() > MAX_STEP_STRING_BUFFER) {
+            // don't keep huge buffers alive for the lifetime of the thread
+            STEP_STRING_BUFFER.remove();
+        }
+        return formatted;
+    }
+
+    /**
+     * Formats the given String so that it can be serialized in an ASCII STEP
+     * file, like {@link #formatForStepFile(String)}, appending the result to
+     * output instead of creating a new String.
+     *
+     * @param unformatted The String to format.
+     * @param output      The StringBuilder to which the formatted String is
+     *                    appended.
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public static void formatForStepFile(@NonNull CharSequence unformatted,
+                                         @NonNull StringBuilder output) {
+        appendFormatted(unformatted, 0, output);
+    }
+
+    private static boolean isPlainStepChar(char c) {
+        return c >= 0x20 && c < 0x7F && c != '\'' && c != '\\';
+    }
+
+    private static void appendFormatted(CharSequence unformatted,
+                                        int start,
+                                        StringBuilder output) {
+        int length = unformatted.length();
+        for (int i = start; i < length; i++) {
+            char c = unformatted.charAt(i);
+            if (isPlainStepChar(c)) {
+                output.append(c);
+            } else if (c == '\'' || c == '\\') {
+                output.append('\\').append(c);
+            } else if (c < 0x100) {
+                output.append("\\X\\");
+                appendHex(c, 2, output);
+            } else if (Character.isHighSurrogate(c) && i + 1 < length &&
+                    Character.isLowSurrogate(unformatted.charAt(i + 1))) {
+                output.append("\\X4\\");
+                appendHex(Character.toCodePoint(c, unformatted.charAt(++i)),
+                          8,
+                          output);
+                output.append("\\X0\\");
+            } else {
+                if (Character.isSurrogate(c)) {
+                    // unpaired surrogates can't be encoded
+                    c = '\uFFFD';
+                }
+                output.append("\\X2\\");
+                appendHex(c, 4, output);
+                output.append("\\X0\\");
+            }
+        }
+    }
+
+    private static void appendHex(int value, int digits, StringBuilder output) {
+        for (int shift = 4 * (digits - 1); shift >= 0; shift -= 4) {
+            output.append(HEX_DIGITS[(value >>> shift) & 0xF]);
+        }
+    }
+
+    /**
+     * Parses a String as it is serialized in an ASCII STEP file, that is
+     * without the enclosing quotes, reverting the transformations made by
+     * {@link #formatForStepFile(String)}. Also accepts the other encodings
+     * defined in ISO 10303-21: quotes escaped by doubling them, characters
+     * escaped with "\S\" and code page directives ("\P?\"), which are
+     * ignored.
+     *
+     * @param formatted The String to parse.
+     * @return The parsed String.
+     *
+     * @throws NullPointerException     If formatted is null.
+     * @throws IllegalArgumentException If formatted contains a backslash which
+     *                                  doesn't start a valid escape sequence.
+     */
+    public static String parseFromStepFile(@NonNull String formatted) {
+        int length = formatted.length();
+        if (formatted.indexOf('\\') < 0 && formatted.indexOf('\'') < 0) {
+            return formatted;
+        }
+        StringBuilder output = new StringBuilder(length);
+        int i = 0;
+        while (i < length) {
+            char c = formatted.charAt(i);
+            if (c == '\'') {
+                // a quote doubled as in ISO 10303-21
+                output.append(c);
+                i += i + 1 < length && formatted.charAt(i + 1) == '\'' ? 2 : 1;
+            } else if (c != '\\') {
+                output.append(c);
+                i++;
+            } else if (formatted.startsWith("\\X\\", i)) {
+                output.append((char) parseHex(formatted, i + 3, 2));
+                i += 5;
+            } else if (formatted.startsWith("\\X2\\", i) ||
+                    formatted.startsWith("\\X4\\", i)) {
+                int digits = formatted.charAt(i + 2) == '2' ? 4 : 8;
+                i += 4;
+                while (!formatted.startsWith("\\X0\\", i)) {
+                    output.appendCodePoint(parseHex(formatted, i, digits));
+                    i += digits;
+                }
+                i += 4;
+            } else if (formatted.startsWith("\\S\\", i) && i + 3 < length) {
+                output.append((char) (formatted.charAt(i + 3) + 0x80));
+                i += 4;
+            } else if (formatted.startsWith("\\P", i) && i + 3 < length &&
+                    formatted.charAt(i + 3) == '\\') {
+                i += 4;
+            } else if (i + 1 < length && (formatted.charAt(i + 1) == '\\' ||
+                    formatted.charAt(i + 1) == '\'')) {
+                output.append(formatted.charAt(i + 1));
+                i += 2;
+            } else {
+                throw new IllegalArgumentException(
+                        "invalid escape sequence at position " + i);
+            }
+        }
+        return output.toString();
+    }
+
+    private static int parseHex(String formatted, int start, int digits) {
+        if (start + digits > formatted.length()) {
+            throw new IllegalArgumentException(
+                    "invalid escape sequence at position " + start);
+        }
+        int value = 0;
+        for (int i = start; i < start + digits; i++) {
+            char c = formatted.charAt(i);
+            int digit = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+            if (digit < 0) {
+                throw new IllegalArgumentException(
+                        "invalid hexadecimal digit at position " + i);
+            }
+            value = (value << 4) | digit;
+        }
+        return value;
     }
 
     /**
@@ -452,37 +611,22 @@ public class Functions {
         if (arg1.getDim().getValue() != 3 || arg2.getDim().getValue() != 3) {
             return null;
         }
-        // default result if the directions are parallel, anti-parallel or
-        // one of them has components that are all zero
-        IfcVector result = new IfcVector(arg1, new IfcLengthMeasure(0));
-        List<IfcReal> v1Real;
-        List<IfcReal> v2Real;
-        try {
-            v1Real = ifcNormalise(arg1).getDirectionRatios();
-            v2Real = ifcNormalise(arg2).getDirectionRatios();
-        } catch (NullPointerException e) {
-            return result;
-        }
-        double[] v1 = new double[v1Real.size()];
-        double[] v2 = new double[v2Real.size()];
-        for (byte i = 0; i < v1.length; i++) {
-            v1[i] = v1Real.get(i).getValue();
-            v2[i] = v2Real.get(i).getValue();
+        double[][] scratch = VECTOR_SCRATCH.get();
+        double[] v1 = read(arg1, scratch[0]);
+        double[] v2 = read(arg2, scratch[1]);
+        if (VectorMath.normalise(v1, v1, 3) &&
+                VectorMath.normalise(v2, v2, 3)) {
+            double[] res = scratch[2];
+            VectorMath.cross(v1, v2, res);
+            double magnitude = VectorMath.magnitude(res, 3);
+            if (magnitude > 0) {
+                return new IfcVector(new IfcDirection(res),
+                                     IfcLengthMeasure.of(magnitude));
+            }
         }
-
-        double[] res = new double[v1.length];
-        res[0] = v1[1] * v2[2] - v1[2] * v2[1];
-        res[1] = v1[2] * v2[0] - v1[0] * v2[2];
-        res[2] = v1[0] * v2[1] - v1[1] * v2[0];
-        double magnitude = 0;
-        for (double component : res) {
-            magnitude += component * component;
-        }
-        if (magnitude > 0) {
-            result = new IfcVector(new IfcDirection(res),
-                                   new IfcLengthMeasure(sqrt(magnitude)));
-        }
-        return result;
+        // the directions are parallel, anti-parallel or one of them has
+        // components that are all zero
+        return new IfcVector(arg1, IfcLengthMeasure.of(0));
     }
 
     /**
@@ -496,24 +640,13 @@ public class Functions {
         if (direction == null) {
             return null;
         }
-        if (alreadyNormalised(direction)) {
+        byte dim = direction.getDim().getValue();
+        double[] directionRatios = new double[dim];
+        read(direction, directionRatios);
+        if (VectorMath.isNormalised(directionRatios, dim)) {
             return direction;
         }
-        double magnitude = 0;
-        byte dim = direction.getDim().getValue();
-
-        for (byte i = 0; i < dim; i++) {
-            double component = direction.getDirectionRatios().get(i).getValue();
-            magnitude += (component * component);
-        }
-        if (magnitude > 0) {
-            magnitude = sqrt(magnitude);
-            double[] directionRatios = new double[dim];
-            for (byte i = 0; i < dim; i++) {
-                double component =
-                        direction.getDirectionRatios().get(i).getValue();
-                directionRatios[i] = component / magnitude;
-            }
+        if (VectorMath.normalise(directionRatios, directionRatios, dim)) {
             return new IfcDirection(directionRatios);
         }
         return null;
@@ -530,60 +663,21 @@ public class Functions {
         if (vector == null || vector.getMagnitude().getValue() == 0) {
             return null;
         }
-        if (alreadyNormalised(vector)) {
+        IfcDirection orientation = vector.getOrientation();
+        byte dim = orientation.getDim().getValue();
+        double[] directionRatios = new double[dim];
+        read(orientation, directionRatios);
+        if (vector.getMagnitude().getValue() == 1 &&
+                VectorMath.isNormalised(directionRatios, dim)) {
             return vector;
         }
-        double magnitude = 0;
-        byte dim = vector.getDim().getValue();
-
-        for (byte i = 0; i < dim; i++) {
-            double component = vector.getDirectionRatios().get(i).getValue();
-            magnitude += (component * component);
-        }
-        if (magnitude > 0) {
-            magnitude = sqrt(magnitude);
-            double[] directionRatios = new double[dim];
-            for (byte i = 0; i < dim; i++) {
-                double component =
-                        vector.getDirectionRatios().get(i).getValue();
-                directionRatios[i] = component / magnitude;
-            }
+        if (VectorMath.normalise(directionRatios, directionRatios, dim)) {
             return new IfcVector(new IfcDirection(directionRatios),
-                                 new IfcLengthMeasure(1));
+                                 IfcLengthMeasure.of(1));
         }
         return null;
     }
 
-    /**
-     * @param direction The direction on which to perform the check.
-     * @return {@code true} if the direction is already normalized (meaning that
-     * the sum of the squares of its components is 1), {@code false} otherwise.
-     *
-     * @throws NullPointerException If direction is null.
-     */
-    private static boolean alreadyNormalised(IfcDirection direction) {
-        double squaresSum = 0;
-        for (IfcReal dirRatio : direction.getDirectionRatios()) {
-            double component = dirRatio.getValue();
-            squaresSum += component * component;
-        }
-        return Math.abs(squaresSum - 1) < DELTA;
-    }
-
-    /**
-     * @param vector The vector on which to perform the check.
-     * @return {@code true} if the vector is already normalized (meaning that
-     * the sum of the squares of its components is 1), {@code false} otherwise.
-     *
-     * @throws NullPointerException If vector is null.
-     */
-    private static boolean alreadyNormalised(IfcVector vector) {
-        if (vector.getMagnitude().getValue() != 1) {
-            return false;
-        }
-        return alreadyNormalised(vector.getOrientation());
-    }
-
     /**
      * @param axis         The axis of the IfcAxis2Placement3D for which this
      *                     function was called. If this value is not null, then
@@ -595,160 +689,82 @@ public class Functions {
      * of axis. List[0] is in the direction of the projection of ref_direction
      * onto the plane normal to List[2], List[1] is the cross product of List[2]
      * and List[0]. Default values are supplied if both arguments are null.
+     *
+     * @throws IllegalArgumentException If axis and refDirection are parallel or
+     *                                  anti-parallel.
+     * @see VectorMath#buildAxes(double[], double[], double[], double[],
+     * double[])
      */
     public static List<IfcDirection> ifcBuildAxes(IfcDirection axis,
                                                   IfcDirection refDirection) {
-        IfcDirection normalisedAxis = ifcNormalise(axis);
-        IfcDirection d1 = normalisedAxis == null ? new IfcDirection(0, 0, 1) :
-                normalisedAxis;
-        IfcDirection d2 = ifcFirstProjAxis(d1, refDirection);
-        List<IfcDirection> result = new ArrayList<>(3);
-        result.add(d2);
-        result.add(ifcNormalise(ifcCrossProduct(d1, d2)).getOrientation());
-        result.add(d1);
-        return result;
-    }
-
-    /**
-     * @param zAxis The direction onto whose normal plane the direction arg
-     *              should be projected.
-     * @param arg   The direction to project onto the plane normal to zAxis.
-     * @return A three dimensional direction which is, with fully defined input,
-     * the projection of arg onto the plane normal to zAxis. If arg is null, the
-     * result is the projection of (1.0,0.0,0.0) onto this plane except that if
-     * z-axis = (1.0,0.0,0.0) then (0.0,1.0,0.0) is used as initial value of
-     * arg. If arg is in the same direction as the input zAxis, or it is not
-     * three-dimensional, null will be returned. If zAxis is null, null will be
-     * returned.
-     */
-    private static IfcDirection ifcFirstProjAxis(IfcDirection zAxis,
-                                                 IfcDirection arg) {
-        if (zAxis == null) {
-            return null;
-        }
-        IfcDirection xAxis, v, z;
-        IfcVector xVec;
-        z = ifcNormalise(zAxis);
-        if (arg == null) {
-            v = z.equals(new IfcDirection(1, 0, 0)) ?
-                    new IfcDirection(0, 1, 0) : new IfcDirection(1, 0, 0);
-        } else {
-            if (arg.getDim().getValue() != 3) {
-                return null;
-            }
-            if (ifcCrossProduct(arg, z).getMagnitude().getValue() == 0) {
-                return null;
-            } else {
-                v = ifcNormalise(arg);
-            }
-        }
-        xVec = ifcScalarTimesVector(ifcDotProduct(v, z), z);
-        xAxis = ifcVectorDifference(v, xVec).getOrientation();
-        xAxis = ifcNormalise(xAxis);
-        return xAxis;
-    }
-
-    /**
-     * @param scalar The value by which vec should be multiplied.
-     * @param vec    The vector to multiply.
-     * @return The vector that is the scalar multiple of the input vector. The
-     * output is an IfcVector of the same units as the input vector. If any of
-     * the input arguments is null, returns null.
-     */
-    private static IfcVector ifcScalarTimesVector(IfcReal scalar,
-                                                  IfcVector vec) {
-        if (scalar == null || vec == null) {
-            return null;
-        }
-        IfcDirection v = vec.getOrientation();
-        double mag = scalar.getValue() * vec.getMagnitude().getValue();
-        if (mag < 0) {
-            List<IfcReal> directionRatios = v.getDirectionRatios();
-            double[] negativeDirectionRatios =
-                    new double[directionRatios.size()];
-            for (int i = 0; i < directionRatios.size(); i++) {
-                negativeDirectionRatios[i] = -directionRatios.get(i).getValue();
-            }
-            v = new IfcDirection(negativeDirectionRatios);
-            mag = -mag;
-        }
-        return new IfcVector(ifcNormalise(v), new IfcLengthMeasure(mag));
+        double[][] scratch = VECTOR_SCRATCH.get();
+        double[] axisRatios = axis == null ? null : read(axis, scratch[0]);
+        double[] refRatios =
+                refDirection == null ? null : read(refDirection, scratch[1]);
+        double[] x = scratch[2];
+        double[] y = scratch[3];
+        double[] z = scratch[4];
+        if (!VectorMath.buildAxes(axisRatios, refRatios, x, y, z)) {
+            throw new IllegalArgumentException(
+                    "axis and refDirection cannot be parallel or " +
+                            "anti-parallel");
+        }
+        // an axis which is already normalised is used as it is
+        IfcDirection zAxis =
+                axis != null && VectorMath.isNormalised(axisRatios, 3) ?
+                        axis : new IfcDirection(z);
+        return Arrays.asList(new IfcDirection(x), new IfcDirection(y), zAxis);
     }
 
     /**
      * @param scalar The value by which dir should be multiplied.
      * @param dir    The vector to multiply.
      * @return The vector that is the scalar multiple of the input vector. The
-     * output is unitless. If any of the input arguments is null, returns null.
+     * output is unitless. If any of the input arguments is null, or the
+     * components of dir are all zero, returns null.
      */
     public static IfcVector ifcScalarTimesVector(IfcReal scalar,
                                                  IfcDirection dir) {
         if (scalar == null || dir == null) {
             return null;
         }
-        IfcDirection v = dir;
         double mag = scalar.getValue();
+        byte dim = dir.getDim().getValue();
+        double[] directionRatios = new double[dim];
+        read(dir, directionRatios);
+        if (mag >= 0 && VectorMath.isNormalised(directionRatios, dim)) {
+            return new IfcVector(dir, IfcLengthMeasure.of(mag));
+        }
+        if (!VectorMath.normalise(directionRatios, directionRatios, dim)) {
+            return null;
+        }
         if (mag < 0) {
-            List<IfcReal> directionRatios = v.getDirectionRatios();
-            double[] negativeDirectionRatios =
-                    new double[directionRatios.size()];
-            for (int i = 0; i < directionRatios.size(); i++) {
-                negativeDirectionRatios[i] = -directionRatios.get(i).getValue();
+            for (int i = 0; i < dim; i++) {
+                directionRatios[i] = -directionRatios[i];
             }
-            v = new IfcDirection(negativeDirectionRatios);
             mag = -mag;
         }
-        return new IfcVector(ifcNormalise(v), new IfcLengthMeasure(mag));
+        return new IfcVector(new IfcDirection(directionRatios),
+                             IfcLengthMeasure.of(mag));
     }
 
     /**
-     * @param arg1 The first argument of the subtraction {@code arg1 - arg2}. If
-     *             both input arguments are IfcVectors, they must be expressed
-     *             in the same units.
-     * @param arg2 The second argument of the subtraction {@code arg1 - arg2}.
-     *             If both input arguments are IfcVectors, they must be
-     *             expressed in the same units.
-     * @return The vector difference of the two input vectors. If both vectors
-     * are IfcDirections, a unitless result is produced. A zero difference
-     * vector produces a an IfcVector of zero magnitude.
+     * Copies the direction ratios of a direction in an array, without creating
+     * any object. Components beyond the dimensionality of the direction are
+     * set to zero.
+     *
+     * @param direction The direction to read.
+     * @param into      The array in which to copy the direction ratios.
+     * @return into.
+     *
+     * @throws NullPointerException If direction or into are null.
      */
-    private static IfcVector ifcVectorDifference(IfcVectorOrDirection arg1,
-                                                 IfcVectorOrDirection arg2) {
-        if (arg1 == null || arg2 == null ||
-                !arg1.getDim().equals(arg2.getDim())) {
-            return null;
+    private static double[] read(IfcDirection direction, double[] into) {
+        int dim = direction.getDim().getValue();
+        for (int i = 0; i < into.length; i++) {
+            into[i] = i < dim ? direction.getDirectionRatio(i) : 0;
         }
-        IfcDirection vec1, vec2;
-        double mag1, mag2;
-        if (arg1 instanceof IfcVector) {
-            mag1 = ((IfcVector) arg1).getMagnitude().getValue();
-            vec1 = ((IfcVector) arg1).getOrientation();
-        } else {
-            mag1 = 1;
-            vec1 = (IfcDirection) arg1;
-        }
-        if (arg2 instanceof IfcVector) {
-            mag2 = ((IfcVector) arg2).getMagnitude().getValue();
-            vec2 = ((IfcVector) arg2).getOrientation();
-        } else {
-            mag2 = 1;
-            vec2 = (IfcDirection) arg2;
-        }
-        vec1 = ifcNormalise(vec1);
-        vec2 = ifcNormalise(vec2);
-        double mag = 0;
-        double[] resultDirectionRatios = new double[vec1.getDim().getValue()];
-        for (byte i = 0; i < resultDirectionRatios.length; i++) {
-            resultDirectionRatios[i] =
-                    mag1 * vec1.getDirectionRatios().get(i).getValue() -
-                            mag2 * vec2.getDirectionRatios().get(i).getValue();
-            mag += resultDirectionRatios[i] * resultDirectionRatios[1];
-        }
-        if (mag > 0) {
-            return new IfcVector(new IfcDirection(resultDirectionRatios),
-                                 new IfcLengthMeasure(sqrt(mag)));
-        }
-        return new IfcVector(vec1, new IfcLengthMeasure(0));
+        return into;
     }
 
     /**
@@ -837,23 +853,23 @@ public class Functions {
      * @param arg1 A direction in either two- or three-dimensional space.
      * @param arg2 A direction in either two- or three-dimensional space.
      * @return The scalar (or dot) product of the two directions, {@code null}
-     * if at least one argument is {@code null}, or if the arguments have
-     * different dimensionality.
+     * if at least one argument is {@code null} or has components which are all
+     * zero, or if the arguments have different dimensionality.
      */
     public static IfcReal ifcDotProduct(IfcDirection arg1, IfcDirection arg2) {
         if (arg1 == null || arg2 == null ||
                 !arg1.getDim().equals(arg2.getDim())) {
             return null;
         }
-        double scalar = 0;
-        IfcDirection vec1 = ifcNormalise(arg1);
-        IfcDirection vec2 = ifcNormalise(arg2);
+        double[][] scratch = VECTOR_SCRATCH.get();
+        double[] vec1 = read(arg1, scratch[0]);
+        double[] vec2 = read(arg2, scratch[1]);
         byte dim = arg1.getDim().getValue();
-        for (byte i = 0; i < dim; i++) {
-            scalar += vec1.getDirectionRatios().get(i).getValue() *
-                    vec2.getDirectionRatios().get(i).getValue();
+        if (!VectorMath.normalise(vec1, vec1, dim) ||
+                !VectorMath.normalise(vec2, vec2, dim)) {
+            return null;
         }
-        return new IfcReal(scalar);
+        return IfcReal.of(VectorMath.dot(vec1, vec2, dim));
     }
 
     /**
@@ -944,7 +960,7 @@ public class Functions {
         if (vec == null || vec.getDim().getValue() != 2) {
             return null;
         }
-        return new IfcDirection(-vec.getDirectionRatios().get(1).getValue(),
-                                vec.getDirectionRatios().get(0).getValue());
+        return new IfcDirection(-vec.getDirectionRatio(1),
+                                vec.getDirectionRatio(0));
     }
 }
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.util;
+
+import lombok.NonNull;
+
+import static java.lang.Math.sqrt;
+
+/**
+ * Vector operations on arrays of doubles, which the geometric functions in
+ * {@link Functions} delegate to so that intermediate results don't need to be
+ * wrapped in IfcDirection, IfcVector and IfcReal objects. Arrays are never
+ * allocated by the methods of this class: results are written in arrays
+ * supplied by the caller, which may reuse them between calls.
+ * </p>
+ * Unless stated otherwise, a result array may be the same as one of the input
+ * arrays, and only the first {@code dim} components of each array are used.
+ */
+public final class VectorMath {
+
+    private VectorMath() {
+    }
+
+    /**
+     * @param a   The first vector.
+     * @param b   The second vector.
+     * @param dim The number of components of the vectors.
+     * @return The scalar (or dot) product of a and b.
+     *
+     * @throws NullPointerException If a or b are null.
+     */
+    public static double dot(@NonNull double[] a, @NonNull double[] b,
+                             int dim) {
+        double result = 0;
+        for (int i = 0; i < dim; i++) {
+            result += a[i] * b[i];
+        }
+        return result;
+    }
+
+    /**
+     * @param a   The vector.
+     * @param dim The number of components of the vector.
+     * @return The magnitude (Euclidean norm) of a.
+     *
+     * @throws NullPointerException If a is null.
+     */
+    public static double magnitude(@NonNull double[] a, int dim) {
+        return sqrt(dot(a, a, dim));
+    }
+
+    /**
+     * @param a   The vector.
+     * @param dim The number of components of the vector.
+     * @return {@code true} if the sum of the squares of the components of a is
+     * 1, within {@link Functions#DELTA}, {@code false} otherwise.
+     *
+     * @throws NullPointerException If a is null.
+     */
+    public static boolean isNormalised(@NonNull double[] a, int dim) {
+        return Math.abs(dot(a, a, dim) - 1) < Functions.DELTA;
+    }
+
+    /**
+     * Writes in result the components of a, scaled to have a sum of squares
+     * of 1. Vectors which are already normalised are copied as they are.
+     *
+     * @param a      The vector to normalise.
+     * @param result The array in which to write the normalised vector.
+     * @param dim    The number of components of the vectors.
+     * @return {@code false} if all components of a are zero, in which case
+     * result is not modified, {@code true} otherwise.
+     *
+     * @throws NullPointerException If a or result are null.
+     */
+    public static boolean normalise(@NonNull double[] a,
+                                    @NonNull double[] result, int dim) {
+        double squares = dot(a, a, dim);
+        if (!(squares > 0)) {
+            return false;
+        }
+        if (Math.abs(squares - 1) < Functions.DELTA) {
+            if (result != a) {
+                System.arraycopy(a, 0, result, 0, dim);
+            }
+            return true;
+        }
+        double magnitude = sqrt(squares);
+        for (int i = 0; i < dim; i++) {
+            result[i] = a[i] / magnitude;
+        }
+        return true;
+    }
+
+    /**
+     * Writes in result the vector (or cross) product of a and b, which must be
+     * three-dimensional.
+     *
+     * @param a      The first vector.
+     * @param b      The second vector.
+     * @param result The array in which to write the cross product.
+     * @throws NullPointerException If any of the arguments is null.
+     */
+    public static void cross(@NonNull double[] a, @NonNull double[] b,
+                             @NonNull double[] result) {
+        double x = a[1] * b[2] - a[2] * b[1];
+        double y = a[2] * b[0] - a[0] * b[2];
+        double z = a[0] * b[1] - a[1] * b[0];
+        result[0] = x;
+        result[1] = y;
+        result[2] = z;
+    }
+
+    /**
+     * Writes in result the vector {@code a - scalar * b}.
+     *
+     * @param a      The vector from which to subtract.
+     * @param scalar The value by which b is multiplied.
+     * @param b      The vector to subtract.
+     * @param result The array in which to write the difference.
+     * @param dim    The number of components of the vectors.
+     * @throws NullPointerException If a, b or result are null.
+     */
+    public static void subtractScaled(@NonNull double[] a, double scalar,
+                                      @NonNull double[] b,
+                                      @NonNull double[] result, int dim) {
+        for (int i = 0; i < dim; i++) {
+            result[i] = a[i] - scalar * b[i];
+        }
+    }
+
+    /**
+     * Writes in result the projection of arg onto the plane normal to zAxis,
+     * normalised. Both vectors must be three-dimensional.
+     *
+     * @param zAxis  The normalised direction onto whose normal plane arg
+     *               should be projected.
+     * @param arg    The direction to project, if null the projection of
+     *               (1.0,0.0,0.0) is computed, or of (0.0,1.0,0.0) if zAxis is
+     *               (1.0,0.0,0.0).
+     * @param result The array in which to write the projection. It cannot be
+     *               the same as zAxis or arg.
+     * @return {@code false} if arg is parallel or anti-parallel to zAxis, or
+     * all its components are zero, in which case the content of result is
+     * undefined; {@code true} otherwise.
+     *
+     * @throws NullPointerException If zAxis or result are null.
+     */
+    public static boolean firstProjAxis(@NonNull double[] zAxis, double[] arg,
+                                        @NonNull double[] result) {
+        if (arg == null) {
+            boolean zIsX = zAxis[0] == 1 && zAxis[1] == 0 && zAxis[2] == 0;
+            result[0] = zIsX ? 0 : 1;
+            result[1] = zIsX ? 1 : 0;
+            result[2] = 0;
+        } else {
+            cross(arg, zAxis, result);
+            if (dot(result, result, 3) == 0) {
+                return false;
+            }
+            if (!normalise(arg, result, 3)) {
+                return false;
+            }
+        }
+        // result is now the normalised argument v, project it
+        double projection = dot(result, zAxis, 3);
+        double x = result[0];
+        double y = result[1];
+        double z = result[2];
+        subtractScaled(result, projection, zAxis, result, 3);
+        if (!normalise(result, result, 3)) {
+            // numerically indistinguishable from the plane normal, keep v
+            result[0] = x;
+            result[1] = y;
+            result[2] = z;
+        }
+        return true;
+    }
+
+    /**
+     * Computes the three normalised orthogonal axes of a placement, as
+     * described by {@link Functions#ifcBuildAxes}. All arrays must be
+     * three-dimensional and distinct from each other.
+     *
+     * @param axis         The direction of the placement Z axis, null to use
+     *                     (0.0,0.0,1.0).
+     * @param refDirection The approximate direction of the placement X axis,
+     *                     can be null.
+     * @param x            The array in which to write the X axis, which is the
+     *                     projection of refDirection onto the plane normal to
+     *                     the Z axis.
+     * @param y            The array in which to write the Y axis, which is the
+     *                     cross product of the Z axis and the X axis.
+     * @param z            The array in which to write the Z axis, which is in
+     *                     the direction of axis.
+     * @return {@code false} if refDirection is parallel or anti-parallel to
+     * axis, in which case the content of x and y is undefined; {@code true}
+     * otherwise.
+     *
+     * @throws NullPointerException If x, y or z are null.
+     */
+    public static boolean buildAxes(double[] axis, double[] refDirection,
+                                    @NonNull double[] x, @NonNull double[] y,
+                                    @NonNull double[] z) {
+        if (axis == null || !normalise(axis, z, 3)) {
+            z[0] = 0;
+            z[1] = 0;
+            z[2] = 1;
+        }
+        if (!firstProjAxis(z, refDirection, x)) {
+            return false;
+        }
+        cross(z, x, y);
+        return normalise(y, y, 3);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static buildingsmart.util.Fixtures.context;
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class BoundsCalculatorTest {
+    private static final double DELTA = 1e-12;
+
+    private static IfcBuildingElementProxy proxy(IfcObjectPlacement placement,
+                                                 IfcRepresentationItem item) {
+        IfcProductDefinitionShape shape = new IfcProductDefinitionShape(null,
+                null, new IfcShapeRepresentation(context(),
+                new IfcLabel("Body"), new IfcLabel("SweptSolid"), item));
+        return proxyBuilder().objectPlacement(placement)
+                .representation(shape).build();
+    }
+
+    /**
+     * @return A 2x4 rectangle centred at (1, 0), extruded by 3 along Z from
+     * (0, 0, 1).
+     */
+    private static IfcExtrudedAreaSolid box() {
+        IfcRectangleProfileDef rectangle = new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(1, 0),
+                        new IfcDirection(1, 0)),
+                new IfcPositiveLengthMeasure(2),
+                new IfcPositiveLengthMeasure(4));
+        return new IfcExtrudedAreaSolid(rectangle,
+                new IfcAxis2Placement3D(0, 0, 1), new IfcDirection(0, 0, 1),
+                new IfcLengthMeasure(3));
+    }
+
+    private static void assertBounds(double[] expected, Aabb actual) {
+        Assert.assertArrayEquals(expected, actual.toArray(), DELTA);
+    }
+
+    @Test
+    public void localBounds_extrudedAreaSolid() {
+        assertBounds(new double[]{0, -2, 1, 2, 2, 4},
+                     new BoundsCalculator().localBounds(box()));
+    }
+
+    @Test
+    public void localBounds_rotatedProfileAndSlantedExtrusion() {
+        // the rectangle is rotated by 90 degrees, and extruded along (1, 0, 1)
+        IfcRectangleProfileDef rectangle = new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(0, 0),
+                        new IfcDirection(0, 1)),
+                new IfcPositiveLengthMeasure(2),
+                new IfcPositiveLengthMeasure(4));
+        IfcExtrudedAreaSolid solid = new IfcExtrudedAreaSolid(rectangle,
+                new IfcAxis2Placement3D(0, 0, 0), new IfcDirection(1, 0, 1),
+                new IfcLengthMeasure(Math.sqrt(2)));
+
+        assertBounds(new double[]{-2, -1, 0, 3, 1, 1},
+                     new BoundsCalculator().localBounds(solid));
+    }
+
+    @Test
+    public void localBounds_facetedBrep() {
+        IfcCartesianPoint a = new IfcCartesianPoint(0, 0, 0);
+        IfcCartesianPoint b = new IfcCartesianPoint(2, 0, 0);
+        IfcCartesianPoint c = new IfcCartesianPoint(0, 3, 0);
+        IfcCartesianPoint d = new IfcCartesianPoint(0, 0, -1);
+        IfcClosedShell shell = new IfcClosedShell(
+                face(a, c, b), face(a, b, d), face(a, d, c), face(b, c, d));
+
+        assertBounds(new double[]{0, 0, -1, 2, 3, 0},
+                     new BoundsCalculator().localBounds(
+                             new IfcFacetedBrep(shell)));
+    }
+
+    private static IfcFace face(IfcCartesianPoint... points) {
+        return new IfcFace(new IfcFaceBound(new IfcPolyLoop(points),
+                                            IfcBoolean.T));
+    }
+
+    @Test
+    public void localBounds_circleInTiltedPlane() {
+        // the normal of the circle is the X axis
+        IfcCircle circle = new IfcCircle(
+                new IfcAxis2Placement3D(new IfcCartesianPoint(1, 1, 1),
+                        new IfcDirection(1, 0, 0), new IfcDirection(0, 1, 0)),
+                new IfcPositiveLengthMeasure(2));
+
+        assertBounds(new double[]{1, -1, -1, 1, 3, 3},
+                     new BoundsCalculator().localBounds(circle));
+    }
+
+    @Test
+    public void localBounds_sweptDiskSolid() {
+        IfcPolyline directrix = new IfcPolyline(new IfcCartesianPoint(0, 0, 0),
+                new IfcCartesianPoint(5, 0, 2));
+        IfcSweptDiskSolid pipe = new IfcSweptDiskSolid(directrix,
+                new IfcPositiveLengthMeasure(0.5), null,
+                new IfcParameterValue(0), new IfcParameterValue(1));
+
+        assertBounds(new double[]{-0.5, -0.5, -0.5, 5.5, 0.5, 2.5},
+                     new BoundsCalculator().localBounds(pipe));
+    }
+
+    @Test
+    public void localBounds_booleanResults() {
+        IfcExtrudedAreaSolid box = box();
+        IfcExtrudedAreaSolid moved = new IfcExtrudedAreaSolid(
+                box.getSweptArea(), new IfcAxis2Placement3D(1, 1, 0),
+                box.getExtrudedDirection(), box.getDepth());
+        BoundsCalculator calculator = new BoundsCalculator();
+
+        assertBounds(new double[]{0, -2, 0, 3, 3, 4}, calculator.localBounds(
+                new IfcBooleanResult(IfcBooleanOperator.UNION, box, moved)));
+        assertBounds(new double[]{1, -1, 1, 2, 2, 3}, calculator.localBounds(
+                new IfcBooleanResult(IfcBooleanOperator.INTERSECTION, box,
+                                     moved)));
+        assertBounds(new double[]{0, -2, 1, 2, 2, 4}, calculator.localBounds(
+                new IfcBooleanResult(IfcBooleanOperator.DIFFERENCE, box,
+                                     moved)));
+    }
+
+    @Test
+    public void localBounds_unsupportedItem() {
+        Assert.assertNull(new BoundsCalculator().localBounds(
+                new IfcCartesianPoint(0, 0, 0)));
+    }
+
+    @Test
+    public void worldBoundsAll_sharedItemsComputedOnce() {
+        IfcExtrudedAreaSolid solid = box();
+        IfcLocalPlacement storey = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(0, 0, 3));
+        // the second product is rotated by 90 degrees around Z
+        IfcBuildingElementProxy first = proxy(new IfcLocalPlacement(storey,
+                new IfcAxis2Placement3D(10, 0, 0)), solid);
+        IfcBuildingElementProxy second = proxy(new IfcLocalPlacement(storey,
+                new IfcAxis2Placement3D(new IfcCartesianPoint(0, 0, 0),
+                        new IfcDirection(0, 0, 1), new IfcDirection(0, 1, 0))),
+                solid);
+        IfcBuildingElementProxy atOrigin = proxy(new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(0, 0, 0)), solid);
+        BoundsCalculator calculator = new BoundsCalculator();
+
+        Aabb[] bounds = calculator.worldBoundsAll(
+                Arrays.asList(first, second, atOrigin));
+
+        assertBounds(new double[]{10, -2, 4, 12, 2, 7}, bounds[0]);
+        assertBounds(new double[]{-2, 0, 4, 2, 2, 7}, bounds[1]);
+        assertBounds(new double[]{0, -2, 1, 2, 2, 4}, bounds[2]);
+        Assert.assertEquals(1, calculator.size());
+    }
+
+    @Test
+    public void worldBounds_productWithoutRepresentation() {
+        IfcBuildingElementProxy proxy = proxyBuilder().build();
+
+        Assert.assertNull(new BoundsCalculator().worldBounds(proxy));
+    }
+}
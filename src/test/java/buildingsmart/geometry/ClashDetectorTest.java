@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import buildingsmart.model.Model;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static buildingsmart.util.Fixtures.context;
+import static buildingsmart.util.Fixtures.ownerHistory;
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class ClashDetectorTest {
+    private static IfcExtrudedAreaSolid unitBox;
+
+    @BeforeClass
+    public static void setUp() {
+        // a 1x1x1 box whose minimum corner is at the origin
+        unitBox = new IfcExtrudedAreaSolid(new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(0.5, 0.5),
+                        new IfcDirection(1, 0)),
+                new IfcPositiveLengthMeasure(1),
+                new IfcPositiveLengthMeasure(1)),
+                new IfcAxis2Placement3D(0, 0, 0), new IfcDirection(0, 0, 1),
+                new IfcLengthMeasure(1));
+    }
+
+    private static IfcProductDefinitionShape shape() {
+        return new IfcProductDefinitionShape(null, null,
+                new IfcShapeRepresentation(context(), new IfcLabel("Body"),
+                        new IfcLabel("SweptSolid"), unitBox));
+    }
+
+    private static IfcLocalPlacement placement(double x, double y, double z) {
+        return new IfcLocalPlacement(null, new IfcAxis2Placement3D(x, y, z));
+    }
+
+    private static IfcBuildingElementProxy proxy(IfcGloballyUniqueId globalId,
+                                                 double x, double y,
+                                                 double z) {
+        return proxyBuilder().globalId(globalId)
+                .objectPlacement(placement(x, y, z)).representation(shape())
+                .build();
+    }
+
+    private static IfcBuildingElementProxy proxy(double x, double y,
+                                                 double z) {
+        return proxy(new IfcGloballyUniqueId(), x, y, z);
+    }
+
+    private static IfcWall wall(double x, double y, double z) {
+        return IfcWall.builder().globalId(new IfcGloballyUniqueId())
+                .ownerHistory(ownerHistory())
+                .objectPlacement(placement(x, y, z))
+                .representation(shape()).build();
+    }
+
+    private static IfcBuildingStorey storey() {
+        return IfcBuildingStorey.builder().globalId(new IfcGloballyUniqueId())
+                .ownerHistory(ownerHistory())
+                .compositionType(IfcElementCompositionEnum.ELEMENT).build();
+    }
+
+    private static List<IfcRelContainedInSpatialStructure> contain(
+            IfcBuildingStorey storey, IfcProduct... products) {
+        return Collections.singletonList(new IfcRelContainedInSpatialStructure(
+                ownerHistory(), null, null, storey, products));
+    }
+
+    private static Set<ClashCandidate> pairs(IfcProduct... products) {
+        Set<ClashCandidate> result = new HashSet<>();
+        for (int i = 0; i < products.length; i += 2) {
+            result.add(new ClashCandidate(products[i], products[i + 1]));
+        }
+        return result;
+    }
+
+    @Test
+    public void detect_overlappingAndTouchingBoxes() {
+        IfcWall wall = wall(0, 0, 0);
+        IfcBuildingElementProxy overlapping = proxy(0.5, 0.5, 0);
+        IfcBuildingElementProxy touching = proxy(1.5, 0, 0);
+        IfcBuildingElementProxy far = proxy(10, 0, 0);
+        ClashDetector detector = ClashDetector.builder().build();
+
+        List<ClashCandidate> candidates = detector.detect(
+                contain(storey(), wall, overlapping, touching, far));
+
+        Assert.assertEquals(pairs(wall, overlapping, overlapping, touching),
+                            new HashSet<>(candidates));
+        Assert.assertEquals(2, candidates.size());
+    }
+
+    @Test
+    public void detect_tolerance() {
+        IfcBuildingElementProxy a = proxy(0, 0, 0);
+        IfcBuildingElementProxy b = proxy(1.05, 0, 0);
+        IfcBuildingElementProxy c = proxy(2.2, 0, 0);
+
+        List<ClashCandidate> candidates = ClashDetector.builder()
+                .tolerance(0.1).build().detect(contain(storey(), a, b, c));
+
+        Assert.assertEquals(pairs(a, b), new HashSet<>(candidates));
+    }
+
+    @Test
+    public void detect_sameAsAllPairs() {
+        Random random = new Random(7);
+        IfcBuildingElementProxy[] products = new IfcBuildingElementProxy[500];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = proxy(random.nextDouble() * 40,
+                                random.nextDouble() * 40,
+                                random.nextDouble() * 4);
+        }
+        BoundsCalculator calculator = new BoundsCalculator();
+        Set<ClashCandidate> expected = new HashSet<>();
+        for (int i = 0; i < products.length; i++) {
+            for (int j = i + 1; j < products.length; j++) {
+                if (calculator.worldBounds(products[i])
+                        .intersects(calculator.worldBounds(products[j]))) {
+                    expected.add(new ClashCandidate(products[i],
+                                                    products[j]));
+                }
+            }
+        }
+
+        List<ClashCandidate> candidates = ClashDetector.builder()
+                .boundsCalculator(calculator).build()
+                .detect(contain(storey(), products));
+
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(expected, new HashSet<>(candidates));
+        Assert.assertEquals(expected.size(), candidates.size());
+    }
+
+    @Test
+    public void detect_typeAndStoreyRules() {
+        IfcBuildingStorey ground = storey();
+        IfcBuildingStorey first = storey();
+        IfcWall wall = wall(0, 0, 0);
+        IfcBuildingElementProxy proxy = proxy(0, 0, 0);
+        IfcBuildingElementProxy other = proxy(0, 0, 0);
+        IfcBuildingElementProxy upstairs = proxy(0, 0, 0.5);
+        List<IfcRelContainedInSpatialStructure> relationships =
+                new ArrayList<>(contain(ground, wall, proxy, other));
+        relationships.addAll(contain(first, upstairs));
+
+        Assert.assertEquals(pairs(proxy, other, proxy, upstairs, other,
+                                  upstairs),
+                            new HashSet<>(ClashDetector.builder()
+                                    .excludedType(IfcWall.class).build()
+                                    .detect(relationships)));
+        Assert.assertEquals(pairs(wall, proxy, wall, other, proxy, other),
+                            new HashSet<>(ClashDetector.builder()
+                                    .excludedStorey(first).build()
+                                    .detect(relationships)));
+        Assert.assertEquals(pairs(wall, proxy, wall, other, proxy, other),
+                            new HashSet<>(ClashDetector.builder()
+                                    .includedStorey(ground).build()
+                                    .detect(relationships)));
+        Assert.assertTrue(ClashDetector.builder().includedType(IfcWall.class)
+                                  .build().detect(relationships).isEmpty());
+    }
+
+    @Test
+    public void update_onlyChangedElements() {
+        IfcBuildingStorey storey = storey();
+        IfcGloballyUniqueId movedId = new IfcGloballyUniqueId();
+        IfcBuildingElementProxy a = proxy(0, 0, 0);
+        IfcBuildingElementProxy b = proxy(0.5, 0, 0);
+        IfcBuildingElementProxy c = proxy(10, 0, 0);
+        IfcBuildingElementProxy moved = proxy(movedId, 0, 0.5, 0);
+        ClashDetector detector = ClashDetector.builder().build();
+        detector.detect(contain(storey, a, b, c, moved));
+
+        // as if the model was read again, moved is replaced by an element
+        // with the same GlobalId next to c, and b by an equal element
+        IfcBuildingElementProxy movedAgain;
+        IfcBuildingElementProxy sameAsB;
+        try (Model.Scope ignored = new Model().open()) {
+            movedAgain = proxy(movedId, 10.5, 0, 0);
+            sameAsB = proxy(b.getGlobalId(), 0.5, 0, 0);
+        }
+        List<ClashCandidate> changed = detector.update(
+                contain(storey, a, sameAsB, c, movedAgain));
+
+        Assert.assertEquals(pairs(c, movedAgain), new HashSet<>(changed));
+        Assert.assertEquals(pairs(a, b, c, movedAgain),
+                            new HashSet<>(detector.getCandidates()));
+        Assert.assertTrue(detector.update(
+                contain(storey, a, sameAsB, c, movedAgain)).isEmpty());
+        // removing an element forgets its candidates
+        Assert.assertTrue(detector.update(contain(storey, a, sameAsB, c))
+                                  .isEmpty());
+        Assert.assertEquals(pairs(a, b),
+                            new HashSet<>(detector.getCandidates()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void builder_negativeTolerance() {
+        ClashDetector.builder().tolerance(-1).build();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.IfcCartesianPoint;
+import buildingsmart.ifc.IfcPolyLoop;
+import buildingsmart.ifc.IfcPolyline;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class CoordinatesTest {
+    private static final Transform TRANSFORM =
+            Transform.of(0, -1, 0, 10, 1, 0, 0, 20, 0, 0, 1, 30);
+
+    @Test
+    public void pack_bidimensionalPointsHaveZeroZ() {
+        IfcPolyline polyline = new IfcPolyline(new IfcCartesianPoint(1, 2),
+                                               new IfcCartesianPoint(3, 4));
+
+        Assert.assertArrayEquals(new double[]{1, 2, 0, 3, 4, 0},
+                                 Coordinates.pack(polyline), 0);
+    }
+
+    @Test
+    public void packLoops_concatenatesLoops() {
+        IfcPolyLoop first = new IfcPolyLoop(new IfcCartesianPoint(0, 0, 0),
+                                            new IfcCartesianPoint(1, 0, 0),
+                                            new IfcCartesianPoint(0, 1, 0));
+        IfcPolyLoop second = new IfcPolyLoop(new IfcCartesianPoint(0, 0, 1),
+                                             new IfcCartesianPoint(1, 0, 1),
+                                             new IfcCartesianPoint(0, 1, 1));
+
+        double[] coordinates =
+                Coordinates.packLoops(Arrays.asList(first, second));
+
+        Assert.assertEquals(18, coordinates.length);
+        Assert.assertArrayEquals(new double[]{0, 1, 1},
+                Arrays.copyOfRange(coordinates, 15, 18), 0);
+    }
+
+    @Test
+    public void transform_smallArray() {
+        double[] coordinates = {1, 0, 0, 0, 1, 0};
+
+        Coordinates.transform(TRANSFORM, coordinates);
+
+        Assert.assertArrayEquals(new double[]{10, 21, 30, 9, 20, 30},
+                                 coordinates, 0);
+    }
+
+    @Test
+    public void transform_largeArrayMatchesSinglePoints() {
+        Random random = new Random(42);
+        double[] src = new double[3 * 100_003];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = random.nextDouble() * 1000;
+        }
+        double[] dst = new double[src.length];
+
+        Coordinates.transform(TRANSFORM, src, dst);
+
+        double[] expected = new double[3];
+        for (int i = 0; i < src.length; i += 3) {
+            TRANSFORM.transformPoint(src, i, expected, 0);
+            Assert.assertEquals(expected[0], dst[i], 0);
+            Assert.assertEquals(expected[1], dst[i + 1], 0);
+            Assert.assertEquals(expected[2], dst[i + 2], 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void transform_incompletePoint() {
+        Coordinates.transform(TRANSFORM, new double[4]);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class CurveSamplerTest {
+    private static final double DELTA = 1e-12;
+
+    private static IfcCircle circle(double x, double y, double radius) {
+        return new IfcCircle(new IfcAxis2Placement2D(
+                new IfcCartesianPoint(x, y), new IfcDirection(1, 0)),
+                new IfcPositiveLengthMeasure(radius));
+    }
+
+    private static Set<IfcTrimmingSelect> trim(IfcTrimmingSelect... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static void assertPoint(double x, double y, double[] points,
+                                    int index) {
+        Assert.assertEquals(x, points[index * 3], DELTA);
+        Assert.assertEquals(y, points[index * 3 + 1], DELTA);
+        Assert.assertEquals(0, points[index * 3 + 2], DELTA);
+    }
+
+    @Test
+    public void sample_circle() {
+        double[] points = new CurveSampler().sample(circle(1, 2, 3));
+
+        Assert.assertEquals(33 * 3, points.length);
+        for (int i = 0; i < 33; i++) {
+            Assert.assertEquals(3, Math.hypot(points[i * 3] - 1,
+                                              points[i * 3 + 1] - 2), DELTA);
+        }
+        assertPoint(4, 2, points, 0);
+        assertPoint(4, 2, points, 32);
+    }
+
+    @Test
+    public void sample_chordTolerance() {
+        CurveSampler sampler = new CurveSampler(0.01, Math.PI / 4, 16);
+
+        double[] small = sampler.sample(circle(0, 0, 0.1));
+        double[] large = sampler.sample(circle(0, 0, 10));
+
+        // the angle tolerance prevails on small circles
+        Assert.assertEquals(9 * 3, small.length);
+        int n = large.length / 3 - 1;
+        Assert.assertTrue(n > 8);
+        // the middle of each segment is within the tolerance from the circle
+        double halfStep = Math.PI / n;
+        Assert.assertTrue(10 - 10 * Math.cos(halfStep) <= 0.01);
+        Assert.assertTrue(10 - 10 * Math.cos(Math.PI / (n - 1)) > 0.01);
+    }
+
+    @Test
+    public void sample_trimmedCircleBySenseAndParameter() {
+        IfcCircle circle = circle(0, 0, 2);
+        CurveSampler sampler = new CurveSampler();
+
+        double[] quarter = sampler.sample(new IfcTrimmedCurve(circle,
+                trim(new IfcParameterValue(0)),
+                trim(new IfcParameterValue(Math.PI / 2)), IfcBoolean.T,
+                IfcTrimmingPreference.PARAMETER));
+        double[] threeQuarters = sampler.sample(new IfcTrimmedCurve(circle,
+                trim(new IfcParameterValue(0)),
+                trim(new IfcParameterValue(Math.PI / 2)), IfcBoolean.F,
+                IfcTrimmingPreference.PARAMETER));
+
+        Assert.assertEquals(9 * 3, quarter.length);
+        assertPoint(2, 0, quarter, 0);
+        assertPoint(Math.sqrt(2), Math.sqrt(2), quarter, 4);
+        assertPoint(0, 2, quarter, 8);
+        Assert.assertEquals(25 * 3, threeQuarters.length);
+        assertPoint(2, 0, threeQuarters, 0);
+        assertPoint(0, -2, threeQuarters, 8);
+        assertPoint(0, 2, threeQuarters, 24);
+    }
+
+    @Test
+    public void sample_trimmedEllipseByPreference() {
+        IfcEllipse ellipse = new IfcEllipse(new IfcAxis2Placement2D(
+                new IfcCartesianPoint(1, 1), new IfcDirection(0, 1)),
+                new IfcPositiveLengthMeasure(2),
+                new IfcPositiveLengthMeasure(1));
+        Set<IfcTrimmingSelect> start = trim(new IfcParameterValue(0),
+                                            new IfcCartesianPoint(0, 1));
+        Set<IfcTrimmingSelect> end = trim(new IfcCartesianPoint(1, -1));
+        CurveSampler sampler = new CurveSampler();
+
+        double[] byPoint = sampler.sample(new IfcTrimmedCurve(ellipse, start,
+                end, IfcBoolean.T, IfcTrimmingPreference.CARTESIAN));
+        double[] byParameter = sampler.sample(new IfcTrimmedCurve(ellipse,
+                start, end, IfcBoolean.T, IfcTrimmingPreference.PARAMETER));
+
+        // the X axis of the ellipse is the global Y axis, so (0, 1) is at
+        // parameter pi / 2 and (1, -1) at parameter pi
+        Assert.assertEquals(9 * 3, byPoint.length);
+        assertPoint(0, 1, byPoint, 0);
+        assertPoint(1, -1, byPoint, 8);
+        Assert.assertEquals(17 * 3, byParameter.length);
+        assertPoint(1, 3, byParameter, 0);
+        assertPoint(1, -1, byParameter, 16);
+    }
+
+    @Test
+    public void sample_compositeCurve() {
+        // a slot: two straight edges joined by half circles, the second edge
+        // and the second half circle traversed against their sense
+        IfcPolyline bottom = new IfcPolyline(new IfcCartesianPoint(0, 0),
+                new IfcCartesianPoint(4, 0));
+        IfcTrimmedCurve right = new IfcTrimmedCurve(circle(4, 1, 1),
+                trim(new IfcParameterValue(-Math.PI / 2)),
+                trim(new IfcParameterValue(Math.PI / 2)), IfcBoolean.T,
+                IfcTrimmingPreference.PARAMETER);
+        IfcPolyline top = new IfcPolyline(new IfcCartesianPoint(0, 2),
+                new IfcCartesianPoint(4, 2));
+        IfcTrimmedCurve left = new IfcTrimmedCurve(circle(0, 1, 1),
+                trim(new IfcParameterValue(-Math.PI / 2)),
+                trim(new IfcParameterValue(Math.PI / 2)), IfcBoolean.F,
+                IfcTrimmingPreference.PARAMETER);
+        IfcCompositeCurve slot = new IfcCompositeCurve(Arrays.asList(
+                new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                        IfcBoolean.T, bottom),
+                new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                        IfcBoolean.T, right),
+                new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                        IfcBoolean.F, top),
+                new IfcCompositeCurveSegment(IfcTransitionCode.CONTINUOUS,
+                        IfcBoolean.F, left)), IfcLogical.F);
+        CurveSampler sampler = new CurveSampler();
+
+        double[] points = sampler.sample(slot);
+
+        // 2 + 16 + 1 + 16 points, without repeating the joints
+        Assert.assertEquals(35 * 3, points.length);
+        assertPoint(0, 0, points, 0);
+        assertPoint(4, 0, points, 1);
+        assertPoint(5, 1, points, 9);
+        assertPoint(4, 2, points, 17);
+        assertPoint(0, 2, points, 18);
+        assertPoint(-1, 1, points, 26);
+        assertPoint(0, 0, points, 34);
+        Assert.assertEquals(points.length / 3, sampler.pointCount(slot));
+    }
+
+    @Test
+    public void sample_cache() {
+        IfcCircle circle = circle(0, 0, 1);
+        CurveSampler sampler = new CurveSampler(1, Math.PI / 2, 2);
+        CurveSampler finer = sampler.withTolerances(1, Math.PI / 4);
+
+        double[] buffer = new double[20];
+        Assert.assertEquals(5, sampler.sample(circle, buffer, 2));
+        assertPoint(0, -1, Arrays.copyOfRange(buffer, 2, 20), 3);
+        Assert.assertEquals(9, finer.pointCount(circle));
+        Assert.assertEquals(2, sampler.size());
+        IfcCurve unsupported = new IfcCurve() {
+            @Override
+            public IfcDimensionCount getDim() {
+                return IfcDimensionCount.of(2);
+            }
+
+            @Override
+            public boolean equals(Object o) {
+                return this == o;
+            }
+
+            @Override
+            public int hashCode() {
+                return System.identityHashCode(this);
+            }
+        };
+        Assert.assertNull(sampler.sample(unsupported));
+        Assert.assertEquals(-1, sampler.sample(unsupported, buffer, 0));
+        // the least recently used curve was evicted
+        Assert.assertEquals(2, sampler.size());
+        Assert.assertEquals(5, sampler.pointCount(circle));
+        Assert.assertEquals(2, sampler.size());
+    }
+}
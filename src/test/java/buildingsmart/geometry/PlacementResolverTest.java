@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class PlacementResolverTest {
+    private static final double DELTA = 1e-12;
+
+    private static IfcBuildingElementProxy proxy(IfcObjectPlacement placement) {
+        return proxyBuilder().objectPlacement(placement).build();
+    }
+
+    @Test
+    public void resolve_composesChainOfPlacements() {
+        // the site is rotated by 90 degrees around Z
+        IfcLocalPlacement site = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(new IfcCartesianPoint(10, 0, 0),
+                        new IfcDirection(0, 0, 1), new IfcDirection(0, 1, 0)));
+        IfcLocalPlacement storey = new IfcLocalPlacement(site,
+                new IfcAxis2Placement3D(0, 0, 3));
+        IfcBuildingElementProxy element = proxy(new IfcLocalPlacement(storey,
+                new IfcAxis2Placement3D(1, 0, 0)));
+        PlacementResolver resolver = new PlacementResolver();
+
+        Transform transform = resolver.resolve(element);
+
+        Assert.assertArrayEquals(new double[]{10, 1, 3},
+                transform.transform(new IfcCartesianPoint(0, 0, 0)), DELTA);
+        Assert.assertArrayEquals(new double[]{9, 1, 3},
+                transform.transform(new IfcCartesianPoint(0, 1, 0)), DELTA);
+        Assert.assertEquals(3, resolver.size());
+    }
+
+    @Test
+    public void resolveAll_sharesParentPlacements() {
+        IfcLocalPlacement storey = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(0, 0, 3));
+        IfcBuildingElementProxy first = proxy(new IfcLocalPlacement(storey,
+                new IfcAxis2Placement3D(1, 0, 0)));
+        IfcBuildingElementProxy second = proxy(new IfcLocalPlacement(storey,
+                new IfcAxis2Placement3D(2, 0, 0)));
+        IfcBuildingElementProxy unplaced = proxy(null);
+        PlacementResolver resolver = new PlacementResolver();
+
+        Transform[] transforms = resolver.resolveAll(
+                Arrays.asList(first, second, unplaced));
+
+        Assert.assertEquals(resolver.resolve(first), transforms[0]);
+        Assert.assertArrayEquals(new double[]{2, 0, 3},
+                transforms[1].transform(new IfcCartesianPoint(0, 0, 0)), 0);
+        Assert.assertSame(Transform.identity(), transforms[2]);
+        Assert.assertEquals(3, resolver.size());
+    }
+
+    @Test
+    public void resolve_bidimensionalPlacement() {
+        IfcLocalPlacement placement = new IfcLocalPlacement(null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(1, 2),
+                        new IfcDirection(0, 1)));
+
+        Transform transform = new PlacementResolver().resolve(placement);
+
+        Assert.assertArrayEquals(new double[]{1, 3, 0},
+                transform.transform(new IfcCartesianPoint(1, 0)), DELTA);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_invalidMatrix() {
+        Transform.of(1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 0, 0, 1, 1);
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static buildingsmart.util.Fixtures.context;
+import static buildingsmart.util.Fixtures.ownerHistory;
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class SpatialIndexTest {
+    private static IfcExtrudedAreaSolid unitBox;
+
+    private IfcBuildingStorey ground;
+    private IfcBuildingStorey first;
+    private List<IfcBuildingElementProxy> groundProducts;
+    private List<IfcBuildingElementProxy> firstProducts;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // a 1x1x1 box whose minimum corner is at the origin
+        unitBox = new IfcExtrudedAreaSolid(new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(0.5, 0.5),
+                        new IfcDirection(1, 0)),
+                new IfcPositiveLengthMeasure(1),
+                new IfcPositiveLengthMeasure(1)),
+                new IfcAxis2Placement3D(0, 0, 0), new IfcDirection(0, 0, 1),
+                new IfcLengthMeasure(1));
+    }
+
+    private static IfcBuildingStorey storey() {
+        return IfcBuildingStorey.builder().globalId(new IfcGloballyUniqueId())
+                .ownerHistory(ownerHistory())
+                .compositionType(IfcElementCompositionEnum.ELEMENT).build();
+    }
+
+    private static IfcBuildingElementProxy proxy(double x, double y,
+                                                 double z) {
+        IfcProductDefinitionShape shape = new IfcProductDefinitionShape(null,
+                null, new IfcShapeRepresentation(context(),
+                new IfcLabel("Body"), new IfcLabel("SweptSolid"), unitBox));
+        return proxyBuilder().objectPlacement(new IfcLocalPlacement(null,
+                        new IfcAxis2Placement3D(x, y, z)))
+                .representation(shape).build();
+    }
+
+    /**
+     * Creates a 30x30 grid of unit boxes, two metres apart, on each of two
+     * storeys three metres apart.
+     */
+    @Before
+    public void setUp() {
+        ground = storey();
+        first = storey();
+        groundProducts = new ArrayList<>();
+        firstProducts = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            for (int j = 0; j < 30; j++) {
+                groundProducts.add(proxy(2 * i, 2 * j, 0));
+                firstProducts.add(proxy(2 * i, 2 * j, 3));
+            }
+        }
+    }
+
+    private IfcRelContainedInSpatialStructure contain(
+            IfcBuildingStorey storey, List<IfcBuildingElementProxy> products) {
+        return new IfcRelContainedInSpatialStructure(ownerHistory(), null, null,
+                new HashSet<>(products), storey);
+    }
+
+    private SpatialIndex bulkLoaded() {
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(Arrays.asList(contain(ground, groundProducts),
+                                      contain(first, firstProducts)));
+        return index;
+    }
+
+    private static Set<IfcProduct> bruteForce(
+            List<? extends IfcProduct> products, Aabb box) {
+        BoundsCalculator calculator = new BoundsCalculator();
+        Set<IfcProduct> result =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (IfcProduct product : products) {
+            if (calculator.worldBounds(product).intersects(box)) {
+                result.add(product);
+            }
+        }
+        return result;
+    }
+
+    private static Set<IfcProduct> asSet(List<IfcProduct> products) {
+        Set<IfcProduct> result =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        result.addAll(products);
+        Assert.assertEquals("duplicated results", products.size(),
+                            result.size());
+        return result;
+    }
+
+    @Test
+    public void query_sameAsLinearScan() {
+        SpatialIndex index = bulkLoaded();
+        List<IfcBuildingElementProxy> all = new ArrayList<>(groundProducts);
+        all.addAll(firstProducts);
+        Random random = new Random(42);
+
+        Assert.assertEquals(1800, index.size());
+        for (int i = 0; i < 100; i++) {
+            double x = random.nextDouble() * 64 - 2;
+            double y = random.nextDouble() * 64 - 2;
+            double z = random.nextDouble() * 6 - 1;
+            Aabb box = Aabb.of(x, y, z, x + random.nextDouble() * 10,
+                               y + random.nextDouble() * 10,
+                               z + random.nextDouble() * 2);
+            Assert.assertEquals(bruteForce(all, box),
+                                asSet(index.query(box)));
+            Assert.assertEquals(bruteForce(firstProducts, box),
+                                asSet(index.query(box, first)));
+        }
+    }
+
+    @Test
+    public void query_touchingBoundary() {
+        SpatialIndex index = bulkLoaded();
+
+        List<IfcProduct> result = index.query(Aabb.of(1, 1, 1, 1, 1, 1));
+
+        Assert.assertEquals(1, result.size());
+        Assert.assertSame(groundProducts.get(0), result.get(0));
+    }
+
+    @Test
+    public void nearest_sortedByDistance() {
+        SpatialIndex index = bulkLoaded();
+
+        // (20.5, 10.5, 0.5) is in the box at (20, 10, 0), the boxes at
+        // (18, 10, 0), (22, 10, 0), (20, 8, 0) and (20, 12, 0) are 1.5 away
+        List<IfcProduct> nearest = index.nearest(20.5, 10.5, 0.5, 5);
+        Set<IfcProduct> expectedNext = new HashSet<>(Arrays.asList(
+                groundProducts.get(9 * 30 + 5), groundProducts.get(11 * 30 + 5),
+                groundProducts.get(10 * 30 + 4),
+                groundProducts.get(10 * 30 + 6)));
+
+        Assert.assertEquals(5, nearest.size());
+        Assert.assertSame(groundProducts.get(10 * 30 + 5), nearest.get(0));
+        Assert.assertEquals(expectedNext,
+                            new HashSet<>(nearest.subList(1, 5)));
+        Assert.assertSame(firstProducts.get(10 * 30 + 5),
+                          index.nearest(20.5, 10.5, 0.5, 1, first).get(0));
+    }
+
+    @Test
+    public void nearest_fewerProductsThanK() {
+        SpatialIndex index = new SpatialIndex();
+        index.insert(contain(ground, groundProducts.subList(0, 3)));
+
+        Assert.assertEquals(3, index.nearest(0, 0, 0, 10).size());
+        Assert.assertTrue(index.nearest(0, 0, 0, 10, first).isEmpty());
+    }
+
+    @Test
+    public void insert_incrementalSameAsBulk() {
+        SpatialIndex index = new SpatialIndex();
+        index.insertAll(Collections.singletonList(
+                contain(ground, groundProducts)));
+        // inserted one relationship at a time, some of them end up in the
+        // buffer and some trigger a rebuild of the tree
+        for (int i = 0; i < firstProducts.size(); i += 10) {
+            Assert.assertEquals(10, index.insert(
+                    contain(first, firstProducts.subList(i, i + 10))));
+        }
+        Aabb box = Aabb.of(10.5, 10.5, -1, 30.5, 20.5, 10);
+
+        Assert.assertEquals(1800, index.size());
+        Assert.assertEquals(asSet(bulkLoaded().query(box)),
+                            asSet(index.query(box)));
+        Assert.assertEquals(bruteForce(firstProducts, box),
+                            asSet(index.query(box, first)));
+    }
+
+    @Test
+    public void insert_productIndexedOnce() {
+        SpatialIndex index = new SpatialIndex();
+        IfcBuildingElementProxy product = groundProducts.get(0);
+
+        Assert.assertTrue(index.insert(product, ground));
+        Assert.assertFalse(index.insert(product, ground));
+        Assert.assertEquals(1, index.size());
+        index.clear();
+        Assert.assertEquals(0, index.size());
+        Assert.assertTrue(index.query(Aabb.of(0, 0, 0, 1, 1, 1)).isEmpty());
+    }
+}
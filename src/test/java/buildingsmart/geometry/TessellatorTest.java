@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.geometry;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static buildingsmart.util.Fixtures.context;
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class TessellatorTest {
+    private static final double DELTA = 1e-4;
+    private static final IfcAxis2Placement2D ORIGIN =
+            new IfcAxis2Placement2D(new IfcCartesianPoint(0, 0),
+                                    new IfcDirection(1, 0));
+
+    private static IfcPositiveLengthMeasure length(double value) {
+        return new IfcPositiveLengthMeasure(value);
+    }
+
+    private static IfcExtrudedAreaSolid extrude(IfcProfileDef profile,
+                                                double depth) {
+        return new IfcExtrudedAreaSolid(profile,
+                new IfcAxis2Placement3D(0, 0, 0), new IfcDirection(0, 0, 1),
+                new IfcLengthMeasure(depth));
+    }
+
+    /**
+     * @return The volume enclosed by mesh, computed with the divergence
+     * theorem, which is positive only if its triangles are counter-clockwise
+     * seen from outside.
+     */
+    private static double volume(Mesh mesh) {
+        float[] p = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        double sum = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = indices[i] * 3;
+            int b = indices[i + 1] * 3;
+            int c = indices[i + 2] * 3;
+            sum += p[a] * (p[b + 1] * p[c + 2] - p[b + 2] * p[c + 1]) +
+                    p[a + 1] * (p[b + 2] * p[c] - p[b] * p[c + 2]) +
+                    p[a + 2] * (p[b] * p[c + 1] - p[b + 1] * p[c]);
+        }
+        return sum / 6;
+    }
+
+    /**
+     * @return The area of a regular polygon with n vertices on a circle of
+     * the given radius.
+     */
+    private static double polygonArea(double radius, int n) {
+        return n * radius * radius * Math.sin(2 * Math.PI / n) / 2;
+    }
+
+    @Test
+    public void tessellate_extrudedBox() {
+        IfcRectangleProfileDef rectangle = new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(1, 0),
+                        new IfcDirection(1, 0)), length(2), length(4));
+        IfcExtrudedAreaSolid box = new IfcExtrudedAreaSolid(rectangle,
+                new IfcAxis2Placement3D(0, 0, 1), new IfcDirection(0, 0, 1),
+                new IfcLengthMeasure(3));
+
+        Mesh mesh = new Tessellator().tessellate(box);
+
+        Assert.assertEquals(12, mesh.getTriangleCount());
+        Assert.assertEquals(4 + 4 + 4 * 4, mesh.getVertexCount());
+        Assert.assertEquals(Aabb.of(0, -2, 1, 2, 2, 4), mesh.getBounds());
+        Assert.assertEquals(24, volume(mesh), DELTA);
+    }
+
+    @Test
+    public void tessellate_downwardsExtrusionFacesOutwards() {
+        IfcExtrudedAreaSolid solid = new IfcExtrudedAreaSolid(
+                new IfcCircleProfileDef(IfcProfileTypeEnum.AREA, null, ORIGIN,
+                                        length(1)),
+                new IfcAxis2Placement3D(0, 0, 0), new IfcDirection(1, 0, -1),
+                new IfcLengthMeasure(2 * Math.sqrt(2)));
+
+        Mesh mesh = new Tessellator().tessellate(solid);
+
+        Assert.assertEquals(polygonArea(1, 32) * 2, volume(mesh), DELTA);
+        Assert.assertEquals(-2, mesh.getBounds().getMinZ(), DELTA);
+    }
+
+    @Test
+    public void tessellate_parameterizedProfiles() {
+        Tessellator tessellator = new Tessellator();
+        IfcProfileTypeEnum area = IfcProfileTypeEnum.AREA;
+        IfcProfileDef[] profiles = {
+                new IfcRectangleHollowProfileDef(area, null, ORIGIN, length(4),
+                        length(2), length(0.5), null, null),
+                new IfcCircleHollowProfileDef(area, null, ORIGIN, length(2),
+                        length(0.5)),
+                new IfcEllipseProfileDef(area, null, ORIGIN, length(2),
+                        length(1)),
+                new IfcIShapeProfileDef(area, null, ORIGIN, length(2),
+                        length(4), length(0.5), length(0.5), null),
+                new IfcLShapeProfileDef(area, null, ORIGIN, length(3),
+                        length(2), length(0.5), null, null, null, null, null),
+                new IfcTShapeProfileDef(area, null, ORIGIN, length(3),
+                        length(2), length(0.5), length(0.5), null, null, null,
+                        null, null, null),
+                new IfcUShapeProfileDef(area, null, ORIGIN, length(3),
+                        length(2), length(0.5), length(0.5), null, null, null,
+                        null),
+                new IfcTrapeziumProfileDef(area, null, ORIGIN, length(4),
+                        length(2), length(2), new IfcLengthMeasure(1))};
+        double[] areas = {8 - 3, polygonArea(2, 32) - polygonArea(1.5, 32),
+                polygonArea(1, 32) * 2, 2 * 2 * 0.5 + 3 * 0.5,
+                2 * 0.5 + 2.5 * 0.5, 2 * 0.5 + 2.5 * 0.5, 2 * 2 * 0.5 + 2 * 0.5,
+                (4 + 2) / 2.0 * 2};
+
+        for (int i = 0; i < profiles.length; i++) {
+            Mesh mesh = tessellator.tessellate(extrude(profiles[i], 1.5));
+            Assert.assertEquals(profiles[i].getClass().getSimpleName(),
+                                areas[i] * 1.5, volume(mesh), DELTA);
+        }
+    }
+
+    @Test
+    public void tessellate_arbitraryProfileWithVoids() {
+        IfcPolyline outer = new IfcPolyline(new IfcCartesianPoint(0, 0),
+                new IfcCartesianPoint(0, 4), new IfcCartesianPoint(4, 4),
+                new IfcCartesianPoint(4, 0), new IfcCartesianPoint(0, 0));
+        IfcPolyline square = new IfcPolyline(new IfcCartesianPoint(1, 1),
+                new IfcCartesianPoint(2, 1), new IfcCartesianPoint(2, 2),
+                new IfcCartesianPoint(1, 2), new IfcCartesianPoint(1, 1));
+        IfcCircle circle = new IfcCircle(new IfcAxis2Placement2D(
+                new IfcCartesianPoint(3, 3), new IfcDirection(1, 0)),
+                length(0.5));
+        IfcArbitraryProfileDefWithVoids profile =
+                new IfcArbitraryProfileDefWithVoids(IfcProfileTypeEnum.AREA,
+                        null, outer, square, circle);
+
+        Mesh mesh = new Tessellator().tessellate(extrude(profile, 2));
+
+        Assert.assertEquals((16 - 1 - polygonArea(0.5, 32)) * 2, volume(mesh),
+                            DELTA);
+    }
+
+    @Test
+    public void tessellate_revolvedAreaSolid() {
+        // a 1x2 rectangle at distance 3 from the Y axis
+        IfcRectangleProfileDef rectangle = new IfcRectangleProfileDef(
+                IfcProfileTypeEnum.AREA, null,
+                new IfcAxis2Placement2D(new IfcCartesianPoint(3, 0),
+                        new IfcDirection(1, 0)), length(1), length(2));
+        IfcAxis1Placement axis = new IfcAxis1Placement(
+                new IfcCartesianPoint(0, 0, 0), new IfcDirection(0, 1, 0));
+        Tessellator tessellator = new Tessellator();
+
+        Mesh full = tessellator.tessellate(new IfcRevolvedAreaSolid(rectangle,
+                new IfcAxis2Placement3D(0, 0, 0), axis,
+                new IfcPlaneAngleMeasure(2 * Math.PI)));
+        Mesh half = tessellator.tessellate(new IfcRevolvedAreaSolid(rectangle,
+                new IfcAxis2Placement3D(0, 0, 0), axis,
+                new IfcPlaneAngleMeasure(-Math.PI)));
+
+        // the volume of each of the n steps is sin(2 pi / n) times the first
+        // moment of area of the profile around the axis
+        Assert.assertEquals(32 * Math.sin(2 * Math.PI / 32) * 2 * 3,
+                            volume(full), DELTA);
+        Assert.assertEquals(16 * Math.sin(Math.PI / 16) * 2 * 3, volume(half),
+                            DELTA);
+        Assert.assertEquals(Aabb.of(-3.5, -1, 0, 3.5, 1, 3.5),
+                            half.getBounds());
+    }
+
+    @Test
+    public void tessellateAll_sharedRepresentationsTessellatedOnce() {
+        IfcProductDefinitionShape shape = new IfcProductDefinitionShape(null,
+                null, new IfcShapeRepresentation(context(),
+                new IfcLabel("Body"), new IfcLabel("SweptSolid"),
+                extrude(new IfcRectangleProfileDef(IfcProfileTypeEnum.AREA,
+                        null, ORIGIN, length(2), length(2)), 1)));
+        IfcBuildingElementProxy first = proxyBuilder()
+                .objectPlacement(new IfcLocalPlacement(null,
+                        new IfcAxis2Placement3D(0, 0, 0)))
+                .representation(shape).build();
+        IfcBuildingElementProxy second = proxyBuilder()
+                .objectPlacement(new IfcLocalPlacement(null,
+                        new IfcAxis2Placement3D(10, 0, 5)))
+                .representation(shape).build();
+        IfcBuildingElementProxy empty = proxyBuilder().build();
+        Tessellator tessellator = new Tessellator();
+
+        Mesh[] meshes = tessellator.tessellateAll(
+                Arrays.asList(first, second, empty));
+
+        Assert.assertEquals(Aabb.of(-1, -1, 0, 1, 1, 1),
+                            meshes[0].getBounds());
+        Assert.assertEquals(Aabb.of(9, -1, 5, 11, 1, 6),
+                            meshes[1].getBounds());
+        Assert.assertNull(meshes[2]);
+        Assert.assertEquals(1, tessellator.size());
+        Assert.assertNull(tessellator.tessellate(
+                new IfcCartesianPoint(0, 0, 0)));
+    }
+
+    private static IfcFace face(IfcBoolean orientation,
+                                double... coordinates) {
+        IfcCartesianPoint[] points = new IfcCartesianPoint[
+                coordinates.length / 3];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new IfcCartesianPoint(coordinates[i * 3],
+                    coordinates[i * 3 + 1], coordinates[i * 3 + 2]);
+        }
+        return new IfcFace(new IfcFaceBound(new IfcPolyLoop(points),
+                                            orientation));
+    }
+
+    @Test
+    public void tessellate_facetedBrep() {
+        // the front face is given clockwise, and reversed by its bound
+        IfcClosedShell cube = new IfcClosedShell(
+                face(IfcBoolean.T, 0, 0, 0, 0, 1, 0, 1, 1, 0, 1, 0, 0),
+                face(IfcBoolean.T, 0, 0, 1, 1, 0, 1, 1, 1, 1, 0, 1, 1),
+                face(IfcBoolean.F, 0, 0, 0, 0, 0, 1, 1, 0, 1, 1, 0, 0),
+                face(IfcBoolean.T, 0, 1, 0, 0, 1, 1, 1, 1, 1, 1, 1, 0),
+                face(IfcBoolean.T, 0, 0, 0, 0, 0, 1, 0, 1, 1, 0, 1, 0),
+                face(IfcBoolean.T, 1, 0, 0, 1, 1, 0, 1, 1, 1, 1, 0, 1));
+
+        Mesh mesh = new Tessellator().tessellate(new IfcFacetedBrep(cube));
+
+        Assert.assertEquals(12, mesh.getTriangleCount());
+        Assert.assertEquals(1, volume(mesh), DELTA);
+    }
+
+    @Test
+    public void tessellate_faceWithInnerBound() {
+        IfcPolyLoop outer = new IfcPolyLoop(new IfcCartesianPoint(0, 0, 0),
+                new IfcCartesianPoint(0, 0, 4), new IfcCartesianPoint(0, 4, 4),
+                new IfcCartesianPoint(0, 4, 0));
+        IfcPolyLoop inner = new IfcPolyLoop(new IfcCartesianPoint(0, 1, 1),
+                new IfcCartesianPoint(0, 1, 3), new IfcCartesianPoint(0, 3, 3),
+                new IfcCartesianPoint(0, 3, 1));
+        IfcConnectedFaceSet faces = new IfcConnectedFaceSet(new IfcFace(
+                new IfcFaceBound(outer, IfcBoolean.T),
+                new IfcFaceBound(inner, IfcBoolean.T)));
+
+        Mesh mesh = new Tessellator().tessellate(faces);
+
+        // the loops are clockwise seen from +X
+        Assert.assertEquals(8, mesh.getTriangleCount());
+        float[] normals = mesh.getNormals();
+        for (int i = 0; i < normals.length; i += 3) {
+            Assert.assertEquals(-1, normals[i], 0);
+        }
+        float[] p = mesh.getPositions();
+        int[] indices = mesh.getIndices();
+        double area = 0;
+        for (int i = 0; i < indices.length; i += 3) {
+            int a = indices[i] * 3;
+            int b = indices[i + 1] * 3;
+            int c = indices[i + 2] * 3;
+            // twice the signed area seen from -X
+            area -= (p[b + 1] - p[a + 1]) * (p[c + 2] - p[a + 2]) -
+                    (p[b + 2] - p[a + 2]) * (p[c + 1] - p[a + 1]);
+        }
+        Assert.assertEquals(12, area / 2, DELTA);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package buildingsmart.geometry;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TriangulatorTest {
+    private static final double DELTA = 1e-9;
+
+    /**
+     * @return The sum of the signed areas of the triangles, which are
+     * positive if they're counter-clockwise.
+     */
+    static double area(double[] coordinates, int[] triangles) {
+        double sum = 0;
+        for (int i = 0; i < triangles.length; i += 3) {
+            int a = triangles[i] * 2;
+            int b = triangles[i + 1] * 2;
+            int c = triangles[i + 2] * 2;
+            double cross = (coordinates[b] - coordinates[a]) *
+                    (coordinates[c + 1] - coordinates[a + 1]) -
+                    (coordinates[b + 1] - coordinates[a + 1]) *
+                            (coordinates[c] - coordinates[a]);
+            Assert.assertTrue("triangles must be counter-clockwise",
+                              cross >= 0);
+            sum += cross / 2;
+        }
+        return sum;
+    }
+
+    @Test
+    public void triangulate_concavePolygon() {
+        // an L shape, given clockwise
+        double[] outer = {0, 0, 0, 2, 1, 2, 1, 1, 2, 1, 2, 0};
+
+        int[] triangles =
+                Triangulator.triangulate(outer, Collections.emptyList());
+
+        Assert.assertEquals(4 * 3, triangles.length);
+        Assert.assertEquals(3, area(outer, triangles), DELTA);
+    }
+
+    @Test
+    public void triangulate_polygonWithHoles() {
+        double[] outer = {0, 0, 10, 0, 10, 10, 0, 10};
+        double[] first = {1, 1, 1, 3, 3, 3, 3, 1};
+        double[] second = {6, 6, 8, 6, 8, 9, 6, 9};
+        double[] all = new double[24];
+        System.arraycopy(outer, 0, all, 0, 8);
+        System.arraycopy(first, 0, all, 8, 8);
+        System.arraycopy(second, 0, all, 16, 8);
+
+        int[] triangles =
+                Triangulator.triangulate(outer, Arrays.asList(first, second));
+
+        // n + 2h - 2 triangles for n vertices and h holes
+        Assert.assertEquals((12 + 4 - 2) * 3, triangles.length);
+        Assert.assertEquals(100 - 4 - 6, area(all, triangles), DELTA);
+        Assert.assertArrayEquals(triangles,
+                                 Triangulator.triangulate(all, new int[]{4, 8}));
+    }
+
+    @Test
+    public void triangulate_degenerateLoop() {
+        Assert.assertEquals(0, Triangulator.triangulate(
+                new double[]{0, 0, 1, 1, 2, 2}, Collections.emptyList()).length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void triangulate_invalidHoleStarts() {
+        Triangulator.triangulate(new double[]{0, 0, 1, 0, 1, 1, 0, 1},
+                                 new int[]{4});
+    }
+
+    /**
+     * @return The sum of the areas of the triangles, asserting that they have
+     * the same winding as a loop with the given normal.
+     */
+    private static double area(double[] coordinates, int[] triangles,
+                               double[] normal) {
+        double sum = 0;
+        for (int i = 0; i < triangles.length; i += 3) {
+            double[] a = Arrays.copyOfRange(coordinates, triangles[i] * 3,
+                                            triangles[i] * 3 + 3);
+            double[] b = Arrays.copyOfRange(coordinates, triangles[i + 1] * 3,
+                                            triangles[i + 1] * 3 + 3);
+            double[] c = Arrays.copyOfRange(coordinates, triangles[i + 2] * 3,
+                                            triangles[i + 2] * 3 + 3);
+            double[] cross = {
+                    (b[1] - a[1]) * (c[2] - a[2]) - (b[2] - a[2]) * (c[1] - a[1]),
+                    (b[2] - a[2]) * (c[0] - a[0]) - (b[0] - a[0]) * (c[2] - a[2]),
+                    (b[0] - a[0]) * (c[1] - a[1]) - (b[1] - a[1]) * (c[0] - a[0])};
+            double dot = cross[0] * normal[0] + cross[1] * normal[1] +
+                    cross[2] * normal[2];
+            Assert.assertTrue("triangles must have the winding of the loop",
+                              dot >= 0);
+            sum += Math.sqrt(cross[0] * cross[0] + cross[1] * cross[1] +
+                                     cross[2] * cross[2]) / 2;
+        }
+        return sum;
+    }
+
+    @Test
+    public void triangulatePlanar_tiltedPolygonWithHole() {
+        // squares in the plane z = x, seen from below
+        double[] outer = {0, 0, 0, 0, 2, 0, 2, 2, 2, 2, 0, 2};
+        double[] hole = {0.5, 0.5, 0.5, 1.5, 0.5, 1.5, 1.5, 1.5, 1.5, 0.5,
+                1.5, 0.5};
+        double[] all = Arrays.copyOf(outer, 24);
+        System.arraycopy(hole, 0, all, 12, 12);
+
+        int[] triangles = Triangulator.triangulatePlanar(
+                outer, Collections.singletonList(hole));
+
+        Assert.assertEquals(8 * 3, triangles.length);
+        Assert.assertEquals(4 * Math.sqrt(2) - Math.sqrt(2),
+                            area(all, triangles, new double[]{1, 0, -1}),
+                            DELTA);
+        Assert.assertEquals(0, Triangulator.triangulatePlanar(
+                new double[]{0, 0, 0, 1, 1, 1, 2, 2, 2},
+                Collections.emptyList()).length);
+    }
+
+    /**
+     * Triangulates a wavy profile with 100000 vertices and 64 round holes,
+     * which takes minutes without the z-order index, since finding each ear
+     * would visit every other vertex.
+     */
+    @Test(timeout = 30000)
+    public void triangulate_largeProfile() {
+        int n = 100000;
+        double[] outer = new double[n * 2];
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n;
+            double radius = 1000 + 50 * Math.sin(64 * angle);
+            outer[i * 2] = radius * Math.cos(angle);
+            outer[i * 2 + 1] = radius * Math.sin(angle);
+        }
+        List<double[]> holes = new ArrayList<>();
+        int holeVertices = 256;
+        double expected = shoelace(outer);
+        for (int row = 0; row < 8; row++) {
+            for (int column = 0; column < 8; column++) {
+                double[] hole = new double[holeVertices * 2];
+                for (int i = 0; i < holeVertices; i++) {
+                    double angle = -2 * Math.PI * i / holeVertices;
+                    hole[i * 2] = -560 + 160 * column + 20 * Math.cos(angle);
+                    hole[i * 2 + 1] = -560 + 160 * row + 20 * Math.sin(angle);
+                }
+                expected += shoelace(hole);
+                holes.add(hole);
+            }
+        }
+        double[] all = new double[(n + holes.size() * holeVertices) * 2];
+        System.arraycopy(outer, 0, all, 0, outer.length);
+        for (int i = 0; i < holes.size(); i++) {
+            System.arraycopy(holes.get(i), 0, all,
+                             outer.length + i * holeVertices * 2,
+                             holeVertices * 2);
+        }
+
+        int[] triangles = Triangulator.triangulate(outer, holes);
+
+        Assert.assertEquals((all.length / 2 + 2 * holes.size() - 2) * 3,
+                            triangles.length);
+        Assert.assertEquals(expected, area(all, triangles), 1e-6 * expected);
+    }
+
+    /**
+     * @return The signed area of loop, positive if it is counter-clockwise.
+     */
+    private static double shoelace(double[] loop) {
+        double sum = 0;
+        int n = loop.length / 2;
+        for (int i = 0, j = n - 1; i < n; j = i++) {
+            sum += loop[j * 2] * loop[i * 2 + 1] - loop[i * 2] * loop[j * 2 + 1];
+        }
+        return sum / 2;
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.guid;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public class GuidGeneratorsTest {
+
+    private static void assertUnique(GuidGenerator generator) {
+        int numTests = 10000;
+        char[] buffer = new char[22 * numTests];
+        generator.next(buffer, 0, numTests);
+        Set<String> guids = new HashSet<>(numTests);
+        for (int i = 0; i < numTests; i++) {
+            String guid = new String(buffer, 22 * i, 22);
+            // throws if the GUID is not valid
+            new IfcGloballyUniqueId(guid);
+            guids.add(guid);
+        }
+        Assert.assertEquals(numTests, guids.size());
+    }
+
+    @Test
+    public void secureRandom_validAndUnique() {
+        assertUnique(GuidGenerators.secureRandom());
+    }
+
+    @Test
+    public void fastRandom_validAndUnique() {
+        assertUnique(GuidGenerators.fastRandom());
+    }
+
+    @Test
+    public void timeOrdered_increasing() {
+        GuidGenerator generator = GuidGenerators.timeOrdered();
+        long[] bits = new long[20000];
+        for (int i = 0; i < bits.length; i += 2) {
+            generator.next(bits, i);
+        }
+        for (int i = 2; i < bits.length; i += 2) {
+            Assert.assertTrue(Long.compareUnsigned(bits[i - 2], bits[i]) < 0);
+        }
+        assertUnique(generator);
+    }
+
+    @Test
+    public void fromBits_sameAsUuidConversion() {
+        Assert.assertEquals(new IfcGloballyUniqueId("0000000000000000000000"),
+                            IfcGloballyUniqueId.fromBits(0, 0));
+        Assert.assertEquals(new IfcGloballyUniqueId("3$$$$$$$$$$$$$$$$$$$$$"),
+                            IfcGloballyUniqueId.fromBits(-1, -1));
+        // 3f2504e0-4f89-11d3-9a0c-0305e82c3301
+        Assert.assertEquals(new IfcGloballyUniqueId("0$9GJWJuaHqveC0mNeB3C1"),
+                            IfcGloballyUniqueId.fromBits(0x3f2504e04f8911d3L,
+                                                         0x9a0c0305e82c3301L));
+    }
+}
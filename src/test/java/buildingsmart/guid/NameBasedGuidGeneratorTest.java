@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.guid;
+
+import buildingsmart.ifc.IfcGloballyUniqueId;
+import buildingsmart.model.Model;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.UUID;
+
+public class NameBasedGuidGeneratorTest {
+    private static final UUID NAMESPACE =
+            UUID.fromString("6ba7b810-9dad-11d1-80b4-00c04fd430c8");
+
+    @Test
+    public void next_sameAsUuidVersion5() {
+        // java.util.UUID has no version 5 factory, so the expected value is
+        // the one computed by Python's uuid.uuid5(NAMESPACE_DNS, 'python.org')
+        UUID expected = UUID.fromString("886313e1-3b8a-5372-9b90-0c9aee199e5d");
+        IfcGloballyUniqueId guid =
+                new NameBasedGuidGenerator(NAMESPACE).next("python.org");
+
+        Assert.assertEquals(
+                IfcGloballyUniqueId.fromBits(
+                        expected.getMostSignificantBits(),
+                        expected.getLeastSignificantBits()),
+                guid);
+    }
+
+    @Test
+    public void modelGenerator_reproducible() {
+        IfcGloballyUniqueId[] first = new IfcGloballyUniqueId[3];
+        IfcGloballyUniqueId[] second = new IfcGloballyUniqueId[3];
+        for (IfcGloballyUniqueId[] guids :
+                new IfcGloballyUniqueId[][]{first, second}) {
+            NameBasedGuidGenerator generator =
+                    GuidGenerators.nameBased(NAMESPACE);
+            Model model = new Model();
+            model.setGuidGenerator(generator);
+            try (Model.Scope ignored = model.open()) {
+                generator.setKey("wall-1");
+                guids[0] = new IfcGloballyUniqueId();
+                guids[1] = new IfcGloballyUniqueId();
+                generator.setKey("wall-2");
+                guids[2] = new IfcGloballyUniqueId();
+            }
+        }
+
+        Assert.assertArrayEquals(first, second);
+        Assert.assertNotEquals(first[0], first[1]);
+        Assert.assertNotEquals(first[0], first[2]);
+        Assert.assertEquals(
+                new NameBasedGuidGenerator(NAMESPACE).next("wall-1"), first[0]);
+        // outside of the model the default generator is used
+        Assert.assertNotEquals(first[0], new IfcGloballyUniqueId());
+    }
+
+    @Test
+    public void next_repeatedKey_differentFromKeysContainingCount() {
+        NameBasedGuidGenerator generator =
+                new NameBasedGuidGenerator(NAMESPACE);
+        generator.setKey("wall");
+        long[] bits = new long[2];
+        generator.next(bits, 0);
+        generator.next(bits, 0);
+        IfcGloballyUniqueId second = IfcGloballyUniqueId.fromBits(bits[0],
+                                                                  bits[1]);
+
+        Assert.assertNotEquals(generator.next("wall#1"), second);
+        Assert.assertNotEquals(generator.next("wall"), second);
+    }
+
+    @Test
+    public void modelGenerator_sameThreadExportedTwice_reproducible() {
+        NameBasedGuidGenerator generator = GuidGenerators.nameBased(NAMESPACE);
+        Model model = new Model();
+        model.setGuidGenerator(generator);
+        IfcGloballyUniqueId[] first = new IfcGloballyUniqueId[2];
+        IfcGloballyUniqueId[] second = new IfcGloballyUniqueId[2];
+        for (IfcGloballyUniqueId[] guids :
+                new IfcGloballyUniqueId[][]{first, second}) {
+            try (Model.Scope ignored = model.open()) {
+                generator.setKey("wall-1");
+                guids[0] = new IfcGloballyUniqueId();
+                guids[1] = new IfcGloballyUniqueId();
+            }
+        }
+
+        Assert.assertArrayEquals(first, second);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void next_noKey_throws() {
+        new NameBasedGuidGenerator(NAMESPACE).next(new long[2], 0);
+    }
+}
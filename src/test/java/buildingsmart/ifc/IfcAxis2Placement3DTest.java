@@ -18,9 +18,12 @@
 
 package buildingsmart.ifc;
 
+import buildingsmart.model.Model;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.List;
+
 public class IfcAxis2Placement3DTest {
 
     @Test(expected = IllegalArgumentException.class)
@@ -75,4 +78,21 @@ public class IfcAxis2Placement3DTest {
                         new IfcDirection(0, 0, 1), new IfcDirection(2, 4, 0));
         Assert.assertEquals(a1, a2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getP_computedLazilyOutsideOfModel() {
+        Model model = new Model();
+        IfcAxis2Placement3D placement = model.create(
+                () -> new IfcAxis2Placement3D(new IfcCartesianPoint(0, 0, 0),
+                        new IfcDirection(0, 0, 3), new IfcDirection(0, 5, 0)));
+        Assert.assertEquals(2, model.count(IfcDirection.class));
+
+        List<IfcDirection> p = model.create(placement::getP);
+
+        Assert.assertEquals(new IfcDirection(0, 1, 0), p.get(0));
+        Assert.assertEquals(new IfcDirection(-1, 0, 0), p.get(1));
+        Assert.assertSame(p, placement.getP());
+        // the derived axes are not added
+        Assert.assertEquals(2, model.count(IfcDirection.class));
+    }
+}
@@ -63,4 +63,44 @@ public class IfcDirectionTest {
         IfcDirection d2 = new IfcDirection(1, 2, 3);
         Assert.assertEquals(d1, d2);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void constructor_sharesCommonValues() {
+        IfcDirection zAxis = new IfcDirection(0, 0, 1);
+        IfcDirection xAxis = new IfcDirection(1, 0, 0);
+
+        Assert.assertSame(zAxis.getDim(), xAxis.getDim());
+        Assert.assertSame(zAxis.getDirectionRatios().get(2),
+                          xAxis.getDirectionRatios().get(0));
+        Assert.assertSame(IfcDimensionCount.of(3), zAxis.getDim());
+    }
+
+    @Test
+    public void getDirectionRatios_viewOfPrimitives() {
+        double[] ratios = {0, 3, 4};
+        IfcDirection direction = new IfcDirection(ratios);
+        ratios[0] = 5;
+
+        Assert.assertEquals(Arrays.asList(new IfcReal(0), new IfcReal(3),
+                                          new IfcReal(4)),
+                            direction.getDirectionRatios());
+        Assert.assertEquals(Arrays.asList(new IfcReal(0), new IfcReal(0.6),
+                                          new IfcReal(0.8)),
+                            direction.getNormalisedDirectionRatios());
+        Assert.assertEquals(4, direction.getDirectionRatio(2), 0);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void getDirectionRatios_unmodifiable() {
+        new IfcDirection(0, 0, 1).getDirectionRatios().set(0, new IfcReal(1));
+    }
+
+    @Test
+    public void constructor_zeroDirectionRatios() {
+        IfcDirection fromList = new IfcDirection(
+                Arrays.asList(new IfcReal(0), new IfcReal(0)));
+
+        Assert.assertNull(fromList.getNormalisedDirectionRatios());
+        Assert.assertEquals(new IfcDirection(0, 0), fromList);
+    }
+}
@@ -22,6 +22,7 @@ import org.junit.Test;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.UUID;
 
 import static buildingsmart.ifc.IfcGloballyUniqueId.LENGTH;
 import static org.junit.Assert.assertEquals;
@@ -51,4 +52,30 @@ public class IfcGloballyUniqueIdTest {
         }
         assertEquals(numTests, guidStrings.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void uuidConversion_roundTrip() {
+        UUID uuid = UUID.fromString("3f2504e0-4f89-11d3-9a0c-0305e82c3301");
+        IfcGloballyUniqueId guid = IfcGloballyUniqueId.fromUuid(uuid);
+
+        assertEquals("0$9GJWJuaHqveC0mNeB3C1", guid.getValue());
+        assertEquals(guid, new IfcGloballyUniqueId("0$9GJWJuaHqveC0mNeB3C1"));
+        assertEquals(uuid, guid.toUuid());
+    }
+
+    @Test
+    public void stringConstructor_firstCharacterAbove3_serializedUnchanged() {
+        IfcGloballyUniqueId guid =
+                new IfcGloballyUniqueId("51f413ef_7964_4d38_b19");
+        char[] buffer = "xx0000000000000000000000".toCharArray();
+        guid.writeTo(buffer, 2);
+
+        assertEquals("'51f413ef_7964_4d38_b19'", guid.serialize());
+        assertEquals(guid, IfcGloballyUniqueId.decode(buffer, 2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void stringConstructor_illegalCharacter_throws() {
+        new IfcGloballyUniqueId("0$9GJWJuaHqveC0mNeB3C-");
+    }
+}
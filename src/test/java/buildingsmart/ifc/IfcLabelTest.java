@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.ifc;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class IfcLabelTest {
+
+    @Test
+    public void getValue_notFormatted() {
+        IfcLabel label = new IfcLabel("Muro d'ambito è");
+
+        assertEquals("Muro d'ambito è", label.getValue());
+        assertEquals("'Muro d\\'ambito \\X\\E8'", label.serialize());
+    }
+
+    @Test
+    public void constructor_limitAppliesToUnformattedValue() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 255; i++) {
+            value.append('è');
+        }
+
+        assertEquals(255, new IfcLabel(value.toString()).getValue().length());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_tooLong() {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 256; i++) {
+            value.append('a');
+        }
+
+        new IfcLabel(value.toString());
+    }
+
+    @Test
+    public void of_sameValue_sameInstance() {
+        IfcLabel body = IfcLabel.of("Body");
+
+        assertSame(body, IfcLabel.of("Body"));
+        assertEquals(new IfcLabel("Body"), body);
+    }
+}
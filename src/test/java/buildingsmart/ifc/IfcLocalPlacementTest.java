@@ -18,6 +18,7 @@
 
 package buildingsmart.ifc;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
@@ -36,4 +37,22 @@ public class IfcLocalPlacementTest {
                 new IfcAxis2Placement3D(new IfcCartesianPoint(0, 0, 0), null,
                         null));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void equals_structurallyEqualPlacements() {
+        IfcLocalPlacement placement = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(new IfcCartesianPoint(1, 2, 3),
+                        new IfcDirection(0, 0, 1), new IfcDirection(1, 0, 0)));
+        IfcLocalPlacement equal = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(new IfcCartesianPoint(1, 2, 3),
+                        new IfcDirection(0, 0, 2), new IfcDirection(3, 0, 0)));
+        IfcLocalPlacement different = new IfcLocalPlacement(null,
+                new IfcAxis2Placement3D(new IfcCartesianPoint(1, 2, 4),
+                        new IfcDirection(0, 0, 1), new IfcDirection(1, 0, 0)));
+
+        Assert.assertEquals(placement, equal);
+        Assert.assertEquals(placement.hashCode(), equal.hashCode());
+        Assert.assertEquals(placement.hashCode(), placement.hashCode());
+        Assert.assertNotEquals(placement, different);
+    }
+}
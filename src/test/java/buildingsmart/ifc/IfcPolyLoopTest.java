@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.ifc;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class IfcPolyLoopTest {
+
+    @Test
+    public void constructor_polygonModifiedAfterwards_loopUnchanged() {
+        List<IfcCartesianPoint> polygon = new ArrayList<>(
+                Arrays.asList(new IfcCartesianPoint(0, 0),
+                        new IfcCartesianPoint(1, 0),
+                        new IfcCartesianPoint(0, 1)));
+        IfcPolyLoop loop = new IfcPolyLoop(polygon);
+        IfcPolyLoop copy = new IfcPolyLoop(new ArrayList<>(polygon));
+        int hashCode = loop.hashCode();
+
+        polygon.add(new IfcCartesianPoint(1, 1));
+
+        Assert.assertEquals(3, loop.getPolygon().size());
+        Assert.assertEquals(hashCode, loop.hashCode());
+        Assert.assertEquals(copy, loop);
+    }
+}
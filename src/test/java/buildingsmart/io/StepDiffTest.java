@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class StepDiffTest {
+    private static final String HEADER = "ISO-10303-21;\nHEADER;\n" +
+            "FILE_DESCRIPTION(('ViewDefinition [CoordinationView]'),'2;1');\n" +
+            "FILE_NAME('a.ifc','2020-04-14T22:16:25',(''),(''),'','','');\n" +
+            "FILE_SCHEMA(('IFC2X3'));\nENDSEC;\nDATA;\n";
+    private static final String FOOTER = "ENDSEC;\nEND-ISO-10303-21;\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static StepFileIndex index(String data) throws IOException {
+        return StepFileIndex.build(new ByteArrayInputStream(
+                (HEADER + data + FOOTER).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void build_indexesInstances() throws IOException {
+        StepFileIndex index = index("#10=IFCCARTESIANPOINT((0.,0.,0.));\n" +
+                "/* a comment; with a semicolon */\n" +
+                "#11=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH',#12,'it''s; a wall'," +
+                "$,$,#10,$,$);\n" +
+                "#12=IFCOWNERHISTORY($,$,$,.ADDED.,$,$,$,0);\n");
+
+        Assert.assertEquals(3, index.size());
+        Assert.assertEquals(1, index.positionOf(11));
+        Assert.assertEquals(-1, index.positionOf(13));
+        Assert.assertEquals("IFCWALL", index.getType(1));
+        Assert.assertEquals("2O2Fr$t4X7Zf8NOew3FLOH", index.getGlobalId(1));
+        Assert.assertNull(index.getGlobalId(0));
+        Assert.assertEquals(2, index.getReferenceCount(1));
+        Assert.assertEquals(2, index.getReference(1, 0));
+        Assert.assertEquals(0, index.getReference(1, 1));
+    }
+
+    @Test
+    public void compare_renumberedFile_noDifferences() throws IOException {
+        StepFileIndex oldIndex = index("#1=IFCCARTESIANPOINT((0.,0.,0.));\n" +
+                "#2=IFCCARTESIANPOINT((1.,0.,0.));\n" +
+                "#3=IFCPOLYLINE((#1,#2));\n" +
+                "#4=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH',$,'Wall',$,$,$,#3,$);\n");
+        StepFileIndex newIndex = index("#40=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH'," +
+                "$, 'Wall', $, $, $, #30, $);\n" +
+                "#30=IFCPOLYLINE((#10,#20));\n" +
+                "#20=IFCCARTESIANPOINT((1.,0.,0.));\n" +
+                "#10=IFCCARTESIANPOINT((0.,0.,0.));\n");
+
+        StepDiff diff = StepDiff.compare(oldIndex, newIndex);
+
+        Assert.assertTrue(diff.toString(), diff.isEmpty());
+    }
+
+    @Test
+    public void compare_changedGeometry_rootChanged() throws IOException {
+        Path oldFile = folder.newFile("old.ifc").toPath();
+        Path newFile = folder.newFile("new.ifc").toPath();
+        Files.write(oldFile, (HEADER + "#1=IFCCARTESIANPOINT((0.,0.,0.));\n" +
+                "#2=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH',$,'Wall',$,$,$,#1,$);\n" +
+                "#3=IFCWALL('3O2Fr$t4X7Zf8NOew3FLOH',$,'Old',$,$,$,$,$);\n" +
+                FOOTER).getBytes(StandardCharsets.UTF_8));
+        Files.write(newFile, (HEADER + "#1=IFCCARTESIANPOINT((0.,0.,1.));\n" +
+                "#2=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH',$,'Wall',$,$,$,#1,$);\n" +
+                "#4=IFCWALL('4O2Fr$t4X7Zf8NOew3FLOH',$,'New',$,$,$,$,$);\n" +
+                FOOTER).getBytes(StandardCharsets.UTF_8));
+
+        StepDiff diff = StepDiff.compare(oldFile, newFile);
+
+        Assert.assertEquals(1, diff.getChanged().size());
+        Assert.assertEquals("2O2Fr$t4X7Zf8NOew3FLOH",
+                            diff.getChanged().get(0).getGlobalId());
+        Assert.assertEquals(2, diff.getAdded().size());
+        Assert.assertEquals(2, diff.getRemoved().size());
+        Assert.assertTrue(diff.getAdded().stream()
+                                  .anyMatch(d -> d.getNewId() == 4));
+        Assert.assertTrue(diff.getRemoved().stream()
+                                  .anyMatch(d -> d.getOldId() == 3));
+    }
+
+    @Test
+    public void compare_duplicatedInstance_added() throws IOException {
+        StepFileIndex oldIndex = index("#1=IFCCARTESIANPOINT((0.,0.,0.));\n");
+        StepFileIndex newIndex = index("#1=IFCCARTESIANPOINT((0.,0.,0.));\n" +
+                "#2=IFCCARTESIANPOINT((0.,0.,0.));\n");
+
+        StepDiff diff = StepDiff.compare(oldIndex, newIndex);
+
+        Assert.assertEquals(1, diff.getAdded().size());
+        Assert.assertTrue(diff.getRemoved().isEmpty());
+        Assert.assertEquals("IFCCARTESIANPOINT",
+                            diff.getAdded().get(0).getType());
+    }
+
+    @Test
+    public void getHash_cycleOfReferences_independentOfOrder()
+            throws IOException {
+        StepFileIndex oldIndex = index("#1=IFCA(#2,'a');\n" +
+                "#2=IFCB(#1,'b');\n" +
+                "#3=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH',$,'Wall',$,$,$,#2,$);\n");
+        StepFileIndex newIndex = index("#1=IFCWALL('2O2Fr$t4X7Zf8NOew3FLOH'," +
+                "$,'Wall',$,$,$,#2,$);\n" +
+                "#2=IFCB(#3,'b');\n" +
+                "#3=IFCA(#2,'a');\n");
+
+        Assert.assertEquals(oldIndex.getHash(0), newIndex.getHash(2));
+        Assert.assertEquals(oldIndex.getHash(1), newIndex.getHash(1));
+        Assert.assertNotEquals(oldIndex.getHash(0), oldIndex.getHash(1));
+        Assert.assertTrue(StepDiff.compare(oldIndex, newIndex).isEmpty());
+    }
+}
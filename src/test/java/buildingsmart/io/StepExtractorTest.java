@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class StepExtractorTest {
+    private static final String HEADER = "ISO-10303-21;\nHEADER;\n" +
+            "FILE_DESCRIPTION(('ViewDefinition [CoordinationView]'),'2;1');\n" +
+            "FILE_NAME('a.ifc','2020-04-14T22:16:25',(''),(''),'','','');\n" +
+            "FILE_SCHEMA(('IFC2X3'));\nENDSEC;\nDATA;\n";
+    private static final String FOOTER = "ENDSEC;\nEND-ISO-10303-21;\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void extract_storey_containsStoreyAndProject() throws IOException {
+        Path file = folder.newFile("model.ifc").toPath();
+        Files.write(file, (HEADER +
+                "#1=IFCOWNERHISTORY($,$,$,.ADDED.,$,$,$,0);\n" +
+                "#2=IFCSIUNIT(*,.LENGTHUNIT.,$,.METRE.);\n" +
+                "#3=IFCUNITASSIGNMENT((#2));\n" +
+                "#4=IFCPROJECT('0O2Fr$t4X7Zf8NOew3FLOH',#1,'P',$,$,$,$,$,#3);\n" +
+                "#5=IFCBUILDING('1O2Fr$t4X7Zf8NOew3FLOH',#1,'B',$,$,$,$,$," +
+                ".ELEMENT.,$,$,$);\n" +
+                "#6=IFCRELAGGREGATES('2O2Fr$t4X7Zf8NOew3FLOH',#1,$,$,#4,(#5));\n" +
+                "#7=IFCBUILDINGSTOREY('3O2Fr$t4X7Zf8NOew3FLOH',#1,'1',$,$,$,$," +
+                "$,.ELEMENT.,0.);\n" +
+                "#8=IFCBUILDINGSTOREY('4O2Fr$t4X7Zf8NOew3FLOH',#1,'2',$,$,$,$," +
+                "$,.ELEMENT.,3.);\n" +
+                "#9=IFCRELAGGREGATES('5O2Fr$t4X7Zf8NOew3FLOH',#1,$,$,#5," +
+                "(#7,#8));\n" +
+                "#10=IFCCARTESIANPOINT((0.,0.,0.));\n" +
+                "#11=IFCWALL('6O2Fr$t4X7Zf8NOew3FLOH',#1,'W1',$,$,$,#10,$);\n" +
+                "#12=IFCWALL('7O2Fr$t4X7Zf8NOew3FLOH',#1,'W2',$,$,$,$,$);\n" +
+                "#13=IFCRELCONTAINEDINSPATIALSTRUCTURE('8O2Fr$t4X7Zf8NOew3FLOH'," +
+                "#1,$,$,(#11),#7);\n" +
+                "#14=IFCRELCONTAINEDINSPATIALSTRUCTURE('9O2Fr$t4X7Zf8NOew3FLOH'," +
+                "#1,$,$,(#12),#8);\n" +
+                FOOTER).getBytes(StandardCharsets.UTF_8));
+        StepExtractor extractor =
+                new StepExtractor(StepFileIndex.build(file), file);
+        Path output = folder.getRoot().toPath().resolve("storey.ifc");
+
+        int extracted = extractor.extract(new Header(),
+                                          Collections.singleton(
+                                                  "3O2Fr$t4X7Zf8NOew3FLOH"),
+                                          output);
+
+        StepFileIndex subset = StepFileIndex.build(output);
+        Set<String> globalIds = new HashSet<>();
+        for (int i = 0; i < subset.size(); i++) {
+            Assert.assertEquals(i + 1, subset.getId(i));
+            for (int r = 0; r < subset.getReferenceCount(i); r++) {
+                Assert.assertNotEquals(-1, subset.getReference(i, r));
+            }
+            if (subset.getGlobalId(i) != null) {
+                globalIds.add(subset.getGlobalId(i));
+            }
+        }
+        Assert.assertEquals(subset.size(), extracted);
+        Assert.assertEquals(12, extracted);
+        Assert.assertTrue(globalIds.contains("0O2Fr$t4X7Zf8NOew3FLOH"));
+        Assert.assertTrue(globalIds.contains("6O2Fr$t4X7Zf8NOew3FLOH"));
+        Assert.assertTrue(globalIds.contains("8O2Fr$t4X7Zf8NOew3FLOH"));
+        Assert.assertFalse(globalIds.contains("7O2Fr$t4X7Zf8NOew3FLOH"));
+        Assert.assertFalse(globalIds.contains("9O2Fr$t4X7Zf8NOew3FLOH"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void extract_unknownGlobalId_throws() throws IOException {
+        Path file = folder.newFile("empty.ifc").toPath();
+        Files.write(file, (HEADER + FOOTER).getBytes(StandardCharsets.UTF_8));
+        StepExtractor extractor =
+                new StepExtractor(StepFileIndex.build(file), file);
+
+        extractor.extract(new Header(),
+                          Collections.singleton("0O2Fr$t4X7Zf8NOew3FLOH"),
+                          folder.getRoot().toPath().resolve("out.ifc"));
+    }
+
+    @Test(expected = IOException.class)
+    public void extract_danglingRelatingObject_throws() throws IOException {
+        Path file = folder.newFile("dangling.ifc").toPath();
+        Files.write(file, (HEADER +
+                "#1=IFCOWNERHISTORY($,$,$,.ADDED.,$,$,$,0);\n" +
+                "#2=IFCBUILDINGSTOREY('0O2Fr$t4X7Zf8NOew3FLOH',#1,'1',$,$,$," +
+                "$,$,.ELEMENT.,0.);\n" +
+                "#3=IFCRELAGGREGATES('1O2Fr$t4X7Zf8NOew3FLOH',#1,$,$,#99," +
+                "(#2));\n" +
+                FOOTER).getBytes(StandardCharsets.UTF_8));
+        StepExtractor extractor =
+                new StepExtractor(StepFileIndex.build(file), file);
+
+        extractor.extract(new Header(),
+                          Collections.singleton("0O2Fr$t4X7Zf8NOew3FLOH"),
+                          folder.getRoot().toPath().resolve("out.ifc"));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class StepMergerTest {
+    private static final String HEADER = "ISO-10303-21;\nHEADER;\n" +
+            "FILE_DESCRIPTION(('ViewDefinition [CoordinationView]'),'2;1');\n" +
+            "FILE_NAME('a.ifc','2020-04-14T22:16:25',(''),(''),'','','');\n" +
+            "FILE_SCHEMA(('IFC2X3'));\nENDSEC;\nDATA;\n";
+    private static final String FOOTER = "ENDSEC;\nEND-ISO-10303-21;\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, String data) throws IOException {
+        Path file = folder.newFile(name).toPath();
+        Files.write(file,
+                    (HEADER + data + FOOTER).getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void merge_sharedInstances_writtenOnce() throws IOException {
+        Path architecture = write("architecture.ifc",
+                "#1=IFCOWNERHISTORY($,$,$,.ADDED.,$,$,$,0);\n" +
+                "#2=IFCPROJECT('0O2Fr$t4X7Zf8NOew3FLOH',#1,'A',$,$,$,$,$,$);\n" +
+                "#3=IFCBUILDING('1O2Fr$t4X7Zf8NOew3FLOH',#1,'B',$,$,$,$,$," +
+                ".ELEMENT.,$,$,$);\n" +
+                "#4=IFCRELAGGREGATES('2O2Fr$t4X7Zf8NOew3FLOH',#1,$,$,#2,(#3));\n" +
+                "#5=IFCWALL('3O2Fr$t4X7Zf8NOew3FLOH',#1,'Wall',$,$,$,$,$);\n");
+        Path structure = write("structure.ifc",
+                "#7=IFCPROJECT('4O2Fr$t4X7Zf8NOew3FLOH',#9,'S',$,$,$,$,$,$);\n" +
+                "#8=IFCCOLUMN('5O2Fr$t4X7Zf8NOew3FLOH',#9,'Column',$,$,$,$," +
+                "$);\n" +
+                "#9=IFCOWNERHISTORY($,$,$,.ADDED.,$,$,$,0);\n" +
+                "#10=IFCBUILDING('1O2Fr$t4X7Zf8NOew3FLOH',#9,'B',$,$,$,$,$," +
+                ".ELEMENT.,$,$,$);\n" +
+                "#11=IFCRELCONTAINEDINSPATIALSTRUCTURE('6O2Fr$t4X7Zf8NOew3FLOH'," +
+                "#9,$,$,(#8),#10);\n");
+        Path output = folder.getRoot().toPath().resolve("merged.ifc");
+
+        int written = StepMerger.merge(new Header(),
+                                       Arrays.asList(architecture, structure),
+                                       output);
+
+        StepFileIndex merged = StepFileIndex.build(output);
+        Assert.assertEquals(7, written);
+        Assert.assertEquals(7, merged.size());
+        int projects = 0;
+        for (int i = 0; i < merged.size(); i++) {
+            Assert.assertEquals(i + 1, merged.getId(i));
+            for (int r = 0; r < merged.getReferenceCount(i); r++) {
+                Assert.assertNotEquals(-1, merged.getReference(i, r));
+            }
+            if (merged.getType(i).equals("IFCPROJECT")) {
+                projects++;
+            }
+        }
+        Assert.assertEquals(1, projects);
+        // the containment relationship references the building of the first
+        // file and the shared owner history
+        int relation = merged.size() - 1;
+        Assert.assertEquals("IFCRELCONTAINEDINSPATIALSTRUCTURE",
+                            merged.getType(relation));
+        Assert.assertEquals(0, merged.getReference(relation, 0));
+        Assert.assertEquals(2, merged.getReference(relation, 2));
+    }
+}
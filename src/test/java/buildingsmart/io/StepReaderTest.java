@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.io;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.function.IntUnaryOperator;
+
+import static buildingsmart.util.Fixtures.ownerHistory;
+
+public class StepReaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static int skip(String record) {
+        byte[] bytes = record.getBytes(StandardCharsets.US_ASCII);
+        return StepReader.skipString(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void skipString_controlDirectives() {
+        Assert.assertEquals(7, skip("'it''s',"));
+        Assert.assertEquals(7, skip("'it\\'s',"));
+        Assert.assertEquals(5, skip("'a\\\\',"));
+        Assert.assertEquals(7, skip("'\\X\\E9',"));
+        Assert.assertEquals(14, skip("'\\X2\\017C\\X0\\',"));
+        Assert.assertEquals(18, skip("'\\X4\\0001F3E0\\X0\\',"));
+        Assert.assertEquals(6, skip("'\\S\\a',"));
+        Assert.assertEquals(7, skip("'\\PA\\b',"));
+        // a backslash not starting a directive is taken literally
+        Assert.assertEquals(5, skip("'a\\b',"));
+    }
+
+    @Test
+    public void next_fileWrittenBySerializer() throws IOException {
+        IfcGeometricRepresentationContext context =
+                new IfcGeometricRepresentationContext(new IfcLabel("Plan"),
+                        new IfcLabel("Model"), new IfcDimensionCount(3),
+                        new IfcReal(1.E-05), new IfcAxis2Placement3D(0, 0, 0),
+                        null);
+        IfcUnitAssignment units = new IfcUnitAssignment(new IfcSIUnit(
+                IfcUnitEnum.LENGTHUNIT, null, IfcSIUnitName.METRE));
+        String name = "Żółw's \\ é 🏠";
+        IfcProject project = IfcProject.builder()
+                .globalId(new IfcGloballyUniqueId())
+                .ownerHistory(ownerHistory())
+                .name(new IfcLabel(name)).representationContext(context)
+                .unitsInContext(units).build();
+        File file = folder.newFile("project.ifc");
+        new Serializer().serialize(new Header(), project, file);
+
+        String projectRecord = null;
+        int count = 0;
+        ByteArrayOutputStream remapped = new ByteArrayOutputStream();
+        try (InputStream input = Files.newInputStream(file.toPath())) {
+            StepReader reader = new StepReader(input);
+            while (reader.next()) {
+                count++;
+                String record = new String(reader.getRecord(), 0,
+                        reader.getRecordLength(), StandardCharsets.US_ASCII);
+                if (record.contains("IFCPROJECT(")) {
+                    projectRecord = record;
+                }
+                StepReader.writeRemapped(reader.getRecord(),
+                        reader.getRecordLength(), IntUnaryOperator.identity(),
+                        remapped);
+                remapped.write('\n');
+            }
+        }
+
+        Assert.assertNotNull(projectRecord);
+        Assert.assertTrue(projectRecord, projectRecord.contains(
+                "'\\X2\\017B\\X0\\\\X\\F3\\X2\\0142\\X0\\w\\'s \\\\ \\X\\E9 " +
+                        "\\X4\\0001F3E0\\X0\\'"));
+        Assert.assertEquals(StepFileIndex.build(file.toPath()).size(), count);
+        Assert.assertTrue(new String(Files.readAllBytes(file.toPath()),
+                StandardCharsets.US_ASCII).contains(
+                remapped.toString("US-ASCII")));
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class GlobalIdRegistryTest {
+
+    private static IfcBuildingElementProxy createProxy(
+            IfcGloballyUniqueId globalId) {
+        return proxyBuilder().globalId(globalId).build();
+    }
+
+    @Test
+    public void concurrent_parallelAdds_eachGlobalIdAcceptedOnce() {
+        GlobalIdRegistry registry = GlobalIdRegistry.concurrent();
+        IfcGloballyUniqueId[] globalIds = new IfcGloballyUniqueId[20000];
+        for (int i = 0; i < globalIds.length; i++) {
+            globalIds[i] = IfcGloballyUniqueId.fromBits(i % 10000, 7);
+        }
+        AtomicInteger added = new AtomicInteger();
+
+        IntStream.range(0, globalIds.length).parallel().forEach(i -> {
+            if (registry.add(globalIds[i])) {
+                added.incrementAndGet();
+            }
+        });
+
+        Assert.assertEquals(10000, added.get());
+        registry.clear();
+        Assert.assertTrue(registry.add(globalIds[0]));
+    }
+
+    @Test
+    public void bloomFilter_rejectsDuplicates() {
+        GlobalIdRegistry registry = GlobalIdRegistry.bloomFilter(10000, 0.001);
+        int added = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (registry.add(IfcGloballyUniqueId.fromBits(i, -i))) {
+                added++;
+            }
+        }
+
+        Assert.assertFalse(registry.add(IfcGloballyUniqueId.fromBits(5, -5)));
+        // false positives are possible, but should be about 10
+        Assert.assertTrue(added > 9900);
+    }
+
+    @Test
+    public void add_globalIdsDifferingOnlyInExcessBits_bothAccepted() {
+        // the first characters encode the same 2 bits, but differ beyond 128
+        IfcGloballyUniqueId globalId =
+                new IfcGloballyUniqueId("0Ab3cDeFgHiJkLmNoPqRsT");
+        IfcGloballyUniqueId larger =
+                new IfcGloballyUniqueId("4Ab3cDeFgHiJkLmNoPqRsT");
+        Assert.assertNotEquals(globalId, larger);
+
+        for (GlobalIdRegistry registry : new GlobalIdRegistry[]{
+                GlobalIdRegistry.concurrent(),
+                GlobalIdRegistry.bloomFilter(1000, 0.001)}) {
+            Assert.assertTrue(registry.add(globalId));
+            Assert.assertTrue(registry.add(larger));
+            Assert.assertFalse(registry.add(
+                    new IfcGloballyUniqueId("4Ab3cDeFgHiJkLmNoPqRsT")));
+        }
+    }
+
+    @Test
+    public void model_sameGlobalIdInDifferentModels_allowed() {
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+        for (int i = 0; i < 2; i++) {
+            Model model = new Model();
+            model.create(() -> createProxy(globalId));
+
+            Assert.assertEquals(1, model.size());
+        }
+    }
+
+    @Test
+    public void model_sameGlobalIdInSameModel_throws() {
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+        Model model = new Model();
+        model.create(() -> createProxy(globalId));
+        IfcBuildingElementProxy other =
+                Model.detached(() -> createProxy(globalId));
+
+        try {
+            model.create(() -> createProxy(globalId));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            model.add(other);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(1, model.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void model_sameGlobalIdInOpenModel_throws() {
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+        try (Model.Scope ignored = new Model().open()) {
+            createProxy(globalId);
+            createProxy(globalId);
+        }
+    }
+
+    @Test
+    public void model_createdInOpenModel_registeredOnce() {
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+        Model model = new Model();
+        IfcBuildingElementProxy proxy;
+        try (Model.Scope ignored = model.open()) {
+            proxy = createProxy(globalId);
+        }
+
+        Assert.assertTrue(model.add(proxy));
+        Assert.assertSame(proxy, model.getByGlobalId(globalId));
+    }
+
+    @Test
+    public void model_failedCreate_globalIdsNotRegistered() {
+        IfcGloballyUniqueId first = new IfcGloballyUniqueId();
+        IfcGloballyUniqueId taken = new IfcGloballyUniqueId();
+        Model model = new Model();
+        model.create(() -> createProxy(taken));
+
+        try {
+            model.create(() -> {
+                createProxy(first);
+                return createProxy(taken);
+            });
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        IfcBuildingElementProxy retried =
+                model.create(() -> createProxy(first));
+
+        Assert.assertEquals(2, model.size());
+        Assert.assertSame(retried, model.getByGlobalId(first));
+    }
+
+    @Test
+    public void addAll_duplicate_noneRegistered() {
+        IfcGloballyUniqueId[] globalIds = new IfcGloballyUniqueId[1000];
+        for (int i = 0; i < globalIds.length; i++) {
+            globalIds[i] = IfcGloballyUniqueId.fromBits(i, 3);
+        }
+        List<IfcGloballyUniqueId> batch = new ArrayList<>(
+                Arrays.asList(globalIds).subList(0, 500));
+        batch.add(globalIds[10]);
+
+        for (GlobalIdRegistry registry : new GlobalIdRegistry[]{
+                GlobalIdRegistry.concurrent(),
+                GlobalIdRegistry.bloomFilter(10000, 0.001)}) {
+            Assert.assertTrue(registry.add(globalIds[999]));
+            Assert.assertFalse(registry.addAll(batch));
+            Assert.assertFalse(registry.addAll(
+                    Arrays.asList(globalIds).subList(500, 1000)));
+            Assert.assertTrue(registry.addAll(
+                    Arrays.asList(globalIds).subList(0, 999)));
+            Assert.assertFalse(registry.add(globalIds[10]));
+        }
+    }
+
+    @Test
+    public void model_disabledRegistry_acceptsDuplicates() {
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+        Model model = new Model();
+        model.setGlobalIdRegistry(GlobalIdRegistry.disabled());
+        IfcBuildingElementProxy first =
+                model.create(() -> createProxy(globalId));
+        model.create(() -> createProxy(globalId));
+
+        Assert.assertEquals(2, model.size());
+        Assert.assertSame(first, model.getByGlobalId(globalId));
+        IfcBuildingElementProxy added =
+                model.create(() -> createProxy(new IfcGloballyUniqueId()));
+        Assert.assertSame(added, model.getByGlobalId(added.getGlobalId()));
+    }
+
+    @Test
+    public void defaultRegistry_replaced_usedWithoutModel() {
+        GlobalIdRegistry initial = IfcRoot.getDefaultGlobalIdRegistry();
+        IfcRoot.setDefaultGlobalIdRegistry(GlobalIdRegistry.disabled());
+        try {
+            IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+            createProxy(globalId);
+            createProxy(globalId);
+        } finally {
+            IfcRoot.setDefaultGlobalIdRegistry(initial);
+        }
+    }
+
+    @Test
+    public void disabled_acceptsDuplicates() {
+        GlobalIdRegistry registry = GlobalIdRegistry.disabled();
+        IfcGloballyUniqueId globalId = new IfcGloballyUniqueId();
+
+        Assert.assertTrue(registry.add(globalId));
+        Assert.assertTrue(registry.add(globalId));
+    }
+}
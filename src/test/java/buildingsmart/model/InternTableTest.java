@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InternTableTest {
+
+    @Test
+    public void intern_returnsCanonicalInstance() {
+        Model model = new Model();
+        model.setInternTable(new InternTable());
+        IfcCartesianPoint first;
+        IfcCartesianPoint second;
+        IfcDirection direction;
+        IfcDirection proportional;
+        try (Model.Scope ignored = model.open()) {
+            first = IfcCartesianPoint.of(1, 2, 3);
+            second = IfcCartesianPoint.of(1, 2, 3);
+            direction = IfcDirection.of(0, 0, 1);
+            proportional = IfcDirection.of(0, 0, 5);
+        }
+
+        Assert.assertSame(first, second);
+        Assert.assertSame(direction, proportional);
+        Assert.assertEquals(1, model.count(IfcCartesianPoint.class));
+        Assert.assertEquals(1, model.count(IfcDirection.class));
+        Assert.assertEquals(2, model.getInternTable().size());
+    }
+
+    @Test
+    public void intern_placementsSharingInternedAttributes() {
+        Model model = new Model();
+        model.setInternTable(new InternTable());
+        IfcAxis2Placement3D first;
+        IfcAxis2Placement3D second;
+        try (Model.Scope ignored = model.open()) {
+            first = IfcAxis2Placement3D.of(IfcCartesianPoint.of(0, 0, 0),
+                    IfcDirection.of(0, 0, 1), IfcDirection.of(1, 0, 0));
+            second = IfcAxis2Placement3D.of(IfcCartesianPoint.of(0, 0, 0),
+                    IfcDirection.of(0, 0, 1), IfcDirection.of(1, 0, 0));
+        }
+
+        Assert.assertSame(first, second);
+        Assert.assertSame(first.getAxis(), second.getAxis());
+        Assert.assertEquals(1, model.count(IfcAxis2Placement3D.class));
+    }
+
+    @Test
+    public void intern_disabledByDefault() {
+        Model model = new Model();
+        IfcCartesianPoint first =
+                model.create(() -> IfcCartesianPoint.of(1, 2, 3));
+        IfcCartesianPoint second =
+                model.create(() -> IfcCartesianPoint.of(1, 2, 3));
+
+        Assert.assertNotSame(first, second);
+        Assert.assertEquals(first, second);
+        Assert.assertEquals(2, model.count(IfcCartesianPoint.class));
+        Assert.assertNotSame(IfcCartesianPoint.of(0, 0),
+                IfcCartesianPoint.of(0, 0));
+    }
+
+    @Test
+    public void intern_tablesAreScopedToModels() {
+        Model model = new Model();
+        model.setInternTable(new InternTable());
+        Model other = new Model();
+        other.setInternTable(new InternTable());
+        IfcCartesianPoint first;
+        IfcCartesianPoint second;
+        try (Model.Scope ignored = model.open()) {
+            first = IfcCartesianPoint.of(1, 2);
+        }
+        try (Model.Scope ignored = other.open()) {
+            second = IfcCartesianPoint.of(1, 2);
+        }
+
+        Assert.assertNotSame(first, second);
+        Assert.assertTrue(model.getInternTable().isCanonical(first));
+        Assert.assertFalse(model.getInternTable().isCanonical(second));
+        Assert.assertTrue(other.contains(second));
+        Assert.assertFalse(other.contains(first));
+    }
+}
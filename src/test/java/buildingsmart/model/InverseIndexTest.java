@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.ifc.*;
+import buildingsmart.io.Entity;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static buildingsmart.util.Fixtures.ownerHistory;
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class InverseIndexTest {
+
+    @Test
+    public void getReferencing_containingStructure() {
+        Model model = new Model();
+        IfcRelContainedInSpatialStructure rel = model.create(() -> {
+            IfcBuildingStorey storey = IfcBuildingStorey.builder()
+                    .globalId(new IfcGloballyUniqueId())
+                    .ownerHistory(ownerHistory())
+                    .compositionType(IfcElementCompositionEnum.ELEMENT)
+                    .build();
+            IfcBuildingElementProxy element = proxyBuilder().build();
+            return new IfcRelContainedInSpatialStructure(ownerHistory(), null,
+                    null, storey, element);
+        });
+        IfcProduct proxy = rel.getRelatedElements().iterator().next();
+
+        InverseIndex index = InverseIndex.build(model);
+        List<IfcRelContainedInSpatialStructure> containedIn =
+                index.getReferencing(proxy,
+                        IfcRelContainedInSpatialStructure.class,
+                        "relatedElements");
+
+        Assert.assertEquals(Collections.singletonList(rel), containedIn);
+        Assert.assertTrue(index.getReferencing(proxy,
+                IfcRelContainedInSpatialStructure.class,
+                "relatingStructure").isEmpty());
+    }
+
+    @Test
+    public void getReferencing_sharedEntity() {
+        Model model = new Model();
+        IfcCartesianPoint origin =
+                model.create(() -> new IfcCartesianPoint(0, 0, 0));
+        IfcAxis2Placement3D placement1 =
+                model.create(() -> new IfcAxis2Placement3D(origin));
+        IfcAxis2Placement3D placement2 =
+                model.create(() -> new IfcAxis2Placement3D(origin));
+
+        InverseIndex index = InverseIndex.build(model);
+        List<Entity> referencing = index.getReferencing(origin);
+
+        Assert.assertEquals(2, index.countReferencing(origin));
+        Assert.assertSame(placement1, referencing.get(0));
+        Assert.assertSame(placement2, referencing.get(1));
+        Assert.assertEquals(0, index.countReferencing(placement1));
+    }
+
+    @Test
+    public void getReferencing_entityNotInModel() {
+        InverseIndex index = InverseIndex.build(new Model());
+
+        Assert.assertTrue(index.getReferencing(new IfcCartesianPoint(0, 0))
+                .isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void getReferencing_unknownAttribute() {
+        Model model = new Model();
+        IfcCartesianPoint origin =
+                model.create(() -> new IfcCartesianPoint(0, 0, 0));
+        model.create(() -> new IfcAxis2Placement3D(origin));
+
+        InverseIndex.build(model).getReferencing(origin,
+                IfcAxis2Placement3D.class, "locaton");
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.model;
+
+import buildingsmart.ifc.*;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static buildingsmart.util.Fixtures.proxyBuilder;
+
+public class ModelTest {
+
+    @Test
+    public void create_addsConstructedEntities() {
+        Model model = new Model();
+        IfcAxis2Placement3D placement = model.create(
+                () -> new IfcAxis2Placement3D(new IfcCartesianPoint(0, 0, 0),
+                        new IfcDirection(0, 0, 1), new IfcDirection(1, 0, 0)));
+        IfcCartesianPoint outside = new IfcCartesianPoint(1, 1, 1);
+
+        Assert.assertNull(Model.current());
+        Assert.assertTrue(model.contains(placement));
+        Assert.assertTrue(model.contains(placement.getLocation()));
+        Assert.assertTrue(model.contains(placement.getAxis()));
+        Assert.assertFalse(model.contains(outside));
+        Assert.assertEquals(
+                Collections.singletonList(placement.getLocation()),
+                model.getExactInstances(IfcCartesianPoint.class));
+    }
+
+    @Test
+    public void create_failedConstructor_nothingAdded() {
+        Model model = new Model();
+        try {
+            // the location is created, then rejected for being 2D
+            model.create(() -> new IfcAxis2Placement3D(
+                    new IfcCartesianPoint(0, 0), null, null));
+            Assert.fail();
+        } catch (IllegalArgumentException ignored) {
+        }
+        try (Model.Scope ignored = model.open()) {
+            new IfcLocalPlacement(null, null);
+            Assert.fail();
+        } catch (NullPointerException ignored) {
+        }
+
+        Assert.assertEquals(0, model.size());
+        Assert.assertNull(Model.current());
+    }
+
+    @Test
+    public void create_nestedInFailedCreate_nothingAdded() {
+        Model model = new Model();
+        Model other = new Model();
+        try {
+            model.create(() -> {
+                model.create(() -> new IfcCartesianPoint(0, 0, 0));
+                other.create(() -> new IfcDirection(0, 0, 1));
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+        }
+        IfcCartesianPoint point = model.create(() -> {
+            model.create(() -> new IfcDirection(1, 0, 0));
+            return new IfcCartesianPoint(1, 1, 1);
+        });
+
+        Assert.assertEquals(0, other.size());
+        Assert.assertEquals(2, model.size());
+        Assert.assertEquals(Collections.singletonList(point),
+                model.getExactInstances(IfcCartesianPoint.class));
+    }
+
+    @Test
+    public void create_internInFailedCreate_nothingAdded() {
+        Model model = new Model();
+        model.setInternTable(new InternTable());
+        try {
+            model.create(() -> {
+                IfcCartesianPoint.of(1, 2, 3);
+                throw new IllegalStateException();
+            });
+            Assert.fail();
+        } catch (IllegalStateException ignored) {
+        }
+
+        Assert.assertEquals(0, model.size());
+        Assert.assertEquals(0, model.getInternTable().size());
+        IfcCartesianPoint point =
+                model.create(() -> IfcCartesianPoint.of(1, 2, 3));
+        Assert.assertTrue(model.contains(point));
+    }
+
+    @Test
+    public void getInstances_includesSubtypes() {
+        Model model = new Model();
+        IfcCartesianPoint point = new IfcCartesianPoint(0, 0, 0);
+        IfcDirection direction = new IfcDirection(0, 0, 1);
+        IfcCartesianPoint otherPoint = new IfcCartesianPoint(0, 0);
+        model.add(point);
+        model.add(direction);
+        model.add(otherPoint);
+
+        List<IfcGeometricRepresentationItem> items =
+                model.getInstances(IfcGeometricRepresentationItem.class);
+
+        Assert.assertEquals(Arrays.asList(point, direction, otherPoint), items);
+        Assert.assertEquals(2, model.count(IfcPoint.class));
+        Assert.assertTrue(model.getInstances(IfcRoot.class).isEmpty());
+    }
+
+    @Test
+    public void add_sameEntityTwice() {
+        Model model = new Model();
+        IfcCartesianPoint point = new IfcCartesianPoint(0, 0, 0);
+
+        Assert.assertTrue(model.add(point));
+        Assert.assertFalse(model.add(point));
+        Assert.assertEquals(1, model.size());
+    }
+
+    @Test
+    public void getByGlobalId() {
+        Model model = new Model();
+        IfcBuildingElementProxy proxy = model.create(
+                () -> proxyBuilder().build());
+
+        Assert.assertSame(proxy, model.getByGlobalId(proxy.getGlobalId()));
+        Assert.assertEquals(Collections.singletonList(proxy),
+                model.getInstances(IfcBuildingElement.class));
+    }
+
+    @Test
+    public void addAll_addsReachableEntities() {
+        Model model = new Model();
+        IfcAxis2Placement3D placement =
+                new IfcAxis2Placement3D(new IfcCartesianPoint(1, 2, 3),
+                        new IfcDirection(0, 0, 1), new IfcDirection(1, 0, 0));
+
+        int added = model.addAll(new IfcLocalPlacement(null, placement));
+
+        Assert.assertEquals(5, added);
+        Assert.assertEquals(2, model.count(IfcDirection.class));
+        Assert.assertEquals(1, model.count(IfcCartesianPoint.class));
+    }
+}
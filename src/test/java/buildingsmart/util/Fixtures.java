@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.util;
+
+import buildingsmart.ifc.*;
+import buildingsmart.model.Model;
+
+/**
+ * Entities shared by the tests which need valid instances of IfcRoot or of
+ * IfcRepresentation, but don't care about their owner or context.
+ * </p>
+ * Shared entities are created on first use, outside of any {@link Model}, so
+ * they're never added to the models of the tests using them.
+ */
+public final class Fixtures {
+    private static IfcOwnerHistory ownerHistory;
+    private static IfcGeometricRepresentationContext context;
+
+    private Fixtures() {
+    }
+
+    /**
+     * @return An owner history whose person, organization and application
+     * have empty names.
+     */
+    public static synchronized IfcOwnerHistory ownerHistory() {
+        if (ownerHistory == null) {
+            ownerHistory = Model.detached(() -> {
+                IfcApplication.clearUniqueConstraint();
+                IfcPerson person =
+                        IfcPerson.builder().givenName(new IfcLabel(""))
+                                .build();
+                IfcOrganization organization =
+                        IfcOrganization.builder().name(new IfcLabel(""))
+                                .build();
+                IfcPersonAndOrganization personAndOrganization =
+                        new IfcPersonAndOrganization(person, organization,
+                                null);
+                IfcApplication application =
+                        new IfcApplication(organization, new IfcLabel(""),
+                                new IfcLabel(""), new IfcIdentifier(""));
+                return new IfcOwnerHistory(personAndOrganization,
+                        application, null, IfcChangeActionEnum.ADDED, null,
+                        personAndOrganization, application,
+                        new IfcTimeStamp());
+            });
+        }
+        return ownerHistory;
+    }
+
+    /**
+     * @return A three-dimensional model context at the origin, whose true
+     * north is the Y axis.
+     */
+    public static synchronized IfcGeometricRepresentationContext context() {
+        if (context == null) {
+            context = Model.detached(
+                    () -> new IfcGeometricRepresentationContext(
+                            new IfcLabel("Plan"), new IfcLabel("Model"),
+                            new IfcDimensionCount(3), new IfcReal(1.E-05),
+                            new IfcAxis2Placement3D(0, 0, 0),
+                            new IfcDirection(0, 1, 0)));
+        }
+        return context;
+    }
+
+    /**
+     * @return A builder of an IfcBuildingElementProxy named "Proxy", with a
+     * new GlobalId and the shared {@link #ownerHistory()}.
+     */
+    public static IfcBuildingElementProxy.IfcBuildingElementProxyBuilder
+    proxyBuilder() {
+        return IfcBuildingElementProxy.builder()
+                .globalId(new IfcGloballyUniqueId())
+                .ownerHistory(ownerHistory()).name(new IfcLabel("Proxy"));
+    }
+}
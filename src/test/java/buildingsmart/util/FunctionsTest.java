@@ -629,4 +629,49 @@ public class FunctionsTest {
                         .toArray(String[]::new);
         assertArrayEquals(expected, formatted);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void formatForStepFile_plainAscii_sameInstance() {
+        String plain = "IfcWall #1 (external)";
+
+        assertSame(plain, Functions.formatForStepFile(plain));
+    }
+
+    @Test
+    public void formatForStepFile_appendsToBuilder() {
+        StringBuilder builder = new StringBuilder("'");
+        Functions.formatForStepFile("it's è", builder);
+
+        assertEquals("'it\\'s \\X\\E8", builder.toString());
+    }
+
+    @Test
+    public void parseFromStepFile_revertsFormatForStepFile() {
+        String[] unformatted = {"aèa\\",
+                                "'''",
+                                "a\\'b",
+                                "ż",
+                                "\nasdf\n",
+                                "",
+                                "\u24B7\u24C7\u24B6\u24C5",
+                                "🌙"};
+        for (String s : unformatted) {
+            assertEquals(s, Functions.parseFromStepFile(
+                    Functions.formatForStepFile(s)));
+        }
+    }
+
+    @Test
+    public void parseFromStepFile_iso10303Encodings() {
+        assertEquals("it's", Functions.parseFromStepFile("it''s"));
+        assertEquals("\u00e9", Functions.parseFromStepFile("\\S\\i"));
+        assertEquals("\u017c\u017c",
+                     Functions.parseFromStepFile("\\X2\\017C017c\\X0\\"));
+        assertEquals("a", Functions.parseFromStepFile("\\PA\\a"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseFromStepFile_invalidEscape() {
+        Functions.parseFromStepFile("\\X2\\01");
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2020 Giovanni Velludo
+ *
+ * This file is part of IFC.JAVA.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package buildingsmart.util;
+
+import org.junit.Test;
+
+import static buildingsmart.util.Functions.DELTA;
+import static org.junit.Assert.*;
+
+public class VectorMathTest {
+
+    @Test
+    public void normalise_zeroVector_returnsFalse() {
+        double[] result = {7, 7, 7};
+        assertFalse(VectorMath.normalise(new double[]{0, 0, 0}, result, 3));
+        assertArrayEquals(new double[]{7, 7, 7}, result, 0);
+    }
+
+    @Test
+    public void normalise_inPlace() {
+        double[] vector = {3, 0, 4};
+        assertTrue(VectorMath.normalise(vector, vector, 3));
+        assertArrayEquals(new double[]{0.6, 0, 0.8}, vector, DELTA);
+        assertTrue(VectorMath.isNormalised(vector, 3));
+    }
+
+    @Test
+    public void firstProjAxis_parallelArgument_returnsFalse() {
+        assertFalse(VectorMath.firstProjAxis(new double[]{0, 0, 1},
+                                             new double[]{0, 0, -3},
+                                             new double[3]));
+    }
+
+    @Test
+    public void buildAxes_obliqueDirections_areOrthonormal() {
+        double[] x = new double[3];
+        double[] y = new double[3];
+        double[] z = new double[3];
+
+        assertTrue(VectorMath.buildAxes(new double[]{0, 1, 1},
+                                        new double[]{1, 1, 0}, x, y, z));
+
+        assertEquals(0, VectorMath.dot(x, y, 3), DELTA);
+        assertEquals(0, VectorMath.dot(y, z, 3), DELTA);
+        assertEquals(0, VectorMath.dot(z, x, 3), DELTA);
+        assertTrue(VectorMath.isNormalised(x, 3));
+        assertTrue(VectorMath.isNormalised(y, 3));
+        assertArrayEquals(new double[]{0, Math.sqrt(0.5), Math.sqrt(0.5)}, z,
+                          DELTA);
+        // x stays in the half-space of refDirection
+        assertTrue(x[0] > 0);
+    }
+
+    @Test
+    public void buildAxes_defaults() {
+        double[] x = new double[3];
+        double[] y = new double[3];
+        double[] z = new double[3];
+
+        assertTrue(VectorMath.buildAxes(null, null, x, y, z));
+
+        assertArrayEquals(new double[]{1, 0, 0}, x, 0);
+        assertArrayEquals(new double[]{0, 1, 0}, y, 0);
+        assertArrayEquals(new double[]{0, 0, 1}, z, 0);
+    }
+}